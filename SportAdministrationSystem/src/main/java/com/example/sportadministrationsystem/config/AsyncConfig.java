@@ -1,5 +1,9 @@
 package com.example.sportadministrationsystem.config;
 
+import com.example.sportadministrationsystem.model.Channel;
+import com.example.sportadministrationsystem.service.ChannelBulkhead;
+import com.example.sportadministrationsystem.service.StripedExecutor;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -9,6 +13,7 @@ import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 /**
  * Конфігурація для асинхронної обробки (webhook-и, dispatch-и).
  * Дозволяє методам помічені @Async виконуватися в окремих потоках.
+ * Розсилки Telegram і WhatsApp мають окремі пули (ChannelBulkhead), вхідні оновлення — окремі смуги.
  */
 @Configuration
 @EnableAsync
@@ -43,4 +48,51 @@ public class AsyncConfig {
         executor.initialize();
         return executor;
     }
+
+    /**
+     * Розсилка Telegram-постів: власний пул і обмежена черга, незалежні від WhatsApp.
+     */
+    @Bean(name = "telegramDispatchBulkhead", destroyMethod = "shutdown")
+    public ChannelBulkhead telegramDispatchBulkhead(
+            MeterRegistry meterRegistry,
+            @Value("${dispatcher.telegram.threads:4}") int threads,
+            @Value("${dispatcher.telegram.queue-capacity:50}") int queueCapacity) {
+        return new ChannelBulkhead(Channel.TELEGRAM, threads, queueCapacity).bindTo(meterRegistry);
+    }
+
+    /**
+     * Розсилка WhatsApp-постів і нагадувань: коли Graph API гальмує, заповнюється лише цей пул.
+     */
+    @Bean(name = "whatsAppDispatchBulkhead", destroyMethod = "shutdown")
+    public ChannelBulkhead whatsAppDispatchBulkhead(
+            MeterRegistry meterRegistry,
+            @Value("${dispatcher.whatsapp.threads:4}") int threads,
+            @Value("${dispatcher.whatsapp.queue-capacity:50}") int queueCapacity) {
+        return new ChannelBulkhead(Channel.WHATSAPP, threads, queueCapacity).bindTo(meterRegistry);
+    }
+
+    /**
+     * Обробка вхідних WhatsApp-повідомлень: смуга за waId відправника —
+     * повідомлення одного користувача строго по черзі, різних — паралельно.
+     * Переповнена смуга відхиляє тіло вебхука — рядок вхідної черги повториться з backoff.
+     */
+    @Bean(name = "whatsAppInboundExecutor", destroyMethod = "shutdown")
+    public StripedExecutor whatsAppInboundExecutor(
+            MeterRegistry meterRegistry,
+            @Value("${whatsapp.inbound.stripes:16}") int stripes,
+            @Value("${whatsapp.inbound.queue-capacity:1000}") int queueCapacity) {
+        return new StripedExecutor("whatsapp.inbound", stripes, queueCapacity).bindTo(meterRegistry);
+    }
+
+    /**
+     * Обробка Telegram-оновлень (webhook): смуга за chat_id — порядок у межах чату, чати паралельно.
+     * Загальний обсяг і так обмежує telegram.updates.max-in-flight; ліміт смуги — від сплеску одного чату.
+     */
+    @Bean(name = "telegramUpdateExecutor", destroyMethod = "shutdown")
+    public StripedExecutor telegramUpdateExecutor(
+            MeterRegistry meterRegistry,
+            @Value("${telegram.updates.stripes:16}") int stripes,
+            @Value("${telegram.updates.queue-capacity:1000}") int queueCapacity) {
+        return new StripedExecutor("telegram.updates", stripes, queueCapacity).bindTo(meterRegistry);
+    }
 }
@@ -2,17 +2,24 @@ package com.example.sportadministrationsystem.config;
 
 import com.example.sportadministrationsystem.service.TelegramService;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationRunner;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.telegram.telegrambots.meta.TelegramBotsApi;
+import org.telegram.telegrambots.meta.api.methods.updates.SetWebhook;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 import org.telegram.telegrambots.updatesreceivers.DefaultBotSession;
 
 /**
- * Реєструє наш TelegramService як LongPolling-бота.
+ * Підключення TelegramService до Telegram за telegram.mode:
+ * - polling (за замовчуванням) — LongPolling-сесія бота (registerBot заодно знімає webhook);
+ * - webhook — setWebhook на telegram.webhook.url з секретом, оновлення приймає TelegramWebhookController.
  * Вимикається в тестах через telegram.enabled=false.
  */
+@Slf4j
 @Configuration
 @RequiredArgsConstructor
 @ConditionalOnProperty(prefix = "telegram", name = "enabled", havingValue = "true", matchIfMissing = true)
@@ -21,9 +28,29 @@ public class TelegramBotConfig {
     private final TelegramService telegramService;
 
     @Bean
+    @ConditionalOnProperty(prefix = "telegram", name = "mode", havingValue = "polling", matchIfMissing = true)
     public TelegramBotsApi telegramBotsApi() throws TelegramApiException {
         TelegramBotsApi api = new TelegramBotsApi(DefaultBotSession.class);
         api.registerBot(telegramService);
         return api;
     }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "telegram", name = "mode", havingValue = "webhook")
+    public ApplicationRunner telegramWebhookRegistration(
+            @Value("${telegram.webhook.url}") String url,
+            @Value("${telegram.webhook.secret-token:}") String secretToken,
+            @Value("${telegram.webhook.max-connections:40}") int maxConnections) {
+        return args -> {
+            SetWebhook.SetWebhookBuilder req = SetWebhook.builder().url(url).maxConnections(maxConnections);
+            if (!secretToken.isBlank()) req.secretToken(secretToken);
+            else log.warn("telegram.webhook.secret-token is empty: webhook requests are not authenticated");
+            try {
+                telegramService.execute(req.build());
+                log.info("Telegram webhook registered: {}", url);
+            } catch (TelegramApiException e) {
+                log.error("Failed to register Telegram webhook {}: {}", url, e.getMessage());
+            }
+        };
+    }
 }
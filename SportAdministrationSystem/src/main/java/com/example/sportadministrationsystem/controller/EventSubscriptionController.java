@@ -1,9 +1,9 @@
 package com.example.sportadministrationsystem.controller;
 
+import com.example.sportadministrationsystem.dto.EventSubscriberCounts;
 import com.example.sportadministrationsystem.model.Messenger;
-import com.example.sportadministrationsystem.repository.EventSubscriptionRepository;
-import com.example.sportadministrationsystem.repository.EventSubscriptionWhatsappRepository;
 import com.example.sportadministrationsystem.service.EventService;
+import com.example.sportadministrationsystem.service.SubscriberCountService;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
@@ -11,19 +11,20 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @RestController
-@RequestMapping("/api/v1/events/{eventId}/subscription")
+@RequestMapping("/api/v1/events")
 @RequiredArgsConstructor
 public class EventSubscriptionController {
 
     private final EventService eventService;
-    private final EventSubscriptionRepository eventSubscriptionRepository;
-    private final EventSubscriptionWhatsappRepository eventSubscriptionWhatsappRepository;
+    private final SubscriberCountService subscriberCountService;
 
     /**
      * Статус мого зв’язку/підписки (ваш існуючий ендпоінт, за потреби доробите логіку всередині).
      */
-    @GetMapping("/my-status")
+    @GetMapping("/{eventId}/subscription/my-status")
     public ResponseEntity<MySubscriptionStatus> myStatus(@PathVariable Long eventId,
                                                          Authentication auth) {
         // Перевірка існування івента (кине 404, якщо не знайдено)
@@ -35,17 +36,15 @@ public class EventSubscriptionController {
     /**
      * Лише кількість активних Telegram-підписників на івент.
      * Рахуємо тільки тих, у кого є tg_chat_id (тобто реально зв'язані в Telegram),
-     * і лише active=true.
+     * і лише active=true. Значення — з лічильника, що підтримується тригерами (V39).
      *
      * @param eventId ID івента
      * @return 200 OK з TelegramCountResponse, або 404 якщо івент не знайдено
      */
-    @GetMapping("/telegram/count")
+    @GetMapping("/{eventId}/subscription/telegram/count")
     public ResponseEntity<TelegramCountResponse> countTelegram(@PathVariable Long eventId) {
-        // Перевірка існування івента (кине 404 автоматично)
-        eventService.getById(eventId);
-
-        long count = eventSubscriptionRepository.countActiveTelegram(eventId);
+        // Існування івента перевіряється тим самим запитом (кине 404 автоматично)
+        long count = subscriberCountService.get(eventId).telegram();
         return ResponseEntity.ok(new TelegramCountResponse(
                 eventId, Messenger.TELEGRAM.name(), true, count
         ));
@@ -54,22 +53,32 @@ public class EventSubscriptionController {
     /**
      * Лише кількість активних WhatsApp-підписників на івент.
      * Рахуємо тільки тих, у кого є wa_id (тобто реально зв'язані у WhatsApp),
-     * і лише active=true.
+     * і лише active=true. Значення — з лічильника, що підтримується тригерами (V39).
      *
      * @param eventId ID івента
      * @return 200 OK з WhatsAppCountResponse, або 404 якщо івент не знайдено
      */
-    @GetMapping("/whatsapp/count")
+    @GetMapping("/{eventId}/subscription/whatsapp/count")
     public ResponseEntity<WhatsAppCountResponse> countWhatsApp(@PathVariable Long eventId) {
-        // Перевірка існування івента (кине 404 автоматично)
-        eventService.getById(eventId);
-
-        long count = eventSubscriptionWhatsappRepository.countActiveWhatsApp(eventId);
+        // Існування івента перевіряється тим самим запитом (кине 404 автоматично)
+        long count = subscriberCountService.get(eventId).whatsapp();
         return ResponseEntity.ok(new WhatsAppCountResponse(
                 eventId, "WHATSAPP", true, count
         ));
     }
 
+    /**
+     * Кількість активних підписників (Telegram і WhatsApp) для списку івентів одним запитом —
+     * для сторінок зі списком івентів замість двох запитів на кожен івент.
+     *
+     * @param ids ID івентів (через кому, не більше subscriptions.counts.max-batch)
+     * @return 200 OK зі списком лічильників; неіснуючі івенти пропускаються
+     */
+    @GetMapping("/subscriber-counts")
+    public ResponseEntity<List<EventSubscriberCounts>> counts(@RequestParam List<Long> ids) {
+        return ResponseEntity.ok(subscriberCountService.find(ids));
+    }
+
     @Data
     @AllArgsConstructor
     public static class MySubscriptionStatus {
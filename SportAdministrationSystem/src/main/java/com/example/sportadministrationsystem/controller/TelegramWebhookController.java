@@ -1,17 +1,24 @@
 package com.example.sportadministrationsystem.controller;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.example.sportadministrationsystem.service.TelegramUpdateDispatcher;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 
 /**
- * Webhook контролер для Telegram.
- * Однак, поточна конфігурація використовує long-polling (TelegramLongPollingBot).
- * Цей контролер залишено для майбутнього переходу на webhook-и.
+ * Webhook контролер для Telegram (telegram.mode=webhook).
+ *
+ * Перевіряє X-Telegram-Bot-Api-Secret-Token, передає оновлення в TelegramUpdateDispatcher
+ * (дедуплікація за update_id, смуга за чатом) і одразу підтверджує — обробка йде у фоні.
+ * Якщо в роботі вже максимум оновлень — 503, Telegram повторить доставку.
+ * У режимі polling (за замовчуванням) оновлення сюди не приймаються.
  */
 @Slf4j
 @RestController
@@ -19,37 +26,44 @@ import org.springframework.web.bind.annotation.*;
 @RequestMapping("/api/v1/telegram/webhook")
 public class TelegramWebhookController {
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final TelegramUpdateDispatcher dispatcher;
+    private final ObjectMapper objectMapper;
+
+    @Value("${telegram.mode:polling}")
+    private String mode;
 
-    @Value("${telegram.bot.token:}")
-    private String botToken;
+    @Value("${telegram.webhook.secret-token:}")
+    private String secretToken;
 
     @PostMapping
     public ResponseEntity<Void> receive(
-            @RequestBody String body,
-            @RequestHeader(value = "X-Telegram-Bot-Api-Secret-Token", required = false) String secretToken
+            @RequestBody byte[] body,
+            @RequestHeader(value = "X-Telegram-Bot-Api-Secret-Token", required = false) String headerToken
     ) {
-        try {
-            // У поточній реалізації Telegram використовує long-polling
-            // Якщо буде перехід на webhook, то потрібно:
-            // 1. Перевірити secretToken (якщо передається)
-            // 2. Витягнути update_id і перевірити ідемпотентність
-            // 3. Обробити асинхронно
-            // 4. Повернути 200 OK
-
-            JsonNode root = objectMapper.readTree(body);
-            String updateId = root.path("update_id").asText(null);
-
-            if (updateId != null) {
-                log.debug("Received Telegram webhook update_id: {}", updateId);
-            }
+        if (!"webhook".equalsIgnoreCase(mode)) {
+            return ResponseEntity.notFound().build();
+        }
 
-            // TODO: Реалізувати обробку webhook-и (замість long-polling)
+        // 1) Секрет, заданий у setWebhook (порожній — перевірка вимкнена, лише для локальних тестів)
+        if (!secretToken.isBlank() && (headerToken == null || !MessageDigest.isEqual(
+                secretToken.getBytes(StandardCharsets.UTF_8), headerToken.getBytes(StandardCharsets.UTF_8)))) {
+            log.warn("Invalid X-Telegram-Bot-Api-Secret-Token");
+            return ResponseEntity.status(403).build();
+        }
 
-            return ResponseEntity.ok().build();
+        // 2) Розбір і передача в смугу чату; відповідь — одразу
+        Update update;
+        try {
+            update = objectMapper.readValue(body, Update.class);
         } catch (Exception e) {
-            log.error("Error processing Telegram webhook: {}", e.getMessage());
+            // Нерозбірне тіло повтор не виправить — підтверджуємо, щоб Telegram не ретраїв
+            log.warn("Malformed Telegram update: {}", e.getMessage());
             return ResponseEntity.ok().build();
         }
+        if (dispatcher.dispatch(update) == TelegramUpdateDispatcher.Result.REJECTED) {
+            // Обробка перевантажена — Telegram повторить доставку пізніше
+            return ResponseEntity.status(503).build();
+        }
+        return ResponseEntity.ok().build();
     }
 }
@@ -1,14 +1,20 @@
 package com.example.sportadministrationsystem.controller;
 
+import com.example.sportadministrationsystem.dto.WhatsAppDeliveryStats;
 import com.example.sportadministrationsystem.model.Event;
 import com.example.sportadministrationsystem.repository.EventRepository;
+import com.example.sportadministrationsystem.repository.WhatsAppDeliveryTrackingRepository;
 import com.example.sportadministrationsystem.service.WhatsAppInviteService;
+import com.example.sportadministrationsystem.service.WhatsAppWebhookInbox;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 @Slf4j
@@ -19,6 +25,8 @@ public class WhatsAppController {
 
     private final WhatsAppInviteService inviteService;
     private final EventRepository eventRepository;
+    private final WhatsAppDeliveryTrackingRepository deliveryTrackingRepository;
+    private final WhatsAppWebhookInbox webhookInbox;
 
     /**
      * GET /api/v1/whatsapp/events/{eventId}/invite
@@ -51,4 +59,50 @@ public class WhatsAppController {
 
         return ResponseEntity.ok(response);
     }
+
+    /**
+     * GET /api/v1/whatsapp/events/{eventId}/delivery-stats
+     * Доставка і прочитання WhatsApp-повідомлень івенту (за статус-вебхуками)
+     */
+    @GetMapping("/events/{eventId}/delivery-stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getDeliveryStats(@PathVariable long eventId) {
+        WhatsAppDeliveryStats stats = deliveryTrackingRepository.statsForEvent(eventId);
+        long total = nz(stats.getTotal());
+        long accepted = nz(stats.getAccepted());
+        long delivered = nz(stats.getDelivered());
+        long read = nz(stats.getRead());
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("eventId", eventId);
+        response.put("total", total);
+        response.put("accepted", accepted);
+        response.put("delivered", delivered);
+        response.put("read", read);
+        response.put("failed", nz(stats.getFailed()));
+        response.put("deliveryRate", accepted == 0 ? 0.0 : (double) delivered / accepted);
+        response.put("readRate", delivered == 0 ? 0.0 : (double) read / delivered);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * POST /api/v1/whatsapp/webhook-inbox/replay?from=...&to=...
+     * Повторна обробка вебхуків, що надійшли в [from, to) (ISO date-time)
+     */
+    @PostMapping("/webhook-inbox/replay")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> replayWebhooks(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to
+    ) {
+        if (!from.isBefore(to)) {
+            return ResponseEntity.badRequest().build();
+        }
+        int requeued = webhookInbox.replay(from, to);
+        return ResponseEntity.ok(Map.of("from", from, "to", to, "requeued", requeued));
+    }
+
+    private static long nz(Long v) {
+        return v == null ? 0 : v;
+    }
 }
@@ -1,26 +1,29 @@
 package com.example.sportadministrationsystem.controller;
 
-import com.example.sportadministrationsystem.repository.ProcessedWhatsAppMessageRepository;
-import com.example.sportadministrationsystem.service.WhatsAppService;
+import com.example.sportadministrationsystem.service.WhatsAppMessageDedup;
 import com.example.sportadministrationsystem.service.WhatsAppSignatureVerifier;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.sportadministrationsystem.service.WhatsAppWebhookInbox;
+import com.example.sportadministrationsystem.service.WhatsAppWebhookParser;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 @Slf4j
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/api/v1/whatsapp/webhook")
 public class WhatsAppWebhookController {
 
-    private final WhatsAppService whatsAppService;
+    private final WhatsAppWebhookInbox inbox;
     private final WhatsAppSignatureVerifier signatureVerifier;
-    private final ProcessedWhatsAppMessageRepository processedMessageRepository;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final WhatsAppMessageDedup dedup;
+    private final WhatsAppWebhookParser parser;
 
     @Value("${whatsapp.webhook.verify-token}")
     private String verifyToken;
@@ -28,6 +31,9 @@ public class WhatsAppWebhookController {
     @Value("${whatsapp.webhook.app-secret:}")
     private String appSecret;
 
+    @Value("${whatsapp.inbox.append-timeout-ms:5000}")
+    private long appendTimeoutMs;
+
     @GetMapping
     public ResponseEntity<String> verify(
             @RequestParam("hub.mode") String mode,
@@ -42,70 +48,46 @@ public class WhatsAppWebhookController {
 
     @PostMapping
     public ResponseEntity<Void> receive(
-            @RequestBody String body,
+            @RequestBody byte[] body,
             @RequestHeader(value = "X-Hub-Signature-256", required = false) String sig
     ) {
-        // 1) Перевіряємо підпис для безпеки
+        // 1) Перевіряємо підпис над сирими байтами тіла — саме їх підписує Meta
         if (!signatureVerifier.isValid(body, sig, appSecret)) {
             log.warn("Invalid X-Hub-Signature-256");
             return ResponseEntity.status(403).build();
         }
 
-        // 2) Витягуємо message_id для ідемпотентності (дедупліку)
-        String messageId = extractMessageId(body);
-
-        if (messageId != null && processedMessageRepository.existsByMessageId(messageId)) {
-            log.debug("Webhook message_id={} already processed, skipping", messageId);
-            return ResponseEntity.ok().build(); // Швидко повертаємо, не обробляємо дублікат
+        // 2) Повтор доставки, усі повідомлення якого нещодавно бачені, — підтверджуємо без БД
+        //    (решту дублікатів відсіче INSERT ... ON CONFLICT при обробці)
+        List<String> messageIds = extractMessageIds(body);
+        if (dedup.allSeenRecently(messageIds)) {
+            log.debug("Webhook with message_id(s) {} already processed, skipping", messageIds);
+            return ResponseEntity.ok().build();
         }
 
-        // 3) Швидко повертаємо 200 OK (ack), потім обробляємо асинхронно
+        // 3) Пишемо тіло у вхідну чергу (whatsapp_webhook_inbox) і підтверджуємо лише після коміту
         try {
-            if (messageId != null) {
-                log.debug("Received WhatsApp webhook with message_id: {}", messageId);
-            }
-
-            // 4) Запускаємо асинхронну обробку (у сервісі будуть сохраненi processed messages)
-            whatsAppService.handleWebhookAsync(body);
+            inbox.append(new String(body, StandardCharsets.UTF_8)).get(appendTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.status(503).build();
         } catch (Exception e) {
-            log.error("Failed to process webhook: {}", e.getMessage(), e);
-            // Все одно повертаємо 200, щоб Meta не повторював
+            // Не зберегли — не підтверджуємо: Meta повторить доставку
+            log.error("Failed to store webhook: {}", e.getMessage());
+            return ResponseEntity.status(503).build();
         }
 
-        // 5) Повертаємо успіх — обробка буде асинхронна
+        // 4) Повертаємо успіх — обробку виконають воркери черги
         return ResponseEntity.ok().build();
     }
 
-    /**
-     * Витягує message_id з webhook body для дедупліку.
-     * Meta sends: entry[0].changes[0].value.messages[0].id
-     */
-    private String extractMessageId(String body) {
+    /** Усі message_id тіла (порожньо, якщо є статуси, повідомлення без id або тіло нерозбірне). */
+    private List<String> extractMessageIds(byte[] body) {
         try {
-            JsonNode root = objectMapper.readTree(body);
-            JsonNode entry = root.path("entry");
-            if (!entry.isArray() || entry.size() == 0) return null;
-
-            JsonNode entryNode = entry.get(0);
-            JsonNode changes = entryNode.path("changes");
-            if (!changes.isArray() || changes.size() == 0) return null;
-
-            JsonNode changeNode = changes.get(0);
-            JsonNode value = changeNode.path("value");
-
-            JsonNode messages = value.path("messages");
-            if (messages.isArray() && messages.size() > 0) {
-                JsonNode messageNode = messages.get(0);
-                if (messageNode != null) {
-                    String id = messageNode.path("id").asText(null);
-                    if (id != null && !id.isBlank()) {
-                        return id;
-                    }
-                }
-            }
+            return parser.parse(body).messageIds();
         } catch (Exception e) {
             log.debug("Failed to extract message_id: {}", e.getMessage());
+            return List.of();
         }
-        return null;
     }
 }
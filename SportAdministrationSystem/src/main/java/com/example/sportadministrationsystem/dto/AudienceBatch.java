@@ -0,0 +1,91 @@
+package com.example.sportadministrationsystem.dto;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Сторінка аудиторії розсилки в компактному вигляді, що перевикористовується між сторінками.
+ *
+ * Telegram-адреси зберігаються як long[] chat id, WhatsApp — як String[] wa_id (рядки з БД, без обгорток);
+ * з батчу запам'ятовується лише id останньої підписки (ключ keyset-пагінації).
+ * Пам'ять на розсилку — один батч розміру capacity, незалежно від розміру аудиторії.
+ */
+public final class AudienceBatch {
+
+    private final long[] chatIds;
+    private final String[] waIds;
+    private final boolean telegram;
+    private int size;
+    private long lastSubscriptionId;
+
+    private AudienceBatch(int capacity, boolean telegram) {
+        this.telegram = telegram;
+        this.chatIds = telegram ? new long[capacity] : null;
+        this.waIds = telegram ? null : new String[capacity];
+    }
+
+    public static AudienceBatch telegram(int capacity) {
+        return new AudienceBatch(capacity, true);
+    }
+
+    public static AudienceBatch whatsapp(int capacity) {
+        return new AudienceBatch(capacity, false);
+    }
+
+    public void clear() {
+        if (waIds != null) Arrays.fill(waIds, 0, size, null);
+        size = 0;
+    }
+
+    public void addTelegram(long subscriptionId, long chatId) {
+        chatIds[size++] = chatId;
+        lastSubscriptionId = subscriptionId;
+    }
+
+    public void addWhatsapp(long subscriptionId, String waId) {
+        waIds[size++] = waId;
+        lastSubscriptionId = subscriptionId;
+    }
+
+    public int capacity() {
+        return telegram ? chatIds.length : waIds.length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean isFull() {
+        return size == capacity();
+    }
+
+    public long lastSubscriptionId() {
+        return lastSubscriptionId;
+    }
+
+    /** Адреса i-го таргета у вигляді, в якому вона пишеться в post_delivery.target і йде в API каналу. */
+    public String target(int i) {
+        if (i >= size) throw new IndexOutOfBoundsException(i);
+        return telegram ? Long.toString(chatIds[i]) : waIds[i];
+    }
+
+    /** Легке представлення батча як списку адрес (без копіювання масивів). */
+    public List<String> targets() {
+        return new AbstractList<>() {
+            @Override
+            public String get(int index) {
+                return target(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.sportadministrationsystem.dto;
+
+/**
+ * Підсумок розсилки поста по унікальних таргетах.
+ */
+public interface DeliveryTotals {
+    Long getSent();
+    Long getFailed();
+}
@@ -0,0 +1,7 @@
+package com.example.sportadministrationsystem.dto;
+
+/**
+ * Кількість активних підписників івенту по каналах (з лічильників event_subscriber_counts).
+ */
+public record EventSubscriberCounts(long eventId, long telegram, long whatsapp) {
+}
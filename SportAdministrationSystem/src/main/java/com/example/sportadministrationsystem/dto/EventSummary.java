@@ -0,0 +1,31 @@
+package com.example.sportadministrationsystem.dto;
+
+import com.example.sportadministrationsystem.model.Event;
+
+import java.time.LocalDateTime;
+
+/**
+ * Незмінний зріз івенту для відповідей ботів (назва, дата, місце, посилання) — без JPA-сутності.
+ */
+public record EventSummary(long id,
+                           String name,
+                           LocalDateTime startAt,
+                           String location,
+                           String linkUrl) {
+
+    /** Посилання: спочатку url івенту, якщо нема — cover_url. */
+    public static EventSummary of(Event e) {
+        String link = firstNonBlank(e.getUrl(), e.getCoverUrl());
+        return new EventSummary(e.getId(), e.getName(), e.getStartAt(), e.getLocation(), link);
+    }
+
+    public String displayName() {
+        return name != null ? name : "Івент #" + id;
+    }
+
+    private static String firstNonBlank(String a, String b) {
+        if (a != null && !a.isBlank()) return a.trim();
+        if (b != null && !b.isBlank()) return b.trim();
+        return null;
+    }
+}
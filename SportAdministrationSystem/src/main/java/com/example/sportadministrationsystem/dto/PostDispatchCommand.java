@@ -0,0 +1,32 @@
+package com.example.sportadministrationsystem.dto;
+
+import com.example.sportadministrationsystem.model.Audience;
+import com.example.sportadministrationsystem.model.Channel;
+import com.example.sportadministrationsystem.model.Post;
+
+/**
+ * Незмінний знімок поста для розсилки: поля поста, зріз його івенту і те, що потрібно для клавіатури.
+ * Береться в короткій читальній транзакції; далі розсилка йде без JPA-сутностей і без відкритої транзакції.
+ *
+ * firstPublic — у івенту ще немає опублікованих постів (для PUBLIC у Telegram — інша клавіатура).
+ */
+public record PostDispatchCommand(long postId,
+                                  Channel channel,
+                                  Audience audience,
+                                  String title,
+                                  String body,
+                                  EventSummary event,
+                                  boolean firstPublic) {
+
+    public static PostDispatchCommand of(Post p, boolean firstPublic) {
+        if (p.getEvent() == null || p.getEvent().getId() == null) {
+            throw new IllegalStateException("Post #" + p.getId() + " must be linked to an Event");
+        }
+        return new PostDispatchCommand(p.getId(), p.getChannel(), p.getAudience(), p.getTitle(), p.getBody(),
+                EventSummary.of(p.getEvent()), firstPublic);
+    }
+
+    public long eventId() {
+        return event.id();
+    }
+}
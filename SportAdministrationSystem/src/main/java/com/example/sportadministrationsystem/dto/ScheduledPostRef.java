@@ -0,0 +1,9 @@
+package com.example.sportadministrationsystem.dto;
+
+import java.time.LocalDateTime;
+
+/** Проєкція "id + час публікації" для таймера due-постів. */
+public interface ScheduledPostRef {
+    Long getId();
+    LocalDateTime getPublishAt();
+}
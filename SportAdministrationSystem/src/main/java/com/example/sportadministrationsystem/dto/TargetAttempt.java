@@ -0,0 +1,10 @@
+package com.example.sportadministrationsystem.dto;
+
+/**
+ * Стан доставки поста конкретному таргету за даними post_delivery.
+ */
+public interface TargetAttempt {
+    String getTarget();
+    Integer getAttemptNo(); // номер останньої спроби
+    Boolean getSent();      // чи була хоч одна успішна спроба
+}
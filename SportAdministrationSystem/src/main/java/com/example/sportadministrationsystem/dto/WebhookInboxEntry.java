@@ -0,0 +1,7 @@
+package com.example.sportadministrationsystem.dto;
+
+/**
+ * Захоплений воркером рядок вхідної черги вебхуків.
+ */
+public record WebhookInboxEntry(long id, String body, int attempts) {
+}
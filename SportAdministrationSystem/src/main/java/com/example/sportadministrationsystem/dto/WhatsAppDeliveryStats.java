@@ -0,0 +1,12 @@
+package com.example.sportadministrationsystem.dto;
+
+/**
+ * Підсумок доставки WhatsApp-повідомлень івенту (з whatsapp_delivery_tracking).
+ */
+public interface WhatsAppDeliveryStats {
+    Long getTotal();
+    Long getAccepted();
+    Long getDelivered();
+    Long getRead();
+    Long getFailed();
+}
@@ -0,0 +1,17 @@
+package com.example.sportadministrationsystem.dto;
+
+import com.example.sportadministrationsystem.model.DeliveryStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Злитий у пам'яті стан повідомлення зі статус-вебхуків WhatsApp (один запис на message_id).
+ */
+public record WhatsAppStatusUpdate(String messageId,
+                                   String recipient,
+                                   DeliveryStatus status,
+                                   LocalDateTime firstSeenAt,
+                                   LocalDateTime deliveredAt,
+                                   LocalDateTime readAt,
+                                   String error) {
+}
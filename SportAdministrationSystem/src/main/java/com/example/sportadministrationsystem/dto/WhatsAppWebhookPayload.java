@@ -0,0 +1,45 @@
+package com.example.sportadministrationsystem.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Розібране тіло вебхука WhatsApp: лише поля, які реально використовуються
+ * для дедуплікації, маршрутизації та обробки (entry[].changes[].value).
+ */
+public record WhatsAppWebhookPayload(List<Message> messages, List<Status> statuses) {
+
+    /**
+     * Вхідне повідомлення. actionId — id натиснутої кнопки (interactive button/list reply або button.payload).
+     */
+    public record Message(String id,
+                          String from,
+                          String profileName,
+                          String type,
+                          String text,
+                          String actionId,
+                          String groupId) {
+    }
+
+    /** Статус вихідного повідомлення (sent/delivered/read/failed). */
+    public record Status(String messageId,
+                         String status,
+                         long timestamp,
+                         String recipient,
+                         String error) {
+    }
+
+    /**
+     * Усі message_id вхідних повідомлень. Порожній список, якщо в тілі є статуси
+     * або хоча б одне повідомлення без id — таке тіло завжди йде в обробку.
+     */
+    public List<String> messageIds() {
+        if (!statuses.isEmpty()) return List.of();
+        List<String> ids = new ArrayList<>(messages.size());
+        for (Message m : messages) {
+            if (m.id() == null || m.id().isBlank()) return List.of();
+            ids.add(m.id());
+        }
+        return ids;
+    }
+}
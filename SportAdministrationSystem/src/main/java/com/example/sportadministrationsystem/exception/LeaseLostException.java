@@ -0,0 +1,11 @@
+package com.example.sportadministrationsystem.exception;
+
+/**
+ * Оренда поста втрачена (прострочена й забрана ріпером або пост скасовано) —
+ * поточний воркер має припинити розсилку і нічого не записувати в пост.
+ */
+public class LeaseLostException extends RuntimeException {
+    public LeaseLostException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.sportadministrationsystem.exception;
+
+/**
+ * Graph API не прийняв повідомлення (помилка HTTP/коду API, таймаут або немає слота лімітера).
+ */
+public class WhatsAppSendException extends RuntimeException {
+    public WhatsAppSendException(String message) {
+        super(message);
+    }
+}
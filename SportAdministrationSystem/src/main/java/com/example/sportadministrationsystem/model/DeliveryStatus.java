@@ -1,5 +1,9 @@
 package com.example.sportadministrationsystem.model;
 
+/**
+ * Статус доставки. post_delivery використовує лише SENT/FAILED;
+ * DELIVERED/READ приходять у статус-вебхуках WhatsApp (whatsapp_delivery_tracking).
+ */
 public enum DeliveryStatus {
-    SENT, FAILED
+    SENT, DELIVERED, READ, FAILED
 }
@@ -0,0 +1,25 @@
+package com.example.sportadministrationsystem.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Контрольна точка розсилки поста: id останньої підписки, чанк якої вже записаний у post_delivery.
+ */
+@Entity
+@Table(name = "post_dispatch_checkpoint")
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class PostDispatchCheckpoint {
+
+    @Id
+    @Column(name = "post_id")
+    private Long postId;
+
+    @Column(name = "last_subscription_id", nullable = false)
+    private long lastSubscriptionId;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -1,3 +1,3 @@
 package com.example.sportadministrationsystem.model;
 
-public enum PostStatus {DRAFT, SCHEDULED, PUBLISHED, FAILED, CANCELLED}
+public enum PostStatus {DRAFT, SCHEDULED, DISPATCHING, PUBLISHED, FAILED, CANCELLED}
@@ -0,0 +1,85 @@
+package com.example.sportadministrationsystem.repository;
+
+import com.example.sportadministrationsystem.model.UserTelegram;
+import com.example.sportadministrationsystem.model.UserWhatsapp;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Атомарне створення/оновлення акаунтів ботів одним оператором.
+ *
+ * INSERT ... ON CONFLICT DO UPDATE змінює рядок лише тоді, коли поле справді інше
+ * (WHERE ... IS DISTINCT FROM) — незмінений акаунт не породжує нової версії рядка.
+ * Якщо оновлення не було, RETURNING порожній, і той самий оператор добирає існуючий рядок
+ * (UNION ALL з SELECT). Рядок, вставлений паралельно після знімка оператора, цей SELECT не бачить —
+ * тоді оператор просто повторюється.
+ *
+ * updated — наявний рядок справді змінено (не вставку і не "без змін"): лише тоді кеші інших вузлів застаріли.
+ */
+@Repository
+@RequiredArgsConstructor
+public class BotAccountUpsertRepository {
+
+    private static final int ATTEMPTS = 3;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public record Upserted<T>(T account, boolean updated) {}
+
+    public Upserted<UserTelegram> upsertTelegram(long tgUserId, long tgChatId) {
+        for (int i = 0; i < ATTEMPTS; i++) {
+            List<Upserted<UserTelegram>> rows = jdbcTemplate.query("""
+                    WITH up AS (
+                        INSERT INTO user_telegram AS u (tg_user_id, tg_chat_id)
+                        VALUES (?, ?)
+                        ON CONFLICT (tg_user_id) DO UPDATE
+                           SET tg_chat_id = EXCLUDED.tg_chat_id
+                         WHERE u.tg_chat_id IS DISTINCT FROM EXCLUDED.tg_chat_id
+                        RETURNING id, tg_user_id, tg_chat_id, linked_at, (xmax <> 0) AS updated
+                    )
+                    SELECT id, tg_user_id, tg_chat_id, linked_at, updated FROM up
+                    UNION ALL
+                    SELECT id, tg_user_id, tg_chat_id, linked_at, false FROM user_telegram
+                     WHERE tg_user_id = ? AND NOT EXISTS (SELECT 1 FROM up)
+                    """, (rs, n) -> new Upserted<>(UserTelegram.builder()
+                    .id(rs.getLong("id"))
+                    .tgUserId(rs.getLong("tg_user_id"))
+                    .tgChatId(rs.getLong("tg_chat_id"))
+                    .linkedAt(rs.getTimestamp("linked_at").toLocalDateTime())
+                    .build(), rs.getBoolean(5)), tgUserId, tgChatId, tgUserId);
+            if (!rows.isEmpty()) return rows.get(0);
+        }
+        throw new IllegalStateException("Cannot upsert user_telegram for tg_user_id " + tgUserId);
+    }
+
+    /** profileName == null — ім'я не змінюємо (у вебхуку його може не бути). */
+    public Upserted<UserWhatsapp> upsertWhatsapp(String waId, String profileName) {
+        for (int i = 0; i < ATTEMPTS; i++) {
+            List<Upserted<UserWhatsapp>> rows = jdbcTemplate.query("""
+                    WITH up AS (
+                        INSERT INTO user_whatsapp AS u (wa_id, profile_name)
+                        VALUES (?, ?)
+                        ON CONFLICT (wa_id) DO UPDATE
+                           SET profile_name = EXCLUDED.profile_name
+                         WHERE EXCLUDED.profile_name IS NOT NULL
+                           AND u.profile_name IS DISTINCT FROM EXCLUDED.profile_name
+                        RETURNING id, wa_id, profile_name, linked_at, (xmax <> 0) AS updated
+                    )
+                    SELECT id, wa_id, profile_name, linked_at, updated FROM up
+                    UNION ALL
+                    SELECT id, wa_id, profile_name, linked_at, false FROM user_whatsapp
+                     WHERE wa_id = ? AND NOT EXISTS (SELECT 1 FROM up)
+                    """, (rs, n) -> new Upserted<>(UserWhatsapp.builder()
+                    .id(rs.getLong("id"))
+                    .waId(rs.getString("wa_id"))
+                    .profileName(rs.getString("profile_name"))
+                    .linkedAt(rs.getTimestamp("linked_at").toLocalDateTime())
+                    .build(), rs.getBoolean(5)), waId, profileName, waId);
+            if (!rows.isEmpty()) return rows.get(0);
+        }
+        throw new IllegalStateException("Cannot upsert user_whatsapp for wa_id " + waId);
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.sportadministrationsystem.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Реєстр живих вузлів диспетчера (dispatcher_nodes) для розподілу партицій.
+ */
+@Repository
+@RequiredArgsConstructor
+public class DispatcherNodeRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void heartbeat(String nodeId) {
+        jdbcTemplate.update("""
+                INSERT INTO dispatcher_nodes (node_id, heartbeat_at)
+                VALUES (?, NOW())
+                ON CONFLICT (node_id) DO UPDATE SET heartbeat_at = NOW()
+                """, nodeId);
+    }
+
+    /** Вузли з heartbeat не старшим за ttlMs, відсортовані побайтово (однаковий порядок на всіх вузлах і з String.compareTo). */
+    public List<String> liveNodes(long ttlMs) {
+        return jdbcTemplate.queryForList("""
+                SELECT node_id
+                  FROM dispatcher_nodes
+                 WHERE heartbeat_at >= NOW() - (? * INTERVAL '1 millisecond')
+                 ORDER BY node_id COLLATE "C"
+                """, String.class, ttlMs);
+    }
+
+    /** Прибирає вузли, що давно не відзначались (щоб таблиця не росла). */
+    public int purgeStale(long olderThanMs) {
+        return jdbcTemplate.update("""
+                DELETE FROM dispatcher_nodes
+                 WHERE heartbeat_at < NOW() - (? * INTERVAL '1 millisecond')
+                """, olderThanMs);
+    }
+
+    public void remove(String nodeId) {
+        jdbcTemplate.update("DELETE FROM dispatcher_nodes WHERE node_id = ?", nodeId);
+    }
+}
@@ -17,29 +17,6 @@ public interface EventSubscriptionWhatsappRepository extends JpaRepository<Event
 
     boolean existsByEventAndUserWhatsappAndActiveIsTrue(Event event, UserWhatsapp userWhatsapp);
 
-    @Query("""
-        select distinct esw.userWhatsapp.waId
-          from EventSubscriptionWhatsapp esw
-         where esw.event.id = :eventId
-           and esw.active = true
-           and esw.userWhatsapp.waId is not null
-    """)
-    List<String> findSubscriberWaIds(@Param("eventId") Long eventId);
-
-    /**
-     * Рахує кількість активних WhatsApp-підписників на івент.
-     * Рахуємо тільки тих, у кого є wa_id (тобто реально зв'язані у WhatsApp),
-     * і лише active=true.
-     */
-    @Query("""
-        select count(distinct esw.userWhatsapp.waId)
-          from EventSubscriptionWhatsapp esw
-         where esw.event.id = :eventId
-           and esw.active = true
-           and esw.userWhatsapp.waId is not null
-    """)
-    long countActiveWhatsApp(@Param("eventId") Long eventId);
-
     /**
      * Знаходить всі активні підписки на івенти у заданому діапазоні часу,
      * де 72-годинне нагадування ще не було відправлено.
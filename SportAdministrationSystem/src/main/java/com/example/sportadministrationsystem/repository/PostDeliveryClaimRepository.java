@@ -0,0 +1,55 @@
+package com.example.sportadministrationsystem.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Захоплення due-повторів post_delivery одним оператором, без транзакції на час відправок.
+ *
+ * Для кожної due FAILED-спроби (експонента 1,2,4,8,16 хв від created_at, лише остання спроба по таргету,
+ * лише для постів PUBLISHED/FAILED) одразу вставляється наступна спроба-заглушка
+ * FAILED / RETRY_IN_PROGRESS. Вона стає останньою спробою таргету, тож інші вузли цей таргет не беруть;
+ * результат відправки потім перезаписує її через upsertAttempt.
+ * Якщо вузол впаде посеред відправки, заглушка сама стане due FAILED-спробою за звичайним backoff.
+ */
+@Repository
+@RequiredArgsConstructor
+public class PostDeliveryClaimRepository {
+
+    public static final String IN_PROGRESS = "RETRY_IN_PROGRESS";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /** Захоплена спроба: attemptNo — номер нової (вже вставленої) спроби. */
+    public record Claim(long postId, String target, int attemptNo) {}
+
+    public List<Claim> claimDueRetries(int batchSize, int maxAttempts) {
+        return jdbcTemplate.query("""
+                WITH due AS (
+                    SELECT d.post_id, d.target, d.attempt_no
+                      FROM post_delivery d
+                     WHERE d.status = 'FAILED'
+                       AND d.attempt_no < ?
+                       AND (d.created_at + (interval '1 minute' * (1 << GREATEST(d.attempt_no - 1,0)))) <= NOW()
+                       AND NOT EXISTS (SELECT 1 FROM post_delivery n
+                                        WHERE n.post_id = d.post_id
+                                          AND n.target = d.target
+                                          AND n.attempt_no > d.attempt_no)
+                       AND EXISTS (SELECT 1 FROM posts p
+                                    WHERE p.id = d.post_id
+                                      AND p.status IN ('PUBLISHED','FAILED'))
+                     ORDER BY d.created_at ASC, d.id ASC
+                     LIMIT ?
+                     FOR UPDATE OF d SKIP LOCKED
+                )
+                INSERT INTO post_delivery (post_id, target, attempt_no, status, error, created_at)
+                SELECT post_id, target, attempt_no + 1, 'FAILED', ?, NOW() FROM due
+                ON CONFLICT (post_id, target, attempt_no) DO NOTHING
+                RETURNING post_id, target, attempt_no
+                """, (rs, n) -> new Claim(rs.getLong("post_id"), rs.getString("target"), rs.getInt("attempt_no")),
+                maxAttempts, batchSize, IN_PROGRESS);
+    }
+}
@@ -1,34 +1,18 @@
 package com.example.sportadministrationsystem.repository;
 
+import com.example.sportadministrationsystem.dto.DeliveryTotals;
+import com.example.sportadministrationsystem.dto.TargetAttempt;
 import com.example.sportadministrationsystem.model.PostDelivery;
 import org.springframework.data.jpa.repository.*;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface PostDeliveryRepository extends JpaRepository<PostDelivery, Long> {
 
-    /**
-     * Бере FAILED-спроби, у яких настав час наступної спроби (експонента 1,2,4,8,16 хв),
-     * та локує їх SKIP LOCKED. Обмежуємо за maxAttempts (наприклад, 5).
-     *
-     * now() >= created_at + (interval '1 minute' * (1 << (attempt_no - 1)))
-     */
-    @Query(value = """
-        SELECT *
-          FROM post_delivery
-         WHERE status = 'FAILED'
-           AND attempt_no < :maxAttempts
-           AND (created_at + (interval '1 minute' * (1 << GREATEST(attempt_no - 1,0)))) <= NOW()
-         ORDER BY created_at ASC, id ASC
-         LIMIT :batchSize
-         FOR UPDATE SKIP LOCKED
-        """, nativeQuery = true)
-    List<PostDelivery> lockDueRetries(@Param("batchSize") int batchSize,
-                                      @Param("maxAttempts") int maxAttempts);
-
     /**
      * Ідемпотентний запис спроби: якщо (post_id, target, attempt_no) вже є —
      * оновлюємо status/error (без updated_at, бо такої колонки у вас немає).
@@ -46,4 +30,34 @@ public interface PostDeliveryRepository extends JpaRepository<PostDelivery, Long
                       @Param("attemptNo") int attemptNo,
                       @Param("status") String status,
                       @Param("error") String error);
+
+    /**
+     * Останні спроби по заданих таргетах поста — щоб при відновленні розсилки
+     * не слати повторно тим, кому вже доставлено, і продовжити нумерацію спроб.
+     */
+    @Query(value = """
+        SELECT target                     AS target,
+               MAX(attempt_no)            AS attemptNo,
+               BOOL_OR(status = 'SENT')   AS sent
+          FROM post_delivery
+         WHERE post_id = :postId
+           AND target IN (:targets)
+         GROUP BY target
+        """, nativeQuery = true)
+    List<TargetAttempt> findAttempts(@Param("postId") Long postId,
+                                     @Param("targets") Collection<String> targets);
+
+    /**
+     * Реальні підсумки по унікальних таргетах: таргет вважається доставленим,
+     * якщо хоч одна його спроба SENT.
+     */
+    @Query(value = """
+        SELECT COUNT(*) FILTER (WHERE t.sent)     AS sent,
+               COUNT(*) FILTER (WHERE NOT t.sent) AS failed
+          FROM (SELECT BOOL_OR(status = 'SENT') AS sent
+                  FROM post_delivery
+                 WHERE post_id = :postId
+                 GROUP BY target) t
+        """, nativeQuery = true)
+    DeliveryTotals totals(@Param("postId") Long postId);
 }
@@ -0,0 +1,36 @@
+package com.example.sportadministrationsystem.repository;
+
+import com.example.sportadministrationsystem.model.PostDispatchCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface PostDispatchCheckpointRepository extends JpaRepository<PostDispatchCheckpoint, Long> {
+
+    @Query("select c.lastSubscriptionId from PostDispatchCheckpoint c where c.postId = :postId")
+    Optional<Long> findLastSubscriptionId(@Param("postId") Long postId);
+
+    /**
+     * Просуває контрольну точку вперед (ніколи не назад — GREATEST).
+     */
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query(value = """
+        INSERT INTO post_dispatch_checkpoint (post_id, last_subscription_id, updated_at)
+        VALUES (:postId, :lastSubscriptionId, NOW())
+        ON CONFLICT (post_id)
+        DO UPDATE SET last_subscription_id = GREATEST(post_dispatch_checkpoint.last_subscription_id,
+                                                      EXCLUDED.last_subscription_id),
+                      updated_at           = NOW()
+        """, nativeQuery = true)
+    int advance(@Param("postId") Long postId,
+                @Param("lastSubscriptionId") long lastSubscriptionId);
+
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query(value = "DELETE FROM post_dispatch_checkpoint WHERE post_id = :postId", nativeQuery = true)
+    int clear(@Param("postId") Long postId);
+}
@@ -0,0 +1,144 @@
+package com.example.sportadministrationsystem.repository;
+
+import com.example.sportadministrationsystem.model.Channel;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Оренда постів на час розсилки (posts.status = 'DISPATCHING' + lease_owner/lease_until).
+ *
+ * Кожен метод — один атомарний UPDATE: захоплення, продовження і звільнення
+ * перевіряють власника, тож пост розсилає не більше одного воркера одночасно.
+ */
+@Repository
+@RequiredArgsConstructor
+public class PostLeaseRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Advisory-лок партиції до кінця поточної транзакції (викликати всередині @Transactional).
+     */
+    public boolean tryLockPartition(int lockSpace, int partition) {
+        Boolean res = jdbcTemplate.queryForObject(
+                "select pg_try_advisory_xact_lock(?, ?)", Boolean.class, lockSpace, partition);
+        return Boolean.TRUE.equals(res);
+    }
+
+    /** Захоплений пост і його канал (від каналу залежить пул розсилки). */
+    public record Claimed(long postId, Channel channel) {
+    }
+
+    /**
+     * Забирає в оренду due SCHEDULED пости партиції (event_id mod partitions): не більше ліміту
+     * для кожного каналу (вільне місце в його пулі розсилки) — пости каналу, що гальмує, лишаються в черзі БД.
+     *
+     * Від кожного івенту береться лише найраніший due пост і лише якщо в івенту
+     * немає поста в розсилці — так пости одного івенту йдуть строго по черзі.
+     * Викликається під локом партиції; повторна перевірка status у зовнішньому UPDATE
+     * відсікає гонку з publishNow/скасуванням.
+     */
+    public List<Claimed> claimDue(String owner, long leaseMs, int partitions, int partition,
+                                  int telegramLimit, int whatsappLimit, int otherLimit) {
+        return jdbcTemplate.query("""
+                UPDATE posts
+                   SET status = 'DISPATCHING',
+                       lease_owner = ?,
+                       lease_until = NOW() + (? * INTERVAL '1 millisecond'),
+                       updated_at = NOW()
+                 WHERE status = 'SCHEDULED'
+                   AND id IN (SELECT r.id
+                                FROM (SELECT f.id, f.channel,
+                                             ROW_NUMBER() OVER (PARTITION BY f.channel
+                                                                ORDER BY f.publish_at ASC, f.id ASC) AS rn
+                                        FROM (SELECT DISTINCT ON (p.event_id) p.id, p.publish_at, p.channel
+                                                FROM posts p
+                                               WHERE p.status = 'SCHEDULED'
+                                                 AND p.publish_at <= NOW()
+                                                 AND MOD(p.event_id, ?) = ?
+                                                 AND NOT EXISTS (SELECT 1 FROM posts d
+                                                                  WHERE d.event_id = p.event_id
+                                                                    AND d.status = 'DISPATCHING')
+                                               ORDER BY p.event_id, p.publish_at ASC, p.id ASC) f) r
+                               WHERE r.rn <= CASE r.channel
+                                                 WHEN 'TELEGRAM' THEN ?
+                                                 WHEN 'WHATSAPP' THEN ?
+                                                 ELSE ? END)
+                RETURNING id, channel
+                """, (rs, n) -> new Claimed(rs.getLong(1), Channel.valueOf(rs.getString(2))),
+                owner, leaseMs, partitions, partition, telegramLimit, whatsappLimit, otherLimit);
+    }
+
+    /**
+     * Оренда одного поста для негайної публікації (будь-який статус, крім активної розсилки).
+     */
+    public boolean claim(long postId, String owner, long leaseMs) {
+        return jdbcTemplate.update("""
+                UPDATE posts
+                   SET status = 'DISPATCHING',
+                       lease_owner = ?,
+                       lease_until = NOW() + (? * INTERVAL '1 millisecond'),
+                       updated_at = NOW()
+                 WHERE id = ?
+                   AND (status <> 'DISPATCHING' OR lease_until < NOW())
+                """, owner, leaseMs, postId) == 1;
+    }
+
+    /** Продовжує оренду; false — оренду втрачено (прострочена/забрана або пост скасовано). */
+    public boolean renew(long postId, String owner, long leaseMs) {
+        return jdbcTemplate.update("""
+                UPDATE posts
+                   SET lease_until = NOW() + (? * INTERVAL '1 millisecond')
+                 WHERE id = ?
+                   AND status = 'DISPATCHING'
+                   AND lease_owner = ?
+                """, leaseMs, postId, owner) == 1;
+    }
+
+    /** Завершує розсилку: фінальний статус + звільнення оренди, лише якщо вона ще наша. */
+    public boolean release(long postId, String owner, String status, String error) {
+        return jdbcTemplate.update("""
+                UPDATE posts
+                   SET status = ?,
+                       error = ?,
+                       lease_owner = NULL,
+                       lease_until = NULL,
+                       updated_at = NOW()
+                 WHERE id = ?
+                   AND status = 'DISPATCHING'
+                   AND lease_owner = ?
+                """, status, error, postId, owner) == 1;
+    }
+
+    /**
+     * Оновлює підсумковий статус вже розісланого поста (після повторних відправок),
+     * не чіпаючи пости, які тим часом знову пішли в розсилку чи були скасовані.
+     */
+    public boolean settle(long postId, String status, String error) {
+        return jdbcTemplate.update("""
+                UPDATE posts
+                   SET status = ?,
+                       error = ?,
+                       updated_at = NOW()
+                 WHERE id = ?
+                   AND status IN ('PUBLISHED','FAILED')
+                """, status, error, postId) == 1;
+    }
+
+    /** Повертає прострочені оренди в чергу (SCHEDULED); розсилка продовжиться з контрольної точки. */
+    public List<Long> reapExpired() {
+        return jdbcTemplate.queryForList("""
+                UPDATE posts
+                   SET status = 'SCHEDULED',
+                       lease_owner = NULL,
+                       lease_until = NULL,
+                       updated_at = NOW()
+                 WHERE status = 'DISPATCHING'
+                   AND lease_until < NOW()
+                RETURNING id
+                """, Long.class);
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.sportadministrationsystem.repository;
 
+import com.example.sportadministrationsystem.dto.ScheduledPostRef;
 import com.example.sportadministrationsystem.model.Audience;
 import com.example.sportadministrationsystem.model.Channel;
 import com.example.sportadministrationsystem.model.Post;
@@ -9,7 +10,9 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface PostRepository extends JpaRepository<Post, Long> {
 
@@ -105,6 +108,37 @@ public interface PostRepository extends JpaRepository<Post, Long> {
     List<Post> lockNextDueWithEvent(@Param("now") LocalDateTime now,
                                     @Param("limit") int limit);
 
+    /**
+     * Пост разом з Event — для повторних відправок поза основним батчем.
+     */
+    @Query("""
+            select p from Post p
+            join fetch p.event e
+            where p.id = :id
+            """)
+    Optional<Post> findByIdWithEvent(@Param("id") Long id);
+
+    /**
+     * Найближчі SCHEDULED пости (включно з простроченими) для таймера due-постів.
+     * Йде по частковому індексу idx_posts_sched_publish.
+     */
+    @Query(value = """
+            SELECT id AS id, publish_at AS publishAt
+            FROM posts
+            WHERE status = 'SCHEDULED'
+              AND publish_at <= :until
+            ORDER BY publish_at ASC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<ScheduledPostRef> findScheduledUntil(@Param("until") LocalDateTime until,
+                                              @Param("limit") int limit);
+
+    /**
+     * Які з постів досі SCHEDULED — таймер due-постів перезаводить лише їх.
+     */
+    @Query(value = "SELECT id FROM posts WHERE status = 'SCHEDULED' AND id IN (:ids)", nativeQuery = true)
+    List<Long> findScheduledIds(@Param("ids") Collection<Long> ids);
+
     /**
      * Native query батч без явного завантаження Event.
      * Потрібно використовувати lockNextDueWithEvent замість цього методу.
@@ -0,0 +1,84 @@
+package com.example.sportadministrationsystem.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Атомарне "вперше бачимо" для вхідних повідомлень WhatsApp (processed_whatsapp_messages, uq_message_id).
+ *
+ * Рядок — захоплення повідомлення: PROCESSING з орендою, поки повідомлення обробляється,
+ * DONE після успішної обробки. Рішення "обробляти чи ні" приймає сам INSERT ... ON CONFLICT ... RETURNING,
+ * тож між вузлами одне повідомлення обробляє лише один.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProcessedWhatsAppMessageBatchRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /** Вхідне повідомлення для запису. */
+    public record Incoming(String messageId, String waId, String messageType) {}
+
+    /**
+     * Один багаторядковий INSERT ... ON CONFLICT ... RETURNING: захоплює повідомлення, яких ще не було,
+     * і ті, чия оренда PROCESSING прострочена (вузол упав посеред обробки).
+     * Повертає message_id захоплених — лише їх викликач обробляє. message_id у пачці мають бути різні.
+     */
+    public List<String> claim(List<Incoming> messages, LocalDateTime receivedAt, long leaseMs) {
+        if (messages.isEmpty()) return List.of();
+        StringBuilder sql = new StringBuilder("""
+                INSERT INTO processed_whatsapp_messages
+                       (message_id, wa_id, webhook_timestamp, message_type, processed_at, state, locked_until)
+                VALUES\s""");
+        List<Object> args = new ArrayList<>(messages.size() * 5);
+        Timestamp at = Timestamp.valueOf(receivedAt);
+        for (int i = 0; i < messages.size(); i++) {
+            Incoming m = messages.get(i);
+            sql.append(i == 0 ? "" : ", ")
+                    .append("(?, ?, ?, ?, NOW(), 'PROCESSING', NOW() + (? * INTERVAL '1 millisecond'))");
+            args.add(m.messageId());
+            args.add(m.waId());
+            args.add(at);
+            args.add(m.messageType());
+            args.add(leaseMs);
+        }
+        sql.append("""
+
+                ON CONFLICT (message_id) DO UPDATE
+                   SET locked_until = EXCLUDED.locked_until,
+                       processed_at = NOW()
+                 WHERE processed_whatsapp_messages.state = 'PROCESSING'
+                   AND processed_whatsapp_messages.locked_until < NOW()
+                RETURNING message_id
+                """);
+        return jdbcTemplate.queryForList(sql.toString(), String.class, args.toArray());
+    }
+
+    /** Успішно оброблені: PROCESSING → DONE (один UPDATE на тіло вебхука). */
+    public int markDone(Collection<String> messageIds) {
+        if (messageIds.isEmpty()) return 0;
+        return jdbcTemplate.update("""
+                UPDATE processed_whatsapp_messages
+                   SET state = 'DONE', locked_until = NULL, processed_at = NOW()
+                 WHERE message_id = ANY (?)
+                   AND state = 'PROCESSING'
+                """, ps -> ps.setArray(1, ps.getConnection().createArrayOf("varchar", messageIds.toArray())));
+    }
+
+    /** Невдала обробка: захоплення знімається, повтор доставки оброблятиме повідомлення знову. */
+    public int release(Collection<String> messageIds) {
+        if (messageIds.isEmpty()) return 0;
+        return jdbcTemplate.update("""
+                DELETE FROM processed_whatsapp_messages
+                 WHERE message_id = ANY (?)
+                   AND state = 'PROCESSING'
+                """, ps -> ps.setArray(1, ps.getConnection().createArrayOf("varchar", messageIds.toArray())));
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.sportadministrationsystem.repository;
+
+import com.example.sportadministrationsystem.dto.AudienceBatch;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Читання аудиторії розсилки сторінками (keyset по id підписки, а не offset) прямо в AudienceBatch.
+ *
+ * Адреса береться з самої підписки (tg_chat_id / wa_id, синхронізуються тригерами V38), тож сторінка —
+ * index-only scan по частковому покривному індексу ix_es(w)_event_audience, без JOIN до акаунтів.
+ *
+ * Рядки читаються RowCallbackHandler-ом у примітивні масиви батча — без сутностей, проекцій-проксі
+ * і проміжних списків; кожна сторінка — окремий короткий запит без транзакції.
+ * Повертаються лише активні підписки з наявною адресою, відсортовані за id.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SubscriberAudienceRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /** Наступна сторінка Telegram-аудиторії після afterId (батч очищується перед заповненням). */
+    public void telegramPage(long eventId, long afterId, AudienceBatch into) {
+        into.clear();
+        jdbcTemplate.query(con -> {
+            var ps = con.prepareStatement("""
+                    SELECT id, tg_chat_id
+                      FROM event_subscriptions
+                     WHERE event_id = ?
+                       AND active
+                       AND tg_chat_id IS NOT NULL
+                       AND id > ?
+                     ORDER BY id
+                     LIMIT ?
+                    """);
+            ps.setLong(1, eventId);
+            ps.setLong(2, afterId);
+            ps.setInt(3, into.capacity());
+            ps.setFetchSize(into.capacity());
+            return ps;
+        }, rs -> {
+            into.addTelegram(rs.getLong(1), rs.getLong(2));
+        });
+    }
+
+    /** Наступна сторінка WhatsApp-аудиторії після afterId (батч очищується перед заповненням). */
+    public void whatsappPage(long eventId, long afterId, AudienceBatch into) {
+        into.clear();
+        jdbcTemplate.query(con -> {
+            var ps = con.prepareStatement("""
+                    SELECT id, wa_id
+                      FROM event_subscriptions_whatsapp
+                     WHERE event_id = ?
+                       AND active
+                       AND wa_id IS NOT NULL
+                       AND id > ?
+                     ORDER BY id
+                     LIMIT ?
+                    """);
+            ps.setLong(1, eventId);
+            ps.setLong(2, afterId);
+            ps.setInt(3, into.capacity());
+            ps.setFetchSize(into.capacity());
+            return ps;
+        }, rs -> {
+            into.addWhatsapp(rs.getLong(1), rs.getString(2));
+        });
+    }
+}
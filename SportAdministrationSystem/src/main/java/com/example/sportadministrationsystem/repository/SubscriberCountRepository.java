@@ -0,0 +1,93 @@
+package com.example.sportadministrationsystem.repository;
+
+import com.example.sportadministrationsystem.dto.EventSubscriberCounts;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Лічильники активних підписників (event_subscriber_counts, V39): читання і звірка з фактичними підписками.
+ *
+ * Лічильники підтримуються тригерами при записі підписок; значення каналу — сума його смуг.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SubscriberCountRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Лічильники для набору івентів одним запитом. Неіснуючих івентів у результаті немає
+     * (LEFT JOIN від events — наявність івенту перевіряється тим самим запитом по PK).
+     */
+    public List<EventSubscriberCounts> find(Collection<Long> eventIds) {
+        if (eventIds.isEmpty()) return List.of();
+        Long[] ids = eventIds.toArray(Long[]::new);
+        return jdbcTemplate.query(con -> {
+            var ps = con.prepareStatement("""
+                    SELECT e.id,
+                           COALESCE(SUM(c.active_count) FILTER (WHERE c.channel = 'TELEGRAM'), 0) AS telegram,
+                           COALESCE(SUM(c.active_count) FILTER (WHERE c.channel = 'WHATSAPP'), 0) AS whatsapp
+                      FROM events e
+                      LEFT JOIN event_subscriber_counts c ON c.event_id = e.id
+                     WHERE e.id = ANY (?)
+                     GROUP BY e.id
+                     ORDER BY e.id
+                    """);
+            ps.setArray(1, con.createArrayOf("bigint", ids));
+            return ps;
+        }, (rs, n) -> new EventSubscriberCounts(rs.getLong(1), rs.getLong(2), rs.getLong(3)));
+    }
+
+    /** Advisory-лок до кінця поточної транзакції: звірку одночасно виконує лише один вузол. */
+    public boolean tryReconcileLock(long key) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(?)", Boolean.class, key));
+    }
+
+    /**
+     * Виправляє дрейф: для кожної пари (івент, канал), де сума смуг не дорівнює фактичній кількості,
+     * додає різницю до смуги 0. Додавання (а не перезапис) не губить паралельних змін, закомічених
+     * після знімка запиту. Повертає кількість виправлених пар.
+     */
+    public int fixDrift() {
+        return jdbcTemplate.update("""
+                WITH actual AS (
+                    SELECT event_id, 'TELEGRAM' AS channel, COUNT(*) AS n
+                      FROM event_subscriptions
+                     WHERE active AND tg_chat_id IS NOT NULL
+                     GROUP BY event_id
+                    UNION ALL
+                    SELECT event_id, 'WHATSAPP', COUNT(*)
+                      FROM event_subscriptions_whatsapp
+                     WHERE active AND wa_id IS NOT NULL
+                     GROUP BY event_id
+                ), stored AS (
+                    SELECT event_id, channel, SUM(active_count) AS n
+                      FROM event_subscriber_counts
+                     GROUP BY event_id, channel
+                ), drift AS (
+                    SELECT COALESCE(a.event_id, s.event_id) AS event_id,
+                           COALESCE(a.channel, s.channel)   AS channel,
+                           COALESCE(a.n, 0) - COALESCE(s.n, 0) AS delta
+                      FROM actual a
+                      FULL JOIN stored s ON s.event_id = a.event_id AND s.channel = a.channel
+                     WHERE COALESCE(a.n, 0) <> COALESCE(s.n, 0)
+                )
+                INSERT INTO event_subscriber_counts AS c (event_id, channel, stripe, active_count)
+                SELECT event_id, channel, 0, delta FROM drift
+                ON CONFLICT (event_id, channel, stripe)
+                DO UPDATE SET active_count = c.active_count + EXCLUDED.active_count
+                """);
+    }
+
+    /** Лічильники видалених івентів. */
+    public int purgeOrphans() {
+        return jdbcTemplate.update("""
+                DELETE FROM event_subscriber_counts c
+                 WHERE NOT EXISTS (SELECT 1 FROM events e WHERE e.id = c.event_id)
+                """);
+    }
+}
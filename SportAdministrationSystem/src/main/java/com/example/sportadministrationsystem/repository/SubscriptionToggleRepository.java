@@ -0,0 +1,70 @@
+package com.example.sportadministrationsystem.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Перемикання підписок одним SQL-оператором на обох каналах (Telegram, WhatsApp).
+ *
+ * Увімкнення — INSERT ... ON CONFLICT (event_id, user_*_id) DO UPDATE лише для неактивного рядка:
+ * гонка двох одночасних натискань вирішується унікальним індексом у БД, без читання перед записом.
+ * Вимкнення — UPDATE лише активного рядка (відсутню підписку не створюємо).
+ * RETURNING повертає рядок тільки тоді, коли стан справді змінився — від цього залежить, чи публікувати подію.
+ *
+ * Неіснуючий івент/акаунт — порушення FK (DataIntegrityViolationException).
+ */
+@Repository
+@RequiredArgsConstructor
+public class SubscriptionToggleRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /** true — підписку створено або реактивовано; false — вже була активна. */
+    public boolean activateTelegram(long eventId, long userTelegramId) {
+        return changed("""
+                INSERT INTO event_subscriptions AS s (event_id, user_telegram_id, active)
+                VALUES (?, ?, true)
+                ON CONFLICT (event_id, user_telegram_id) DO UPDATE
+                   SET active = true
+                 WHERE s.active = false
+                RETURNING s.id
+                """, eventId, userTelegramId);
+    }
+
+    /** true — активну підписку вимкнено; false — її не було або вже вимкнена. */
+    public boolean deactivateTelegram(long eventId, long userTelegramId) {
+        return changed("""
+                UPDATE event_subscriptions
+                   SET active = false
+                 WHERE event_id = ? AND user_telegram_id = ? AND active = true
+                RETURNING id
+                """, eventId, userTelegramId);
+    }
+
+    /** true — підписку створено або реактивовано; false — вже була активна. */
+    public boolean activateWhatsapp(long eventId, long userWhatsappId) {
+        return changed("""
+                INSERT INTO event_subscriptions_whatsapp AS s (event_id, user_whatsapp_id, active)
+                VALUES (?, ?, true)
+                ON CONFLICT (event_id, user_whatsapp_id) DO UPDATE
+                   SET active = true
+                 WHERE s.active = false
+                RETURNING s.id
+                """, eventId, userWhatsappId);
+    }
+
+    /** true — активну підписку вимкнено; false — її не було або вже вимкнена. */
+    public boolean deactivateWhatsapp(long eventId, long userWhatsappId) {
+        return changed("""
+                UPDATE event_subscriptions_whatsapp
+                   SET active = false
+                 WHERE event_id = ? AND user_whatsapp_id = ? AND active = true
+                RETURNING id
+                """, eventId, userWhatsappId);
+    }
+
+    private boolean changed(String sql, long eventId, long userId) {
+        return !jdbcTemplate.queryForList(sql, Long.class, eventId, userId).isEmpty();
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.sportadministrationsystem.repository;
+
+import com.example.sportadministrationsystem.dto.WhatsAppStatusUpdate;
+import com.example.sportadministrationsystem.model.WhatsAppDeliveryTracking;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Пакетний запис whatsapp_delivery_tracking одним JDBC-батчем
+ * (з reWriteBatchedInserts драйвер PostgreSQL склеює його в багаторядкові INSERT).
+ *
+ * Обидва шляхи — результат відправки і статус-вебхук — upsert по message_id
+ * (uq_delivery_tracking_message_id): вебхук може випередити запис результату відправки.
+ * Статус лише просувається вперед (SENT → DELIVERED → READ, FAILED — кінцевий),
+ * часи доставки/прочитання фіксуються першим значенням.
+ */
+@Repository
+@RequiredArgsConstructor
+public class WhatsAppDeliveryTrackingBatchRepository {
+
+    private static final String RANK_EXCLUDED = rank("EXCLUDED.status");
+    private static final String RANK_CURRENT = rank("t.status");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /** Результати відправок (рядки без message_id — невдалі відправки — просто вставляються). */
+    public void insertBatch(List<WhatsAppDeliveryTracking> rows) {
+        if (rows.isEmpty()) return;
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO whatsapp_delivery_tracking AS t
+                       (message_id, recipient, template_name, notification_type, event_id,
+                        status, sent_at, updated_at, error_description)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+                ON CONFLICT (message_id) WHERE message_id IS NOT NULL DO UPDATE
+                   SET template_name     = COALESCE(t.template_name, EXCLUDED.template_name),
+                       notification_type = COALESCE(t.notification_type, EXCLUDED.notification_type),
+                       event_id          = COALESCE(t.event_id, EXCLUDED.event_id),
+                       sent_at           = LEAST(t.sent_at, EXCLUDED.sent_at)
+                """, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                WhatsAppDeliveryTracking r = rows.get(i);
+                Timestamp sentAt = Timestamp.valueOf(r.getSentAt());
+                ps.setString(1, r.getMessageId());
+                ps.setString(2, r.getRecipient());
+                ps.setString(3, r.getTemplateName());
+                ps.setString(4, r.getNotificationType() == null ? null : r.getNotificationType().name());
+                if (r.getEventId() == null) ps.setNull(5, Types.BIGINT); else ps.setLong(5, r.getEventId());
+                ps.setString(6, r.getStatus().name());
+                ps.setTimestamp(7, sentAt);
+                ps.setTimestamp(8, sentAt);
+                ps.setString(9, r.getErrorDescription());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return rows.size();
+            }
+        });
+    }
+
+    /** Злиті статус-вебхуки: один рядок на message_id. */
+    public void upsertStatuses(List<WhatsAppStatusUpdate> updates) {
+        if (updates.isEmpty()) return;
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO whatsapp_delivery_tracking AS t
+                       (message_id, recipient, status, sent_at, delivered_at, read_at, updated_at, error_description)
+                VALUES (?, ?, ?, ?, ?, ?, NOW(), ?)
+                ON CONFLICT (message_id) WHERE message_id IS NOT NULL DO UPDATE
+                   SET status            = CASE WHEN %s > %s THEN EXCLUDED.status ELSE t.status END,
+                       delivered_at      = COALESCE(t.delivered_at, EXCLUDED.delivered_at),
+                       read_at           = COALESCE(t.read_at, EXCLUDED.read_at),
+                       error_description = COALESCE(EXCLUDED.error_description, t.error_description),
+                       updated_at        = NOW()
+                """.formatted(RANK_EXCLUDED, RANK_CURRENT), new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                WhatsAppStatusUpdate u = updates.get(i);
+                ps.setString(1, u.messageId());
+                ps.setString(2, u.recipient() != null ? u.recipient() : "");
+                ps.setString(3, u.status().name());
+                ps.setTimestamp(4, Timestamp.valueOf(u.firstSeenAt()));
+                ps.setTimestamp(5, ts(u.deliveredAt()));
+                ps.setTimestamp(6, ts(u.readAt()));
+                ps.setString(7, u.error());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return updates.size();
+            }
+        });
+    }
+
+    private static Timestamp ts(LocalDateTime t) {
+        return t == null ? null : Timestamp.valueOf(t);
+    }
+
+    private static String rank(String column) {
+        return "(CASE " + column + " WHEN 'SENT' THEN 1 WHEN 'DELIVERED' THEN 2 WHEN 'READ' THEN 3 WHEN 'FAILED' THEN 4 ELSE 0 END)";
+    }
+}
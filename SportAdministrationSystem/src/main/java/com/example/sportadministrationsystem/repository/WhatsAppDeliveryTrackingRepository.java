@@ -1,5 +1,6 @@
 package com.example.sportadministrationsystem.repository;
 
+import com.example.sportadministrationsystem.dto.WhatsAppDeliveryStats;
 import com.example.sportadministrationsystem.model.DeliveryStatus;
 import com.example.sportadministrationsystem.model.NotificationType;
 import com.example.sportadministrationsystem.model.WhatsAppDeliveryTracking;
@@ -52,4 +53,19 @@ public interface WhatsAppDeliveryTrackingRepository extends JpaRepository<WhatsA
             @Param("end") LocalDateTime end,
             @Param("status") DeliveryStatus status
     );
+
+    /**
+     * Доставка/прочитання повідомлень івенту (idx_delivery_tracking_event_id).
+     * accepted — прийняті Graph API (усе, крім FAILED); delivered включає прочитані.
+     */
+    @Query(value = """
+            SELECT COUNT(*)                                      AS total,
+                   COUNT(*) FILTER (WHERE d.status <> 'FAILED')  AS accepted,
+                   COUNT(d.delivered_at)                         AS delivered,
+                   COUNT(d.read_at)                              AS read,
+                   COUNT(*) FILTER (WHERE d.status = 'FAILED')   AS failed
+              FROM whatsapp_delivery_tracking d
+             WHERE d.event_id = :eventId
+            """, nativeQuery = true)
+    WhatsAppDeliveryStats statsForEvent(@Param("eventId") Long eventId);
 }
@@ -0,0 +1,119 @@
+package com.example.sportadministrationsystem.repository;
+
+import com.example.sportadministrationsystem.dto.WebhookInboxEntry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Вхідна черга вебхуків WhatsApp (whatsapp_webhook_inbox).
+ *
+ * Захоплення — один UPDATE ... FOR UPDATE SKIP LOCKED з орендою: воркери різних вузлів
+ * не чекають один одного, а рядки впалого воркера повертаються в роботу після locked_until.
+ */
+@Repository
+@RequiredArgsConstructor
+public class WhatsAppWebhookInboxRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Один багаторядковий INSERT на пачку тіл.
+     */
+    public int insertBatch(List<String> bodies, LocalDateTime receivedAt) {
+        if (bodies.isEmpty()) return 0;
+        StringBuilder sql = new StringBuilder("INSERT INTO whatsapp_webhook_inbox (body, received_at) VALUES ");
+        List<Object> args = new ArrayList<>(bodies.size() * 2);
+        Timestamp at = Timestamp.valueOf(receivedAt);
+        for (int i = 0; i < bodies.size(); i++) {
+            sql.append(i == 0 ? "(?, ?)" : ", (?, ?)");
+            args.add(bodies.get(i));
+            args.add(at);
+        }
+        return jdbcTemplate.update(sql.toString(), args.toArray());
+    }
+
+    /**
+     * Забирає до limit нових (або з простроченою орендою) рядків у порядку надходження.
+     * Для NEW locked_until — час наступної спроби після невдачі (див. markFailed): до нього рядок не береться.
+     */
+    public List<WebhookInboxEntry> claim(int limit, long leaseMs) {
+        return jdbcTemplate.query("""
+                UPDATE whatsapp_webhook_inbox
+                   SET status = 'PROCESSING',
+                       attempts = attempts + 1,
+                       locked_until = NOW() + (? * INTERVAL '1 millisecond')
+                 WHERE id IN (SELECT id
+                                FROM whatsapp_webhook_inbox
+                               WHERE (status = 'NEW' AND (locked_until IS NULL OR locked_until <= NOW()))
+                                  OR (status = 'PROCESSING' AND locked_until < NOW())
+                               ORDER BY id
+                               LIMIT ?
+                               FOR UPDATE SKIP LOCKED)
+                RETURNING id, body, attempts
+                """, (rs, i) -> new WebhookInboxEntry(rs.getLong("id"), rs.getString("body"), rs.getInt("attempts")),
+                leaseMs, limit);
+    }
+
+    /** Продовжує оренду рядків, що ще обробляються цим вузлом. */
+    public int renew(List<Long> ids, long leaseMs) {
+        if (ids.isEmpty()) return 0;
+        return jdbcTemplate.update("""
+                UPDATE whatsapp_webhook_inbox
+                   SET locked_until = NOW() + (? * INTERVAL '1 millisecond')
+                 WHERE id = ANY (?)
+                   AND status = 'PROCESSING'
+                """, ps -> {
+            ps.setLong(1, leaseMs);
+            ps.setArray(2, ps.getConnection().createArrayOf("bigint", ids.toArray()));
+        });
+    }
+
+    public int markDone(List<Long> ids) {
+        if (ids.isEmpty()) return 0;
+        return jdbcTemplate.update("""
+                UPDATE whatsapp_webhook_inbox
+                   SET status = 'DONE', processed_at = NOW(), locked_until = NULL, error = NULL
+                 WHERE id = ANY (?)
+                """, ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids.toArray())));
+    }
+
+    /**
+     * Невдала обробка: рядок повертається в чергу не раніше ніж через attempts * backoffMs
+     * (щоб отруйне чи тимчасово невдале тіло не спалило всі спроби за мілісекунди),
+     * після maxAttempts — FAILED (лишається для replay).
+     */
+    public void markFailed(long id, String error, int maxAttempts, long backoffMs) {
+        jdbcTemplate.update("""
+                UPDATE whatsapp_webhook_inbox
+                   SET status = CASE WHEN attempts >= ? THEN 'FAILED' ELSE 'NEW' END,
+                       locked_until = CASE WHEN attempts >= ? THEN NULL
+                                           ELSE NOW() + (attempts * ? * INTERVAL '1 millisecond') END,
+                       error = ?
+                 WHERE id = ?
+                """, maxAttempts, maxAttempts, backoffMs, error, id);
+    }
+
+    /**
+     * Повторна обробка всього, що надійшло в [from, to): рядки знову стають NEW.
+     */
+    public int replay(LocalDateTime from, LocalDateTime to) {
+        return jdbcTemplate.update("""
+                UPDATE whatsapp_webhook_inbox
+                   SET status = 'NEW', attempts = 0, locked_until = NULL, processed_at = NULL, error = NULL
+                 WHERE received_at >= ? AND received_at < ?
+                   AND status <> 'PROCESSING'
+                """, Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+
+    public int purgeDone(LocalDateTime before) {
+        return jdbcTemplate.update(
+                "DELETE FROM whatsapp_webhook_inbox WHERE status = 'DONE' AND received_at < ?",
+                Timestamp.valueOf(before));
+    }
+}
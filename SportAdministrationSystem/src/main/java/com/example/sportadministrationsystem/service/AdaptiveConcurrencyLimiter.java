@@ -0,0 +1,148 @@
+package com.example.sportadministrationsystem.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Адаптивний ліміт одночасних запитів (AIMD).
+ *
+ * - успішна відповідь із нормальною затримкою, коли ліміт реально вибраний: +1/limit (≈ +1 за "вікно");
+ * - throttling (429, коди обмеження швидкості): limit * backoff-ratio (різке зниження),
+ *   не частіше одного разу на "вікно" — відмови запитів, відправлених до попереднього зниження, не рахуються;
+ * - затримка вище порогу: м'яке зниження (×0.9), бо черга вже росте на боці API;
+ * - інші помилки ліміт не змінюють.
+ *
+ * acquire() блокує, поки in-flight >= limit (до maxWait); викликач обов'язково робить release().
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    /** Результат запиту для підлаштування ліміту. */
+    public enum Outcome { SUCCESS, THROTTLED, IGNORE }
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long latencyThresholdNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition slotFreed = lock.newCondition();
+
+    private double limit;
+    private int inFlight;
+    private int waiting;
+    private long lastDecrease = System.nanoTime();
+
+    private Counter throttledCounter;
+
+    public AdaptiveConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit,
+                                      double backoffRatio, long latencyThresholdMs) {
+        this.name = name;
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.backoffRatio = backoffRatio;
+        this.latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(latencyThresholdMs);
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+    }
+
+    /** Метрики: поточний ліміт, in-flight, черга очікування, лічильник throttling. */
+    public AdaptiveConcurrencyLimiter bindTo(MeterRegistry registry) {
+        Gauge.builder(name + ".concurrency.limit", this, AdaptiveConcurrencyLimiter::getLimit).register(registry);
+        Gauge.builder(name + ".concurrency.inflight", this, AdaptiveConcurrencyLimiter::getInFlight).register(registry);
+        Gauge.builder(name + ".concurrency.queue", this, AdaptiveConcurrencyLimiter::getWaiting).register(registry);
+        this.throttledCounter = Counter.builder(name + ".throttled").register(registry);
+        return this;
+    }
+
+    /**
+     * Чекає вільного слота. false — не дочекались за maxWaitMs (запит не відправляємо).
+     */
+    public boolean acquire(long maxWaitMs) throws InterruptedException {
+        long remaining = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        lock.lock();
+        try {
+            waiting++;
+            try {
+                while (inFlight >= (int) limit) {
+                    if (remaining <= 0) return false;
+                    remaining = slotFreed.awaitNanos(remaining);
+                }
+            } finally {
+                waiting--;
+            }
+            inFlight++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Звільняє слот і підлаштовує ліміт за результатом і затримкою (startedNanos — System.nanoTime() відправки).
+     */
+    public void release(Outcome outcome, long startedNanos) {
+        long rttNanos = System.nanoTime() - startedNanos;
+        lock.lock();
+        try {
+            // ріст лише коли ліміт реально вибраний — інакше сигналу про запас немає
+            boolean saturated = inFlight >= (int) limit * 0.5;
+            inFlight--;
+
+            switch (outcome) {
+                case THROTTLED -> {
+                    if (throttledCounter != null) throttledCounter.increment();
+                    if (startedNanos - lastDecrease > 0) {
+                        limit = Math.max(minLimit, limit * backoffRatio);
+                        lastDecrease = System.nanoTime();
+                    }
+                }
+                case SUCCESS -> {
+                    if (rttNanos > latencyThresholdNanos) {
+                        if (startedNanos - lastDecrease > 0) {
+                            limit = Math.max(minLimit, limit * 0.9);
+                            lastDecrease = System.nanoTime();
+                        }
+                    } else if (saturated) {
+                        limit = Math.min(maxLimit, limit + 1.0 / limit);
+                    }
+                }
+                case IGNORE -> { }
+            }
+            slotFreed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public double getLimit() {
+        lock.lock();
+        try {
+            return limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getWaiting() {
+        lock.lock();
+        try {
+            return waiting;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.sportadministrationsystem.service;
+
+import com.example.sportadministrationsystem.model.Channel;
+
+/**
+ * Змінено поля акаунта бота (tg_chat_id / profile_name) — записи кешів провіженерів за цим ключем застаріли.
+ * key — tgUserId (рядком) для TELEGRAM, waId для WHATSAPP.
+ */
+public record BotAccountChangedEvent(Channel channel, String key) {
+}
@@ -0,0 +1,90 @@
+package com.example.sportadministrationsystem.service;
+
+import com.example.sportadministrationsystem.model.Channel;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Окремий обмежений пул з чергою для розсилок одного каналу (bulkhead): коли провайдер каналу
+ * гальмує, заповнюються лише його потоки й черга, розсилки іншого каналу йдуть своїм пулом.
+ *
+ * Переповнена черга відхиляє задачу (RejectedExecutionException) — той, хто подає задачі,
+ * має брати роботу в межах freeSlots() і повертати відхилене в чергу БД.
+ */
+public class ChannelBulkhead implements Executor {
+
+    private final Channel channel;
+    private final int threads;
+    private final ThreadPoolExecutor pool;
+    private final AtomicLong rejected = new AtomicLong();
+
+    public ChannelBulkhead(Channel channel, int threads, int queueCapacity) {
+        this.channel = channel;
+        this.threads = Math.max(1, threads);
+        String prefix = "dispatch-" + tag() + "-";
+        AtomicInteger seq = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(this.threads, this.threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), r -> {
+                    Thread t = new Thread(r, prefix + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    /**
+     * Метрики пулу з тегом channel: dispatch.bulkhead.active / .threads / .queue / .queue.remaining
+     * і лічильник відхилених задач dispatch.bulkhead.rejected.
+     */
+    public ChannelBulkhead bindTo(MeterRegistry registry) {
+        String tag = tag();
+        Gauge.builder("dispatch.bulkhead.active", pool, ThreadPoolExecutor::getActiveCount).tag("channel", tag).register(registry);
+        Gauge.builder("dispatch.bulkhead.threads", pool, ThreadPoolExecutor::getPoolSize).tag("channel", tag).register(registry);
+        Gauge.builder("dispatch.bulkhead.queue", pool, p -> p.getQueue().size()).tag("channel", tag).register(registry);
+        Gauge.builder("dispatch.bulkhead.queue.remaining", pool, p -> p.getQueue().remainingCapacity())
+                .tag("channel", tag).register(registry);
+        FunctionCounter.builder("dispatch.bulkhead.rejected", rejected, AtomicLong::get).tag("channel", tag).register(registry);
+        return this;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        try {
+            pool.execute(task);
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw e;
+        }
+    }
+
+    /** Скільки задач пул зараз прийме без відхилення (вільні потоки + місце в черзі), приблизно. */
+    public int freeSlots() {
+        return Math.max(0, threads - pool.getActiveCount()) + pool.getQueue().remainingCapacity();
+    }
+
+    public Channel channel() {
+        return channel;
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+        try {
+            pool.awaitTermination(60, TimeUnit.SECONDS);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private String tag() {
+        return channel.name().toLowerCase(Locale.ROOT);
+    }
+}
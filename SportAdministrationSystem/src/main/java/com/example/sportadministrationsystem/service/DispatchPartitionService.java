@@ -0,0 +1,96 @@
+package com.example.sportadministrationsystem.service;
+
+import com.example.sportadministrationsystem.repository.DispatcherNodeRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Розподіл черги постів на партиції (event_id mod N) між живими вузлами.
+ *
+ * Вузол відзначається в dispatcher_nodes окремим heartbeat (кожні dispatcher.heartbeat-ms, значно частіше
+ * за node-ttl-ms) — незалежно від того, чи є що розсилати: таймер постів може мовчати годинами,
+ * а вузол без heartbeat інші вважали б мертвим і забирали б його партиції туди-сюди.
+ * ownedPartitions() лише читає: вузол бере партиції p, для яких p mod (кількість живих вузлів) == його індекс
+ * у відсортованому списку. Коли вузли приходять/зникають — розподіл перераховується сам; на час перебалансування
+ * партицію від подвійного захоплення береже advisory-лок партиції (див. PostLeaseService.claimDue).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DispatchPartitionService {
+
+    private final DispatcherNodeRepository nodeRepository;
+    private final NodeIdentity nodeIdentity;
+
+    // Разом із тіком розсилки (див. PostDispatchScheduler): вимкнений вузол не відзначається в реєстрі
+    @Value("${dispatcher.enabled:true}")
+    private boolean enabled;
+
+    @Value("${dispatcher.partitions:16}")
+    private int partitions;
+
+    // Вузол вважається живим, поки heartbeat не старший за node-ttl-ms (heartbeat-ms має бути < node-ttl-ms / 3)
+    @Value("${dispatcher.node-ttl-ms:180000}")
+    private long nodeTtlMs;
+
+    private volatile List<Integer> lastOwned = List.of();
+
+    public int partitionCount() {
+        return partitions;
+    }
+
+    @Scheduled(fixedDelayString = "${dispatcher.heartbeat-ms:30000}")
+    public void heartbeat() {
+        if (!enabled) return;
+        try {
+            nodeRepository.heartbeat(nodeIdentity.id());
+            nodeRepository.purgeStale(nodeTtlMs * 10);
+        } catch (Exception e) {
+            log.warn("Dispatcher node {} heartbeat failed: {}", nodeIdentity.id(), e.getMessage());
+        }
+    }
+
+    /**
+     * Партиції, що зараз належать цьому вузлу (лише читання реєстру).
+     */
+    public List<Integer> ownedPartitions() {
+        String self = nodeIdentity.id();
+
+        List<String> nodes = new ArrayList<>(nodeRepository.liveNodes(nodeTtlMs));
+        if (!nodes.contains(self)) {
+            // перший heartbeat ще не записаний (старт) — рахуємо себе так, як побачать інші вузли після нього
+            nodes.add(self);
+            Collections.sort(nodes);
+        }
+        int index = nodes.indexOf(self);
+        int size = nodes.size();
+
+        List<Integer> owned = new ArrayList<>();
+        for (int p = 0; p < partitions; p++) {
+            if (p % size == index) owned.add(p);
+        }
+
+        if (!owned.equals(lastOwned)) {
+            log.info("Dispatcher partitions rebalanced: node {} ({}/{} live) owns {}", self, index + 1, size, owned);
+            lastOwned = List.copyOf(owned);
+        }
+        return owned;
+    }
+
+    @PreDestroy
+    public void leave() {
+        try {
+            nodeRepository.remove(nodeIdentity.id());
+        } catch (Exception e) {
+            log.debug("Failed to deregister dispatcher node {}: {}", nodeIdentity.id(), e.getMessage());
+        }
+    }
+}
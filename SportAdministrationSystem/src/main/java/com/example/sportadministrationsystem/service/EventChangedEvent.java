@@ -0,0 +1,7 @@
+package com.example.sportadministrationsystem.service;
+
+/**
+ * Івент створено/оновлено/видалено — локальні кеші по цьому івенту застаріли.
+ */
+public record EventChangedEvent(Long eventId) {
+}
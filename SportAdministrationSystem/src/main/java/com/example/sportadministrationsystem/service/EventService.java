@@ -15,6 +15,7 @@ import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
@@ -42,6 +43,10 @@ public class EventService {
     @Autowired(required = false)
     private WhatsAppReminderService whatsAppReminderService;
 
+    /** Сповіщення про зміну івенту (кеші/інші вузли через PgNotificationBus) */
+    @Autowired(required = false)
+    private ApplicationEventPublisher eventPublisher;
+
     /* ======================= READ ======================= */
 
     /** Загальний лістинг з опційними фільтрами category/tag і пагінацією. */
@@ -133,6 +138,7 @@ public class EventService {
         // НОВОЕ: передаємо вибрані канали з payload
         tryEnsureTemplates(saved, payload.getChannels());
 
+        publishChanged(saved.getId());
         return toDto(saved);
     }
 
@@ -156,6 +162,7 @@ public class EventService {
         // Підтягнемо шаблонні/планові пости під оновлений івент (якщо сервіс є)
         tryEnsureTemplates(saved);
 
+        publishChanged(saved.getId());
         return toDto(saved);
     }
 
@@ -165,6 +172,13 @@ public class EventService {
         Event e = eventRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Event not found: id=" + id));
         eventRepository.delete(e);
+        publishChanged(id);
+    }
+
+    private void publishChanged(Long eventId) {
+        if (eventPublisher != null) {
+            eventPublisher.publishEvent(new EventChangedEvent(eventId));
+        }
     }
 
     /* ======================= MAPPING ======================= */
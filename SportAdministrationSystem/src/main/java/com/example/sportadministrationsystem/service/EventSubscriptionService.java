@@ -1,68 +1,41 @@
 package com.example.sportadministrationsystem.service;
 
-import com.example.sportadministrationsystem.model.Event;
-import com.example.sportadministrationsystem.model.EventSubscription;
+import com.example.sportadministrationsystem.model.Channel;
 import com.example.sportadministrationsystem.model.UserTelegram;
-import com.example.sportadministrationsystem.repository.EventRepository;
-import com.example.sportadministrationsystem.repository.EventSubscriptionRepository;
+import com.example.sportadministrationsystem.repository.SubscriptionToggleRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-
-import java.util.Optional;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class EventSubscriptionService {
 
-    private final EventRepository events;
-    private final EventSubscriptionRepository subs;
+    private final SubscriptionToggleRepository toggles;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
-     * Увімкнути/вимкнути підписку для конкретного івенту/юзера в межах єдиної транзакції.
+     * Увімкнути/вимкнути підписку для конкретного івенту/юзера одним SQL-оператором (upsert / update).
      * Повертає true, якщо після виклику підписка активна; false — якщо деактивована.
+     * Подія SubscriptionToggledEvent публікується лише при реальній зміні стану.
      */
-    @Transactional
     public boolean toggleSubscription(long eventId, UserTelegram tgAcc, boolean desired) {
-        Event event = events.findById(eventId)
-                .orElseThrow(() -> new IllegalArgumentException("Event not found: " + eventId));
-
-        Optional<EventSubscription> found =
-                subs.findByEventAndUserTelegram(event, tgAcc);
-
-        if (desired) {
-            if (found.isEmpty()) {
-                EventSubscription es = new EventSubscription();
-                es.setEvent(event);
-                es.setUserTelegram(tgAcc);
-                es.setActive(true);
-                subs.saveAndFlush(es);
-                return true;
-            } else if (!found.get().isActive()) {
-                int updated = subs.reactivate(event, tgAcc);
-                if (updated == 0) {
-                    // fallback на entity update (якщо update-query нічого не змінила)
-                    EventSubscription es = found.get();
-                    es.setActive(true);
-                    subs.saveAndFlush(es);
-                }
-                return true;
-            } else {
-                // уже активна
-                return true;
-            }
-        } else {
-            if (found.isPresent() && found.get().isActive()) {
-                int updated = subs.deactivate(event, tgAcc);
-                if (updated == 0) {
-                    EventSubscription es = found.get();
-                    es.setActive(false);
-                    subs.saveAndFlush(es);
-                }
-            }
-            return false;
+        boolean changed;
+        try {
+            changed = desired
+                    ? toggles.activateTelegram(eventId, tgAcc.getId())
+                    : toggles.deactivateTelegram(eventId, tgAcc.getId());
+        } catch (DataIntegrityViolationException e) {
+            throw new IllegalArgumentException("Event not found: " + eventId);
         }
+        if (changed) changed(eventId, desired);
+        return desired;
+    }
+
+    private void changed(long eventId, boolean active) {
+        eventPublisher.publishEvent(new SubscriptionToggledEvent(eventId, Channel.TELEGRAM, active));
     }
 }
@@ -0,0 +1,76 @@
+package com.example.sportadministrationsystem.service;
+
+import com.example.sportadministrationsystem.dto.EventSummary;
+import com.example.sportadministrationsystem.repository.EventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Кеш EventSummary для відповідей ботів на підписку/відписку: при сплеску натискань на один івент
+ * він читається з БД один раз, а не на кожну відповідь.
+ *
+ * Запис скидається по EventChangedEvent (локально після коміту або з іншого вузла через PgNotificationBus)
+ * і в будь-якому разі живе не довше events.summary-cache.ttl-seconds. Відсутні івенти не кешуються.
+ */
+@Service
+@RequiredArgsConstructor
+public class EventSummaryCache {
+
+    private final EventRepository events;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${events.summary-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    @Value("${events.summary-cache.max-size:10000}")
+    private int maxSize;
+
+    private record Entry(EventSummary summary, long loadedAt) {}
+
+    private final ConcurrentHashMap<Long, Entry> cache = new ConcurrentHashMap<>();
+
+    private Counter hits;
+    private Counter misses;
+
+    @PostConstruct
+    void initMetrics() {
+        Gauge.builder("events.summary.cache.size", cache, Map::size).register(meterRegistry);
+        hits = Counter.builder("events.summary.cache.hits").register(meterRegistry);
+        misses = Counter.builder("events.summary.cache.misses").register(meterRegistry);
+    }
+
+    public Optional<EventSummary> get(long eventId) {
+        long now = System.nanoTime();
+        Entry e = cache.get(eventId);
+        if (e != null && now - e.loadedAt() < TimeUnit.SECONDS.toNanos(ttlSeconds)) {
+            hits.increment();
+            return Optional.of(e.summary());
+        }
+        misses.increment();
+        Optional<EventSummary> loaded = events.findById(eventId).map(EventSummary::of);
+        if (loaded.isPresent()) {
+            if (cache.size() >= maxSize) cache.clear();
+            cache.put(eventId, new Entry(loaded.get(), now));
+        } else {
+            cache.remove(eventId);
+        }
+        return loaded;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEventChanged(EventChangedEvent e) {
+        if (e.eventId() == null) cache.clear();
+        else cache.remove(e.eventId());
+    }
+}
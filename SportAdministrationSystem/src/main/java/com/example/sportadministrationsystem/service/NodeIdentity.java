@@ -0,0 +1,38 @@
+package com.example.sportadministrationsystem.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.util.UUID;
+
+/**
+ * Ідентифікатор цього інстансу застосунку (власник оренд постів тощо).
+ * Береться з dispatcher.node-id, інакше — hostname + pid + випадковий суфікс.
+ */
+@Slf4j
+@Component
+public class NodeIdentity {
+
+    private final String id;
+
+    public NodeIdentity(@Value("${dispatcher.node-id:}") String configured) {
+        this.id = (configured != null && !configured.isBlank()) ? configured.trim() : generate();
+        log.info("Node identity: {}", id);
+    }
+
+    public String id() {
+        return id;
+    }
+
+    private static String generate() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "node";
+        }
+        return host + "-" + ProcessHandle.current().pid() + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
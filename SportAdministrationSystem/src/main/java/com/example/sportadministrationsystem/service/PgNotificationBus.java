@@ -0,0 +1,182 @@
+package com.example.sportadministrationsystem.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.Map;
+
+/**
+ * Шина сповіщень між вузлами на PostgreSQL LISTEN/NOTIFY (без зовнішнього брокера).
+ *
+ * Вихідні: локальні події (пост заплановано/перенесено, івент змінено, підписку перемкнуто,
+ * акаунт бота оновлено)
+ * після коміту йдуть у pg_notify з id вузла-відправника.
+ * Вхідні: окремий потік тримає одне з'єднання з пулу під LISTEN і перепубліковує
+ * повідомлення інших вузлів як локальні Spring-події — таймер due-постів будиться,
+ * кеші скидають застарілі записи. Власні повідомлення ігноруються (вже оброблені локально).
+ *
+ * На не-PostgreSQL БД (H2 у тестах) шина тихо вимикається.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PgNotificationBus {
+
+    private static final Map<String, Class<?>> TYPES = Map.of(
+            "post.schedule", PostScheduleChangedEvent.class,
+            "event.changed", EventChangedEvent.class,
+            "subscription.toggled", SubscriptionToggledEvent.class,
+            "bot.account", BotAccountChangedEvent.class
+    );
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final NodeIdentity nodeIdentity;
+
+    @Value("${bus.enabled:true}")
+    private boolean enabled;
+
+    @Value("${bus.channel:sport_admin_bus}")
+    private String channel;
+
+    @Value("${bus.poll-timeout-ms:5000}")
+    private int pollTimeoutMs;
+
+    @Value("${bus.reconnect-delay-ms:5000}")
+    private long reconnectDelayMs;
+
+    // Потік слухача перепубліковує вхідні події — їх не можна знову відправляти в шину
+    private final ThreadLocal<Boolean> relaying = ThreadLocal.withInitial(() -> false);
+
+    private volatile Thread listener;
+    private volatile boolean supported = true;
+
+    /* ===================== Outbound ===================== */
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostScheduleChanged(PostScheduleChangedEvent e) {
+        publish("post.schedule", e);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEventChanged(EventChangedEvent e) {
+        publish("event.changed", e);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSubscriptionToggled(SubscriptionToggledEvent e) {
+        publish("subscription.toggled", e);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBotAccountChanged(BotAccountChangedEvent e) {
+        publish("bot.account", e);
+    }
+
+    private void publish(String type, Object payload) {
+        if (!enabled || !supported || relaying.get()) return;
+        try {
+            ObjectNode msg = objectMapper.createObjectNode();
+            msg.put("type", type);
+            msg.put("origin", nodeIdentity.id());
+            msg.set("data", objectMapper.valueToTree(payload));
+            jdbcTemplate.query("select pg_notify(?, ?)", rs -> null, channel, objectMapper.writeValueAsString(msg));
+        } catch (Exception ex) {
+            log.debug("Bus notify {} failed: {}", type, ex.getMessage());
+        }
+    }
+
+    /* ===================== Inbound ===================== */
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) return;
+        Thread t = new Thread(this::listenLoop, "pg-notification-bus");
+        t.setDaemon(true);
+        listener = t;
+        t.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        Thread t = listener;
+        listener = null;
+        if (t != null) t.interrupt();
+    }
+
+    private void listenLoop() {
+        while (listener != null) {
+            try (Connection conn = dataSource.getConnection()) {
+                if (!conn.isWrapperFor(PGConnection.class)) {
+                    supported = false;
+                    log.info("Notification bus disabled: database is not PostgreSQL");
+                    return;
+                }
+                conn.setAutoCommit(true);
+                try (Statement st = conn.createStatement()) {
+                    st.execute("LISTEN " + channel);
+                }
+                PGConnection pg = conn.unwrap(PGConnection.class);
+                log.info("Notification bus listening on '{}' as {}", channel, nodeIdentity.id());
+
+                while (listener != null) {
+                    PGNotification[] batch = pg.getNotifications(pollTimeoutMs);
+                    if (batch == null) continue;
+                    for (PGNotification n : batch) {
+                        relay(n.getParameter());
+                    }
+                }
+            } catch (Exception ex) {
+                if (listener == null) return;
+                log.warn("Notification bus connection lost: {}; reconnecting in {} ms", ex.getMessage(), reconnectDelayMs);
+                try {
+                    Thread.sleep(reconnectDelayMs);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void relay(String raw) {
+        try {
+            JsonNode msg = objectMapper.readTree(raw);
+            if (nodeIdentity.id().equals(msg.path("origin").asText())) return;
+
+            Class<?> type = TYPES.get(msg.path("type").asText());
+            if (type == null) {
+                log.debug("Bus: unknown message type {}", msg.path("type").asText());
+                return;
+            }
+            Object event = objectMapper.treeToValue(msg.get("data"), type);
+
+            relaying.set(true);
+            try {
+                eventPublisher.publishEvent(event);
+            } finally {
+                relaying.set(false);
+            }
+        } catch (Exception ex) {
+            log.warn("Bus: failed to handle message {}: {}", raw, ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.sportadministrationsystem.service;
+
+import com.example.sportadministrationsystem.dto.DeliveryTotals;
+import com.example.sportadministrationsystem.dto.TargetAttempt;
+import com.example.sportadministrationsystem.model.DeliveryStatus;
+import com.example.sportadministrationsystem.repository.PostDeliveryRepository;
+import com.example.sportadministrationsystem.repository.PostDispatchCheckpointRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Журнал доставки постів по таргетах (post_delivery) + контрольна точка розсилки.
+ *
+ * Кожен чанк записується в окремій транзакції (REQUIRES_NEW) разом із контрольною точкою,
+ * тож після падіння вузла розсилку можна продовжити з останнього записаного чанку.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PostDeliveryLedger {
+
+    private final PostDeliveryRepository deliveryRepository;
+    private final PostDispatchCheckpointRepository checkpointRepository;
+
+    /** Id останньої обробленої підписки (0 — розсилка ще не починалась). */
+    @Transactional(readOnly = true)
+    public long checkpoint(Long postId) {
+        return checkpointRepository.findLastSubscriptionId(postId).orElse(0L);
+    }
+
+    /** Останні спроби по таргетах чанку (ключ — target). */
+    @Transactional(readOnly = true)
+    public Map<String, TargetAttempt> attempts(Long postId, Collection<String> targets) {
+        Map<String, TargetAttempt> out = new HashMap<>();
+        if (targets.isEmpty()) return out;
+        for (TargetAttempt a : deliveryRepository.findAttempts(postId, targets)) {
+            out.put(a.getTarget(), a);
+        }
+        return out;
+    }
+
+    /**
+     * Атомарно записує результати чанку і просуває контрольну точку.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void recordChunk(Long postId, List<Outcome> outcomes, long lastSubscriptionId) {
+        for (Outcome o : outcomes) {
+            deliveryRepository.upsertAttempt(postId, o.target(), o.attemptNo(), o.status().name(), o.error());
+        }
+        if (lastSubscriptionId > 0) {
+            checkpointRepository.advance(postId, lastSubscriptionId);
+        }
+    }
+
+    /** Розсилку завершено: контрольна точка більше не потрібна (повторний запуск піде з початку, пропускаючи SENT). */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void complete(Long postId) {
+        checkpointRepository.clear(postId);
+    }
+
+    @Transactional(readOnly = true)
+    public DeliveryTotals totals(Long postId) {
+        return deliveryRepository.totals(postId);
+    }
+
+    /** Результат однієї спроби доставки. */
+    public record Outcome(String target, int attemptNo, DeliveryStatus status, String error) {
+
+        public static Outcome sent(String target, int attemptNo) {
+            return new Outcome(target, attemptNo, DeliveryStatus.SENT, null);
+        }
+
+        public static Outcome failed(String target, int attemptNo, String error) {
+            return new Outcome(target, attemptNo, DeliveryStatus.FAILED, error);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.sportadministrationsystem.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class PostDeliveryRetryScheduler {
+    private final PostDeliveryRetryService retryService;
+
+    // Захоплення повторів — SQL лише для PostgreSQL (SKIP LOCKED), у тестах на H2 вимикається
+    @Value("${dispatcher.retry.enabled:true}")
+    private boolean enabled;
+
+    // Скільки батчів максимум за один тік (щоб не блокувати планувальник надовго)
+    @Value("${dispatcher.retry.max-batches-per-tick:20}")
+    private int maxBatchesPerTick;
+
+    // Раз на dispatcher.retry.interval-ms (за замовчуванням 30с) повторюємо due-доставки.
+    // Локів не потрібно: спроби захоплюються одним оператором (SKIP LOCKED + вставка наступної спроби).
+    @Scheduled(fixedDelayString = "${dispatcher.retry.interval-ms:30000}")
+    public void tick() {
+        if (!enabled) return;
+        try {
+            int total = 0;
+            for (int i = 0; i < maxBatchesPerTick; i++) {
+                int n = retryService.retryDue();
+                total += n;
+                if (n < retryService.getBatchSize()) break;
+            }
+            if (total > 0) log.info("Retried {} failed deliveries", total);
+        } catch (Exception e) {
+            log.error("Error during delivery retry: {}", e.getMessage(), e);
+        }
+    }
+}
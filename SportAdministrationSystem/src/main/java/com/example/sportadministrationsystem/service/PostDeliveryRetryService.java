@@ -0,0 +1,84 @@
+package com.example.sportadministrationsystem.service;
+
+import com.example.sportadministrationsystem.dto.PostDispatchCommand;
+import com.example.sportadministrationsystem.model.DeliveryStatus;
+import com.example.sportadministrationsystem.repository.PostDeliveryClaimRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Повторна відправка невдалих доставок по окремих таргетах.
+ *
+ * Due FAILED-спроби захоплюються одним оператором (PostDeliveryClaimRepository: експоненційний backoff,
+ * SKIP LOCKED, одразу вставляється спроба attempt_no + 1) — транзакції й локи на час відправок не тримаються.
+ * Пост знімається в PostDispatchCommand короткою читальною транзакцією, результати пишуться
+ * одним коротким батчем на пост. Після батчу статус поста перераховується з реальних підсумків.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PostDeliveryRetryService {
+
+    private final PostDeliveryClaimRepository claims;
+    private final PostDispatchSnapshotService snapshots;
+    private final PostDispatchService postDispatchService;
+    private final PostDeliveryLedger ledger;
+    private final PostLeaseService leaseService;
+
+    @Value("${dispatcher.retry.batch-size:100}")
+    private int batchSize;
+
+    @Value("${dispatcher.retry.max-attempts:5}")
+    private int maxAttempts;
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Один батч повторів. Повертає кількість оброблених спроб.
+     */
+    public int retryDue() {
+        List<PostDeliveryClaimRepository.Claim> claimed = claims.claimDueRetries(batchSize, maxAttempts);
+        if (claimed.isEmpty()) return 0;
+
+        Map<Long, List<PostDeliveryClaimRepository.Claim>> byPost = new LinkedHashMap<>();
+        for (PostDeliveryClaimRepository.Claim c : claimed) {
+            byPost.computeIfAbsent(c.postId(), k -> new ArrayList<>()).add(c);
+        }
+
+        int processed = 0;
+        for (Map.Entry<Long, List<PostDeliveryClaimRepository.Claim>> entry : byPost.entrySet()) {
+            Long postId = entry.getKey();
+            // Пост видалено — його спроби пішли разом з ним (ON DELETE CASCADE)
+            PostDispatchCommand cmd = snapshots.load(postId).orElse(null);
+            if (cmd == null) continue;
+
+            List<PostDeliveryLedger.Outcome> outcomes = new ArrayList<>(entry.getValue().size());
+            String lastError = null;
+            for (PostDeliveryClaimRepository.Claim c : entry.getValue()) {
+                PostDeliveryLedger.Outcome o = postDispatchService.redeliver(cmd, c.target(), c.attemptNo());
+                if (o.status() == DeliveryStatus.FAILED) lastError = o.error();
+                outcomes.add(o);
+            }
+
+            ledger.recordChunk(postId, outcomes, 0L);
+            processed += outcomes.size();
+
+            // Умовний UPDATE замість save(): не перетираємо пост, який тим часом знову пішов у розсилку
+            PostDispatchService.FinalStatus status = postDispatchService.settleStatus(cmd, lastError);
+            leaseService.settle(postId, status.status(), status.error());
+
+            long recovered = outcomes.stream().filter(o -> o.status() == DeliveryStatus.SENT).count();
+            log.info("Retried {} target(s) of post #{}: {} delivered", outcomes.size(), postId, recovered);
+        }
+        return processed;
+    }
+}
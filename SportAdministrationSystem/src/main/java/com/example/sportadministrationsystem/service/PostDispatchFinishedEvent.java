@@ -0,0 +1,8 @@
+package com.example.sportadministrationsystem.service;
+
+/**
+ * Розсилку поста завершено (оренду звільнено) — наступний пост цього івенту
+ * можна забирати одразу, не чекаючи тіку планувальника.
+ */
+public record PostDispatchFinishedEvent(Long postId, Long eventId) {
+}
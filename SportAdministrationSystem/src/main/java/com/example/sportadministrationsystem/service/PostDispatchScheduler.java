@@ -3,36 +3,60 @@ package com.example.sportadministrationsystem.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class PostDispatchScheduler {
     private final PostService postService;
-    private final DbLockService dbLockService;
+    private final PostLeaseService postLeaseService;
+    private final PostDueTimer postDueTimer;
+
+    // Тік розсилки (партиції, оренда) працює лише з PostgreSQL, у тестах на H2 вимикається
+    @Value("${dispatcher.enabled:true}")
+    private boolean enabled;
+
+    // Ріпер працює лише з PostgreSQL (UPDATE ... RETURNING), у тестах на H2 вимикається
+    @Value("${dispatcher.lease.reap-enabled:true}")
+    private boolean reapEnabled;
 
-    // Раз на dispatcher.interval-ms (за замовчуванням 60с) відправляємо всі due-пости
+    // Раз на dispatcher.interval-ms (за замовчуванням 60с) підтягуємо найближчі пости в таймер
+    // (він сам запускає розсилку точно в publishAt; прострочені — одразу).
+    // Якщо таймер вимкнено — як раніше, відправляємо всі due-пости на тіку.
+    // Глобального локу немає: пости забираються в оренду атомарно (див. PostLeaseService).
     @Scheduled(fixedDelayString = "${dispatcher.interval-ms:60000}")
     public void tick() {
-        long lockKey = DbLockService.key("post-dispatcher");
-        if (!dbLockService.tryLock(lockKey)) {
-            log.debug("Could not acquire lock for post dispatcher, skipping this tick");
-            return;
-        }
-
+        if (!enabled) return;
         try {
+            if (postDueTimer.isEnabled()) {
+                int loaded = postDueTimer.refill();
+                log.debug("Post due timer refilled with {} upcoming posts", loaded);
+                return;
+            }
             int sent = postService.dispatchDue();
             if (sent > 0) log.info("Dispatched {} scheduled posts", sent);
         } catch (Exception e) {
             log.error("Error during post dispatch: {}", e.getMessage(), e);
-        } finally {
-            try {
-                dbLockService.unlock(lockKey);
-            } catch (Exception e) {
-                log.warn("Failed to unlock post dispatcher: {}", e.getMessage());
-            }
+        }
+    }
+
+    // Ріпер: прострочені оренди (впав вузол/завис воркер) повертаємо в SCHEDULED
+    @Scheduled(fixedDelayString = "${dispatcher.lease.reap-interval-ms:30000}")
+    public void reap() {
+        if (!reapEnabled) return;
+        try {
+            List<Long> reaped = postLeaseService.reapExpired();
+            if (reaped.isEmpty()) return;
+            log.warn("Returned {} post(s) with expired lease to the queue: {}", reaped.size(), reaped);
+            // повернені (і пости їхніх івентів, що чекали на них) — одразу в таймер, а не на наступному тіку
+            if (postDueTimer.isEnabled()) postDueTimer.refill();
+        } catch (Exception e) {
+            log.error("Error during lease reaping: {}", e.getMessage(), e);
         }
     }
 }
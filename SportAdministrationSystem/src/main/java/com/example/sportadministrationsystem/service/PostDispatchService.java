@@ -1,327 +1,410 @@
 package com.example.sportadministrationsystem.service;
 
+import com.example.sportadministrationsystem.dto.AudienceBatch;
+import com.example.sportadministrationsystem.dto.DeliveryTotals;
+import com.example.sportadministrationsystem.dto.EventSummary;
+import com.example.sportadministrationsystem.dto.PostDispatchCommand;
+import com.example.sportadministrationsystem.dto.TargetAttempt;
+import com.example.sportadministrationsystem.exception.LeaseLostException;
 import com.example.sportadministrationsystem.exception.MissingTelegramChatIdException;
+import com.example.sportadministrationsystem.exception.WhatsAppSendException;
 import com.example.sportadministrationsystem.model.Audience;
 import com.example.sportadministrationsystem.model.Channel;
-import com.example.sportadministrationsystem.model.Event;
-import com.example.sportadministrationsystem.model.Post;
 import com.example.sportadministrationsystem.model.PostStatus;
-import com.example.sportadministrationsystem.repository.EventSubscriptionRepository;
-import com.example.sportadministrationsystem.repository.EventSubscriptionWhatsappRepository;
-import com.example.sportadministrationsystem.repository.PostRepository;
+import com.example.sportadministrationsystem.repository.SubscriberAudienceRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
-import org.springframework.transaction.annotation.Transactional;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
-import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class PostDispatchService {
 
-    private final PostRepository postRepository;
+    private final PostDispatchSnapshotService snapshots;
     private final TelegramService telegramService;
     private final WhatsAppGraphClient whatsAppGraphClient;
-    private final EventSubscriptionRepository eventSubscriptionRepository;
-    private final EventSubscriptionWhatsappRepository eventSubscriptionWhatsappRepository;
+    private final SubscriberAudienceRepository audience;
+    private final PostDeliveryLedger ledger;
+    private final PostLeaseService leaseService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ChannelBulkhead telegramDispatchBulkhead;
+    private final ChannelBulkhead whatsAppDispatchBulkhead;
+    private final Executor taskExecutor;
 
     @Value("${telegram.defaultChannelChatId:}")
     private String defaultChannelChatId;
 
+    // Розмір чанку аудиторії: стільки таргетів відправляємо між записами контрольної точки
+    @Value("${dispatcher.chunk-size:500}")
+    private int chunkSize;
+
+    /**
+     * Запускає розсилку орендованого поста в пулі його каналу (ChannelBulkhead): Telegram і WhatsApp
+     * мають окремі потоки й черги, тож провайдер, що гальмує, не займає пул іншого каналу.
+     * Інші канали (без власного пулу) йдуть у спільний taskExecutor.
+     *
+     * @return false — черга каналу переповнена, розсилку не запущено (оренду поста повертає викликач)
+     */
+    public boolean dispatch(Long postId, Channel channel) {
+        ChannelBulkhead bulkhead = bulkheadFor(channel);
+        Executor executor = bulkhead != null ? bulkhead : taskExecutor;
+        try {
+            executor.execute(() -> run(postId));
+            return true;
+        } catch (RejectedExecutionException e) {
+            log.warn("{} dispatch queue is full, post #{} not started", channel, postId);
+            return false;
+        }
+    }
+
+    /** Скільки ще розсилок прийме пул каналу (для захоплення постів у межах вільного місця). */
+    public int freeSlots(Channel channel) {
+        ChannelBulkhead bulkhead = bulkheadFor(channel);
+        return bulkhead != null ? bulkhead.freeSlots() : Integer.MAX_VALUE;
+    }
+
+    private ChannelBulkhead bulkheadFor(Channel channel) {
+        return switch (channel) {
+            case TELEGRAM -> telegramDispatchBulkhead;
+            case WHATSAPP -> whatsAppDispatchBulkhead;
+            default -> null;
+        };
+    }
+
     /**
-     * Асинхронна відправка поста (в новій транзакції, щоб статус поста завжди зберігався).
+     * Відправка поста (у потоці пулу каналу).
      * Підтримує: TELEGRAM та WHATSAPP канали
      *
-     * ВАЖЛИВО: Post повинен бути повністю завантажений ДО виклику цього методу,
-     * включаючи Event і всі його поля.
+     * Пост на цей момент уже орендований цим вузлом (DISPATCHING, див. PostLeaseService):
+     * оренда продовжується під час розсилки, а фінальний статус пишеться разом з її звільненням.
+     * Якщо оренду втрачено (прострочена або пост скасовано) — розсилка зупиняється без запису статусу.
+     *
+     * Розсилка йде чанками через журнал post_delivery: кожен чанк комітиться окремо
+     * разом із контрольною точкою (див. PostDeliveryLedger), тому довгої транзакції
+     * на всю розсилку немає, а перервану розсилку інший воркер продовжить з місця зупинки.
+     * Фінальний статус поста рахується з реальних підсумків по таргетах.
+     *
+     * Транзакцій на час мережевих викликів немає: пост з івентом знімається в незмінний PostDispatchCommand
+     * короткою читальною транзакцією (PostDispatchSnapshotService), аудиторія читається сторінками,
+     * результати пишуться короткими транзакціями по чанку — з'єднання з пулу не тримається під час відправок.
+     * У пул передається лише id поста, керовані сутності між потоками не передаються.
      */
-    @Async
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
-    public void dispatch(Post post) {
+    private void run(Long postId) {
+        PostLeaseService.Lease lease = leaseService.hold(postId);
+        FinalStatus result;
+        long eventId;
+
         try {
-            // Убезпечення від LazyInitializationException:
-            // Event та його поля повинні бути завантажені в батьківській транзакції
-            if (post.getEvent() == null) {
-                throw new IllegalStateException("Post #" + post.getId() + " must have Event loaded");
+            PostDispatchCommand cmd = snapshots.load(postId).orElse(null);
+            if (cmd == null) {
+                log.warn("Post #{} disappeared before dispatch", postId);
+                return;
             }
+            eventId = cmd.eventId();
+
+            try {
+                String lastError = dispatchTargets(cmd, lease);
+                result = applyTotals(cmd, ledger.totals(postId), lastError);
+                completeQuietly(postId);
 
-            int sentCount = switch (post.getChannel()) {
-                case TELEGRAM -> dispatchTelegram(post);
-                case WHATSAPP -> dispatchWhatsApp(post);
-                default -> throw new IllegalStateException("Unsupported channel: " + post.getChannel());
-            };
+            } catch (LeaseLostException e) {
+                throw e;
 
-            post.setStatus(PostStatus.PUBLISHED);
-            post.setError(null);
-            log.info("Post #{} delivered to {} target(s) via {}.", post.getId(), sentCount, post.getChannel());
+            } catch (MissingTelegramChatIdException e) {
+                log.warn("Dispatch failed for post #{}: no Telegram chatId", postId, e);
+                result = new FinalStatus(PostStatus.FAILED, "NO_TELEGRAM_CHAT_ID");
+
+            } catch (Exception e) {
+                log.error("Dispatch failed for post #{}: {}", postId, e.getMessage(), e);
+                result = new FinalStatus(PostStatus.FAILED, shorten(e.getMessage(), 500));
+                completeQuietly(postId);
+            }
 
-        } catch (MissingTelegramChatIdException e) {
-            post.setStatus(PostStatus.FAILED);
-            post.setError("NO_TELEGRAM_CHAT_ID");
-            log.warn("Dispatch failed for post #{}: no Telegram chatId", post.getId(), e);
+        } catch (LeaseLostException e) {
+            log.warn("Dispatch of post #{} aborted: {}", postId, e.getMessage());
+            return;
 
         } catch (Exception e) {
-            post.setStatus(PostStatus.FAILED);
-            post.setError(shorten(e.getMessage(), 500));
-            log.error("Dispatch failed for post #{}: {}", post.getId(), e.getMessage(), e);
+            // Знімок не вдався (напр. пост без івенту) — розсилки не було
+            log.error("Dispatch failed for post #{}: {}", postId, e.getMessage(), e);
+            // пост івенту звільнився — будимо таймер, щоб наступні пости не чекали свого повтору
+            if (leaseService.release(lease, PostStatus.FAILED, shorten(e.getMessage(), 500))) {
+                eventPublisher.publishEvent(new PostDispatchFinishedEvent(postId, null));
+            }
+            return;
+        }
 
-        } finally {
-            postRepository.save(post);
+        if (leaseService.release(lease, result.status(), result.error())) {
+            eventPublisher.publishEvent(new PostDispatchFinishedEvent(postId, eventId));
         }
     }
 
     /**
-     * Диспетчеризація для Telegram каналу.
+     * Диспетчеризація за каналом/аудиторією. Повертає текст останньої помилки доставки (або null).
+     * PUBLIC у Telegram — один таргет (сам канал, теж через журнал доставки), інакше — підписники івенту.
+     * PUBLIC у WhatsApp так само розсилається підписникам у приватні чати.
      */
-    private int dispatchTelegram(Post post) {
-        return switch (post.getAudience()) {
-            case PUBLIC -> dispatchTelegramPublic(post);
-            case SUBSCRIBERS -> dispatchTelegramSubscribers(post);
-            default -> throw new IllegalStateException("Unsupported audience: " + post.getAudience());
+    private String dispatchTargets(PostDispatchCommand p, PostLeaseService.Lease lease) {
+        TargetSender sender = senderFor(p);
+
+        if (p.channel() == Channel.TELEGRAM && p.audience() == Audience.PUBLIC) {
+            return deliverChunk(p, List.of(resolveTargetChatId()), 0L, sender, lease);
+        }
+        return switch (p.channel()) {
+            case TELEGRAM -> fanOut(p, AudienceBatch.telegram(chunkSize),
+                    (afterId, batch) -> audience.telegramPage(p.eventId(), afterId, batch),
+                    sender, lease);
+            case WHATSAPP -> fanOut(p, AudienceBatch.whatsapp(chunkSize),
+                    (afterId, batch) -> audience.whatsappPage(p.eventId(), afterId, batch),
+                    sender, lease);
+            default -> throw new IllegalStateException("Unsupported channel: " + p.channel());
         };
     }
 
     /**
-     * Диспетчеризація для WhatsApp каналу.
+     * Повторна відправка поста одному таргету (для PostDeliveryRetryService).
+     * У журнал нічого не пише — результат записує викликач.
      */
-    private int dispatchWhatsApp(Post post) {
-        return switch (post.getAudience()) {
-            case PUBLIC -> dispatchWhatsAppPublic(post);
-            case SUBSCRIBERS -> dispatchWhatsAppSubscribers(post);
-            default -> throw new IllegalStateException("Unsupported audience: " + post.getAudience());
-        };
+    public PostDeliveryLedger.Outcome redeliver(PostDispatchCommand p, String target, int attemptNo) {
+        try {
+            senderFor(p).send(target).join();
+            return PostDeliveryLedger.Outcome.sent(target, attemptNo);
+        } catch (Exception ex) {
+            Throwable cause = unwrap(ex);
+            log.warn("Retry #{} of post #{} to target={} failed: {}", attemptNo, p.postId(), target, cause.getMessage());
+            return PostDeliveryLedger.Outcome.failed(target, attemptNo, shorten(cause.getMessage(), 500));
+        }
+    }
+
+    /**
+     * Перераховує статус поста з підсумків журналу (після повторних відправок).
+     */
+    public FinalStatus settleStatus(PostDispatchCommand p, String lastError) {
+        return applyTotals(p, ledger.totals(p.postId()), lastError);
     }
 
     /**
-     * Публічний пост у Telegram канал
+     * Відправник для поста: текст і клавіатура будуються один раз на всю розсилку.
+     * Telegram відправляє синхронно (темп задає TelegramRateLimiter),
+     * WhatsApp — асинхронно через пул з'єднань WhatsAppGraphClient.
      */
-    private int dispatchTelegramPublic(Post p) {
-        String chatId = resolveTargetChatId(p);
-        String text = buildPostText(p);
+    private TargetSender senderFor(PostDispatchCommand p) {
+        EventSummary e = p.event();
+        String linkUrl = e.linkUrl();
+
+        return switch (p.channel()) {
+            case TELEGRAM -> {
+                String text = buildPostText(p);
+                InlineKeyboardMarkup kb = switch (p.audience()) {
+                    case PUBLIC -> p.firstPublic()
+                            ? telegramService.eventKeyboardPublicFirst(e.id(), linkUrl)
+                            : telegramService.eventKeyboardPublicFollowup(e.id(), linkUrl);
+                    case SUBSCRIBERS -> telegramService.eventKeyboard(e.id(), true, linkUrl);
+                    default -> throw new IllegalStateException("Unsupported audience: " + p.audience());
+                };
+                yield chatId -> {
+                    telegramService.sendMessage(chatId, text, kb);
+                    return CompletableFuture.completedFuture(null);
+                };
+            }
+            case WHATSAPP -> {
+                String text = buildPostTextWithEvent(p, e);
+                String messageWithLink = (linkUrl != null && !linkUrl.isBlank())
+                        ? text + "\n\n🔗 " + linkUrl
+                        : text;
+                WhatsAppGraphClient.TrackingTag tag = WhatsAppGraphClient.TrackingTag.event(e.id());
+                yield waId -> whatsAppGraphClient.sendTextAsync(waId, messageWithLink, tag)
+                        .thenApply(r -> {
+                            if (!r.ok()) throw new WhatsAppSendException(r.describe());
+                            return r;
+                        });
+            }
+            default -> throw new IllegalStateException("Unsupported channel: " + p.channel());
+        };
+    }
 
-        Event e = p.getEvent();
-        if (e == null || e.getId() == null) {
-            throw new IllegalStateException("PUBLIC post must be linked to an Event");
+    /**
+     * Розсилка аудиторії чанками (keyset по id підписки) з контрольною точкою.
+     * Сторінки читаються в один і той самий AudienceBatch — пам'ять не росте з розміром аудиторії.
+     * Починає з контрольної точки (якщо попередня розсилка була перервана),
+     * кожен чанк записує в post_delivery і просуває контрольну точку в одній транзакції.
+     * Дублікати можливі лише в межах одного незаписаного чанку.
+     */
+    private String fanOut(PostDispatchCommand p, AudienceBatch batch, AudiencePage page, TargetSender sender,
+                          PostLeaseService.Lease lease) {
+        long cursor = ledger.checkpoint(p.postId());
+        if (cursor > 0) {
+            log.info("Resuming fan-out of post #{} after subscription #{}", p.postId(), cursor);
         }
 
-        String linkUrl = resolveEventLinkUrl(e);
-        long publishedCount = postRepository.countByEvent_IdAndStatus(e.getId(), PostStatus.PUBLISHED);
+        String lastError = null;
+        while (true) {
+            page.fill(cursor, batch);
+            if (batch.isEmpty()) break;
+            cursor = batch.lastSubscriptionId();
 
-        InlineKeyboardMarkup kb = (publishedCount == 0)
-                ? telegramService.eventKeyboardPublicFirst(e.getId(), linkUrl)
-                : telegramService.eventKeyboardPublicFollowup(e.getId(), linkUrl);
+            String err = deliverChunk(p, batch.targets(), cursor, sender, lease);
+            if (err != null) lastError = err;
 
-        try {
-            telegramService.sendMessage(chatId, text, kb);
-        } catch (TelegramApiException e1) {
-            throw new RuntimeException("Telegram API error while sending PUBLIC post: " + e1.getMessage(), e1);
+            if (!batch.isFull()) break;
         }
-
-        return 1;
+        return lastError;
     }
 
     /**
-     * Розповсюдження Telegram постів підписникам (приват)
+     * Відправляє чанк таргетів, пропускаючи тих, кому вже доставлено (SENT),
+     * і записує результати з наступним номером спроби.
+     * Відправки чанку йдуть конвеєром: усі запити запускаються одразу (кількість у польоті
+     * обмежує клієнт каналу), результати збираються в кінці чанку.
+     * Перед кожною відправкою перевіряє/продовжує оренду поста.
      */
-    private int dispatchTelegramSubscribers(Post p) {
-        Event e = p.getEvent();
-        if (e == null || e.getId() == null) return 0;
+    private String deliverChunk(PostDispatchCommand p, List<String> targets, long checkpoint, TargetSender sender,
+                                PostLeaseService.Lease lease) {
+        Map<String, TargetAttempt> previous = ledger.attempts(p.postId(), targets);
 
-        // ВАЖЛИВО: копіюємо список, щоб відокремити від Hibernate сесії
-        List<Long> chatIds = new java.util.ArrayList<>(
-            eventSubscriptionRepository.findSubscriberChatIds(e.getId())
-        );
+        List<Pending> pending = new ArrayList<>(targets.size());
+        for (String target : targets) {
+            TargetAttempt prev = previous.get(target);
+            if (prev != null && Boolean.TRUE.equals(prev.getSent())) continue;
+            int attemptNo = prev == null ? 1 : prev.getAttemptNo() + 1;
 
-        String text = buildPostText(p);
-        String linkUrl = resolveEventLinkUrl(e);
-        InlineKeyboardMarkup kb = telegramService.eventKeyboard(e.getId(), true, linkUrl);
+            try {
+                leaseService.keepAlive(lease);
+            } catch (LeaseLostException lost) {
+                // вже відправлене в цьому чанку фіксуємо, щоб новий власник не дублював
+                ledger.recordChunk(p.postId(), collect(p, pending).outcomes(), 0L);
+                throw lost;
+            }
 
-        int sent = 0;
-        for (Long chatId : chatIds) {
+            CompletableFuture<?> sent;
             try {
-                telegramService.sendMessage(String.valueOf(chatId), text, kb);
-                sent++;
-            } catch (TelegramApiException e1) {
-                log.error("Telegram API error while sending to subscriber chatId={}: {}", chatId, e1.getMessage(), e1);
+                sent = sender.send(target);
+            } catch (Exception ex) {
+                sent = CompletableFuture.failedFuture(ex);
             }
+            pending.add(new Pending(target, attemptNo, sent));
         }
-        return sent;
-    }
 
-    /**
-     * Публічний пост у WhatsApp канал
-     * Якщо whatsappPersonal=true, розповсюдити всім підписникам
-     */
-    private int dispatchWhatsAppPublic(Post p) {
-        Event e = p.getEvent();
-        if (e == null || e.getId() == null) {
-            throw new IllegalStateException("PUBLIC WhatsApp post must be linked to an Event");
-        }
+        Collected done = collect(p, pending);
+        ledger.recordChunk(p.postId(), done.outcomes(), checkpoint);
+        return done.lastError();
+    }
 
-        // ВАЖЛИВО: Завантажуємо ВСІ поля Event одразу в поточній сесії
-        // Це запобігає "statement has been closed" помилкам в асинхронному контексті
-        String eventName = e.getName();
-        String eventLocation = e.getLocation();
-        Object eventStartAt = e.getStartAt();
-
-        String text = buildPostTextWithEvent(p, e);
-        String linkUrl = resolveEventLinkUrl(e);
-        int sent = 0;
-
-        // Відправка всім підписникам у приватні чати
-        List<String> waIds = new java.util.ArrayList<>(
-            eventSubscriptionWhatsappRepository.findSubscriberWaIds(e.getId())
-        );
-
-        if (waIds.isEmpty()) {
-            log.info("No WhatsApp subscribers for post #{}", p.getId());
-        } else {
-            for (String waId : waIds) {
-                try {
-                    String messageWithLink = text;
-                    if (linkUrl != null && !linkUrl.isBlank()) {
-                        messageWithLink = text + "\n\n🔗 " + linkUrl;
-                    }
-                    whatsAppGraphClient.sendText(waId, messageWithLink);
-                    sent++;
-                } catch (Exception ex) {
-                    log.error("WhatsApp API error while sending post to waId={}: {}", waId, ex.getMessage(), ex);
-                }
+    /** Чекає завершення відправок чанку і перетворює їх на записи журналу. */
+    private Collected collect(PostDispatchCommand p, List<Pending> pending) {
+        List<PostDeliveryLedger.Outcome> outcomes = new ArrayList<>(pending.size());
+        String lastError = null;
+        for (Pending s : pending) {
+            try {
+                s.result().join();
+                outcomes.add(PostDeliveryLedger.Outcome.sent(s.target(), s.attemptNo()));
+            } catch (Exception ex) {
+                Throwable cause = unwrap(ex);
+                lastError = shorten(cause.getMessage(), 500);
+                outcomes.add(PostDeliveryLedger.Outcome.failed(s.target(), s.attemptNo(), lastError));
+                log.error("{} API error while sending post #{} to target={}: {}",
+                        p.channel(), p.postId(), s.target(), cause.getMessage(), cause);
             }
         }
+        return new Collected(outcomes, lastError);
+    }
 
-        return sent;
+    private static Throwable unwrap(Throwable ex) {
+        return ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
     }
 
     /**
-     * Розповсюдження WhatsApp постів підписникам (приват)
-     * whatsappPersonal=true: відправити кожному підписнику у їхній приватний чат
+     * Статус поста з реальних підсумків по таргетах:
+     * жодного доставленого при наявності невдалих — FAILED, інакше PUBLISHED
+     * (часткові збої лишаються в error, їх підбирає повторна відправка).
      */
-    private int dispatchWhatsAppSubscribers(Post p) {
-        Event e = p.getEvent();
-        if (e == null || e.getId() == null) return 0;
-
-        // ВАЖЛИВО: Завантажуємо ВСІ поля Event одразу в поточній сесії
-        String eventName = e.getName();
-        String eventLocation = e.getLocation();
-        Object eventStartAt = e.getStartAt();
-
-        String text = buildPostTextWithEvent(p, e);
-        String linkUrl = resolveEventLinkUrl(e);
-
-        int sent = 0;
-
-        // Відправка у приватні чати підписникам
-        List<String> waIds = new java.util.ArrayList<>(
-            eventSubscriptionWhatsappRepository.findSubscriberWaIds(e.getId())
-        );
-        if (waIds.isEmpty()) {
-            log.info("No WhatsApp subscribers for post #{}", p.getId());
-        } else {
-            for (String waId : waIds) {
-                try {
-                    String messageWithLink = text;
-                    if (linkUrl != null && !linkUrl.isBlank()) {
-                        messageWithLink = text + "\n\n🔗 " + linkUrl;
-                    }
-                    whatsAppGraphClient.sendText(waId, messageWithLink);
-                    sent++;
-                } catch (Exception ex) {
-                    log.error("WhatsApp API error while sending to subscriber waId={}: {}", waId, ex.getMessage(), ex);
-                }
-            }
+    private FinalStatus applyTotals(PostDispatchCommand p, DeliveryTotals totals, String lastError) {
+        long sent = totals.getSent() == null ? 0 : totals.getSent();
+        long failed = totals.getFailed() == null ? 0 : totals.getFailed();
+        long total = sent + failed;
+
+        if (sent == 0 && failed > 0) {
+            log.warn("Post #{} failed: 0/{} target(s) delivered via {}.", p.postId(), total, p.channel());
+            return new FinalStatus(PostStatus.FAILED, shorten("DELIVERY_FAILED: 0/" + total + " delivered"
+                    + (lastError != null ? "; last error: " + lastError : ""), 500));
         }
+        log.info("Post #{} delivered to {}/{} target(s) via {}.", p.postId(), sent, total, p.channel());
+        return new FinalStatus(PostStatus.PUBLISHED,
+                failed > 0 ? "PARTIAL_DELIVERY: " + failed + "/" + total + " failed" : null);
+    }
 
-
-        return sent;
+    private void completeQuietly(Long postId) {
+        try {
+            ledger.complete(postId);
+        } catch (Exception e) {
+            log.warn("Failed to clear dispatch checkpoint for post #{}: {}", postId, e.getMessage());
+        }
     }
 
-    private String resolveTargetChatId(Post p) {
+    private String resolveTargetChatId() {
         if (defaultChannelChatId != null && !defaultChannelChatId.isBlank()) {
             return defaultChannelChatId;
         }
         throw new MissingTelegramChatIdException("No Telegram chatId configured for PUBLIC post");
     }
 
-    private String buildPostText(Post p) {
-        String t = p.getTitle() == null ? "" : p.getTitle();
-        String b = p.getBody() == null ? "" : p.getBody();
+    private String buildPostText(PostDispatchCommand p) {
+        String t = p.title() == null ? "" : p.title();
+        String b = p.body() == null ? "" : p.body();
         return (t + (b.isBlank() ? "" : "\n\n" + b)).trim();
     }
 
-    private String buildPostTextWithEvent(Post p, Event e) {
-        String eventName = e.getName() != null ? e.getName() : "Івент #" + e.getId();
+    private String buildPostTextWithEvent(PostDispatchCommand p, EventSummary e) {
+        String eventDate = e.startAt() != null
+                ? e.startAt().format(java.time.format.DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm"))
+                : "Дата невідома";
 
-        String eventDate = "Дата невідома";
-        if (e.getStartAt() != null) {
-            try {
-                Object startAt = e.getStartAt();
-
-                if (startAt instanceof java.time.LocalDateTime) {
-                    eventDate = ((java.time.LocalDateTime) startAt)
-                        .format(java.time.format.DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm"));
-                } else if (startAt instanceof java.time.ZonedDateTime) {
-                    eventDate = ((java.time.ZonedDateTime) startAt)
-                        .format(java.time.format.DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm"));
-                } else if (startAt instanceof java.sql.Timestamp) {
-                    java.time.LocalDateTime ldt = ((java.sql.Timestamp) startAt).toLocalDateTime();
-                    eventDate = ldt.format(java.time.format.DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm"));
-                } else if (startAt instanceof java.util.Date) {
-                    java.text.SimpleDateFormat sdf = new java.text.SimpleDateFormat("dd.MM.yyyy HH:mm");
-                    eventDate = sdf.format((java.util.Date) startAt);
-                } else {
-                    // Fallback для невідомих типів
-                    eventDate = startAt.toString();
-                }
-            } catch (Exception ex) {
-                log.warn("Failed to format date: {}", ex.getMessage());
-            }
-        }
-
-        String title = p.getTitle() != null ? p.getTitle() : "";
-        String body = p.getBody() != null ? p.getBody() : "";
+        String title = p.title() != null ? p.title() : "";
+        String body = p.body() != null ? p.body() : "";
 
-        return "📬 *" + eventName + "*\n" +
+        return "📬 *" + e.displayName() + "*\n" +
                "🕐 " + eventDate + "\n" +
-               (e.getLocation() != null && !e.getLocation().isBlank() ? "📍 " + e.getLocation() + "\n" : "") +
+               (e.location() != null && !e.location().isBlank() ? "📍 " + e.location() + "\n" : "") +
                "\n" +
                (title.isBlank() ? "" : "*" + title + "*\n") +
                (body.isBlank() ? "" : body);
     }
 
-    private String resolveEventLinkUrl(Event e) {
-        if (e == null) return null;
-        try {
-            var m = e.getClass().getMethod("getUrl");
-            Object v = m.invoke(e);
-            if (v instanceof String s && s != null && !s.isBlank()) {
-                return s.trim();
-            }
-        } catch (NoSuchMethodException ignore) {
-        } catch (Exception ex) {
-            log.warn("resolveEventLinkUrl via getUrl failed: {}", ex.toString());
-        }
-        try {
-            var m2 = e.getClass().getMethod("getCoverUrl");
-            Object v2 = m2.invoke(e);
-            if (v2 instanceof String s2 && s2 != null && !s2.isBlank()) {
-                return s2.trim();
-            }
-        } catch (Exception ex) {
-            log.warn("resolveEventLinkUrl via getCoverUrl failed: {}", ex.toString());
-        }
-        return null;
-    }
-
     private static String shorten(String s, int max) {
         if (s == null) return null;
         return s.length() <= max ? s : s.substring(0, max);
     }
+
+    /** Заповнює батч наступною сторінкою аудиторії після заданого id підписки. */
+    @FunctionalInterface
+    private interface AudiencePage {
+        void fill(long afterSubscriptionId, AudienceBatch batch);
+    }
+
+    /** Відправка одному таргету; виняток або невдало завершений future = невдала спроба. */
+    @FunctionalInterface
+    private interface TargetSender {
+        CompletableFuture<?> send(String target) throws Exception;
+    }
+
+    /** Запущена відправка чанку. */
+    private record Pending(String target, int attemptNo, CompletableFuture<?> result) {}
+
+    /** Результати чанку для журналу. */
+    private record Collected(List<PostDeliveryLedger.Outcome> outcomes, String lastError) {}
+
+    /** Фінальний статус поста з підсумків доставки. */
+    public record FinalStatus(PostStatus status, String error) {}
 }
@@ -0,0 +1,34 @@
+package com.example.sportadministrationsystem.service;
+
+import com.example.sportadministrationsystem.dto.PostDispatchCommand;
+import com.example.sportadministrationsystem.model.Audience;
+import com.example.sportadministrationsystem.model.Channel;
+import com.example.sportadministrationsystem.model.PostStatus;
+import com.example.sportadministrationsystem.repository.PostRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+/**
+ * Перша фаза розсилки: знімок поста з івентом у PostDispatchCommand в одній короткій читальній транзакції.
+ * З'єднання повертається в пул одразу після знімка — до будь-яких викликів Telegram/WhatsApp.
+ */
+@Service
+@RequiredArgsConstructor
+public class PostDispatchSnapshotService {
+
+    private final PostRepository postRepository;
+
+    @Transactional(readOnly = true)
+    public Optional<PostDispatchCommand> load(Long postId) {
+        return postRepository.findByIdWithEvent(postId).map(p -> {
+            boolean firstPublic = p.getChannel() == Channel.TELEGRAM
+                    && p.getAudience() == Audience.PUBLIC
+                    && p.getEvent() != null
+                    && postRepository.countByEvent_IdAndStatus(p.getEvent().getId(), PostStatus.PUBLISHED) == 0;
+            return PostDispatchCommand.of(p, firstPublic);
+        });
+    }
+}
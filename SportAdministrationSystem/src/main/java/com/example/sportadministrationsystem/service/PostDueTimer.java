@@ -0,0 +1,235 @@
+package com.example.sportadministrationsystem.service;
+
+import com.example.sportadministrationsystem.dto.ScheduledPostRef;
+import com.example.sportadministrationsystem.model.PostStatus;
+import com.example.sportadministrationsystem.repository.PostRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Таймер due-постів: тримає SCHEDULED пости найближчого вікна (horizon) у DelayQueue
+ * і запускає розсилку точно в publishAt, а не на наступному тіку планувальника.
+ *
+ * - refill() (з PostDispatchScheduler, раз на dispatcher.interval-ms) підтягує вікно з БД
+ *   по idx_posts_sched_publish; прострочені пости спрацьовують одразу;
+ * - create/update/changeStatus у PostService оновлюють запис одразу після коміту;
+ * - по завершенню розсилки таймер "будиться", щоб наступний пост івенту не чекав тіку;
+ * - пост, що спрацював, але не був захоплений (ліміт пулу каналу, попередній пост івенту ще
+ *   в розсилці, чужа партиція), лишається в таймері, поки він SCHEDULED, з повтором через retry-ms,
+ *   що подвоюється до dispatcher.interval-ms (старий тік). Зазвичай його раніше запускає
+ *   пробудження по завершенню розсилки, тож під час довгої розсилки таймер не опитує БД кожні 2с.
+ *
+ * Спрацювання лише викликає PostService.dispatchDue(): захоплення йде тим самим шляхом
+ * (партиції + оренда), тож точність часу не ламає порядок постів у межах івенту.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PostDueTimer {
+
+    private final PostRepository postRepository;
+    private final PostService postService;
+
+    @Value("${dispatcher.timer.enabled:true}")
+    private boolean enabled;
+
+    // Наскільки вперед тримаємо пости в пам'яті
+    @Value("${dispatcher.timer.horizon-ms:180000}")
+    private long horizonMs;
+
+    @Value("${dispatcher.timer.max-entries:10000}")
+    private int maxEntries;
+
+    // Запас на розбіжність годинника застосунку і БД (захоплення порівнює з NOW() у БД)
+    @Value("${dispatcher.timer.skew-ms:250}")
+    private long skewMs;
+
+    // Через скільки повторити пост, що спрацював, але не був захоплений (подвоюється з кожним промахом)
+    @Value("${dispatcher.timer.retry-ms:2000}")
+    private long retryMs;
+
+    // Стеля повтору — не частіше, ніж працював тік до таймера
+    @Value("${dispatcher.interval-ms:60000}")
+    private long maxRetryMs;
+
+    private final DelayQueue<Due> queue = new DelayQueue<>();
+    private final ConcurrentHashMap<Long, Due> byPost = new ConcurrentHashMap<>();
+    private volatile Thread worker;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) return;
+        worker = new Thread(this::run, "post-due-timer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        Thread t = worker;
+        worker = null;
+        if (t != null) t.interrupt();
+    }
+
+    /**
+     * Підтягує в таймер SCHEDULED пости до now + horizon (і всі прострочені).
+     */
+    public int refill() {
+        LocalDateTime until = LocalDateTime.now().plusNanos(horizonMs * 1_000_000);
+        List<ScheduledPostRef> upcoming = postRepository.findScheduledUntil(until, maxEntries);
+        long now = System.currentTimeMillis();
+        for (ScheduledPostRef ref : upcoming) {
+            Due prev = byPost.get(ref.getId());
+            // прострочений пост, що вже чекає повтору, не скидаємо на негайне спрацювання
+            if (prev != null && prev.misses > 0 && epochMillis(ref.getPublishAt()) <= now) continue;
+            schedule(ref.getId(), ref.getPublishAt());
+        }
+        return upcoming.size();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onScheduleChanged(PostScheduleChangedEvent e) {
+        if (!enabled || e.postId() == null) return;
+        if (e.status() == PostStatus.SCHEDULED && e.publishAt() != null
+                && !e.publishAt().isAfter(LocalDateTime.now().plusNanos(horizonMs * 1_000_000))) {
+            schedule(e.postId(), e.publishAt());
+        } else {
+            cancel(e.postId());
+        }
+    }
+
+    @EventListener
+    public void onDispatchFinished(PostDispatchFinishedEvent e) {
+        if (!enabled) return;
+        queue.put(new Due(null, System.currentTimeMillis(), 0));
+    }
+
+    private void schedule(Long postId, LocalDateTime publishAt) {
+        if (!enabled) return;
+        arm(postId, epochMillis(publishAt) + skewMs, 0);
+    }
+
+    private static long epochMillis(LocalDateTime at) {
+        return at.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private void arm(Long postId, long fireAt, int misses) {
+        Due prev = byPost.get(postId);
+        if (prev != null && prev.fireAt == fireAt) return;
+        if (prev == null && byPost.size() >= maxEntries) {
+            // переповнення: пізніші пости підтягне наступний refill
+            return;
+        }
+        Due next = new Due(postId, fireAt, misses);
+        byPost.put(postId, next);
+        if (prev != null) queue.remove(prev);
+        queue.put(next);
+    }
+
+    private void cancel(Long postId) {
+        Due prev = byPost.remove(postId);
+        if (prev != null) queue.remove(prev);
+    }
+
+    private void run() {
+        while (worker != null) {
+            try {
+                Due first = queue.take();
+                List<Due> fired = new ArrayList<>();
+                forget(first, fired);
+                // усе, що встигло настати за цей час, обробляємо одним захопленням
+                for (Due d; (d = queue.poll()) != null; ) {
+                    forget(d, fired);
+                }
+                List<Long> started = postService.dispatchDuePosts();
+                if (!started.isEmpty()) log.info("Timer fired for {} post(s), dispatched {}", fired.size(), started.size());
+                // запущені пробудженням пости, що ще чекали свого повтору, з таймера прибираємо
+                started.forEach(this::cancel);
+                rearm(fired, started);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception ex) {
+                log.error("Post due timer failed: {}", ex.getMessage(), ex);
+            }
+        }
+    }
+
+    private void forget(Due d, List<Due> fired) {
+        if (d.postId == null) return;
+        byPost.remove(d.postId, d);
+        fired.add(d);
+    }
+
+    /**
+     * Пости, що спрацювали, але не запущені, повертаються в таймер, якщо вони досі SCHEDULED
+     * (і їх тим часом не перезавів PostService): n-й промах поспіль — через retry-ms * 2^(n-1),
+     * але не пізніше за dispatcher.interval-ms. Завершення будь-якої розсилки будить таймер раніше —
+     * тоді пост, що чекав на попередній пост івенту, піде одразу, не чекаючи свого повтору.
+     */
+    private void rearm(List<Due> fired, List<Long> started) {
+        Map<Long, Integer> missed = new HashMap<>();
+        for (Due d : fired) missed.merge(d.postId, d.misses, Math::max);
+        started.forEach(missed::remove);
+        if (missed.isEmpty()) return;
+        long now = System.currentTimeMillis();
+        for (Long postId : postRepository.findScheduledIds(missed.keySet())) {
+            if (byPost.containsKey(postId)) continue;
+            int misses = missed.get(postId) + 1;
+            arm(postId, now + retryDelay(misses), misses);
+        }
+    }
+
+    /** retry-ms, що подвоюється з кожним промахом, зі стелею max-retry. */
+    long retryDelay(int misses) {
+        long delay = retryMs << Math.min(misses - 1, 20);
+        return Math.min(delay, Math.max(retryMs, maxRetryMs));
+    }
+
+    /**
+     * Запис таймера: пост, момент спрацювання і скільки разів поспіль його не вдалося запустити
+     * (postId == null — позачергове пробудження).
+     */
+    private static final class Due implements Delayed {
+        private final Long postId;
+        private final long fireAt;
+        private final int misses;
+
+        private Due(Long postId, long fireAt, int misses) {
+            this.postId = postId;
+            this.fireAt = fireAt;
+            this.misses = misses;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(fireAt - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed o) {
+            return Long.compare(fireAt, ((Due) o).fireAt);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.sportadministrationsystem.service;
+
+import com.example.sportadministrationsystem.exception.LeaseLostException;
+import com.example.sportadministrationsystem.model.Channel;
+import com.example.sportadministrationsystem.model.PostStatus;
+import com.example.sportadministrationsystem.repository.PostLeaseRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Оренда постів на час розсилки від імені цього вузла.
+ *
+ * Пост забирається атомарно (SCHEDULED -> DISPATCHING з власником і терміном),
+ * воркер періодично продовжує оренду, а по завершенні звільняє її з фінальним статусом.
+ * Якщо вузол впав — оренда прострочується і ріпер повертає пост у чергу.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PostLeaseService {
+
+    private final PostLeaseRepository leaseRepository;
+    private final NodeIdentity nodeIdentity;
+
+    // Термін оренди; продовжуємо, коли минула третина терміну
+    @Value("${dispatcher.lease.duration-ms:300000}")
+    private long leaseMs;
+
+    // Простір ключів для advisory-локів партицій (pg_try_advisory_xact_lock(space, partition))
+    private static final int PARTITION_LOCK_SPACE = (int) DbLockService.key("post-dispatcher");
+
+    /**
+     * Забирає due-пости партиції під її advisory-локом (транзакційним — відпускається з комітом).
+     * Якщо партицію зараз тримає інший вузол (перебалансування) — повертає порожній список.
+     * limits — скільки постів кожного каналу можна взяти (INTERNAL — для каналів без власного пулу).
+     */
+    @Transactional
+    public List<PostLeaseRepository.Claimed> claimDue(int partition, int partitions, Map<Channel, Integer> limits) {
+        if (!leaseRepository.tryLockPartition(PARTITION_LOCK_SPACE, partition)) {
+            log.debug("Partition {} is locked by another node, skipping", partition);
+            return List.of();
+        }
+        return leaseRepository.claimDue(nodeIdentity.id(), leaseMs, partitions, partition,
+                limits.getOrDefault(Channel.TELEGRAM, 0),
+                limits.getOrDefault(Channel.WHATSAPP, 0),
+                limits.getOrDefault(Channel.INTERNAL, 0));
+    }
+
+    /** Повертає орендований, але не запущений пост у чергу (SCHEDULED) — пул каналу переповнений. */
+    public boolean requeue(Long postId) {
+        return leaseRepository.release(postId, nodeIdentity.id(), PostStatus.SCHEDULED.name(), null);
+    }
+
+    public boolean claim(Long postId) {
+        return leaseRepository.claim(postId, nodeIdentity.id(), leaseMs);
+    }
+
+    /** Локальний дескриптор оренди для воркера, що розсилає пост. */
+    public Lease hold(Long postId) {
+        return new Lease(postId);
+    }
+
+    /**
+     * Продовжує оренду, якщо настав час; кидає LeaseLostException, якщо її вже немає.
+     */
+    public void keepAlive(Lease lease) {
+        long now = System.currentTimeMillis();
+        if (now - lease.renewedAt < leaseMs / 3) return;
+        if (!leaseRepository.renew(lease.postId, nodeIdentity.id(), leaseMs)) {
+            throw new LeaseLostException("Lease on post #" + lease.postId + " lost by " + nodeIdentity.id());
+        }
+        lease.renewedAt = now;
+    }
+
+    /** Фінальний статус + звільнення оренди; false — оренда вже не наша, нічого не записано. */
+    public boolean release(Lease lease, PostStatus status, String error) {
+        boolean ok = leaseRepository.release(lease.postId, nodeIdentity.id(), status.name(), error);
+        if (!ok) {
+            log.warn("Post #{}: lease no longer held by {}, final status {} not written",
+                    lease.postId, nodeIdentity.id(), status);
+        }
+        return ok;
+    }
+
+    public boolean settle(Long postId, PostStatus status, String error) {
+        return leaseRepository.settle(postId, status.name(), error);
+    }
+
+    public List<Long> reapExpired() {
+        return leaseRepository.reapExpired();
+    }
+
+    public static final class Lease {
+        private final Long postId;
+        private long renewedAt = System.currentTimeMillis();
+
+        private Lease(Long postId) {
+            this.postId = postId;
+        }
+
+        public Long postId() {
+            return postId;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.sportadministrationsystem.service;
+
+import com.example.sportadministrationsystem.model.PostStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Пост створено/перенесено/змінено статус — таймер due-постів оновлює свій запис
+ * (публікується PostService, слухач спрацьовує після коміту).
+ */
+public record PostScheduleChangedEvent(Long postId, PostStatus status, LocalDateTime publishAt) {
+}
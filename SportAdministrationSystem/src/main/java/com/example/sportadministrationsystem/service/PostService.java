@@ -9,16 +9,20 @@ import com.example.sportadministrationsystem.model.Event;
 import com.example.sportadministrationsystem.model.Post;
 import com.example.sportadministrationsystem.model.PostStatus;
 import com.example.sportadministrationsystem.repository.EventRepository;
+import com.example.sportadministrationsystem.repository.PostLeaseRepository;
 import com.example.sportadministrationsystem.repository.PostRepository;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 
@@ -30,6 +34,9 @@ public class PostService {
     private final EventRepository eventRepository;
     private final PostRepository postRepository;
     private final PostDispatchService postDispatchService;
+    private final PostLeaseService postLeaseService;
+    private final DispatchPartitionService dispatchPartitionService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Value("${telegram.bot.chat-id:}")
     private String defaultChatId;
@@ -70,7 +77,9 @@ public class PostService {
                 .generated(false)
                 .build();
 
-        return toDto(postRepository.save(p));
+        Post saved = postRepository.save(p);
+        publishScheduleChanged(saved);
+        return toDto(saved);
     }
 
     @Transactional
@@ -98,7 +107,9 @@ public class PostService {
             p.setStatus(next);
         }
 
-        return toDto(postRepository.save(p));
+        Post saved = postRepository.save(p);
+        publishScheduleChanged(saved);
+        return toDto(saved);
     }
 
     @Transactional
@@ -114,7 +125,9 @@ public class PostService {
         validateTransition(p.getStatus(), next);
         p.setStatus(next);
         p.setError(error);
-        return toDto(postRepository.save(p));
+        Post saved = postRepository.save(p);
+        publishScheduleChanged(saved);
+        return toDto(saved);
     }
 
     /* ===================== Queries ===================== */
@@ -135,58 +148,97 @@ public class PostService {
 
     /* ===================== Dispatch ===================== */
 
-    /** Публікувати негайно (делегуємо всю логіку в PostDispatchService). */
-    @Transactional
+    /**
+     * Публікувати негайно (делегуємо всю логіку в PostDispatchService).
+     * Пост спершу береться в оренду (DISPATCHING), тож планувальник чи інший вузол його вже не візьме.
+     * Без транзакції: оренда має бути закомічена до старту асинхронної розсилки.
+     * Якщо пул розсилки каналу переповнений — 409 без зміни поста.
+     */
     public PostDto publishNow(Long eventId, Long postId) {
         Post p = getChecked(eventId, postId);
 
-        // ВАЖЛИВО: Завантажуємо Event явно перед асинхронним dispatch
-        // Замість простого "touch", потрібно переконатися що Event повністю завантажений
-        Event event = p.getEvent();
-        if (event != null) {
-            // Примусово завантажуємо всі потрібні поля Event в поточній сесії
-            event.getId();
-            event.getName();
-            event.getLocation();
-            event.getStartAt();
+        if (postDispatchService.freeSlots(p.getChannel()) <= 0) {
+            throw new IllegalArgumentException(p.getChannel() + " dispatch queue is full, try again later");
+        }
+        PostStatus original = p.getStatus();
+        if (!postLeaseService.claim(p.getId())) {
+            throw new IllegalArgumentException("Post " + postId + " is already being dispatched");
+        }
+        if (!postDispatchService.dispatch(p.getId(), p.getChannel())) {
+            // Черга заповнилась між перевіркою і запуском — повертаємо посту попередній статус
+            // (DRAFT не має стати SCHEDULED, інакше планувальник опублікує його сам);
+            // покинута розсилка з простроченою орендою повертається в чергу, як це зробив би ріпер;
+            // помилку попередньої спроби лишаємо — ця розсилка так і не стартувала
+            PostStatus restore = original == PostStatus.DISPATCHING ? PostStatus.SCHEDULED : original;
+            postLeaseService.release(postLeaseService.hold(p.getId()), restore, p.getError());
+            throw new IllegalArgumentException(p.getChannel() + " dispatch queue is full, try again later");
         }
 
-        postDispatchService.dispatch(p);
-        return toDto(postRepository.save(p));
+        p.setStatus(PostStatus.DISPATCHING);
+        return toDto(p);
     }
 
     /**
      * Відправити всі SCHEDULED пости з publishAt <= now.
-     * Використовує lockNextDueWithEvent() з FETCH JOIN для явного завантаження Event
-     * перед асинхронною обробкою, що запобігає LazyInitializationException.
+     * Черга поділена на партиції (event_id mod N): вузол обходить лише свої партиції,
+     * тож кілька реплік розсилають паралельно, а пости одного івенту лишаються по порядку.
+     * Пости атомарно забираються в оренду (SCHEDULED -> DISPATCHING),
+     * тому наступний тік чи інший вузол не візьмуть той самий пост повторно.
+     * Кожен канал має власний пул розсилки: постів каналу береться не більше batchSize і вільного
+     * місця в його пулі, тож пости каналу, провайдер якого гальмує, чекають у черзі БД, не блокуючи інші.
+     * Якщо пул усе ж відхилив пост — він одразу повертається в чергу; якщо розсилку не вдалося
+     * запустити з іншої причини — оренда прострочиться і ріпер поверне пост у чергу.
      */
-    @Transactional
     public int dispatchDue() {
-        LocalDateTime now = LocalDateTime.now();
-        // Використовуємо JPQL запит з FETCH JOIN для явного завантаження Event
-        List<Post> due = postRepository.lockNextDueWithEvent(now, batchSize);
+        return dispatchDuePosts().size();
+    }
 
-        int processed = 0;
-        for (Post p : due) {
+    /** Те саме, що dispatchDue(), але повертає id постів, розсилку яких запущено (для PostDueTimer). */
+    public List<Long> dispatchDuePosts() {
+        Map<Channel, Integer> budget = new EnumMap<>(Channel.class);
+        for (Channel c : Channel.values()) {
+            budget.put(c, Math.min(batchSize, postDispatchService.freeSlots(c)));
+        }
+
+        List<PostLeaseRepository.Claimed> claimed = new ArrayList<>();
+        int partitions = dispatchPartitionService.partitionCount();
+        for (int partition : dispatchPartitionService.ownedPartitions()) {
+            if (budget.values().stream().allMatch(n -> n <= 0)) break;
+            for (PostLeaseRepository.Claimed c : postLeaseService.claimDue(partition, partitions, new EnumMap<>(budget))) {
+                claimed.add(c);
+                budget.merge(c.channel(), -1, Integer::sum);
+            }
+        }
+
+        List<Long> started = new ArrayList<>(claimed.size());
+        for (PostLeaseRepository.Claimed c : claimed) {
             try {
-                postDispatchService.dispatch(p);
-                processed++;
+                if (postDispatchService.dispatch(c.postId(), c.channel())) {
+                    started.add(c.postId());
+                } else {
+                    postLeaseService.requeue(c.postId());
+                }
             } catch (Exception ex) {
-                log.error("Failed to dispatch post {}: {}", p.getId(), ex.getMessage());
+                log.error("Failed to dispatch post {}: {}", c.postId(), ex.getMessage());
             }
         }
-        postRepository.saveAll(due);
-        return processed;
+        return started;
     }
 
     /* ===================== Helpers ===================== */
 
+    /** Таймер due-постів оновить свій запис після коміту (див. PostDueTimer). */
+    private void publishScheduleChanged(Post p) {
+        eventPublisher.publishEvent(new PostScheduleChangedEvent(p.getId(), p.getStatus(), p.getPublishAt()));
+    }
+
     private void validateTransition(PostStatus current, PostStatus next) {
         if (Objects.equals(current, next)) return;
 
         // Дозволені переходи
         // DRAFT -> SCHEDULED | PUBLISHED | CANCELLED
         // SCHEDULED -> PUBLISHED | FAILED | CANCELLED
+        // DISPATCHING -> CANCELLED (розсилка зупиниться при наступному продовженні оренди)
         // FAILED -> SCHEDULED | CANCELLED
         // PUBLISHED -> CANCELLED
         // CANCELLED -> (заборонено)
@@ -201,6 +253,11 @@ public class PostService {
                     throw new IllegalStateException("Illegal transition: " + current + " -> " + next);
                 }
             }
+            case DISPATCHING -> {
+                if (next != PostStatus.CANCELLED) {
+                    throw new IllegalStateException("Illegal transition: " + current + " -> " + next);
+                }
+            }
             case FAILED -> {
                 if (next != PostStatus.SCHEDULED && next != PostStatus.CANCELLED) {
                     throw new IllegalStateException("Illegal transition: " + current + " -> " + next);
@@ -0,0 +1,91 @@
+package com.example.sportadministrationsystem.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Виконавець зі смугами (stripes): задачі з однаковим ключем ідуть в одну однопотокову смугу
+ * і виконуються строго в порядку подання, задачі з різними ключами — паралельно в різних смугах.
+ *
+ * Черга кожної смуги обмежена (queueCapacity): сплеск від одного відправника не росте в пам'яті без меж.
+ * Переповнена смуга відхиляє задачу — submit() кидає RejectedExecutionException, і викликач
+ * повертає роботу джерелу (Telegram-вебхук відповідає 503, рядок вхідної черги WhatsApp повториться пізніше).
+ * Блокувати чи виконувати задачу в потоці викликача не можна — це зламало б порядок у смузі.
+ */
+public class StripedExecutor {
+
+    private final String name;
+    private final ThreadPoolExecutor[] stripes;
+    private final AtomicLong rejected = new AtomicLong();
+
+    public StripedExecutor(String name, int stripeCount, int queueCapacity) {
+        this.name = name;
+        this.stripes = new ThreadPoolExecutor[Math.max(1, stripeCount)];
+        for (int i = 0; i < stripes.length; i++) {
+            String threadName = name + "-" + i;
+            stripes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), r -> {
+                Thread t = new Thread(r, threadName);
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    /** Глибина черги кожної смуги: {name}.stripe.queue{stripe=i}; відхилені задачі: {name}.stripe.rejected. */
+    public StripedExecutor bindTo(MeterRegistry registry) {
+        for (int i = 0; i < stripes.length; i++) {
+            ThreadPoolExecutor stripe = stripes[i];
+            Gauge.builder(name + ".stripe.queue", stripe, s -> s.getQueue().size())
+                    .tag("stripe", String.valueOf(i))
+                    .register(registry);
+        }
+        FunctionCounter.builder(name + ".stripe.rejected", rejected, AtomicLong::get).register(registry);
+        return this;
+    }
+
+    /**
+     * Виконує задачу в смузі ключа. Future завершується після виконання задачі
+     * (з винятком задачі, якщо вона впала).
+     *
+     * @throws RejectedExecutionException черга смуги заповнена або виконавець зупинено
+     */
+    public CompletableFuture<Void> submit(Object key, Runnable task) {
+        try {
+            return CompletableFuture.runAsync(task, stripes[stripeOf(key)]);
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw e;
+        }
+    }
+
+    public int stripeCount() {
+        return stripes.length;
+    }
+
+    public void shutdown() {
+        for (ThreadPoolExecutor stripe : stripes) stripe.shutdown();
+        for (ThreadPoolExecutor stripe : stripes) {
+            try {
+                stripe.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private int stripeOf(Object key) {
+        int h = key == null ? 0 : key.hashCode();
+        h ^= (h >>> 16);
+        return Math.floorMod(h, stripes.length);
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.sportadministrationsystem.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class SubscriberCountReconcileScheduler {
+    private final SubscriberCountService countService;
+
+    // Звірка працює лише з PostgreSQL (advisory-лок, FULL JOIN з ON CONFLICT), у тестах на H2 вимикається
+    @Value("${subscriptions.counts.reconcile-enabled:true}")
+    private boolean enabled;
+
+    // Раз на subscriptions.counts.reconcile-interval-ms (за замовчуванням 15хв) звіряємо лічильники
+    // підписників з фактичними підписками (страховка від ручних правок БД і помилок у тригерах).
+    @Scheduled(fixedDelayString = "${subscriptions.counts.reconcile-interval-ms:900000}",
+            initialDelayString = "${subscriptions.counts.reconcile-initial-delay-ms:60000}")
+    public void tick() {
+        if (!enabled) return;
+        try {
+            countService.reconcile();
+        } catch (Exception e) {
+            log.error("Error during subscriber counters reconcile: {}", e.getMessage(), e);
+        }
+    }
+}
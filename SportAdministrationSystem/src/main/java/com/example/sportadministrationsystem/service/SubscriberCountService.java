@@ -0,0 +1,65 @@
+package com.example.sportadministrationsystem.service;
+
+import com.example.sportadministrationsystem.dto.EventSubscriberCounts;
+import com.example.sportadministrationsystem.exception.NotFoundException;
+import com.example.sportadministrationsystem.repository.SubscriberCountRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Кількість активних підписників івентів з лічильників, що підтримуються тригерами (V39),
+ * замість count(...) по підписках на кожен запит.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class SubscriberCountService {
+
+    private static final long RECONCILE_LOCK_KEY = DbLockService.key("subscriber-counts-reconcile");
+
+    private final SubscriberCountRepository repo;
+
+    // Скільки івентів максимум в одному пакетному запиті
+    @Value("${subscriptions.counts.max-batch:200}")
+    private int maxBatch;
+
+    /** Лічильники одного івенту; 404, якщо івенту немає. */
+    public EventSubscriberCounts get(long eventId) {
+        List<EventSubscriberCounts> found = repo.find(List.of(eventId));
+        if (found.isEmpty()) throw new NotFoundException("Event not found: id=" + eventId);
+        return found.get(0);
+    }
+
+    /** Лічильники набору івентів одним запитом; неіснуючі id пропускаються. */
+    public List<EventSubscriberCounts> find(Collection<Long> eventIds) {
+        var ids = new LinkedHashSet<>(eventIds);
+        if (ids.size() > maxBatch) {
+            throw new IllegalArgumentException("Too many event ids: " + ids.size() + " (max " + maxBatch + ")");
+        }
+        return repo.find(ids);
+    }
+
+    /**
+     * Звірка лічильників з фактичними підписками: виправляє дрейф і прибирає лічильники видалених івентів.
+     * Advisory-лок живе до кінця транзакції, тож на кількох вузлах звірку виконує лише один;
+     * запит дрейфу виконується вже після захоплення лока і бачить закомічену звірку іншого вузла.
+     *
+     * @return кількість виправлених пар (івент, канал), або -1 якщо звірку виконує інший вузол
+     */
+    @Transactional
+    public int reconcile() {
+        if (!repo.tryReconcileLock(RECONCILE_LOCK_KEY)) return -1;
+        int fixed = repo.fixDrift();
+        int purged = repo.purgeOrphans();
+        if (fixed > 0) log.warn("Subscriber counters drifted: fixed {} event/channel pairs", fixed);
+        if (purged > 0) log.info("Purged {} subscriber counter rows of deleted events", purged);
+        return fixed;
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.sportadministrationsystem.service;
+
+import com.example.sportadministrationsystem.model.Channel;
+
+/**
+ * Підписку на івент увімкнено/вимкнено (кількість підписників і кеші по івенту змінились).
+ */
+public record SubscriptionToggledEvent(Long eventId, Channel channel, boolean active) {
+}
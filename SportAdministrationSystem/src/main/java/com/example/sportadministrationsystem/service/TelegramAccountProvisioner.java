@@ -1,39 +1,105 @@
 package com.example.sportadministrationsystem.service;
 
+import com.example.sportadministrationsystem.model.Channel;
 import com.example.sportadministrationsystem.model.UserTelegram;
-import com.example.sportadministrationsystem.repository.UserTelegramRepository;
+import com.example.sportadministrationsystem.repository.BotAccountUpsertRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Створює/оновлює запис UserTelegram та синхронізує tg_chat_id,
  * щоб кнопки/переходи з різних контекстів працювали стабільно.
+ *
+ * Акаунт викликається на кожен callback/повідомлення, а змінюється майже ніколи, тому поверх БД —
+ * обмежений кеш tgUserId → (id, tg_chat_id). Якщо в кеші той самий chat id — звернення до БД немає;
+ * інакше один атомарний upsert (BotAccountUpsertRepository), який пише лише при реальній зміні.
+ * Про зміну наявного рядка повідомляються інші вузли (BotAccountChangedEvent через PgNotificationBus).
+ *
+ * Повертається від'єднана сутність — для id у перемиканнях підписок і запитах по ній цього досить.
  */
 @Component
 @RequiredArgsConstructor
 public class TelegramAccountProvisioner {
 
-    private final UserTelegramRepository userTelegramRepository;
+    private final BotAccountUpsertRepository upserts;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${bot.accounts.cache.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    @Value("${bot.accounts.cache.max-size:50000}")
+    private int maxSize;
+
+    private record Entry(long id, long tgChatId, LocalDateTime linkedAt, long loadedAt) {}
+
+    private final ConcurrentHashMap<Long, Entry> cache = new ConcurrentHashMap<>();
+
+    private Counter hits;
+    private Counter misses;
+
+    @PostConstruct
+    void initMetrics() {
+        Gauge.builder("bot.accounts.cache.size", cache, Map::size).tag("channel", "telegram").register(meterRegistry);
+        hits = Counter.builder("bot.accounts.cache.hits").tag("channel", "telegram").register(meterRegistry);
+        misses = Counter.builder("bot.accounts.cache.misses").tag("channel", "telegram").register(meterRegistry);
+    }
 
-    @Transactional
     public UserTelegram ensure(org.telegram.telegrambots.meta.api.objects.User tg) {
-        Long tgUserId = tg.getId();
-        Long privateChatId = tg.getId(); // у приватному чаті chatId == userId
-
-        return userTelegramRepository.findByTgUserId(tgUserId)
-                .map(existing -> {
-                    // оновлюємо chatId, якщо змінився або був null
-                    if (existing.getTgChatId() == null || !existing.getTgChatId().equals(privateChatId)) {
-                        existing.setTgChatId(privateChatId);
-                    }
-                    return existing;
-                })
-                .orElseGet(() -> userTelegramRepository.save(
-                        UserTelegram.builder()
-                                .tgUserId(tgUserId)
-                                .tgChatId(privateChatId)
-                                .build()
-                ));
+        long tgUserId = tg.getId();
+        long privateChatId = tg.getId(); // у приватному чаті chatId == userId
+
+        long now = System.nanoTime();
+        Entry e = cache.get(tgUserId);
+        if (e != null && e.tgChatId() == privateChatId
+                && now - e.loadedAt() < TimeUnit.SECONDS.toNanos(ttlSeconds)) {
+            hits.increment();
+            return toEntity(tgUserId, e);
+        }
+        misses.increment();
+
+        BotAccountUpsertRepository.Upserted<UserTelegram> r = upserts.upsertTelegram(tgUserId, privateChatId);
+        UserTelegram acc = r.account();
+        if (cache.size() >= maxSize) cache.clear();
+        cache.put(tgUserId, new Entry(acc.getId(), acc.getTgChatId(), acc.getLinkedAt(), now));
+        if (r.updated()) {
+            eventPublisher.publishEvent(new BotAccountChangedEvent(Channel.TELEGRAM, Long.toString(tgUserId)));
+        }
+        return acc;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAccountChanged(BotAccountChangedEvent e) {
+        if (e.channel() != Channel.TELEGRAM) return;
+        if (e.key() == null) {
+            cache.clear();
+            return;
+        }
+        try {
+            cache.remove(Long.parseLong(e.key()));
+        } catch (NumberFormatException ex) {
+            cache.clear();
+        }
+    }
+
+    private static UserTelegram toEntity(long tgUserId, Entry e) {
+        return UserTelegram.builder()
+                .id(e.id())
+                .tgUserId(tgUserId)
+                .tgChatId(e.tgChatId())
+                .linkedAt(e.linkedAt())
+                .build();
     }
 }
@@ -0,0 +1,118 @@
+package com.example.sportadministrationsystem.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ліміти відправки Telegram перед кожним sendMessage:
+ * глобальний бакет бота (~30 msg/s) + бакет на чат (1 msg/s приватний, 20 msg/min група/канал).
+ *
+ * acquire() блокує потік-відправник до свого слоту, тож масова розсилка рівномірно
+ * стає в чергу замість 429. На 429 на паузу retry_after ставиться бакет чату; бакет бота —
+ * лише коли 429 не прив'язаний до чату або прийшов із кількох чатів поспіль (це вже ліміт бота).
+ */
+@Slf4j
+@Component
+public class TelegramRateLimiter {
+
+    private final TokenBucket global;
+    private final ConcurrentHashMap<String, TokenBucket> perChat = new ConcurrentHashMap<>();
+
+    private final double perChatPerSecond;
+    private final double perGroupPerMinute;
+    private final long maxWaitNanos;
+    private final long globalFloodWindowNanos;
+
+    // Останній 429 у чаті — щоб відрізнити флуд одного чату від ліміту бота
+    private String lastFloodChat;
+    private long lastFloodAt;
+
+    public TelegramRateLimiter(@Value("${telegram.rate.global-per-sec:30}") double globalPerSecond,
+                               @Value("${telegram.rate.global-burst:5}") int globalBurst,
+                               @Value("${telegram.rate.per-chat-per-sec:1}") double perChatPerSecond,
+                               @Value("${telegram.rate.per-group-per-min:20}") double perGroupPerMinute,
+                               @Value("${telegram.rate.max-wait-ms:120000}") long maxWaitMs,
+                               @Value("${telegram.rate.global-flood-window-ms:1000}") long globalFloodWindowMs) {
+        this.global = new TokenBucket(globalPerSecond, globalBurst);
+        this.perChatPerSecond = perChatPerSecond;
+        this.perGroupPerMinute = perGroupPerMinute;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        this.globalFloodWindowNanos = TimeUnit.MILLISECONDS.toNanos(globalFloodWindowMs);
+    }
+
+    /**
+     * Чекає на слот для повідомлення в чат. Якщо чекати довше за max-wait — IllegalStateException
+     * (спроба піде як FAILED і її підбере повторна відправка). Відмова нічого не резервує:
+     * бакет чату лише переглядається, глобальний резервується тільки в межах max-wait.
+     * chatId == null — виклик, що не пише в чат (answerCallbackQuery тощо): лише ліміт бота.
+     */
+    public void acquire(String chatId) throws InterruptedException {
+        long now = System.nanoTime();
+        long deadline = now + maxWaitNanos;
+        TokenBucket chat = chatId != null ? bucket(chatId) : null;
+
+        long chatAt = chat != null ? chat.peek(now) : now;
+        long at = chatAt - deadline > 0 ? TokenBucket.REJECTED : global.tryReserve(chatAt, deadline);
+        if (at == TokenBucket.REJECTED) {
+            long waitNanos = Math.max(chatAt, global.peek(chatAt)) - now;
+            throw new IllegalStateException("Telegram rate limit: chat " + chatId + " would wait "
+                    + TimeUnit.NANOSECONDS.toMillis(waitNanos) + " ms");
+        }
+        // Глобальний слот уже наш — слот чату береться на той самий момент
+        // (пізніше лише якщо в цей чат паралельно щойно пішло інше повідомлення)
+        if (chat != null) at = Math.max(at, chat.reserve(at));
+
+        long waitNanos = at - now;
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * 429 від Telegram. Флуд в один чат ставить на паузу лише цей чат — розсилка в інші чати йде далі.
+     * Бот загалом стає на паузу, якщо 429 без чату (chatId == null) або якщо за global-flood-window
+     * 429 прийшов і з іншого чату.
+     */
+    public void retryAfter(String chatId, int seconds) {
+        long now = System.nanoTime();
+        long until = now + TimeUnit.SECONDS.toNanos(Math.max(1, seconds));
+        if (chatId == null || hitsGlobalLimit(chatId, now)) {
+            global.pauseUntil(until);
+            log.warn("Telegram bot-wide flood limit (chat {}): pausing all sends for {}s", chatId, seconds);
+        } else {
+            log.warn("Telegram flood limit for chat {}: pausing sends to it for {}s", chatId, seconds);
+        }
+        if (chatId != null) bucket(chatId).pauseUntil(until);
+    }
+
+    private synchronized boolean hitsGlobalLimit(String chatId, long now) {
+        boolean otherChatRecently = lastFloodChat != null && !lastFloodChat.equals(chatId)
+                && now - lastFloodAt < globalFloodWindowNanos;
+        lastFloodChat = chatId;
+        lastFloodAt = now;
+        return otherChatRecently;
+    }
+
+    private TokenBucket bucket(String chatId) {
+        return perChat.computeIfAbsent(chatId, id -> isGroup(id)
+                ? new TokenBucket(perGroupPerMinute / 60.0, 1)
+                : new TokenBucket(perChatPerSecond, 1));
+    }
+
+    /** Групи/супергрупи/канали мають від'ємний id або @username. */
+    private static boolean isGroup(String chatId) {
+        return chatId.startsWith("-") || chatId.startsWith("@");
+    }
+
+    // Прибираємо бакети чатів, у які давно не писали
+    @Scheduled(fixedDelayString = "${telegram.rate.cleanup-interval-ms:60000}")
+    public void evictIdle() {
+        long threshold = System.nanoTime() - TimeUnit.MINUTES.toNanos(5);
+        perChat.values().removeIf(b -> b.idleSince(threshold));
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.sportadministrationsystem.service;
 
+import com.example.sportadministrationsystem.dto.EventSummary;
 import com.example.sportadministrationsystem.model.Event;
 import com.example.sportadministrationsystem.model.Messenger;
 import com.example.sportadministrationsystem.model.UserTelegram;
@@ -9,17 +10,21 @@ import com.example.sportadministrationsystem.repository.EventSubscriptionReposit
 import com.example.sportadministrationsystem.repository.TelegramBindCodeRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.telegram.telegrambots.bots.TelegramLongPollingBot;
 import org.telegram.telegrambots.meta.api.methods.AnswerCallbackQuery;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
 import org.telegram.telegrambots.meta.api.objects.CallbackQuery;
 import org.telegram.telegrambots.meta.api.objects.Update;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardButton;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
 
+import java.io.Serializable;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -34,6 +39,10 @@ public class TelegramService extends TelegramLongPollingBot {
     private final TelegramAccountProvisioner provisioner;
     private final EventSubscriptionService eventSubscriptionService;
     private final TelegramBindCodeRepository bindCodeRepository;
+    private final TelegramRateLimiter rateLimiter;
+    private final EventSummaryCache eventSummaries;
+    // Диспетчер сам залежить від TelegramService — беремо ліниво
+    private final ObjectProvider<TelegramUpdateDispatcher> updateDispatcher;
 
     @Value("${telegram.bot.token}")
     private String botToken;
@@ -41,12 +50,41 @@ public class TelegramService extends TelegramLongPollingBot {
     @Value("${telegram.bot.username}")
     private String botUsername;
 
+    @Value("${telegram.rate.max-retries:3}")
+    private int maxRetries;
+
     /* ============================ ПУБЛІЧНИЙ API ============================ */
 
+    /**
+     * Усі повідомлення йдуть через TelegramRateLimiter (глобальний ліміт бота + ліміт чату).
+     * На 429 чекаємо retry_after і пробуємо ще раз (до telegram.rate.max-retries разів).
+     */
     public void sendMessage(String chatId, String text, InlineKeyboardMarkup kb) throws TelegramApiException {
         SendMessage msg = new SendMessage(chatId, text);
         if (kb != null) msg.setReplyMarkup(kb);
-        execute(msg);
+        executeLimited(chatId, msg);
+    }
+
+    /** Виклик Bot API через TelegramRateLimiter; chatId == null — метод, що не пише в чат (рахується лише в ліміт бота). */
+    private <T extends Serializable> T executeLimited(String chatId, BotApiMethod<T> method) throws TelegramApiException {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                rateLimiter.acquire(chatId);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new TelegramApiException("Interrupted while waiting for Telegram rate limit", ie);
+            }
+            try {
+                return execute(method);
+            } catch (TelegramApiRequestException e) {
+                Integer retryAfter = e.getParameters() != null ? e.getParameters().getRetryAfter() : null;
+                if (Integer.valueOf(429).equals(e.getErrorCode()) && retryAfter != null && attempt < maxRetries) {
+                    rateLimiter.retryAfter(chatId, retryAfter);
+                    continue;
+                }
+                throw e;
+            }
+        }
     }
 
     /** Приватні (direct) кнопки з callback — підпис/відпис. */
@@ -114,8 +152,19 @@ public class TelegramService extends TelegramLongPollingBot {
 
     /* ============================ Bot lifecycle ============================ */
 
+    /**
+     * Long polling (telegram.mode=polling): потік опитування лише передає оновлення в TelegramUpdateDispatcher
+     * (смуга за чатом, обмеження in-flight) — обробка не виконується в ньому.
+     */
     @Override
     public void onUpdateReceived(Update update) {
+        updateDispatcher.getObject().dispatchBlocking(update);
+    }
+
+    /**
+     * Обробка одного оновлення (з TelegramUpdateDispatcher, у смузі чату); помилки лише логуються.
+     */
+    public void handleUpdate(Update update) {
         try {
             // deep-link: /start <eventId> або /start <eventId>:<postId>
             if (update.hasMessage() && update.getMessage().hasText()) {
@@ -158,11 +207,11 @@ public class TelegramService extends TelegramLongPollingBot {
                     long eventId = parseId(data, "EVT_SUB:");
                     boolean nowActive = eventSubscriptionService.toggleSubscription(eventId, tgAcc, true);
 
-                    Event event = events.findById(eventId).orElse(null);
-                    InlineKeyboardMarkup kb = eventKeyboard(eventId, nowActive, resolveEventLinkUrl(event));
+                    EventSummary event = eventSummaries.get(eventId).orElse(null);
+                    InlineKeyboardMarkup kb = eventKeyboard(eventId, nowActive, event != null ? event.linkUrl() : null);
 
                     if (!fromChannel) {
-                        String eventName = event != null ? event.getName() : "Івент #" + eventId;
+                        String eventName = event != null ? event.name() : "Івент #" + eventId;
                         safeSend(String.valueOf(chatId), "✅ Ви успішно підписались на *" + eventName + "*\n\nЧекайте оновлення! 🎉", kb);
                     }
                     ack(cb, "✅ Підписка активована");
@@ -171,11 +220,11 @@ public class TelegramService extends TelegramLongPollingBot {
                     long eventId = parseId(data, "EVT_UNSUB:");
                     boolean nowActive = eventSubscriptionService.toggleSubscription(eventId, tgAcc, false);
 
-                    Event event = events.findById(eventId).orElse(null);
-                    InlineKeyboardMarkup kb = eventKeyboard(eventId, nowActive, resolveEventLinkUrl(event));
+                    EventSummary event = eventSummaries.get(eventId).orElse(null);
+                    InlineKeyboardMarkup kb = eventKeyboard(eventId, nowActive, event != null ? event.linkUrl() : null);
 
                     if (!fromChannel) {
-                        String eventName = event != null ? event.getName() : "Івент #" + eventId;
+                        String eventName = event != null ? event.name() : "Івент #" + eventId;
                         safeSend(String.valueOf(chatId), "❌ Ви відписались від *" + eventName + "*", kb);
                     }
                     ack(cb, "❌ Відписка виконана");
@@ -185,7 +234,7 @@ public class TelegramService extends TelegramLongPollingBot {
                 }
             }
         } catch (Exception e) {
-            log.error("onUpdateReceived failed", e);
+            log.error("handleUpdate failed", e);
         }
     }
 
@@ -288,7 +337,8 @@ public class TelegramService extends TelegramLongPollingBot {
                 .text(text)
                 .showAlert(false)
                 .build();
-        execute(ack);
+        // Відповідь на callback не пише в чат, але рахується в загальний ліміт бота
+        executeLimited(null, ack);
     }
 
     private String buildStartDeepLink(long eventId) {
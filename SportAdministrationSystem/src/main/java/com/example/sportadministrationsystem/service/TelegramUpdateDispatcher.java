@@ -0,0 +1,173 @@
+package com.example.sportadministrationsystem.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Паралельна обробка Telegram-оновлень зі збереженням порядку в межах чату (і для webhook, і для polling).
+ *
+ * Оновлення одного чату йдуть в одну смугу telegramUpdateExecutor і виконуються строго по черзі
+ * (натискання "Підписатися" → "Відписатися" не переставляться), різні чати — паралельно:
+ * повільний callback одного користувача не затримує інших.
+ *
+ * Кількість оновлень у роботі обмежена (telegram.updates.max-in-flight): polling-потік при заповненні
+ * чекає (природний backpressure — нові getUpdates не беруться), webhook після max-wait-ms отримує REJECTED
+ * і відповідає 503, щоб Telegram повторив доставку пізніше.
+ *
+ * Повтори за update_id (Telegram повторює доставку, якщо не отримав 2xx вчасно)
+ * відсікаються обмеженим кешем нещодавно бачених id (FIFO-витіснення).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TelegramUpdateDispatcher {
+
+    private final TelegramService telegramService;
+    private final StripedExecutor telegramUpdateExecutor;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${telegram.updates.dedup-size:10000}")
+    private int dedupSize;
+
+    @Value("${telegram.updates.max-in-flight:500}")
+    private int maxInFlight;
+
+    @Value("${telegram.updates.max-wait-ms:2000}")
+    private long maxWaitMs;
+
+    /** Результат передачі оновлення в обробку. */
+    public enum Result { ACCEPTED, DUPLICATE, REJECTED }
+
+    private Semaphore inFlight;
+
+    private final ConcurrentHashMap<Integer, Boolean> recent = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Integer> order = new ConcurrentLinkedQueue<>();
+
+    private Counter receivedCounter;
+    private Counter duplicateCounter;
+
+    @PostConstruct
+    void init() {
+        inFlight = new Semaphore(Math.max(1, maxInFlight));
+        Gauge.builder("telegram.updates.inflight", this, d -> d.maxInFlight - d.inFlight.availablePermits())
+                .register(meterRegistry);
+        Gauge.builder("telegram.updates.dedup.size", recent, Map::size).register(meterRegistry);
+        receivedCounter = Counter.builder("telegram.updates.received").register(meterRegistry);
+        duplicateCounter = Counter.builder("telegram.updates.duplicates").register(meterRegistry);
+    }
+
+    /**
+     * Webhook: ставить оновлення в смугу його чату, чекаючи вільного місця не довше max-wait-ms.
+     * Дублікат відсікається ще до очікування дозволу; відхилене оновлення забувається, щоб повтор від Telegram пройшов.
+     */
+    public Result dispatch(Update update) {
+        Integer updateId = update.getUpdateId();
+        if (isDuplicate(updateId)) return Result.DUPLICATE;
+        try {
+            if (!inFlight.tryAcquire(maxWaitMs, TimeUnit.MILLISECONDS)) {
+                forget(updateId);
+                log.warn("Telegram update {} rejected: {} updates in flight", updateId, maxInFlight);
+                return Result.REJECTED;
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            forget(updateId);
+            return Result.REJECTED;
+        }
+        return submit(update);
+    }
+
+    /**
+     * Polling: чекає вільного місця без обмеження часу — потік опитування стоїть, поки обробка не наздожене.
+     */
+    public Result dispatchBlocking(Update update) {
+        Integer updateId = update.getUpdateId();
+        if (isDuplicate(updateId)) return Result.DUPLICATE;
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            forget(updateId);
+            return Result.REJECTED;
+        }
+        return submit(update);
+    }
+
+    /**
+     * Викликається з уже взятим дозволом; дозвіл повертається після обробки.
+     * Якщо смуга не прийняла задачу (черга смуги повна або executor зупинено) — дозвіл і update_id повертаються одразу.
+     */
+    private Result submit(Update update) {
+        Integer updateId = update.getUpdateId();
+        try {
+            telegramUpdateExecutor.submit(chatKey(update), () -> {
+                try {
+                    telegramService.handleUpdate(update);
+                } catch (Exception e) {
+                    log.error("Telegram update {} failed: {}", updateId, e.getMessage(), e);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.release();
+            forget(updateId);
+            log.warn("Telegram update {} rejected: stripe queue is full or executor is shut down", updateId);
+            return Result.REJECTED;
+        }
+        return Result.ACCEPTED;
+    }
+
+    /** Рахує отримане оновлення; true — update_id уже бачили (повтор доставки). */
+    private boolean isDuplicate(Integer updateId) {
+        receivedCounter.increment();
+        if (updateId == null || firstSeen(updateId)) return false;
+        duplicateCounter.increment();
+        log.debug("Telegram update_id={} already received, skipping", updateId);
+        return true;
+    }
+
+    /** Ключ порядку: чат повідомлення/callback; для решти типів — відправник або сам update_id. */
+    static Object chatKey(Update update) {
+        if (update.hasMessage()) return update.getMessage().getChatId();
+        if (update.hasCallbackQuery()) {
+            var cb = update.getCallbackQuery();
+            if (cb.getMessage() != null) return cb.getMessage().getChatId();
+            if (cb.getFrom() != null) return cb.getFrom().getId();
+        }
+        if (update.hasChannelPost()) return update.getChannelPost().getChatId();
+        if (update.hasMyChatMember()) return update.getMyChatMember().getChat().getId();
+        return update.getUpdateId();
+    }
+
+    private boolean firstSeen(Integer updateId) {
+        if (recent.putIfAbsent(updateId, Boolean.TRUE) != null) return false;
+        order.add(updateId);
+        while (recent.size() > dedupSize) {
+            Integer oldest = order.poll();
+            if (oldest == null) break;
+            recent.remove(oldest);
+        }
+        return true;
+    }
+
+    /** Прибирає id з кешу, щоб повторна доставка не вважалась дублікатом (рідкісний шлях, O(n) по черзі). */
+    private void forget(Integer updateId) {
+        if (updateId == null) return;
+        if (recent.remove(updateId) != null) order.remove(updateId);
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.sportadministrationsystem.service;
+
+/**
+ * Token bucket у формі GCRA (теоретичний час наступного токена замість лічильника):
+ * rate токенів за секунду, до burst токенів поспіль, можлива пауза до заданого моменту.
+ *
+ * reserve() не блокує — повертає момент (System.nanoTime), коли можна діяти;
+ * чекає викликач. Так кілька бакетів (глобальний + чату) резервуються послідовно.
+ * peek() і tryReserve() не зсувають бакет, якщо чекати довелося б надто довго, —
+ * відмова не забирає слот у тих, хто прийде після.
+ */
+final class TokenBucket {
+
+    /** tryReserve(): токен не буде доступний до дедлайну, нічого не зарезервовано. */
+    static final long REJECTED = Long.MIN_VALUE;
+
+    private final long intervalNanos;
+    private final long burstNanos;
+
+    private long tat;           // theoretical arrival time наступного токена
+    private long pausedUntil;
+    private volatile long lastUsed;
+
+    TokenBucket(double ratePerSecond, int burst) {
+        this.intervalNanos = (long) (1_000_000_000L / ratePerSecond);
+        this.burstNanos = intervalNanos * Math.max(0, burst - 1);
+        long now = System.nanoTime();
+        this.tat = now;
+        this.pausedUntil = now;
+        this.lastUsed = now;
+    }
+
+    /** Момент, коли можна було б використати токен, узятий не раніше за at (без резервування). */
+    synchronized long peek(long at) {
+        long start = Math.max(at, pausedUntil);
+        return Math.max(start, Math.max(tat, start) - burstNanos);
+    }
+
+    /**
+     * Резервує токен не раніше за at, лише якщо його можна використати не пізніше за deadline;
+     * інакше бакет не змінюється і повертається REJECTED.
+     */
+    synchronized long tryReserve(long at, long deadline) {
+        long start = Math.max(at, pausedUntil);
+        long t = Math.max(tat, start);
+        long allowedAt = Math.max(start, t - burstNanos);
+        if (allowedAt - deadline > 0) return REJECTED;
+        tat = t + intervalNanos;
+        lastUsed = allowedAt;
+        return allowedAt;
+    }
+
+    /** Резервує токен не раніше за at; повертає момент, коли його можна використати. */
+    synchronized long reserve(long at) {
+        long start = Math.max(at, pausedUntil);
+        long t = Math.max(tat, start);
+        long allowedAt = Math.max(start, t - burstNanos);
+        tat = t + intervalNanos;
+        lastUsed = allowedAt;
+        return allowedAt;
+    }
+
+    /** Не видавати токенів до until (наприклад, retry_after з 429). */
+    synchronized void pauseUntil(long until) {
+        if (until - pausedUntil > 0) pausedUntil = until;
+    }
+
+    boolean idleSince(long nanoTime) {
+        return lastUsed - nanoTime < 0;
+    }
+}
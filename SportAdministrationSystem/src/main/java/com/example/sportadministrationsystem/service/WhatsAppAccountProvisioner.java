@@ -1,34 +1,95 @@
 package com.example.sportadministrationsystem.service;
 
+import com.example.sportadministrationsystem.model.Channel;
 import com.example.sportadministrationsystem.model.UserWhatsapp;
-import com.example.sportadministrationsystem.repository.UserWhatsappRepository;
+import com.example.sportadministrationsystem.repository.BotAccountUpsertRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Створює/оновлює запис UserWhatsapp на кожне вхідне повідомлення.
+ *
+ * Кеш waId → (id, profile_name): якщо ім'я профілю не прийшло або збігається з кешованим — БД не чіпаємо;
+ * інакше один атомарний upsert, що пише лише при реальній зміні імені.
+ * Про зміну наявного рядка повідомляються інші вузли (BotAccountChangedEvent через PgNotificationBus).
+ */
 @Component
 @RequiredArgsConstructor
 public class WhatsAppAccountProvisioner {
 
-    private final UserWhatsappRepository repo;
+    private final BotAccountUpsertRepository upserts;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${bot.accounts.cache.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    @Value("${bot.accounts.cache.max-size:50000}")
+    private int maxSize;
+
+    private record Entry(long id, String profileName, LocalDateTime linkedAt, long loadedAt) {}
+
+    private final ConcurrentHashMap<String, Entry> cache = new ConcurrentHashMap<>();
+
+    private Counter hits;
+    private Counter misses;
+
+    @PostConstruct
+    void initMetrics() {
+        Gauge.builder("bot.accounts.cache.size", cache, Map::size).tag("channel", "whatsapp").register(meterRegistry);
+        hits = Counter.builder("bot.accounts.cache.hits").tag("channel", "whatsapp").register(meterRegistry);
+        misses = Counter.builder("bot.accounts.cache.misses").tag("channel", "whatsapp").register(meterRegistry);
+    }
 
-    @Transactional
     public UserWhatsapp ensure(String waId, String profileName) {
         if (waId == null || waId.isBlank()) throw new IllegalArgumentException("waId is blank");
+        String key = waId.trim();
+        String name = profileName != null && !profileName.isBlank() ? profileName.trim() : null;
+
+        long now = System.nanoTime();
+        Entry e = cache.get(key);
+        if (e != null && (name == null || name.equals(e.profileName()))
+                && now - e.loadedAt() < TimeUnit.SECONDS.toNanos(ttlSeconds)) {
+            hits.increment();
+            return toEntity(key, e);
+        }
+        misses.increment();
+
+        BotAccountUpsertRepository.Upserted<UserWhatsapp> r = upserts.upsertWhatsapp(key, name);
+        UserWhatsapp acc = r.account();
+        if (cache.size() >= maxSize) cache.clear();
+        cache.put(key, new Entry(acc.getId(), acc.getProfileName(), acc.getLinkedAt(), now));
+        if (r.updated()) {
+            eventPublisher.publishEvent(new BotAccountChangedEvent(Channel.WHATSAPP, key));
+        }
+        return acc;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAccountChanged(BotAccountChangedEvent e) {
+        if (e.channel() != Channel.WHATSAPP) return;
+        if (e.key() == null) cache.clear();
+        else cache.remove(e.key());
+    }
 
-        return repo.findByWaId(waId)
-                .map(existing -> {
-                    if (profileName != null && !profileName.isBlank()
-                            && (existing.getProfileName() == null || existing.getProfileName().isBlank())) {
-                        existing.setProfileName(profileName.trim());
-                    }
-                    return existing;
-                })
-                .orElseGet(() -> repo.save(
-                        UserWhatsapp.builder()
-                                .waId(waId.trim())
-                                .profileName(profileName != null ? profileName.trim() : null)
-                                .build()
-                ));
+    private static UserWhatsapp toEntity(String waId, Entry e) {
+        return UserWhatsapp.builder()
+                .id(e.id())
+                .waId(waId)
+                .profileName(e.profileName())
+                .linkedAt(e.linkedAt())
+                .build();
     }
 }
@@ -0,0 +1,139 @@
+package com.example.sportadministrationsystem.service;
+
+import com.example.sportadministrationsystem.model.WhatsAppDeliveryTracking;
+import com.example.sportadministrationsystem.repository.WhatsAppDeliveryTrackingBatchRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Фоновий запис результатів відправок WhatsApp у whatsapp_delivery_tracking.
+ *
+ * Відправка лише кладе рядок в обмежену чергу (без I/O на шляху запиту);
+ * окремий потік збирає пачку до batch-size або flush-interval-ms і пише її одним батчем.
+ * Переповнення черги не блокує відправку — рядок відкидається і рахується в метриці.
+ * При зупинці застосунку залишок черги дописується.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WhatsAppDeliveryTrackingWriter {
+
+    private final WhatsAppDeliveryTrackingBatchRepository batchRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${whatsapp.tracking.enabled:true}")
+    private boolean enabled;
+
+    @Value("${whatsapp.tracking.queue-capacity:20000}")
+    private int queueCapacity;
+
+    @Value("${whatsapp.tracking.batch-size:500}")
+    private int batchSize;
+
+    @Value("${whatsapp.tracking.flush-interval-ms:200}")
+    private long flushIntervalMs;
+
+    private BlockingQueue<WhatsAppDeliveryTracking> queue;
+    private volatile Thread worker;
+    private final AtomicLong droppedSinceLog = new AtomicLong();
+
+    private Counter writtenCounter;
+    private Counter droppedCounter;
+
+    @PostConstruct
+    void start() {
+        queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        Gauge.builder("whatsapp.tracking.queue", queue, BlockingQueue::size).register(meterRegistry);
+        writtenCounter = Counter.builder("whatsapp.tracking.written").register(meterRegistry);
+        droppedCounter = Counter.builder("whatsapp.tracking.dropped").register(meterRegistry);
+        if (!enabled) return;
+
+        worker = new Thread(this::run, "wa-tracking-writer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        Thread t = worker;
+        worker = null;
+        if (t == null) return;
+        t.interrupt();
+        try {
+            t.join(5000);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        List<WhatsAppDeliveryTracking> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        for (int i = 0; i < rest.size(); i += batchSize) {
+            flush(rest.subList(i, Math.min(rest.size(), i + batchSize)));
+        }
+    }
+
+    /** Ставить рядок у чергу запису; ніколи не блокує. */
+    public void record(WhatsAppDeliveryTracking row) {
+        if (!enabled) return;
+        if (!queue.offer(row)) {
+            droppedCounter.increment();
+            droppedSinceLog.incrementAndGet();
+        }
+    }
+
+    private void run() {
+        List<WhatsAppDeliveryTracking> batch = new ArrayList<>(batchSize);
+        while (worker != null) {
+            try {
+                WhatsAppDeliveryTracking first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+
+                // добираємо пачку: все, що вже в черзі, і те, що надійде до кінця інтервалу
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    if (batch.size() >= batchSize) break;
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) break;
+                    WhatsAppDeliveryTracking next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+
+                flush(batch);
+                batch.clear();
+            } catch (InterruptedException ie) {
+                // незібрану пачку дописуємо тут, решту черги — stop()
+                if (!batch.isEmpty()) flush(batch);
+                return;
+            }
+        }
+    }
+
+    private void flush(List<WhatsAppDeliveryTracking> batch) {
+        try {
+            batchRepository.insertBatch(batch);
+            writtenCounter.increment(batch.size());
+        } catch (Exception ex) {
+            log.warn("Failed to write {} WhatsApp delivery tracking row(s): {}", batch.size(), ex.getMessage());
+        }
+        long dropped = droppedSinceLog.getAndSet(0);
+        if (dropped > 0) {
+            log.warn("WhatsApp delivery tracking queue full: {} row(s) dropped", dropped);
+        }
+    }
+}
@@ -1,30 +1,98 @@
 package com.example.sportadministrationsystem.service;
 
+import com.example.sportadministrationsystem.model.DeliveryStatus;
+import com.example.sportadministrationsystem.model.NotificationType;
+import com.example.sportadministrationsystem.model.WhatsAppDeliveryTracking;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.*;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.HttpStatusCodeException;
-import org.springframework.web.client.RestTemplate;
 
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
+/**
+ * Клієнт WhatsApp Cloud (Graph) API.
+ *
+ * Один спільний java.net.http.HttpClient (пул з'єднань, keep-alive, HTTP/2 де можливо)
+ * і асинхронні методи *Async, що повертають CompletableFuture — розсилка може тримати
+ * багато запитів у польоті через кілька з'єднань, не займаючи потік на кожен round-trip.
+ * Кількість запитів у польоті обмежена AIMD-лімітером: *Async блокує викликача лише
+ * на очікування вільного слота (backpressure), а не на саму відповідь.
+ * Синхронні методи — тонкі обгортки над *Async для старих викликачів.
+ *
+ * Кожна відправка повертає SendResult (id повідомлення Graph, HTTP-статус, код помилки)
+ * і записується у whatsapp_delivery_tracking через фоновий WhatsAppDeliveryTrackingWriter.
+ * Помилки не кидаються — викликач сам вирішує, що робити з невдалим результатом.
+ */
 @Slf4j
 @Component
+@RequiredArgsConstructor
 public class WhatsAppGraphClient {
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    /** Коди Graph API, що означають перевищення пропускної здатності акаунта/номера. */
+    private static final Set<Integer> THROTTLE_CODES = Set.of(4, 80007, 130429, 131048, 131056);
+
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final WhatsAppDeliveryTrackingWriter trackingWriter;
 
     @Value("${whatsapp.graph.base-url}") private String baseUrl;
     @Value("${whatsapp.graph.version}")  private String version;
     @Value("${whatsapp.phone-number-id}") private String phoneNumberId;
     @Value("${whatsapp.access-token}") private String accessToken;
 
-    public void sendText(String to, String text) {
-        String url = baseUrl + "/" + version + "/" + phoneNumberId + "/messages";
+    // HTTP-клієнт: таймаути. Keep-alive пулу JDK-клієнта — JVM-глобальна властивість
+    // jdk.httpclient.keepalive.timeout, задається при запуску (див. ENTRYPOINT у Dockerfile)
+    @Value("${whatsapp.graph.http.connect-timeout-ms:5000}") private long connectTimeoutMs;
+    @Value("${whatsapp.graph.http.request-timeout-ms:15000}") private long requestTimeoutMs;
+
+    // AIMD-ліміт одночасних запитів до Graph API (див. AdaptiveConcurrencyLimiter)
+    @Value("${whatsapp.graph.concurrency.initial:8}") private int initialConcurrency;
+    @Value("${whatsapp.graph.concurrency.min:1}") private int minConcurrency;
+    @Value("${whatsapp.graph.concurrency.max:200}") private int maxConcurrency;
+    @Value("${whatsapp.graph.concurrency.backoff-ratio:0.5}") private double backoffRatio;
+    @Value("${whatsapp.graph.concurrency.latency-threshold-ms:2000}") private long latencyThresholdMs;
+    @Value("${whatsapp.graph.concurrency.max-wait-ms:60000}") private long maxWaitMs;
+
+    private AdaptiveConcurrencyLimiter limiter;
+    private HttpClient http;
+    private URI messagesUri;
+
+    @PostConstruct
+    void init() {
+        limiter = new AdaptiveConcurrencyLimiter("whatsapp.graph", initialConcurrency, minConcurrency,
+                maxConcurrency, backoffRatio, latencyThresholdMs).bindTo(meterRegistry);
+
+        http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .build();
+        messagesUri = URI.create(baseUrl + "/" + version + "/" + phoneNumberId + "/messages");
+    }
+
+    public SendResult sendText(String to, String text) {
+        return sendTextAsync(to, text, TrackingTag.NONE).join();
+    }
+
+    public SendResult sendText(String to, String text, TrackingTag tag) {
+        return sendTextAsync(to, text, tag).join();
+    }
 
+    public CompletableFuture<SendResult> sendTextAsync(String to, String text, TrackingTag tag) {
         Map<String, Object> payload = Map.of(
                 "messaging_product", "whatsapp",
                 "to", to,
@@ -32,7 +100,7 @@ public class WhatsAppGraphClient {
                 "text", Map.of("body", text)
         );
 
-        post(url, payload);
+        return postAsync(payload, to, null, tag);
     }
 
 
@@ -44,9 +112,16 @@ public class WhatsAppGraphClient {
      * @param templateName назва шаблону (напр. "event_reminder")
      * @param parameters параметри для підстановки (напр. {{1}}, {{2}})
      */
-    public void sendTemplate(String to, String templateName, List<String> parameters) {
-        String url = baseUrl + "/" + version + "/" + phoneNumberId + "/messages";
+    public SendResult sendTemplate(String to, String templateName, List<String> parameters) {
+        return sendTemplateAsync(to, templateName, parameters, TrackingTag.NONE).join();
+    }
 
+    public SendResult sendTemplate(String to, String templateName, List<String> parameters, TrackingTag tag) {
+        return sendTemplateAsync(to, templateName, parameters, tag).join();
+    }
+
+    public CompletableFuture<SendResult> sendTemplateAsync(String to, String templateName, List<String> parameters,
+                                                           TrackingTag tag) {
         var bodyParams = new java.util.ArrayList<>();
         List<String> paramsList = parameters != null ? parameters : List.of();
         for (String param : paramsList) {
@@ -68,12 +143,14 @@ public class WhatsAppGraphClient {
         payload.put("type", "template");
         payload.put("template", template);
 
-        post(url, payload);
+        return postAsync(payload, to, templateName, tag);
     }
 
-    public void sendReplyButtons(String to, String bodyText, List<Button> buttons) {
-        String url = baseUrl + "/" + version + "/" + phoneNumberId + "/messages";
+    public SendResult sendReplyButtons(String to, String bodyText, List<Button> buttons) {
+        return sendReplyButtonsAsync(to, bodyText, buttons).join();
+    }
 
+    public CompletableFuture<SendResult> sendReplyButtonsAsync(String to, String bodyText, List<Button> buttons) {
         var buttonsList = new java.util.ArrayList<>();
         for (Button b : buttons) {
             if (buttonsList.size() >= 3) break;
@@ -100,20 +177,135 @@ public class WhatsAppGraphClient {
         payload.put("type", "interactive");
         payload.put("interactive", interactive);
 
-        post(url, payload);
+        return postAsync(payload, to, null, TrackingTag.NONE);
     }
 
-    private void post(String url, Map<String, Object> payload) {
+    /**
+     * Асинхронний POST у /messages. Чекає слот лімітера (backpressure), далі не блокує.
+     * Future завжди завершується нормально: невдача — SendResult з ok=false.
+     */
+    private CompletableFuture<SendResult> postAsync(Map<String, Object> payload, String to, String templateName,
+                                                    TrackingTag tag) {
+        HttpRequest request;
         try {
-            HttpHeaders headers = new HttpHeaders();
-            headers.setBearerAuth(accessToken);
-            headers.setContentType(MediaType.APPLICATION_JSON);
+            request = HttpRequest.newBuilder(messagesUri)
+                    .timeout(Duration.ofMillis(requestTimeoutMs))
+                    .header("Authorization", "Bearer " + accessToken)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(payload)))
+                    .build();
+        } catch (Exception e) {
+            log.error("WhatsApp API request build failed: {}", e.getMessage(), e);
+            return CompletableFuture.completedFuture(track(SendResult.failed(0, null, e.getMessage()), to, templateName, tag));
+        }
+
+        try {
+            if (!limiter.acquire(maxWaitMs)) {
+                log.error("WhatsApp API call skipped: no concurrency slot within {} ms (limit={})",
+                        maxWaitMs, (int) limiter.getLimit());
+                return CompletableFuture.completedFuture(
+                        track(SendResult.failed(0, null, "NO_CONCURRENCY_SLOT"), to, templateName, tag));
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.completedFuture(track(SendResult.failed(0, null, "INTERRUPTED"), to, templateName, tag));
+        }
+
+        long started = System.nanoTime();
+        return http.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .handle((resp, err) -> {
+                    SendResult result;
+                    AdaptiveConcurrencyLimiter.Outcome outcome = AdaptiveConcurrencyLimiter.Outcome.IGNORE;
+                    if (err != null) {
+                        log.error("WhatsApp API call failed: {}", err.getMessage(), err);
+                        result = SendResult.failed(0, null, String.valueOf(err.getMessage()));
+                    } else {
+                        result = parse(resp.statusCode(), resp.body());
+                        if (result.ok()) {
+                            outcome = AdaptiveConcurrencyLimiter.Outcome.SUCCESS;
+                        } else {
+                            if (isThrottled(result)) {
+                                outcome = AdaptiveConcurrencyLimiter.Outcome.THROTTLED;
+                            }
+                            log.error("WhatsApp API error {}: {}", resp.statusCode(), resp.body());
+                        }
+                    }
+                    limiter.release(outcome, started);
+                    return track(result, to, templateName, tag);
+                });
+    }
 
-            restTemplate.postForEntity(url, new HttpEntity<>(payload, headers), String.class);
-        } catch (HttpStatusCodeException e) {
-            log.error("WhatsApp API error {}: {}", e.getStatusCode(), e.getResponseBodyAsString());
+    /**
+     * Успіх: {"messages":[{"id":"wamid..."}]}; помилка: {"error":{"code":131026,"message":"..."}}.
+     */
+    private SendResult parse(int status, String body) {
+        JsonNode root;
+        try {
+            root = objectMapper.readTree(body);
         } catch (Exception e) {
-            log.error("WhatsApp API call failed: {}", e.getMessage(), e);
+            root = objectMapper.missingNode();
+        }
+        if (status / 100 == 2) {
+            String messageId = root.path("messages").path(0).path("id").asText(null);
+            return SendResult.sent(messageId, status);
+        }
+        JsonNode error = root.path("error");
+        Integer code = error.path("code").isNumber() ? error.path("code").asInt() : null;
+        String message = error.path("message").asText(null);
+        return SendResult.failed(status, code, message != null ? message : body);
+    }
+
+    /** 429 або throttling-код у тілі помилки. */
+    private boolean isThrottled(SendResult result) {
+        return result.httpStatus() == 429
+                || (result.errorCode() != null && THROTTLE_CODES.contains(result.errorCode()));
+    }
+
+    private SendResult track(SendResult result, String to, String templateName, TrackingTag tag) {
+        trackingWriter.record(WhatsAppDeliveryTracking.builder()
+                .messageId(result.messageId())
+                .recipient(to)
+                .templateName(templateName)
+                .notificationType(tag.type())
+                .eventId(tag.eventId())
+                .status(result.ok() ? DeliveryStatus.SENT : DeliveryStatus.FAILED)
+                .sentAt(LocalDateTime.now())
+                .errorDescription(result.ok() ? null : result.describe())
+                .build());
+        return result;
+    }
+
+    /** Контекст відправки для трекінгу доставки (івент і тип сповіщення; обидва можуть бути null). */
+    public record TrackingTag(Long eventId, NotificationType type) {
+        public static final TrackingTag NONE = new TrackingTag(null, null);
+
+        public static TrackingTag event(Long eventId) {
+            return new TrackingTag(eventId, null);
+        }
+    }
+
+    /**
+     * Результат відправки: id повідомлення Graph (wamid), HTTP-статус (0 — відповіді не було),
+     * код помилки Graph API і її текст.
+     */
+    public record SendResult(boolean ok, String messageId, int httpStatus, Integer errorCode, String error) {
+
+        public static SendResult sent(String messageId, int httpStatus) {
+            return new SendResult(true, messageId, httpStatus, null, null);
+        }
+
+        public static SendResult failed(int httpStatus, Integer errorCode, String error) {
+            return new SendResult(false, null, httpStatus, errorCode, error);
+        }
+
+        /** Короткий опис помилки для журналів ("HTTP 400, code 131026: ..."). */
+        public String describe() {
+            if (ok) return "OK " + messageId;
+            StringBuilder sb = new StringBuilder();
+            sb.append(httpStatus > 0 ? "HTTP " + httpStatus : "NO_RESPONSE");
+            if (errorCode != null) sb.append(", code ").append(errorCode);
+            if (error != null) sb.append(": ").append(error);
+            return sb.toString();
         }
     }
 
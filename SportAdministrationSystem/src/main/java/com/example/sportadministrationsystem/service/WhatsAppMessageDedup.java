@@ -0,0 +1,131 @@
+package com.example.sportadministrationsystem.service;
+
+import com.example.sportadministrationsystem.repository.ProcessedWhatsAppMessageBatchRepository;
+import com.example.sportadministrationsystem.repository.ProcessedWhatsAppMessageBatchRepository.Incoming;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Ідемпотентність вхідних повідомлень WhatsApp у два рівні.
+ *
+ * 1) Обмежений кеш нещодавно оброблених message_id у пам'яті (FIFO-витіснення): повтори доставки
+ *    від Meta, що приходять через секунди-хвилини, відсікаються без звернення до БД —
+ *    і в контролері (вебхук з самих дублікатів навіть не пишеться у вхідну чергу), і при обробці.
+ * 2) Усе, чого немає в кеші, — один INSERT ... ON CONFLICT ... RETURNING на все тіло вебхука
+ *    у processed_whatsapp_messages: повернені id захоплені цим викликом (PROCESSING з орендою
+ *    whatsapp.dedup.claim-lease-ms) — їх обробляє лише він, на якому б вузлі не йшли копії тіла.
+ *
+ * Після успішної обробки захоплення стає DONE (markProcessed, один UPDATE на тіло), після невдачі —
+ * знімається (release), і повтор рядка вхідної черги обробить повідомлення знову. Якщо вузол упав
+ * посеред обробки, захоплення перехоплюється після закінчення оренди.
+ *
+ * У кеш id потрапляє лише після DONE, тож кеш ніколи не "знає" більше, ніж БД.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WhatsAppMessageDedup {
+
+    private final ProcessedWhatsAppMessageBatchRepository batchRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${whatsapp.dedup.cache-size:100000}")
+    private int cacheSize;
+
+    // Скільки захоплення PROCESSING вважається живим (з запасом на чергу в смузі відправника)
+    @Value("${whatsapp.dedup.claim-lease-ms:300000}")
+    private long claimLeaseMs;
+
+    private final ConcurrentHashMap<String, Boolean> recent = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<String> order = new ConcurrentLinkedQueue<>();
+
+    private Counter cacheHits;
+    private Counter dbDuplicates;
+
+    @PostConstruct
+    void initMetrics() {
+        Gauge.builder("whatsapp.dedup.cache.size", recent, Map::size).register(meterRegistry);
+        cacheHits = Counter.builder("whatsapp.dedup.cache.hits").register(meterRegistry);
+        dbDuplicates = Counter.builder("whatsapp.dedup.db.duplicates").register(meterRegistry);
+    }
+
+    /** Рівень 1: чи всі id вже бачені (лише пам'ять, без БД). */
+    public boolean allSeenRecently(Collection<String> messageIds) {
+        if (messageIds.isEmpty()) return false;
+        for (String id : messageIds) {
+            if (!recent.containsKey(id)) return false;
+        }
+        cacheHits.increment(messageIds.size());
+        return true;
+    }
+
+    /**
+     * Захоплює в обробку повідомлення, які ще не оброблені й не обробляються (на жодному вузлі),
+     * і повертає їхні id. Кожен повернений id викликач має завершити через markProcessed() або release().
+     */
+    public Set<String> begin(List<Incoming> messages) {
+        Map<String, Incoming> candidates = new LinkedHashMap<>();
+        for (Incoming m : messages) {
+            if (recent.containsKey(m.messageId())) {
+                cacheHits.increment();
+            } else {
+                candidates.putIfAbsent(m.messageId(), m);
+            }
+        }
+        if (candidates.isEmpty()) return new HashSet<>();
+
+        Set<String> claimed = new HashSet<>(
+                batchRepository.claim(new ArrayList<>(candidates.values()), LocalDateTime.now(), claimLeaseMs));
+        dbDuplicates.increment(candidates.size() - claimed.size());
+        return claimed;
+    }
+
+    /**
+     * Фіксує захоплені повідомлення як оброблені (після успішної обробки).
+     * Виняток — рядок вхідної черги не стане DONE і буде повторений.
+     */
+    public void markProcessed(Collection<String> messageIds) {
+        if (messageIds.isEmpty()) return;
+        batchRepository.markDone(messageIds);
+        messageIds.forEach(this::remember);
+    }
+
+    /** Знімає захоплення без фіксації (обробка не вдалась) — повтор обробить повідомлення знову. */
+    public void release(Collection<String> messageIds) {
+        if (messageIds.isEmpty()) return;
+        try {
+            batchRepository.release(messageIds);
+        } catch (Exception ex) {
+            // захоплення саме закінчиться через claim-lease-ms
+            log.warn("Failed to release {} WhatsApp message claim(s): {}", messageIds.size(), ex.getMessage());
+        }
+    }
+
+    private void remember(String messageId) {
+        if (recent.putIfAbsent(messageId, Boolean.TRUE) == null) {
+            order.add(messageId);
+            while (recent.size() > cacheSize) {
+                String oldest = order.poll();
+                if (oldest == null) break;
+                recent.remove(oldest);
+            }
+        }
+    }
+}
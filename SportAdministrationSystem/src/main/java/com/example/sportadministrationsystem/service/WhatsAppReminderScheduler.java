@@ -8,7 +8,7 @@ import org.springframework.stereotype.Component;
 
 /**
  * Планувальник для відправки WhatsApp нагадувань про предстоящі события.
- * Запускає перевірку нагадувань кожні 5 хвилин.
+ * Запускає перевірку нагадувань кожні 5 хвилин у пулі WhatsApp-розсилок (whatsAppDispatchBulkhead).
  */
 @Slf4j
 @Component
@@ -22,7 +22,7 @@ public class WhatsAppReminderScheduler {
      * Відправляє всі відповідні нагадування.
      */
     @Scheduled(fixedDelay = 300000, initialDelay = 60000)
-    @Async
+    @Async("whatsAppDispatchBulkhead")
     public void checkAndSendReminders() {
         try {
             log.debug("Starting WhatsApp reminder scheduler tick");
@@ -1,5 +1,6 @@
 package com.example.sportadministrationsystem.service;
 
+import com.example.sportadministrationsystem.exception.WhatsAppSendException;
 import com.example.sportadministrationsystem.model.Event;
 import com.example.sportadministrationsystem.model.EventSubscriptionWhatsapp;
 import com.example.sportadministrationsystem.model.NotificationType;
@@ -144,21 +145,26 @@ public class WhatsAppReminderService {
 
         // Спробуємо отримати шаблон
         Optional<WhatsAppTemplate> template = templateResolver.resolveTemplate(NotificationType.REMINDER_72H);
+        WhatsAppGraphClient.TrackingTag tag = new WhatsAppGraphClient.TrackingTag(event.getId(), NotificationType.REMINDER_72H);
 
         if (template.isPresent()) {
             try {
                 // Розрезолвимо параметри для шаблону
                 var params = templateResolver.getReminder72hParams(event);
-                graphClient.sendTemplate(waId, template.get().getTemplateName(), params);
-                log.debug("Sent 72h reminder via template to {}", waId);
-                return;
+                WhatsAppGraphClient.SendResult result = graphClient.sendTemplate(
+                        waId, template.get().getTemplateName(), params, tag);
+                if (result.ok()) {
+                    log.debug("Sent 72h reminder via template to {}", waId);
+                    return;
+                }
+                log.warn("Failed to send 72h reminder via template: {}, falling back to plain text", result.describe());
             } catch (Exception e) {
                 log.warn("Failed to send 72h reminder via template: {}, falling back to plain text", e.getMessage());
             }
         }
 
         // Fallback: простий текст, якщо шаблон недоступний
-        sendReminder72hFallback(event, waId);
+        sendReminder72hFallback(event, waId, tag);
     }
 
     /**
@@ -170,27 +176,33 @@ public class WhatsAppReminderService {
 
         // Спробуємо отримати шаблон
         Optional<WhatsAppTemplate> template = templateResolver.resolveTemplate(NotificationType.REMINDER_24H);
+        WhatsAppGraphClient.TrackingTag tag = new WhatsAppGraphClient.TrackingTag(event.getId(), NotificationType.REMINDER_24H);
 
         if (template.isPresent()) {
             try {
                 // Розрезолвимо параметри для шаблону
                 var params = templateResolver.getReminder24hParams(event);
-                graphClient.sendTemplate(waId, template.get().getTemplateName(), params);
-                log.debug("Sent 24h reminder via template to {}", waId);
-                return;
+                WhatsAppGraphClient.SendResult result = graphClient.sendTemplate(
+                        waId, template.get().getTemplateName(), params, tag);
+                if (result.ok()) {
+                    log.debug("Sent 24h reminder via template to {}", waId);
+                    return;
+                }
+                log.warn("Failed to send 24h reminder via template: {}, falling back to plain text", result.describe());
             } catch (Exception e) {
                 log.warn("Failed to send 24h reminder via template: {}, falling back to plain text", e.getMessage());
             }
         }
 
         // Fallback: простий текст, якщо шаблон недоступний
-        sendReminder24hFallback(event, waId);
+        sendReminder24hFallback(event, waId, tag);
     }
 
     /**
-     * Fallback: надсилає 72-годинне нагадування звичайним текстом
+     * Fallback: надсилає 72-годинне нагадування звичайним текстом.
+     * Невдача — WhatsAppSendException: нагадування не позначається відправленим.
      */
-    private void sendReminder72hFallback(Event event, String waId) {
+    private void sendReminder72hFallback(Event event, String waId, WhatsAppGraphClient.TrackingTag tag) {
         String eventName = event.getName() != null ? event.getName() : "Івент #" + event.getId();
         String eventTime = formatEventTime(event.getStartAt());
 
@@ -204,13 +216,17 @@ public class WhatsAppReminderService {
             event.getLocation() != null ? event.getLocation() : "уточніть на сайті"
         );
 
-        graphClient.sendText(waId, message);
+        WhatsAppGraphClient.SendResult result = graphClient.sendText(waId, message, tag);
+        if (!result.ok()) {
+            throw new WhatsAppSendException(result.describe());
+        }
     }
 
     /**
-     * Fallback: надсилає 24-годинне нагадування звичайним текстом
+     * Fallback: надсилає 24-годинне нагадування звичайним текстом.
+     * Невдача — WhatsAppSendException: нагадування не позначається відправленим.
      */
-    private void sendReminder24hFallback(Event event, String waId) {
+    private void sendReminder24hFallback(Event event, String waId, WhatsAppGraphClient.TrackingTag tag) {
         String eventName = event.getName() != null ? event.getName() : "Івент #" + event.getId();
         String eventTime = formatEventTime(event.getStartAt());
 
@@ -224,7 +240,10 @@ public class WhatsAppReminderService {
             event.getLocation() != null ? event.getLocation() : "уточніть на сайті"
         );
 
-        graphClient.sendText(waId, message);
+        WhatsAppGraphClient.SendResult result = graphClient.sendText(waId, message, tag);
+        if (!result.ok()) {
+            throw new WhatsAppSendException(result.describe());
+        }
     }
 
     /**
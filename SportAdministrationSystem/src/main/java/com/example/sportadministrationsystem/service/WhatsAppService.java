@@ -1,17 +1,15 @@
 package com.example.sportadministrationsystem.service;
 
+import com.example.sportadministrationsystem.dto.EventSummary;
+import com.example.sportadministrationsystem.dto.WhatsAppWebhookPayload;
 import com.example.sportadministrationsystem.model.Event;
-import com.example.sportadministrationsystem.model.ProcessedWhatsAppMessage;
 import com.example.sportadministrationsystem.model.UserWhatsapp;
 import com.example.sportadministrationsystem.repository.EventRepository;
 import com.example.sportadministrationsystem.repository.EventSubscriptionWhatsappRepository;
-import com.example.sportadministrationsystem.repository.ProcessedWhatsAppMessageRepository;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.sportadministrationsystem.repository.ProcessedWhatsAppMessageBatchRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
 import java.net.URLEncoder;
@@ -19,7 +17,13 @@ import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -40,14 +44,16 @@ public class WhatsAppService {
     private static final Pattern EVENTS_PATTERN =
             Pattern.compile("^\\s*(events|события|/events)\\s*$", Pattern.CASE_INSENSITIVE);
 
-    private final ObjectMapper om = new ObjectMapper();
-
+    private final WhatsAppWebhookParser parser;
     private final EventRepository events;
     private final EventSubscriptionWhatsappRepository subs;
-    private final ProcessedWhatsAppMessageRepository processedMessageRepository;
+    private final WhatsAppMessageDedup dedup;
     private final WhatsAppAccountProvisioner provisioner;
     private final EventSubscriptionWhatsAppService subscriptionService;
+    private final EventSummaryCache eventSummaries;
     private final WhatsAppGraphClient graph;
+    private final WhatsAppStatusIngestor statusIngestor;
+    private final StripedExecutor whatsAppInboundExecutor;
 
     @Value("${whatsapp.business-phone-e164:}")
     private String businessPhoneE164;
@@ -55,84 +61,108 @@ public class WhatsAppService {
     @Value("${whatsapp.groups.enabled:false}")
     private boolean groupsEnabled;
 
-    public void handleWebhook(String bodyJson) {
+    /**
+     * Обробка тіла вебхука (викликається з WhatsAppWebhookInbox у порядку надходження).
+     * Статуси обробляються одразу, повідомлення — у смузі whatsAppInboundExecutor за waId
+     * відправника: два швидкі натискання одного користувача виконаються строго по черзі,
+     * різні користувачі — паралельно. Future завершується, коли оброблено всі повідомлення тіла.
+     * Нерозбірний JSON — виняток (рядок черги буде повторено/позначено FAILED).
+     * Помилка обробки окремого повідомлення завершує future з винятком: рядок черги повториться,
+     * і повтор обробить лише невдалі повідомлення (успішні вже зафіксовані як оброблені).
+     */
+    public CompletableFuture<Void> handleWebhook(String bodyJson) {
+        WhatsAppWebhookPayload payload;
         try {
-            JsonNode root = om.readTree(bodyJson);
-            JsonNode entry = root.path("entry");
-            if (!entry.isArray()) return;
-
-            for (JsonNode e : entry) {
-                JsonNode changes = e.path("changes");
-                if (!changes.isArray()) continue;
-
-                for (JsonNode ch : changes) {
-                    JsonNode value = ch.path("value");
-
-                    String profileName = null;
-                    JsonNode contacts = value.path("contacts");
-                    if (contacts.isArray() && contacts.size() > 0) {
-                        profileName = contacts.get(0).path("profile").path("name").asText(null);
-                    }
-
-                    JsonNode messages = value.path("messages");
-                    if (!messages.isArray()) continue;
-
-                    for (JsonNode msg : messages) {
-                        String from = msg.path("from").asText(null);
-                        if (from == null || from.isBlank()) continue;
-
-                        // Отримуємо message_id для дедупліки та логування
-                        String messageId = msg.path("id").asText(null);
-                        if (messageId != null && !messageId.isBlank()) {
-                            try {
-                                ProcessedWhatsAppMessage processed = new ProcessedWhatsAppMessage();
-                                processed.setMessageId(messageId);
-                                processed.setWaId(from);
-                                processed.setWebhookTimestamp(LocalDateTime.now());
-                                processedMessageRepository.save(processed);
-                                log.debug("Recorded processed message_id={}", messageId);
-                            } catch (Exception ex) {
-                                log.warn("Failed to log processed message: {}", ex.getMessage());
-                            }
-                        }
-
-                        // НОВЕ: отримуємо group_id якщо це групове повідомлення
-                        String groupId = msg.path("group_id").asText(null);
-
-                        UserWhatsapp waAcc = provisioner.ensure(from, profileName);
-
-                        String type = msg.path("type").asText("");
-                        if ("text".equals(type)) {
-                            String text = msg.path("text").path("body").asText("");
-                            handleText(from, waAcc, text, groupId);
-                        } else if ("interactive".equals(type)) {
-                            String id = extractInteractiveId(msg);
-                            if (id != null) handleAction(from, waAcc, id, groupId);
-                        } else if ("button".equals(type)) {
-                            String id = msg.path("button").path("payload").asText(null);
-                            if (id != null) handleAction(from, waAcc, id, groupId);
-                        }
-                    }
-                }
-            }
+            payload = parser.parse(bodyJson);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Malformed webhook body: " + e.getMessage(), e);
+        }
 
+        // Статуси вихідних повідомлень (sent/delivered/read/failed) — у трекінг доставки
+        for (WhatsAppWebhookPayload.Status st : payload.statuses()) {
+            statusIngestor.accept(st.messageId(), st.status(), st.timestamp(), st.recipient(), st.error());
+        }
 
-        } catch (Exception e) {
-            log.error("handleWebhook failed: {}", e.getMessage(), e);
+        List<WhatsAppWebhookPayload.Message> inbound = new ArrayList<>(payload.messages().size());
+        for (WhatsAppWebhookPayload.Message msg : payload.messages()) {
+            if (msg.from() == null || msg.from().isBlank()) continue;
+            inbound.add(msg);
         }
+        if (inbound.isEmpty()) return CompletableFuture.completedFuture(null);
+
+        // Ідемпотентність: одне атомарне захоплення на всі повідомлення тіла (кеш + один INSERT ... RETURNING).
+        // Обробленими вони фіксуються після обробки всього тіла — перед тим, як рядок вхідної черги стане DONE;
+        // невдалі знімаються з захоплення, і повтор рядка обробить саме їх (успішні відсіче dedup).
+        List<ProcessedWhatsAppMessageBatchRepository.Incoming> withIds = new ArrayList<>();
+        for (WhatsAppWebhookPayload.Message msg : inbound) {
+            if (hasId(msg)) {
+                withIds.add(new ProcessedWhatsAppMessageBatchRepository.Incoming(msg.id(), msg.from(), msg.type()));
+            }
+        }
+        Set<String> claimed = dedup.begin(withIds);
+        Set<String> toStart = new HashSet<>(claimed);
+
+        Map<String, CompletableFuture<Void>> byId = new LinkedHashMap<>();
+        List<CompletableFuture<Void>> pending = new ArrayList<>(inbound.size());
+        RuntimeException submitError = null;
+        try {
+            for (WhatsAppWebhookPayload.Message msg : inbound) {
+                if (hasId(msg) && !toStart.remove(msg.id())) {
+                    log.debug("WhatsApp message_id={} already processed or in progress, skipping", msg.id());
+                    continue;
+                }
+                CompletableFuture<Void> f = whatsAppInboundExecutor.submit(msg.from(), () -> processMessage(msg));
+                if (hasId(msg)) byId.put(msg.id(), f);
+                pending.add(f);
+            }
+        } catch (RuntimeException ex) {
+            // не подані повідомлення знімаємо одразу; подані завершаться нижче
+            Set<String> notSubmitted = new HashSet<>(claimed);
+            notSubmitted.removeAll(byId.keySet());
+            dedup.release(notSubmitted);
+            if (pending.isEmpty()) throw ex;
+            submitError = ex;
+        }
+        RuntimeException notAllSubmitted = submitError;
+        return CompletableFuture.allOf(pending.toArray(new CompletableFuture[0]))
+                .handle((ok, ex) -> {
+                    List<String> done = new ArrayList<>(byId.size());
+                    List<String> failed = new ArrayList<>();
+                    byId.forEach((id, f) -> (f.isCompletedExceptionally() ? failed : done).add(id));
+                    dedup.release(failed);
+                    dedup.markProcessed(done);
+                    if (ex != null) throw new CompletionException(ex);
+                    if (notAllSubmitted != null) throw notAllSubmitted;
+                    return null;
+                });
+    }
+
+    private static boolean hasId(WhatsAppWebhookPayload.Message msg) {
+        return msg.id() != null && !msg.id().isBlank();
     }
 
     /**
-     * Асинхронна обробка webhook (викликається з контролера).
-     * Дозволяє швидко повернути 200 OK користувачу без затримок.
+     * Одне вхідне повідомлення (виконується в смузі відправника).
      */
-    @Async
-    public void handleWebhookAsync(String bodyJson) {
+    private void processMessage(WhatsAppWebhookPayload.Message msg) {
+        String from = msg.from();
         try {
-            log.debug("Processing WhatsApp webhook asynchronously");
-            handleWebhook(bodyJson);
-        } catch (Exception e) {
-            log.error("Error processing WhatsApp webhook asynchronously: {}", e.getMessage(), e);
+            // НОВЕ: отримуємо group_id якщо це групове повідомлення
+            String groupId = msg.groupId();
+
+            UserWhatsapp waAcc = provisioner.ensure(from, msg.profileName());
+
+            String type = msg.type() != null ? msg.type() : "";
+            if ("text".equals(type)) {
+                String text = msg.text() != null ? msg.text() : "";
+                handleText(from, waAcc, text, groupId);
+            } else if ("interactive".equals(type) || "button".equals(type)) {
+                if (msg.actionId() != null) handleAction(from, waAcc, msg.actionId(), groupId);
+            }
+        } catch (RuntimeException e) {
+            // виняток не ковтаємо: повідомлення знімається з захоплення, рядок черги повториться
+            log.error("Failed to process WhatsApp message {} from {}: {}", msg.id(), from, e.getMessage(), e);
+            throw e;
         }
     }
 
@@ -264,7 +294,7 @@ public class WhatsAppService {
             graph.sendText(toWaId, "ℹ️ Ви вже підписані на *" + event.getName() + "*");
         }
 
-        sendEventMenuForSubscribed(toWaId, event, isSubscribed, groupId);
+        sendEventMenuForSubscribed(toWaId, EventSummary.of(event), isSubscribed, groupId);
     }
 
     private void handleTextWithPostId(String toWaId, UserWhatsapp waAcc, long eventId, long postId, String groupId) {
@@ -307,7 +337,7 @@ public class WhatsAppService {
         if (isSubscribed) buttons.add(new WhatsAppGraphClient.Button("EVT_UNSUB:" + eventId, "Відписатися"));
         else buttons.add(new WhatsAppGraphClient.Button("EVT_SUB:" + eventId, "Підписатися"));
 
-        String link = resolveEventLinkUrl(event);
+        String link = EventSummary.of(event).linkUrl();
         if (link != null && !link.isBlank()) {
             buttons.add(new WhatsAppGraphClient.Button("OPEN_LINK:" + eventId, "Посилання"));
         }
@@ -323,11 +353,11 @@ public class WhatsAppService {
             if (id.startsWith("EVT_SUB:")) {
                 long eventId = parseId(id, "EVT_SUB:");
                 boolean nowActive = subscriptionService.toggleSubscription(eventId, waAcc, true);
-                Event event = events.findById(eventId).orElse(null);
+                EventSummary event = eventSummaries.get(eventId).orElse(null);
 
                 if (event != null) {
                     String source = groupId != null ? "групи" : "чату";
-                    graph.sendText(toWaId, "✅ Ви успішно підписались на *" + event.getName() + "*\n\n" +
+                    graph.sendText(toWaId, "✅ Ви успішно підписались на *" + event.name() + "*\n\n" +
                         "🎉 Тепер будете отримувати оновлення в " + source + "!");
                     sendEventMenu(toWaId, event, nowActive, groupId);
                 } else {
@@ -337,10 +367,10 @@ public class WhatsAppService {
             } else if (id.startsWith("EVT_UNSUB:")) {
                 long eventId = parseId(id, "EVT_UNSUB:");
                 boolean nowActive = subscriptionService.toggleSubscription(eventId, waAcc, false);
-                Event event = events.findById(eventId).orElse(null);
+                EventSummary event = eventSummaries.get(eventId).orElse(null);
 
                 if (event != null) {
-                    graph.sendText(toWaId, "❌ Ви відписались від *" + event.getName() + "*");
+                    graph.sendText(toWaId, "❌ Ви відписались від *" + event.name() + "*");
                 } else {
                     graph.sendText(toWaId, "❌ Підписка вимкнена");
                 }
@@ -348,12 +378,12 @@ public class WhatsAppService {
 
             } else if (id.startsWith("OPEN_LINK:")) {
                 long eventId = parseId(id, "OPEN_LINK:");
-                Event event = events.findById(eventId).orElse(null);
-                String link = resolveEventLinkUrl(event);
+                EventSummary event = eventSummaries.get(eventId).orElse(null);
+                String link = event != null ? event.linkUrl() : null;
                 if (link == null || link.isBlank()) {
                     graph.sendText(toWaId, "🔗 Посилання на івент ще не налаштоване.");
                 } else {
-                    graph.sendText(toWaId, "🔗 *" + (event != null ? event.getName() : "Івент") + "*\n\n" + link);
+                    graph.sendText(toWaId, "🔗 *" + event.name() + "*\n\n" + link);
                 }
 
             } else {
@@ -365,38 +395,14 @@ public class WhatsAppService {
         }
     }
 
-    private void sendEventMenu(String toWaId, Event event, boolean subscribed, String groupId) {
-        String eventName = event.getName() != null ? event.getName() : "Івент #" + event.getId();
-
-        String eventDate = "Дата невідома";
-        if (event.getStartAt() != null) {
-            try {
-                Object startAt = event.getStartAt();
-
-                if (startAt instanceof java.time.LocalDateTime) {
-                    eventDate = ((java.time.LocalDateTime) startAt)
-                        .format(java.time.format.DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm"));
-                } else if (startAt instanceof java.time.ZonedDateTime) {
-                    eventDate = ((java.time.ZonedDateTime) startAt)
-                        .format(java.time.format.DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm"));
-                } else if (startAt instanceof java.sql.Timestamp) {
-                    java.time.LocalDateTime ldt = ((java.sql.Timestamp) startAt).toLocalDateTime();
-                    eventDate = ldt.format(java.time.format.DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm"));
-                } else if (startAt instanceof java.util.Date) {
-                    java.text.SimpleDateFormat sdf = new java.text.SimpleDateFormat("dd.MM.yyyy HH:mm");
-                    eventDate = sdf.format((java.util.Date) startAt);
-                } else {
-                    eventDate = startAt.toString();
-                }
-            } catch (Exception e) {
-                log.warn("Failed to format date: {}", e.getMessage());
-            }
-        }
+    private void sendEventMenu(String toWaId, EventSummary event, boolean subscribed, String groupId) {
+        String eventName = event.displayName();
+        String eventDate = formatEventDate(event.startAt());
 
         String source = groupId != null ? "групі" : "особистому чаті";
         String text = "📅 *" + eventName + "*\n" +
                 "🕐 " + eventDate + "\n" +
-                (event.getLocation() != null ? "📍 " + event.getLocation() + "\n" : "") +
+                (event.location() != null ? "📍 " + event.location() + "\n" : "") +
                 "\n" +
                 (subscribed
                         ? "✅ Ви підписані. Оновлення прийдуть до " + source + "."
@@ -404,78 +410,52 @@ public class WhatsAppService {
 
         List<WhatsAppGraphClient.Button> buttons = new ArrayList<>();
 
-        if (subscribed) buttons.add(new WhatsAppGraphClient.Button("EVT_UNSUB:" + event.getId(), "Відписатися"));
-        else buttons.add(new WhatsAppGraphClient.Button("EVT_SUB:" + event.getId(), "Підписатися"));
+        if (subscribed) buttons.add(new WhatsAppGraphClient.Button("EVT_UNSUB:" + event.id(), "Відписатися"));
+        else buttons.add(new WhatsAppGraphClient.Button("EVT_SUB:" + event.id(), "Підписатися"));
 
-        String link = resolveEventLinkUrl(event);
+        String link = event.linkUrl();
         if (link != null && !link.isBlank()) {
-            buttons.add(new WhatsAppGraphClient.Button("OPEN_LINK:" + event.getId(), "Посилання"));
+            buttons.add(new WhatsAppGraphClient.Button("OPEN_LINK:" + event.id(), "Посилання"));
         }
 
         graph.sendReplyButtons(toWaId, text, buttons);
 
-        String startLink = buildWaMeStartLink(event.getId());
+        String startLink = buildWaMeStartLink(event.id());
         if (startLink != null) graph.sendText(toWaId, "💡 Поділіться цим посиланням:\n" + startLink);
     }
 
     /**
      * Спрощений меню для вже підписаних користувачів (тільки кнопка "Відписатися")
      */
-    private void sendEventMenuForSubscribed(String toWaId, Event event, boolean subscribed, String groupId) {
-        String eventName = event.getName() != null ? event.getName() : "Івент #" + event.getId();
-        String eventDate = formatEventDate(event.getStartAt());
+    private void sendEventMenuForSubscribed(String toWaId, EventSummary event, boolean subscribed, String groupId) {
+        String eventName = event.displayName();
+        String eventDate = formatEventDate(event.startAt());
 
         String source = groupId != null ? "групи" : "особистого чату";
         String text = "📅 *" + eventName + "*\n" +
                 "🕐 " + eventDate + "\n" +
-                (event.getLocation() != null ? "📍 " + event.getLocation() + "\n" : "") +
+                (event.location() != null ? "📍 " + event.location() + "\n" : "") +
                 "\n" +
                 "✅ Ви підписані. Оновлення прийдуть до " + source + ".";
 
         List<WhatsAppGraphClient.Button> buttons = new ArrayList<>();
-        buttons.add(new WhatsAppGraphClient.Button("EVT_UNSUB:" + event.getId(), "Відписатися"));
+        buttons.add(new WhatsAppGraphClient.Button("EVT_UNSUB:" + event.id(), "Відписатися"));
 
-        String link = resolveEventLinkUrl(event);
+        String link = event.linkUrl();
         if (link != null && !link.isBlank()) {
-            buttons.add(new WhatsAppGraphClient.Button("OPEN_LINK:" + event.getId(), "Посилання"));
+            buttons.add(new WhatsAppGraphClient.Button("OPEN_LINK:" + event.id(), "Посилання"));
         }
 
         graph.sendReplyButtons(toWaId, text, buttons);
 
-        String startLink = buildWaMeStartLink(event.getId());
+        String startLink = buildWaMeStartLink(event.id());
         if (startLink != null) graph.sendText(toWaId, "💡 Поділіться цим посиланням:\n" + startLink);
     }
 
-    private String extractInteractiveId(JsonNode msg) {
-        JsonNode interactive = msg.path("interactive");
-        String itype = interactive.path("type").asText("");
-        if ("button_reply".equals(itype)) return interactive.path("button_reply").path("id").asText(null);
-        if ("list_reply".equals(itype)) return interactive.path("list_reply").path("id").asText(null);
-        return null;
-    }
-
     private long parseId(String data, String prefix) {
         return Long.parseLong(data.substring(prefix.length()));
     }
 
-    private String resolveEventLinkUrl(Event e) {
-        if (e == null) return null;
-
-        try {
-            var m1 = e.getClass().getMethod("getUrl");
-            Object v1 = m1.invoke(e);
-            if (v1 instanceof String s1 && s1 != null && !s1.isBlank()) return s1.trim();
-        } catch (Exception ignore) {}
-
-        try {
-            var m2 = e.getClass().getMethod("getCoverUrl");
-            Object v2 = m2.invoke(e);
-            if (v2 instanceof String s2 && s2 != null && !s2.isBlank()) return s2.trim();
-        } catch (Exception ignore) {}
-
-        return null;
-    }
-
     private String buildWaMeStartLink(long eventId) {
         if (businessPhoneE164 == null || businessPhoneE164.isBlank()) return null;
 
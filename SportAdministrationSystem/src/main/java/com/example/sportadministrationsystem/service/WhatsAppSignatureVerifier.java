@@ -5,48 +5,79 @@ import org.springframework.stereotype.Component;
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 
+/**
+ * Перевірка X-Hub-Signature-256 над сирими байтами тіла.
+ *
+ * Mac і буфери — на потік (Mac не потокобезпечний, а init дорогий), ключ переініціалізується
+ * лише при зміні секрета. Очікуваний підпис декодується з hex у байти, порівняння — MessageDigest.isEqual
+ * (постійний час). На гарячому шляху алокацій немає.
+ */
 @Component
 public class WhatsAppSignatureVerifier {
 
-    public boolean isValid(String rawBody, String headerSignature, String appSecret) {
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final String PREFIX = "sha256=";
+    private static final int DIGEST_LENGTH = 32;
+
+    private final ThreadLocal<ThreadState> state = new ThreadLocal<>();
+
+    public boolean isValid(byte[] rawBody, String headerSignature, String appSecret) {
         if (appSecret == null || appSecret.isBlank()) {
             // Локально можна тестити без секрета
             return true;
         }
-        if (headerSignature == null || headerSignature.isBlank()) return false;
-
-        String[] parts = headerSignature.split("=", 2);
-        if (parts.length != 2) return false;
-        if (!"sha256".equalsIgnoreCase(parts[0])) return false;
+        if (rawBody == null || headerSignature == null) return false;
+        if (headerSignature.length() != PREFIX.length() + DIGEST_LENGTH * 2) return false;
+        if (!headerSignature.regionMatches(true, 0, PREFIX, 0, PREFIX.length())) return false;
 
-        String sigHex = parts[1];
-        String computed = hmacSha256Hex(appSecret, rawBody);
-        return constantTimeEquals(sigHex, computed);
-    }
-
-    private String hmacSha256Hex(String secret, String msg) {
+        ThreadState s = stateFor(appSecret);
+        if (!decodeHex(headerSignature, PREFIX.length(), s.expected)) return false;
         try {
-            Mac mac = Mac.getInstance("HmacSHA256");
-            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
-            byte[] out = mac.doFinal(msg.getBytes(StandardCharsets.UTF_8));
-            return toHex(out);
+            s.mac.update(rawBody);
+            s.mac.doFinal(s.computed, 0);
         } catch (Exception e) {
-            return "";
+            s.mac.reset();
+            return false;
         }
+        return MessageDigest.isEqual(s.expected, s.computed);
     }
 
-    private String toHex(byte[] bytes) {
-        StringBuilder sb = new StringBuilder(bytes.length * 2);
-        for (byte b : bytes) sb.append(String.format("%02x", b));
-        return sb.toString();
+    private ThreadState stateFor(String secret) {
+        ThreadState s = state.get();
+        if (s == null || !s.secret.equals(secret)) {
+            s = new ThreadState(secret);
+            state.set(s);
+        }
+        return s;
     }
 
-    private boolean constantTimeEquals(String a, String b) {
-        if (a == null || b == null) return false;
-        if (a.length() != b.length()) return false;
-        int r = 0;
-        for (int i = 0; i < a.length(); i++) r |= a.charAt(i) ^ b.charAt(i);
-        return r == 0;
+    /** Hex → байти у готовий буфер; false — недопустимий символ. */
+    private static boolean decodeHex(String src, int from, byte[] out) {
+        for (int i = 0; i < out.length; i++) {
+            int hi = Character.digit(src.charAt(from + 2 * i), 16);
+            int lo = Character.digit(src.charAt(from + 2 * i + 1), 16);
+            if (hi < 0 || lo < 0) return false;
+            out[i] = (byte) ((hi << 4) | lo);
+        }
+        return true;
+    }
+
+    private static final class ThreadState {
+        final String secret;
+        final Mac mac;
+        final byte[] expected = new byte[DIGEST_LENGTH];
+        final byte[] computed = new byte[DIGEST_LENGTH];
+
+        ThreadState(String secret) {
+            this.secret = secret;
+            try {
+                this.mac = Mac.getInstance(ALGORITHM);
+                this.mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM));
+            } catch (Exception e) {
+                throw new IllegalStateException("Cannot initialize " + ALGORITHM, e);
+            }
+        }
     }
 }
@@ -0,0 +1,153 @@
+package com.example.sportadministrationsystem.service;
+
+import com.example.sportadministrationsystem.dto.WhatsAppStatusUpdate;
+import com.example.sportadministrationsystem.model.DeliveryStatus;
+import com.example.sportadministrationsystem.repository.WhatsAppDeliveryTrackingBatchRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Прийом статус-вебхуків WhatsApp (sent/delivered/read/failed) у whatsapp_delivery_tracking.
+ *
+ * Статусів приходить у рази більше, ніж вхідних повідомлень, тому кожен колбек лише зливається
+ * в пам'яті з попередніми по message_id (статус просувається вперед, часи — перше значення),
+ * а раз на flush-interval-ms накопичене пишеться пачками upsert (WhatsAppDeliveryTrackingBatchRepository).
+ * Кілька колбеків одного повідомлення в межах вікна — один рядок у батчі.
+ * Якщо незаписаних повідомлень більше max-pending, запис іде одразу в потоці вебхука.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WhatsAppStatusIngestor {
+
+    private final WhatsAppDeliveryTrackingBatchRepository batchRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${whatsapp.status.batch-size:500}")
+    private int batchSize;
+
+    @Value("${whatsapp.status.max-pending:50000}")
+    private int maxPending;
+
+    private final ConcurrentHashMap<String, WhatsAppStatusUpdate> pending = new ConcurrentHashMap<>();
+
+    private Counter receivedCounter;
+    private Counter writtenCounter;
+
+    @PostConstruct
+    void initMetrics() {
+        Gauge.builder("whatsapp.status.pending", pending, ConcurrentHashMap::size).register(meterRegistry);
+        receivedCounter = Counter.builder("whatsapp.status.received").register(meterRegistry);
+        writtenCounter = Counter.builder("whatsapp.status.written").register(meterRegistry);
+    }
+
+    /**
+     * Один елемент value.statuses[] вебхука.
+     *
+     * @param status    sent | delivered | read | failed (інші ігноруються)
+     * @param timestamp секунди epoch з вебхука
+     */
+    public void accept(String messageId, String status, long timestamp, String recipient, String error) {
+        if (messageId == null || messageId.isBlank() || status == null) return;
+        DeliveryStatus s = switch (status) {
+            case "sent" -> DeliveryStatus.SENT;
+            case "delivered" -> DeliveryStatus.DELIVERED;
+            case "read" -> DeliveryStatus.READ;
+            case "failed" -> DeliveryStatus.FAILED;
+            default -> null;
+        };
+        if (s == null) return;
+        receivedCounter.increment();
+
+        LocalDateTime at = timestamp > 0
+                ? LocalDateTime.ofInstant(Instant.ofEpochSecond(timestamp), ZoneId.systemDefault())
+                : LocalDateTime.now();
+        // прочитане повідомлення точно доставлене (delivered-колбек може загубитись або прийти пізніше)
+        LocalDateTime deliveredAt = s == DeliveryStatus.DELIVERED || s == DeliveryStatus.READ ? at : null;
+        LocalDateTime readAt = s == DeliveryStatus.READ ? at : null;
+
+        pending.merge(messageId,
+                new WhatsAppStatusUpdate(messageId, recipient, s, at, deliveredAt, readAt,
+                        s == DeliveryStatus.FAILED ? error : null),
+                WhatsAppStatusIngestor::merge);
+
+        if (pending.size() >= maxPending) {
+            flush();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${whatsapp.status.flush-interval-ms:1000}")
+    public void scheduledFlush() {
+        flush();
+    }
+
+    @PreDestroy
+    void stop() {
+        flush();
+    }
+
+    /**
+     * Забирає накопичені статуси і пише їх пачками по batch-size. Повертає кількість записаних.
+     */
+    public synchronized int flush() {
+        int written = 0;
+        List<WhatsAppStatusUpdate> batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+        Iterator<String> keys = pending.keySet().iterator();
+        while (keys.hasNext()) {
+            WhatsAppStatusUpdate u = pending.remove(keys.next());
+            if (u != null) batch.add(u);
+            if (batch.size() >= batchSize) {
+                written += write(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        written += write(batch);
+        return written;
+    }
+
+    private int write(List<WhatsAppStatusUpdate> batch) {
+        if (batch.isEmpty()) return 0;
+        try {
+            batchRepository.upsertStatuses(batch);
+            writtenCounter.increment(batch.size());
+            return batch.size();
+        } catch (Exception ex) {
+            log.warn("Failed to apply {} WhatsApp status update(s): {}", batch.size(), ex.getMessage());
+            return 0;
+        }
+    }
+
+    /** Злиття двох станів одного повідомлення (порядок констант DeliveryStatus — порядок просування). */
+    static WhatsAppStatusUpdate merge(WhatsAppStatusUpdate a, WhatsAppStatusUpdate b) {
+        return new WhatsAppStatusUpdate(
+                a.messageId(),
+                a.recipient() != null ? a.recipient() : b.recipient(),
+                b.status().compareTo(a.status()) > 0 ? b.status() : a.status(),
+                earliest(a.firstSeenAt(), b.firstSeenAt()),
+                earliest(a.deliveredAt(), b.deliveredAt()),
+                earliest(a.readAt(), b.readAt()),
+                b.error() != null ? b.error() : a.error());
+    }
+
+    private static LocalDateTime earliest(LocalDateTime x, LocalDateTime y) {
+        if (x == null) return y;
+        if (y == null) return x;
+        return x.isBefore(y) ? x : y;
+    }
+}
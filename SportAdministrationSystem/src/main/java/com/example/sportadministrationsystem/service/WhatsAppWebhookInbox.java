@@ -0,0 +1,299 @@
+package com.example.sportadministrationsystem.service;
+
+import com.example.sportadministrationsystem.dto.WebhookInboxEntry;
+import com.example.sportadministrationsystem.repository.WhatsAppWebhookInboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Надійна вхідна черга вебхуків WhatsApp.
+ *
+ * Прийом: контролер після перевірки підпису викликає append() і відповідає 200 лише
+ * після коміту рядка. Запити, що прийшли одночасно, пишуться одним багаторядковим INSERT
+ * (group commit окремим потоком), тож під сплеском на БД іде одна вставка на пачку, а не на запит.
+ * Якщо черга прийому переповнена або БД недоступна — контролер віддає помилку, і Meta повторить доставку.
+ *
+ * Обробка: один потік-подавач на вузол забирає рядки пачками через SKIP LOCKED з орендою
+ * у порядку надходження і віддає їх WhatsAppService.handleWebhook — повідомлення далі
+ * розходяться по смугах whatsAppInboundExecutor за відправником (порядок у межах відправника,
+ * паралельність між відправниками). Кількість рядків у польоті обмежена max-in-flight;
+ * рядок стає DONE, коли оброблено всі його повідомлення, а невдалий повторюється через attempts * retry-backoff-ms
+ * (до max-attempts, далі FAILED). Оренда рядків у польоті продовжується
+ * кожну третину lease-ms, тож рядок, що довго стоїть у смузі за повільним відправником чи чекає
+ * на rate limiter, не забере інший вузол; після падіння вузла продовження припиняється
+ * і необроблене підхоплюється знову через lease-ms.
+ * На не-PostgreSQL БД (H2 у тестах) подавач не запускається.
+ * replay() повертає в чергу проміжок часу — для повторної обробки і навантажувальних тестів.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WhatsAppWebhookInbox {
+
+    private final WhatsAppWebhookInboxRepository inboxRepository;
+    private final WhatsAppService whatsAppService;
+    private final MeterRegistry meterRegistry;
+    private final DataSource dataSource;
+
+    @Value("${whatsapp.inbox.enabled:true}")
+    private boolean enabled;
+
+    @Value("${whatsapp.inbox.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${whatsapp.inbox.insert-batch-size:200}")
+    private int insertBatchSize;
+
+    @Value("${whatsapp.inbox.max-in-flight:500}")
+    private int maxInFlight;
+
+    @Value("${whatsapp.inbox.claim-batch-size:50}")
+    private int claimBatchSize;
+
+    @Value("${whatsapp.inbox.lease-ms:120000}")
+    private long leaseMs;
+
+    @Value("${whatsapp.inbox.max-attempts:5}")
+    private int maxAttempts;
+
+    // Пауза перед повтором невдалого рядка: attempts * retry-backoff-ms
+    @Value("${whatsapp.inbox.retry-backoff-ms:30000}")
+    private long retryBackoffMs;
+
+    @Value("${whatsapp.inbox.poll-interval-ms:1000}")
+    private long pollIntervalMs;
+
+    @Value("${whatsapp.inbox.retention-days:7}")
+    private int retentionDays;
+
+    private BlockingQueue<Pending> accepted;
+    private Semaphore inFlight;
+    private final ConcurrentLinkedQueue<Long> completed = new ConcurrentLinkedQueue<>();
+    private final Set<Long> processing = ConcurrentHashMap.newKeySet();
+    private long renewedAt;
+    private final Semaphore wakeUp = new Semaphore(0);
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean running;
+
+    private Counter storedCounter;
+    private Counter processedCounter;
+    private Counter failedCounter;
+
+    @PostConstruct
+    void init() {
+        accepted = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        inFlight = new Semaphore(Math.max(1, maxInFlight));
+        Gauge.builder("whatsapp.inbox.accept.queue", accepted, BlockingQueue::size).register(meterRegistry);
+        storedCounter = Counter.builder("whatsapp.inbox.stored").register(meterRegistry);
+        processedCounter = Counter.builder("whatsapp.inbox.processed").register(meterRegistry);
+        failedCounter = Counter.builder("whatsapp.inbox.failed").register(meterRegistry);
+        Gauge.builder("whatsapp.inbox.inflight", this, i -> maxInFlight - i.inFlight.availablePermits())
+                .register(meterRegistry);
+
+        // прийом працює одразу — інакше вебхуки до ApplicationReady отримали б помилку
+        running = true;
+        start(new Thread(this::writerLoop, "wa-inbox-writer"));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startFeeder() {
+        if (!enabled) return;
+        if (!isPostgres()) {
+            log.info("WhatsApp webhook inbox: feeder disabled, database is not PostgreSQL");
+            return;
+        }
+        start(new Thread(this::feederLoop, "wa-inbox-feeder"));
+        log.info("WhatsApp webhook inbox: feeder started (max in flight {})", maxInFlight);
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        threads.forEach(Thread::interrupt);
+        flushCompleted();
+    }
+
+    /**
+     * Ставить тіло вебхука в чергу запису. Future завершується після коміту INSERT
+     * (або з помилкою — тоді вебхук не підтверджуємо).
+     */
+    public CompletableFuture<Void> append(String body) {
+        Pending p = new Pending(body, new CompletableFuture<>());
+        if (!running || !accepted.offer(p)) {
+            p.stored().completeExceptionally(new IllegalStateException("Webhook inbox is full"));
+        }
+        return p.stored();
+    }
+
+    /**
+     * Повертає в чергу все, що надійшло в [from, to). Повертає кількість рядків.
+     * Статуси застосуються повторно; вже оброблені повідомлення відсіче WhatsAppMessageDedup.
+     */
+    public int replay(LocalDateTime from, LocalDateTime to) {
+        int n = inboxRepository.replay(from, to);
+        log.info("WhatsApp webhook inbox: {} row(s) between {} and {} queued for replay", n, from, to);
+        wakeUp.release();
+        return n;
+    }
+
+    @Scheduled(cron = "${whatsapp.inbox.purge-cron:0 30 3 * * *}")
+    public void purge() {
+        try {
+            int n = inboxRepository.purgeDone(LocalDateTime.now().minusDays(retentionDays));
+            if (n > 0) log.info("WhatsApp webhook inbox: purged {} processed row(s)", n);
+        } catch (Exception ex) {
+            log.warn("WhatsApp webhook inbox purge failed: {}", ex.getMessage());
+        }
+    }
+
+    private void start(Thread t) {
+        t.setDaemon(true);
+        threads.add(t);
+        t.start();
+    }
+
+    /** Group commit: усе, що накопичилось поки писалась попередня пачка, — одним INSERT. */
+    private void writerLoop() {
+        List<Pending> batch = new ArrayList<>(insertBatchSize);
+        while (running) {
+            try {
+                batch.add(accepted.take());
+                accepted.drainTo(batch, insertBatchSize - 1);
+
+                List<String> bodies = new ArrayList<>(batch.size());
+                for (Pending p : batch) bodies.add(p.body());
+                try {
+                    inboxRepository.insertBatch(bodies, LocalDateTime.now());
+                    storedCounter.increment(batch.size());
+                    batch.forEach(p -> p.stored().complete(null));
+                    wakeUp.release();
+                } catch (Exception ex) {
+                    log.error("Failed to store {} WhatsApp webhook(s): {}", batch.size(), ex.getMessage());
+                    batch.forEach(p -> p.stored().completeExceptionally(ex));
+                }
+                batch.clear();
+            } catch (InterruptedException ie) {
+                batch.forEach(p -> p.stored().completeExceptionally(ie));
+                accepted.forEach(p -> p.stored().completeExceptionally(ie));
+                return;
+            }
+        }
+    }
+
+    private void feederLoop() {
+        while (running) {
+            try {
+                flushCompleted();
+                renewLeases();
+
+                int free = Math.min(claimBatchSize, inFlight.availablePermits());
+                List<WebhookInboxEntry> claimed = free > 0 ? inboxRepository.claim(free, leaseMs) : List.of();
+                if (claimed.isEmpty()) {
+                    wakeUp.tryAcquire(pollIntervalMs, TimeUnit.MILLISECONDS);
+                    continue;
+                }
+
+                inFlight.acquire(claimed.size());
+                claimed.forEach(e -> processing.add(e.id()));
+                for (WebhookInboxEntry e : claimed) {
+                    CompletableFuture<Void> handled;
+                    try {
+                        handled = whatsAppService.handleWebhook(e.body());
+                    } catch (Exception ex) {
+                        handled = CompletableFuture.failedFuture(ex);
+                    }
+                    handled.whenComplete((ok, ex) -> {
+                        processing.remove(e.id());
+                        if (ex == null) {
+                            completed.add(e.id());
+                        } else {
+                            failedCounter.increment();
+                            log.warn("WhatsApp webhook #{} failed (attempt {}): {}", e.id(), e.attempts(), ex.getMessage());
+                            try {
+                                inboxRepository.markFailed(e.id(), ex.getMessage(), maxAttempts, retryBackoffMs);
+                            } catch (Exception markEx) {
+                                log.warn("Failed to mark webhook #{} as failed: {}", e.id(), markEx.getMessage());
+                            }
+                        }
+                        inFlight.release();
+                        wakeUp.release();
+                    });
+                }
+            } catch (InterruptedException ie) {
+                return;
+            } catch (Exception ex) {
+                if (!running) return;
+                log.warn("WhatsApp webhook inbox feeder error: {}", ex.getMessage());
+                try {
+                    Thread.sleep(pollIntervalMs);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /** Раз на третину оренди — продовжуємо оренду всіх рядків, що ще в польоті (один UPDATE). */
+    private void renewLeases() {
+        long now = System.currentTimeMillis();
+        if (now - renewedAt < leaseMs / 3) return;
+        renewedAt = now;
+        List<Long> ids = new ArrayList<>(processing);
+        if (ids.isEmpty()) return;
+        try {
+            inboxRepository.renew(ids, leaseMs);
+        } catch (Exception ex) {
+            log.warn("Failed to renew lease of {} webhook(s): {}", ids.size(), ex.getMessage());
+        }
+    }
+
+    private boolean isPostgres() {
+        try (Connection conn = dataSource.getConnection()) {
+            return conn.isWrapperFor(PGConnection.class);
+        } catch (Exception ex) {
+            log.warn("WhatsApp webhook inbox: cannot check database: {}", ex.getMessage());
+            return true;
+        }
+    }
+
+    /** Оброблені рядки позначаються DONE одним UPDATE на пачку. */
+    private void flushCompleted() {
+        List<Long> done = new ArrayList<>();
+        for (Long id; (id = completed.poll()) != null; ) done.add(id);
+        if (done.isEmpty()) return;
+        try {
+            inboxRepository.markDone(done);
+            processedCounter.increment(done.size());
+        } catch (Exception ex) {
+            // рядки лишаться PROCESSING і після оренди оброблятимуться повторно
+            log.warn("Failed to mark {} webhook(s) as done: {}", done.size(), ex.getMessage());
+        }
+    }
+
+    private record Pending(String body, CompletableFuture<Void> stored) {}
+}
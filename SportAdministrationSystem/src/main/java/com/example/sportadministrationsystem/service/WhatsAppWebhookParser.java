@@ -0,0 +1,239 @@
+package com.example.sportadministrationsystem.service;
+
+import com.example.sportadministrationsystem.dto.WhatsAppWebhookPayload;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Потоковий розбір тіла вебхука WhatsApp за один прохід (JsonParser спільного ObjectMapper).
+ *
+ * Проходить entry[].changes[].value один раз і забирає contacts/messages/statuses одразу
+ * у компактні записи WhatsAppWebhookPayload; усе інше (metadata, media, context тощо)
+ * пропускається через skipChildren без побудови дерева.
+ * Нерозбірний JSON — IOException (викликач вирішує, що з ним робити).
+ */
+@Component
+public class WhatsAppWebhookParser {
+
+    private final JsonFactory jsonFactory;
+
+    public WhatsAppWebhookParser(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    public WhatsAppWebhookPayload parse(byte[] body) throws IOException {
+        try (JsonParser p = jsonFactory.createParser(body)) {
+            return parse(p);
+        }
+    }
+
+    public WhatsAppWebhookPayload parse(String body) throws IOException {
+        try (JsonParser p = jsonFactory.createParser(body)) {
+            return parse(p);
+        }
+    }
+
+    private WhatsAppWebhookPayload parse(JsonParser p) throws IOException {
+        List<WhatsAppWebhookPayload.Message> messages = new ArrayList<>();
+        List<WhatsAppWebhookPayload.Status> statuses = new ArrayList<>();
+
+        p.nextToken();
+        fields(p, root -> {
+            if (!"entry".equals(root)) { p.skipChildren(); return; }
+            elements(p, () -> fields(p, entry -> {
+                if (!"changes".equals(entry)) { p.skipChildren(); return; }
+                elements(p, () -> fields(p, change -> {
+                    if (!"value".equals(change)) { p.skipChildren(); return; }
+                    readValue(p, messages, statuses);
+                }));
+            }));
+        });
+        return new WhatsAppWebhookPayload(messages, statuses);
+    }
+
+    /** Один value: contacts може йти після messages, тож ім'я профілю проставляємо в кінці. */
+    private void readValue(JsonParser p,
+                           List<WhatsAppWebhookPayload.Message> messages,
+                           List<WhatsAppWebhookPayload.Status> statuses) throws IOException {
+        List<MessageFields> local = new ArrayList<>();
+        String[] profileName = new String[1];
+
+        fields(p, field -> {
+            switch (field) {
+                case "contacts" -> elements(p, () -> fields(p, contact -> {
+                    if (!"profile".equals(contact)) { p.skipChildren(); return; }
+                    fields(p, profile -> {
+                        String v = text(p);
+                        if ("name".equals(profile) && profileName[0] == null) profileName[0] = v;
+                    });
+                }));
+                case "messages" -> elements(p, () -> local.add(readMessage(p)));
+                case "statuses" -> elements(p, () -> statuses.add(readStatus(p)));
+                default -> p.skipChildren();
+            }
+        });
+
+        for (MessageFields m : local) {
+            messages.add(new WhatsAppWebhookPayload.Message(
+                    m.id, m.from, profileName[0], m.type, m.text, m.actionId(), m.groupId));
+        }
+    }
+
+    private MessageFields readMessage(JsonParser p) throws IOException {
+        MessageFields m = new MessageFields();
+        fields(p, field -> {
+            switch (field) {
+                case "id" -> m.id = text(p);
+                case "from" -> m.from = text(p);
+                case "type" -> m.type = text(p);
+                case "group_id" -> m.groupId = text(p);
+                case "text" -> fields(p, f -> {
+                    String v = text(p);
+                    if ("body".equals(f)) m.text = v;
+                });
+                case "button" -> fields(p, f -> {
+                    String v = text(p);
+                    if ("payload".equals(f)) m.buttonPayload = v;
+                });
+                case "interactive" -> fields(p, f -> {
+                    switch (f) {
+                        case "type" -> m.interactiveType = text(p);
+                        case "button_reply" -> m.buttonReplyId = replyId(p);
+                        case "list_reply" -> m.listReplyId = replyId(p);
+                        default -> p.skipChildren();
+                    }
+                });
+                default -> p.skipChildren();
+            }
+        });
+        return m;
+    }
+
+    private WhatsAppWebhookPayload.Status readStatus(JsonParser p) throws IOException {
+        StatusFields st = new StatusFields();
+        fields(p, field -> {
+            switch (field) {
+                case "id" -> st.id = text(p);
+                case "status" -> st.status = text(p);
+                case "recipient_id" -> st.recipient = text(p);
+                case "timestamp" -> {
+                    if (p.currentToken().isScalarValue()) st.timestamp = p.getValueAsLong(0);
+                    else p.skipChildren();
+                }
+                case "errors" -> elements(p, () -> {
+                    boolean first = !st.hasError;
+                    st.hasError = true;
+                    fields(p, f -> {
+                        String v = text(p);
+                        if (!first) return;
+                        if ("code".equals(f)) st.errorCode = v;
+                        else if ("title".equals(f)) st.errorTitle = v;
+                    });
+                });
+                default -> p.skipChildren();
+            }
+        });
+        return new WhatsAppWebhookPayload.Status(st.id, st.status, st.timestamp, st.recipient, st.error());
+    }
+
+    private String replyId(JsonParser p) throws IOException {
+        String[] id = new String[1];
+        fields(p, f -> {
+            String v = text(p);
+            if ("id".equals(f)) id[0] = v;
+        });
+        return id[0];
+    }
+
+    /* ===================== Streaming helpers ===================== */
+
+    @FunctionalInterface
+    private interface FieldHandler {
+        /** Викликається на значенні поля; мусить повністю його спожити (прочитати або skipChildren). */
+        void on(String field) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface ElementHandler {
+        /** Викликається на START_OBJECT елемента масиву. */
+        void on() throws IOException;
+    }
+
+    /** Поля поточного об'єкта; не-об'єкт пропускається. */
+    private static void fields(JsonParser p, FieldHandler handler) throws IOException {
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return;
+        }
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.currentName();
+            p.nextToken();
+            handler.on(name);
+        }
+    }
+
+    /** Об'єкти поточного масиву; не-масив і не-об'єктні елементи пропускаються. */
+    private static void elements(JsonParser p, ElementHandler handler) throws IOException {
+        if (p.currentToken() != JsonToken.START_ARRAY) {
+            p.skipChildren();
+            return;
+        }
+        while (p.nextToken() != JsonToken.END_ARRAY) {
+            if (p.currentToken() == JsonToken.START_OBJECT) handler.on();
+            else p.skipChildren();
+        }
+    }
+
+    /** Скалярне значення як рядок; null/об'єкт/масив — null (вкладене пропускається). */
+    private static String text(JsonParser p) throws IOException {
+        JsonToken t = p.currentToken();
+        if (t == JsonToken.VALUE_NULL) return null;
+        if (t.isScalarValue()) return p.getValueAsString();
+        p.skipChildren();
+        return null;
+    }
+
+    private static final class MessageFields {
+        String id;
+        String from;
+        String type;
+        String text;
+        String groupId;
+        String buttonPayload;
+        String interactiveType;
+        String buttonReplyId;
+        String listReplyId;
+
+        String actionId() {
+            if ("interactive".equals(type)) {
+                if ("button_reply".equals(interactiveType)) return buttonReplyId;
+                if ("list_reply".equals(interactiveType)) return listReplyId;
+                return null;
+            }
+            if ("button".equals(type)) return buttonPayload;
+            return null;
+        }
+    }
+
+    private static final class StatusFields {
+        String id;
+        String status;
+        String recipient;
+        long timestamp;
+        boolean hasError;
+        String errorCode;
+        String errorTitle;
+
+        String error() {
+            if (!hasError) return null;
+            return "code " + (errorCode != null ? errorCode : "?") + ": " + (errorTitle != null ? errorTitle : "");
+        }
+    }
+}
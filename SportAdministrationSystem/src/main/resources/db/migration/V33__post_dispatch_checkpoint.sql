@@ -0,0 +1,9 @@
+-- V33__post_dispatch_checkpoint.sql
+-- Контрольна точка розсилки поста підписникам (чанками по id підписки).
+-- Дозволяє іншому воркеру продовжити перервану розсилку з місця зупинки.
+
+CREATE TABLE IF NOT EXISTS post_dispatch_checkpoint (
+    post_id              BIGINT PRIMARY KEY REFERENCES posts(id) ON DELETE CASCADE,
+    last_subscription_id BIGINT    NOT NULL DEFAULT 0,   -- останній оброблений id підписки
+    updated_at           TIMESTAMP NOT NULL DEFAULT NOW()
+);
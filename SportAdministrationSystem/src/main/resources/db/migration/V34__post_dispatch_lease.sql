@@ -0,0 +1,10 @@
+-- V34__post_dispatch_lease.sql
+-- Оренда (lease) поста на час розсилки: статус DISPATCHING + власник і термін оренди.
+-- Прострочені оренди повертає в SCHEDULED ріпер (PostDispatchScheduler.reap).
+ALTER TABLE posts
+    ADD COLUMN IF NOT EXISTS lease_owner VARCHAR(128),
+    ADD COLUMN IF NOT EXISTS lease_until TIMESTAMP;
+
+CREATE INDEX IF NOT EXISTS idx_posts_dispatching_lease
+    ON posts (lease_until)
+    WHERE status = 'DISPATCHING';
@@ -0,0 +1,12 @@
+-- V35__dispatcher_partitions.sql
+-- Живі вузли диспетчера (heartbeat): за ними ділимо партиції черги постів (event_id mod N).
+
+CREATE TABLE IF NOT EXISTS dispatcher_nodes (
+    node_id      VARCHAR(128) PRIMARY KEY,
+    heartbeat_at TIMESTAMP NOT NULL DEFAULT NOW()
+);
+
+-- Перевірка "у івенту вже є пост у розсилці" (по одному посту на івент — порядок у межах івенту)
+CREATE INDEX IF NOT EXISTS idx_posts_dispatching_event
+    ON posts (event_id)
+    WHERE status = 'DISPATCHING';
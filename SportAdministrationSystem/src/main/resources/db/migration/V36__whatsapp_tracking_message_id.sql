@@ -0,0 +1,13 @@
+-- V36__whatsapp_tracking_message_id.sql
+-- Статус-вебхуки WhatsApp оновлюють трекінг пачками по message_id (INSERT ... ON CONFLICT),
+-- тому message_id має бути унікальним (рядки без message_id — невдалі відправки — не індексуються).
+
+DELETE FROM whatsapp_delivery_tracking t
+ USING whatsapp_delivery_tracking d
+ WHERE t.message_id IS NOT NULL
+   AND t.message_id = d.message_id
+   AND t.id > d.id;
+
+CREATE UNIQUE INDEX IF NOT EXISTS uq_delivery_tracking_message_id
+    ON whatsapp_delivery_tracking (message_id)
+    WHERE message_id IS NOT NULL;
@@ -0,0 +1,23 @@
+-- V37__whatsapp_webhook_inbox.sql
+-- Вхідна черга вебхуків WhatsApp: сире тіло (підпис уже перевірено) пишеться до відповіді 200,
+-- воркери забирають рядки через FOR UPDATE SKIP LOCKED з орендою (locked_until).
+
+CREATE TABLE IF NOT EXISTS whatsapp_webhook_inbox (
+    id           BIGSERIAL PRIMARY KEY,
+    body         TEXT        NOT NULL,
+    received_at  TIMESTAMP   NOT NULL DEFAULT NOW(),
+    status       VARCHAR(16) NOT NULL DEFAULT 'NEW',   -- NEW | PROCESSING | DONE | FAILED
+    attempts     INT         NOT NULL DEFAULT 0,
+    locked_until TIMESTAMP,
+    processed_at TIMESTAMP,
+    error        TEXT
+);
+
+-- Черга воркерів: лише необроблені рядки
+CREATE INDEX IF NOT EXISTS idx_webhook_inbox_pending
+    ON whatsapp_webhook_inbox (id)
+    WHERE status IN ('NEW', 'PROCESSING');
+
+-- Повтор за проміжком часу і прибирання старих рядків
+CREATE INDEX IF NOT EXISTS idx_webhook_inbox_received_at
+    ON whatsapp_webhook_inbox (received_at);
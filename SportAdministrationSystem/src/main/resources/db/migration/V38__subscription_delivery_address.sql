@@ -0,0 +1,87 @@
+-- V38__subscription_delivery_address.sql
+-- Адреса доставки (tg_chat_id / wa_id) прямо на рядку підписки: сторінки аудиторії розсилки
+-- і лічильники підписників читаються одним частковим покривним індексом (index-only scan),
+-- без JOIN до user_telegram / user_whatsapp і без DISTINCT.
+-- Синхронізація — тригерами: при вставці/зміні акаунта підписки та при зміні адреси в акаунті.
+
+-- 1) Колонки
+ALTER TABLE event_subscriptions          ADD COLUMN IF NOT EXISTS tg_chat_id BIGINT;
+ALTER TABLE event_subscriptions_whatsapp ADD COLUMN IF NOT EXISTS wa_id VARCHAR(32);
+
+-- 2) Разове заповнення
+UPDATE event_subscriptions es
+   SET tg_chat_id = ut.tg_chat_id
+  FROM user_telegram ut
+ WHERE ut.id = es.user_telegram_id
+   AND es.tg_chat_id IS DISTINCT FROM ut.tg_chat_id;
+
+UPDATE event_subscriptions_whatsapp esw
+   SET wa_id = uw.wa_id
+  FROM user_whatsapp uw
+ WHERE uw.id = esw.user_whatsapp_id
+   AND esw.wa_id IS DISTINCT FROM uw.wa_id;
+
+-- 3) Підписка: адреса береться з акаунта при вставці (у т.ч. upsert перемикача) і зміні акаунта
+CREATE OR REPLACE FUNCTION trg_event_subscriptions_address() RETURNS trigger AS $$
+BEGIN
+    SELECT tg_chat_id INTO NEW.tg_chat_id FROM user_telegram WHERE id = NEW.user_telegram_id;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS event_subscriptions_address_biu ON event_subscriptions;
+CREATE TRIGGER event_subscriptions_address_biu
+    BEFORE INSERT OR UPDATE OF user_telegram_id ON event_subscriptions
+    FOR EACH ROW EXECUTE FUNCTION trg_event_subscriptions_address();
+
+CREATE OR REPLACE FUNCTION trg_event_subscriptions_whatsapp_address() RETURNS trigger AS $$
+BEGIN
+    SELECT wa_id INTO NEW.wa_id FROM user_whatsapp WHERE id = NEW.user_whatsapp_id;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS event_subscriptions_whatsapp_address_biu ON event_subscriptions_whatsapp;
+CREATE TRIGGER event_subscriptions_whatsapp_address_biu
+    BEFORE INSERT OR UPDATE OF user_whatsapp_id ON event_subscriptions_whatsapp
+    FOR EACH ROW EXECUTE FUNCTION trg_event_subscriptions_whatsapp_address();
+
+-- 4) Акаунт: зміна адреси розноситься по всіх його підписках
+CREATE OR REPLACE FUNCTION trg_user_telegram_address() RETURNS trigger AS $$
+BEGIN
+    UPDATE event_subscriptions SET tg_chat_id = NEW.tg_chat_id WHERE user_telegram_id = NEW.id;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS user_telegram_address_au ON user_telegram;
+CREATE TRIGGER user_telegram_address_au
+    AFTER UPDATE OF tg_chat_id ON user_telegram
+    FOR EACH ROW WHEN (OLD.tg_chat_id IS DISTINCT FROM NEW.tg_chat_id)
+    EXECUTE FUNCTION trg_user_telegram_address();
+
+CREATE OR REPLACE FUNCTION trg_user_whatsapp_address() RETURNS trigger AS $$
+BEGIN
+    UPDATE event_subscriptions_whatsapp SET wa_id = NEW.wa_id WHERE user_whatsapp_id = NEW.id;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS user_whatsapp_address_au ON user_whatsapp;
+CREATE TRIGGER user_whatsapp_address_au
+    AFTER UPDATE OF wa_id ON user_whatsapp
+    FOR EACH ROW WHEN (OLD.wa_id IS DISTINCT FROM NEW.wa_id)
+    EXECUTE FUNCTION trg_user_whatsapp_address();
+
+-- Для тригера вище (і каскадного видалення акаунта) — пошук підписок за акаунтом
+CREATE INDEX IF NOT EXISTS ix_es_user_telegram ON event_subscriptions (user_telegram_id);
+
+-- 5) Часткові покривні індекси аудиторії: (event_id, id) — keyset-сторінки йдуть у порядку індексу,
+--    адреса в INCLUDE — index-only scan і для сторінок, і для count(*)
+CREATE INDEX IF NOT EXISTS ix_es_event_audience
+    ON event_subscriptions (event_id, id) INCLUDE (tg_chat_id)
+    WHERE active AND tg_chat_id IS NOT NULL;
+
+CREATE INDEX IF NOT EXISTS ix_esw_event_audience
+    ON event_subscriptions_whatsapp (event_id, id) INCLUDE (wa_id)
+    WHERE active AND wa_id IS NOT NULL;
@@ -0,0 +1,105 @@
+-- V39__event_subscriber_counts.sql
+-- Лічильники активних підписників по івенту й каналу, що підтримуються тригерами при записі,
+-- замість count(...) на кожен запит фронтенду.
+-- Рахуємо те саме, що й раніше: active і з адресою доставки (tg_chat_id / wa_id).
+--
+-- Лічильник розбитий на смуги (stripe = id підписки % 8): одночасні підписки на популярний івент
+-- оновлюють різні рядки, а не чекають на блокування одного. Значення — сума смуг.
+-- Зовнішнього ключа на events немає: при видаленні івенту каскадне видалення підписок ще оновлює
+-- лічильники, а осиротілі рядки прибирає звірка (SubscriberCountService.reconcile).
+
+CREATE TABLE IF NOT EXISTS event_subscriber_counts (
+    event_id     BIGINT      NOT NULL,
+    channel      VARCHAR(16) NOT NULL,   -- TELEGRAM | WHATSAPP
+    stripe       SMALLINT    NOT NULL,
+    active_count BIGINT      NOT NULL DEFAULT 0,
+    PRIMARY KEY (event_id, channel, stripe)
+);
+
+-- 1) Разове заповнення (смуга 0)
+INSERT INTO event_subscriber_counts (event_id, channel, stripe, active_count)
+SELECT event_id, 'TELEGRAM', 0, COUNT(*)
+  FROM event_subscriptions
+ WHERE active AND tg_chat_id IS NOT NULL
+ GROUP BY event_id
+ON CONFLICT (event_id, channel, stripe) DO UPDATE SET active_count = EXCLUDED.active_count;
+
+INSERT INTO event_subscriber_counts (event_id, channel, stripe, active_count)
+SELECT event_id, 'WHATSAPP', 0, COUNT(*)
+  FROM event_subscriptions_whatsapp
+ WHERE active AND wa_id IS NOT NULL
+ GROUP BY event_id
+ON CONFLICT (event_id, channel, stripe) DO UPDATE SET active_count = EXCLUDED.active_count;
+
+-- 2) Зміна однієї смуги
+CREATE OR REPLACE FUNCTION bump_event_subscriber_count(p_event_id BIGINT, p_channel VARCHAR,
+                                                       p_stripe INT, p_delta INT) RETURNS void AS $$
+BEGIN
+    INSERT INTO event_subscriber_counts AS c (event_id, channel, stripe, active_count)
+    VALUES (p_event_id, p_channel, p_stripe, p_delta)
+    ON CONFLICT (event_id, channel, stripe)
+    DO UPDATE SET active_count = c.active_count + EXCLUDED.active_count;
+END;
+$$ LANGUAGE plpgsql;
+
+-- 3) Функції тригерів: -1 за старий стан, +1 за новий; без зміни "врахованості" — нічого
+CREATE OR REPLACE FUNCTION trg_event_subscriptions_count() RETURNS trigger AS $$
+DECLARE
+    was_counted BOOLEAN := false;
+    is_counted  BOOLEAN := false;
+BEGIN
+    IF TG_OP <> 'INSERT' THEN
+        was_counted := COALESCE(OLD.active AND OLD.tg_chat_id IS NOT NULL, false);
+    END IF;
+    IF TG_OP <> 'DELETE' THEN
+        is_counted := COALESCE(NEW.active AND NEW.tg_chat_id IS NOT NULL, false);
+    END IF;
+    IF TG_OP = 'UPDATE' AND was_counted = is_counted AND OLD.event_id = NEW.event_id THEN
+        RETURN NULL;
+    END IF;
+
+    IF was_counted THEN
+        PERFORM bump_event_subscriber_count(OLD.event_id, 'TELEGRAM', (OLD.id % 8)::int, -1);
+    END IF;
+    IF is_counted THEN
+        PERFORM bump_event_subscriber_count(NEW.event_id, 'TELEGRAM', (NEW.id % 8)::int, 1);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION trg_event_subscriptions_whatsapp_count() RETURNS trigger AS $$
+DECLARE
+    was_counted BOOLEAN := false;
+    is_counted  BOOLEAN := false;
+BEGIN
+    IF TG_OP <> 'INSERT' THEN
+        was_counted := COALESCE(OLD.active AND OLD.wa_id IS NOT NULL, false);
+    END IF;
+    IF TG_OP <> 'DELETE' THEN
+        is_counted := COALESCE(NEW.active AND NEW.wa_id IS NOT NULL, false);
+    END IF;
+    IF TG_OP = 'UPDATE' AND was_counted = is_counted AND OLD.event_id = NEW.event_id THEN
+        RETURN NULL;
+    END IF;
+
+    IF was_counted THEN
+        PERFORM bump_event_subscriber_count(OLD.event_id, 'WHATSAPP', (OLD.id % 8)::int, -1);
+    END IF;
+    IF is_counted THEN
+        PERFORM bump_event_subscriber_count(NEW.event_id, 'WHATSAPP', (NEW.id % 8)::int, 1);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- 4) Тригери
+DROP TRIGGER IF EXISTS event_subscriptions_count_aiud ON event_subscriptions;
+CREATE TRIGGER event_subscriptions_count_aiud
+    AFTER INSERT OR DELETE OR UPDATE OF active, tg_chat_id, event_id ON event_subscriptions
+    FOR EACH ROW EXECUTE FUNCTION trg_event_subscriptions_count();
+
+DROP TRIGGER IF EXISTS event_subscriptions_whatsapp_count_aiud ON event_subscriptions_whatsapp;
+CREATE TRIGGER event_subscriptions_whatsapp_count_aiud
+    AFTER INSERT OR DELETE OR UPDATE OF active, wa_id, event_id ON event_subscriptions_whatsapp
+    FOR EACH ROW EXECUTE FUNCTION trg_event_subscriptions_whatsapp_count();
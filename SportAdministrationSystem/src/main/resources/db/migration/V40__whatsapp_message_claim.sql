@@ -0,0 +1,12 @@
+-- V40__whatsapp_message_claim.sql
+-- processed_whatsapp_messages стає також атомарним захопленням повідомлення в обробку:
+-- рядок вставляється зі state = 'PROCESSING' і орендою до обробки (INSERT ... ON CONFLICT ... RETURNING
+-- вирішує "вперше бачимо" між вузлами), після успіху стає 'DONE', при невдачі — видаляється.
+-- Захоплення з простроченою орендою (вузол упав посеред обробки) може перехопити інший вузол.
+-- Наявні рядки — вже оброблені повідомлення.
+
+ALTER TABLE processed_whatsapp_messages
+    ADD COLUMN IF NOT EXISTS state VARCHAR(16) NOT NULL DEFAULT 'DONE';   -- PROCESSING | DONE
+
+ALTER TABLE processed_whatsapp_messages
+    ADD COLUMN IF NOT EXISTS locked_until TIMESTAMP;
@@ -0,0 +1,108 @@
+package com.example.sportadministrationsystem.benchmark;
+
+import com.example.sportadministrationsystem.service.WhatsAppSignatureVerifier;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Перевірка підпису webhook на тілі ~10 KB: попередній варіант (String, новий Mac на виклик,
+ * String.format на кожен байт, порівняння рядків) проти поточного WhatsAppSignatureVerifier.
+ *
+ * Запуск (gc-профайлер показує gc.alloc.rate.norm — байти на операцію):
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt -Dmdep.includeScope=test
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) \
+ *     com.example.sportadministrationsystem.benchmark.WhatsAppSignatureBenchmark
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WhatsAppSignatureBenchmark {
+
+    private static final String SECRET = "benchmark-app-secret";
+
+    private final WhatsAppSignatureVerifier verifier = new WhatsAppSignatureVerifier();
+
+    private byte[] bodyBytes;
+    private String bodyString;
+    private String header;
+
+    @Setup
+    public void setUp() throws Exception {
+        bodyString = webhookBody(10 * 1024);
+        bodyBytes = bodyString.getBytes(StandardCharsets.UTF_8);
+
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        header = "sha256=" + HexFormat.of().formatHex(mac.doFinal(bodyBytes));
+
+        if (!legacyIsValid(bodyString, header, SECRET) || !verifier.isValid(bodyBytes, header, SECRET)) {
+            throw new IllegalStateException("Signature mismatch in benchmark setup");
+        }
+    }
+
+    @Benchmark
+    public boolean legacyString() {
+        return legacyIsValid(bodyString, header, SECRET);
+    }
+
+    @Benchmark
+    public boolean rawBytes() {
+        return verifier.isValid(bodyBytes, header, SECRET);
+    }
+
+    /** Текстове повідомлення WhatsApp, доповнене до потрібного розміру. */
+    private static String webhookBody(int size) {
+        String head = "{\"object\":\"whatsapp_business_account\",\"entry\":[{\"id\":\"1\",\"changes\":[{\"field\":\"messages\","
+                + "\"value\":{\"messaging_product\":\"whatsapp\",\"contacts\":[{\"profile\":{\"name\":\"Бенчмарк\"},\"wa_id\":\"380501234567\"}],"
+                + "\"messages\":[{\"from\":\"380501234567\",\"id\":\"wamid.benchmark\",\"timestamp\":\"1700000000\",\"type\":\"text\","
+                + "\"text\":{\"body\":\"";
+        String tail = "\"}}]}}]}]}";
+        StringBuilder sb = new StringBuilder(size).append(head);
+        while (sb.length() < size - tail.length()) sb.append("Привіт! ");
+        return sb.append(tail).toString();
+    }
+
+    /* Попередня реалізація — база для порівняння */
+
+    private static boolean legacyIsValid(String rawBody, String headerSignature, String appSecret) {
+        String[] parts = headerSignature.split("=", 2);
+        if (parts.length != 2) return false;
+        if (!"sha256".equalsIgnoreCase(parts[0])) return false;
+        String computed;
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(appSecret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            byte[] out = mac.doFinal(rawBody.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(out.length * 2);
+            for (byte b : out) sb.append(String.format("%02x", b));
+            computed = sb.toString();
+        } catch (Exception e) {
+            computed = "";
+        }
+        String sigHex = parts[1];
+        if (sigHex.length() != computed.length()) return false;
+        int r = 0;
+        for (int i = 0; i < sigHex.length(); i++) r |= sigHex.charAt(i) ^ computed.charAt(i);
+        return r == 0;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(WhatsAppSignatureBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
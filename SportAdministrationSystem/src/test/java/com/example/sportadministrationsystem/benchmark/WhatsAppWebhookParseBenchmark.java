@@ -0,0 +1,110 @@
+package com.example.sportadministrationsystem.benchmark;
+
+import com.example.sportadministrationsystem.dto.WhatsAppWebhookPayload;
+import com.example.sportadministrationsystem.service.WhatsAppWebhookParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Розбір тіла вебхука WhatsApp: JsonNode-дерево з обходом (як було в контролері й обробнику)
+ * проти потокового WhatsAppWebhookParser. Тіло — кілька value з contacts, metadata
+ * і сумішшю text / interactive / button / image повідомлень.
+ *
+ * Запуск — як WhatsAppSignatureBenchmark, з класом WhatsAppWebhookParseBenchmark.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WhatsAppWebhookParseBenchmark {
+
+    @Param({"1", "10", "50"})
+    public int messages;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final WhatsAppWebhookParser parser = new WhatsAppWebhookParser(objectMapper);
+
+    private byte[] body;
+
+    @Setup
+    public void setUp() throws Exception {
+        body = payload(messages).getBytes(StandardCharsets.UTF_8);
+        WhatsAppWebhookPayload parsed = parser.parse(body);
+        if (parsed.messages().size() != messages || parsed.messageIds().size() != messages) {
+            throw new IllegalStateException("Unexpected parse result: " + parsed);
+        }
+    }
+
+    @Benchmark
+    public void tree(Blackhole bh) throws Exception {
+        JsonNode root = objectMapper.readTree(body);
+        for (JsonNode e : root.path("entry")) {
+            for (JsonNode ch : e.path("changes")) {
+                JsonNode value = ch.path("value");
+                String profileName = value.path("contacts").path(0).path("profile").path("name").asText(null);
+                for (JsonNode msg : value.path("messages")) {
+                    bh.consume(msg.path("id").asText(null));
+                    bh.consume(msg.path("from").asText(null));
+                    bh.consume(msg.path("type").asText(""));
+                    bh.consume(msg.path("text").path("body").asText(""));
+                    bh.consume(msg.path("interactive").path("button_reply").path("id").asText(null));
+                    bh.consume(msg.path("button").path("payload").asText(null));
+                    bh.consume(profileName);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public WhatsAppWebhookPayload streaming() throws Exception {
+        return parser.parse(body);
+    }
+
+    /** Тіло з n повідомленнями від різних відправників, по 5 на value (спільне з WhatsAppWebhookParserTest). */
+    public static String payload(int n) {
+        StringBuilder sb = new StringBuilder("{\"object\":\"whatsapp_business_account\",\"entry\":[");
+        for (int v = 0; v * 5 < n; v++) {
+            if (v > 0) sb.append(',');
+            sb.append("{\"id\":\"10203040").append(v).append("\",\"changes\":[{\"field\":\"messages\",\"value\":{")
+                    .append("\"messaging_product\":\"whatsapp\",")
+                    .append("\"metadata\":{\"display_phone_number\":\"380441234567\",\"phone_number_id\":\"1122334455\"},")
+                    .append("\"contacts\":[{\"profile\":{\"name\":\"Користувач ").append(v).append("\"},\"wa_id\":\"38050000").append(v).append("\"}],")
+                    .append("\"messages\":[");
+            for (int i = v * 5; i < Math.min(n, v * 5 + 5); i++) {
+                if (i > v * 5) sb.append(',');
+                sb.append("{\"from\":\"38050000").append(v).append("\",\"id\":\"wamid.HBgMMzgwNTAwMDAwMDAwFQIAEhgg").append(i)
+                        .append("\",\"timestamp\":\"1700000").append(i).append("\",");
+                switch (i % 4) {
+                    case 0 -> sb.append("\"type\":\"text\",\"text\":{\"body\":\"START 12\"}}");
+                    case 1 -> sb.append("\"type\":\"interactive\",\"interactive\":{\"type\":\"button_reply\",")
+                            .append("\"button_reply\":{\"id\":\"EVT_SUB:12\",\"title\":\"Підписатися\"}},")
+                            .append("\"context\":{\"from\":\"380441234567\",\"id\":\"wamid.ctx").append(i).append("\"}}");
+                    case 2 -> sb.append("\"type\":\"button\",\"button\":{\"payload\":\"EVT_UNSUB:12\",\"text\":\"Відписатися\"}}");
+                    default -> sb.append("\"type\":\"image\",\"image\":{\"caption\":\"Фото з івенту\",\"mime_type\":\"image/jpeg\",")
+                            .append("\"sha256\":\"a1b2c3d4e5f6\",\"id\":\"img").append(i).append("\"}}");
+                }
+            }
+            sb.append("]}}]}");
+        }
+        return sb.append("]}").toString();
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(WhatsAppWebhookParseBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
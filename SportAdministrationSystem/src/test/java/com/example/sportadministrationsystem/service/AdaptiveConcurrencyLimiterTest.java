@@ -0,0 +1,115 @@
+package com.example.sportadministrationsystem.service;
+
+import com.example.sportadministrationsystem.service.AdaptiveConcurrencyLimiter.Outcome;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    @DisplayName("ріст +1/limit лише коли ліміт вибраний хоча б наполовину")
+    void increasesOnlyWhenSaturated() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = limiter(10, 1, 100, 5_000);
+
+        acquire(limiter, 1);
+        limiter.release(Outcome.SUCCESS, started());
+        assertThat(limiter.getLimit()).isEqualTo(10.0);
+
+        acquire(limiter, 5);
+        limiter.release(Outcome.SUCCESS, started());
+        assertThat(limiter.getLimit()).isCloseTo(10.1, within(1e-9));
+    }
+
+    @Test
+    @DisplayName("THROTTLED: одне зниження на вікно — відмови запитів, відправлених до нього, не рахуються")
+    void oneBackoffPerWindow() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = limiter(16, 1, 100, 5_000);
+        acquire(limiter, 4);
+        long sentBefore = started();
+
+        for (int i = 0; i < 4; i++) limiter.release(Outcome.THROTTLED, sentBefore);
+        assertThat(limiter.getLimit()).isEqualTo(8.0);
+
+        // запит, відправлений уже після зниження, знижує знову
+        acquire(limiter, 1);
+        limiter.release(Outcome.THROTTLED, started());
+        assertThat(limiter.getLimit()).isEqualTo(4.0);
+    }
+
+    @Test
+    @DisplayName("висока затримка — м'яке зниження ×0.9, теж не частіше разу на вікно")
+    void highLatencySoftBackoff() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = limiter(10, 1, 100, 20);
+        acquire(limiter, 2);
+        long sent = started();
+        Thread.sleep(40);
+
+        limiter.release(Outcome.SUCCESS, sent);
+        limiter.release(Outcome.SUCCESS, sent);
+
+        assertThat(limiter.getLimit()).isCloseTo(9.0, within(1e-9));
+    }
+
+    @Test
+    @DisplayName("IGNORE (помилки, таймаути) ліміт не змінює")
+    void ignoreKeepsLimit() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = limiter(4, 1, 100, 5_000);
+        acquire(limiter, 4);
+
+        for (int i = 0; i < 4; i++) limiter.release(Outcome.IGNORE, started());
+
+        assertThat(limiter.getLimit()).isEqualTo(4.0);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    @DisplayName("ліміт завжди в межах [min, max], початковий теж")
+    void clampedToMinMax() throws Exception {
+        assertThat(limiter(500, 2, 50, 5_000).getLimit()).isEqualTo(50.0);
+        assertThat(limiter(0, 2, 50, 5_000).getLimit()).isEqualTo(2.0);
+
+        AdaptiveConcurrencyLimiter low = limiter(8, 2, 50, 5_000);
+        for (int i = 0; i < 10; i++) {
+            acquire(low, 1);
+            low.release(Outcome.THROTTLED, started());
+        }
+        assertThat(low.getLimit()).isEqualTo(2.0);
+
+        AdaptiveConcurrencyLimiter high = limiter(3, 1, 4, 5_000);
+        acquire(high, 3);
+        for (int i = 0; i < 200; i++) {
+            high.release(Outcome.SUCCESS, started());
+            acquire(high, 1);
+        }
+        assertThat(high.getLimit()).isEqualTo(4.0);
+    }
+
+    @Test
+    @DisplayName("acquire() чекає вільного слота не довше maxWait")
+    void acquireWaitsForSlot() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = limiter(2, 1, 10, 5_000);
+        acquire(limiter, 2);
+
+        assertThat(limiter.acquire(50)).isFalse();
+
+        limiter.release(Outcome.IGNORE, started());
+        assertThat(limiter.acquire(50)).isTrue();
+        assertThat(limiter.getInFlight()).isEqualTo(2);
+    }
+
+    private static AdaptiveConcurrencyLimiter limiter(int initial, int min, int max, long latencyThresholdMs) {
+        return new AdaptiveConcurrencyLimiter("test", initial, min, max, 0.5, latencyThresholdMs);
+    }
+
+    private static void acquire(AdaptiveConcurrencyLimiter limiter, int n) throws InterruptedException {
+        for (int i = 0; i < n; i++) assertThat(limiter.acquire(0)).isTrue();
+    }
+
+    /** Момент відправки — гарантовано пізніше за попереднє зниження (окреме "вікно"). */
+    private static long started() throws InterruptedException {
+        Thread.sleep(1);
+        return System.nanoTime();
+    }
+}
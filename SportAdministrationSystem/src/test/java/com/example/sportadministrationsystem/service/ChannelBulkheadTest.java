@@ -0,0 +1,73 @@
+package com.example.sportadministrationsystem.service;
+
+import com.example.sportadministrationsystem.model.Channel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+
+class ChannelBulkheadTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private ChannelBulkhead bulkhead;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (bulkhead != null) bulkhead.shutdown();
+    }
+
+    @Test
+    @DisplayName("freeSlots() = вільні потоки + місце в черзі")
+    void freeSlotsCountsThreadsAndQueue() throws Exception {
+        bulkhead = new ChannelBulkhead(Channel.TELEGRAM, 2, 3).bindTo(registry);
+        assertThat(bulkhead.freeSlots()).isEqualTo(5);
+
+        fill(1, 0);
+        assertThat(bulkhead.freeSlots()).isEqualTo(4);
+
+        fill(1, 3);
+        assertThat(bulkhead.freeSlots()).isZero();
+    }
+
+    @Test
+    @DisplayName("переповнений пул відхиляє задачу і рахує її в dispatch.bulkhead.rejected")
+    void rejectsWhenFull() throws Exception {
+        bulkhead = new ChannelBulkhead(Channel.WHATSAPP, 1, 1).bindTo(registry);
+        fill(1, 1);
+        assertThat(bulkhead.freeSlots()).isZero();
+
+        assertThatThrownBy(() -> bulkhead.execute(() -> { }))
+                .isInstanceOf(RejectedExecutionException.class);
+        assertThat(registry.get("dispatch.bulkhead.rejected").tag("channel", "whatsapp").functionCounter().count())
+                .isEqualTo(1.0);
+    }
+
+    /** Займає running потоків (чекаючи, поки задачі стартують) і queued місць у черзі задачами, що чекають release. */
+    private void fill(int running, int queued) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(running);
+        for (int i = 0; i < running; i++) {
+            bulkhead.execute(() -> {
+                started.countDown();
+                await(release);
+            });
+        }
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        for (int i = 0; i < queued; i++) bulkhead.execute(() -> await(release));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
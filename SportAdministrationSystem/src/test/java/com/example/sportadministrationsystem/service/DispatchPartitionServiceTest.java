@@ -0,0 +1,69 @@
+package com.example.sportadministrationsystem.service;
+
+import com.example.sportadministrationsystem.repository.DispatcherNodeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DispatchPartitionServiceTest {
+
+    @Mock DispatcherNodeRepository nodeRepository;
+
+    private DispatchPartitionService service;
+
+    @BeforeEach
+    void init() {
+        service = new DispatchPartitionService(nodeRepository, new NodeIdentity("node-b"));
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "partitions", 6);
+        ReflectionTestUtils.setField(service, "nodeTtlMs", 180_000L);
+    }
+
+    @Test
+    @DisplayName("ownedPartitions() лише читає реєстр — heartbeat пише окремий метод")
+    void ownedPartitionsIsReadOnly() {
+        when(nodeRepository.liveNodes(anyLong())).thenReturn(List.of("node-a", "node-b", "node-c"));
+
+        assertThat(service.ownedPartitions()).containsExactly(1, 4);
+        assertThat(service.ownedPartitions()).containsExactly(1, 4);
+
+        verify(nodeRepository, never()).heartbeat(any());
+        verify(nodeRepository, never()).purgeStale(anyLong());
+    }
+
+    @Test
+    @DisplayName("heartbeat() відзначає вузол і прибирає давно мертві")
+    void heartbeatWritesRegistry() {
+        service.heartbeat();
+
+        verify(nodeRepository).heartbeat("node-b");
+        verify(nodeRepository).purgeStale(1_800_000L);
+    }
+
+    @Test
+    @DisplayName("до першого heartbeat вузол рахує себе на своєму місці у відсортованому списку")
+    void selfNotYetRegistered() {
+        when(nodeRepository.liveNodes(anyLong())).thenReturn(List.of("node-a", "node-c"));
+
+        assertThat(service.ownedPartitions()).containsExactly(1, 4);
+    }
+
+    @Test
+    @DisplayName("помилка heartbeat не пробивається в планувальник")
+    void heartbeatFailureIsLogged() {
+        doThrow(new IllegalStateException("db down")).when(nodeRepository).heartbeat("node-b");
+
+        assertThatCode(service::heartbeat).doesNotThrowAnyException();
+    }
+}
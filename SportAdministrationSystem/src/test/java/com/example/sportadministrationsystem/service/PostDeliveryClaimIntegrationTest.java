@@ -0,0 +1,167 @@
+package com.example.sportadministrationsystem.service;
+
+import com.example.sportadministrationsystem.repository.PostDeliveryClaimRepository;
+import com.example.sportadministrationsystem.repository.PostDeliveryClaimRepository.Claim;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Захоплення due-повторів доставки (CTE з FOR UPDATE SKIP LOCKED + вставка спроби-заглушки).
+ *
+ * Потрібен справжній PostgreSQL зі схемою Flyway, тому тест вмикається змінною PG_TEST_URL
+ * (як SubscriptionToggleConcurrencyTest).
+ */
+@EnabledIfEnvironmentVariable(named = "PG_TEST_URL", matches = ".+")
+class PostDeliveryClaimIntegrationTest {
+
+    private static final int NODES = 8;
+    private static final int MAX_ATTEMPTS = 5;
+
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbc;
+    private PostDeliveryClaimRepository claims;
+    private ExecutorService pool;
+
+    private long eventId;
+    private long postId;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(System.getenv("PG_TEST_URL"));
+        dataSource.setUsername(envOr("PG_TEST_USER", "postgres"));
+        dataSource.setPassword(envOr("PG_TEST_PASSWORD", ""));
+        dataSource.setMaximumPoolSize(NODES);
+        jdbc = new JdbcTemplate(dataSource);
+        claims = new PostDeliveryClaimRepository(jdbc);
+        pool = Executors.newFixedThreadPool(NODES);
+
+        eventId = jdbc.queryForObject(
+                "INSERT INTO events (name, location) VALUES ('retry-claim-test', 'test') RETURNING id", Long.class);
+        postId = post("PUBLISHED");
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+        // post_delivery видаляється каскадом
+        jdbc.update("DELETE FROM posts WHERE event_id = ?", eventId);
+        jdbc.update("DELETE FROM events WHERE id = ?", eventId);
+        jdbc.update("DELETE FROM event_subscriber_counts WHERE event_id = ?", eventId);
+        dataSource.close();
+    }
+
+    @Test
+    @DisplayName("due FAILED-спроба захоплюється вставкою заглушки; заглушка блокує повторне захоплення")
+    void claimInsertsPlaceholderAttempt() {
+        attempt(postId, "101", 1, "FAILED", 2);
+
+        assertThat(claimOwn()).containsExactly(new Claim(postId, "101", 2));
+        assertThat(jdbc.queryForObject(
+                "SELECT error FROM post_delivery WHERE post_id = ? AND target = '101' AND attempt_no = 2",
+                String.class, postId)).isEqualTo(PostDeliveryClaimRepository.IN_PROGRESS);
+
+        // заглушка — остання спроба таргету і ще не due: інший вузол таргет не бере
+        assertThat(claimOwn()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("заглушка впалого вузла сама стає due за звичайним backoff")
+    void abandonedPlaceholderBecomesDue() {
+        attempt(postId, "102", 1, "FAILED", 2);
+        assertThat(claimOwn()).hasSize(1);
+
+        // вузол упав, результат не записано; backoff спроби 2 — 2 хв
+        jdbc.update("UPDATE post_delivery SET created_at = NOW() - interval '3 minutes' "
+                + "WHERE post_id = ? AND target = '102' AND attempt_no = 2", postId);
+
+        assertThat(claimOwn()).containsExactly(new Claim(postId, "102", 3));
+    }
+
+    @Test
+    @DisplayName("не захоплюються: не due, уже доставлені, вичерпані спроби, пост не PUBLISHED/FAILED")
+    void skipsIneligibleAttempts() {
+        attempt(postId, "201", 1, "FAILED", 0);             // backoff 1 хв ще не минув
+        attempt(postId, "202", 1, "FAILED", 10);
+        attempt(postId, "202", 2, "SENT", 9);               // остання спроба — успішна
+        attempt(postId, "203", MAX_ATTEMPTS, "FAILED", 60); // спроби вичерпано
+        attempt(post("DISPATCHING"), "204", 1, "FAILED", 10);
+        attempt(postId, "205", 1, "FAILED", 10);            // єдина due
+
+        assertThat(claimOwn()).containsExactly(new Claim(postId, "205", 2));
+    }
+
+    @Test
+    @DisplayName("backoff росте експонентою від номера спроби")
+    void backoffIsExponential() {
+        attempt(postId, "301", 3, "FAILED", 3); // потрібно 4 хв
+        attempt(postId, "302", 3, "FAILED", 5);
+
+        assertThat(claimOwn()).containsExactly(new Claim(postId, "302", 4));
+    }
+
+    @Test
+    @DisplayName("кілька вузлів одночасно — кожну due-спробу захоплює рівно один, партія обмежена batch-size")
+    void concurrentClaimsAreDisjoint() throws Exception {
+        int targets = 200;
+        for (int i = 0; i < targets; i++) attempt(postId, "t-" + i, 1, "FAILED", 2);
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<Claim>>> results = new ArrayList<>();
+        for (int n = 0; n < NODES; n++) {
+            results.add(pool.submit(() -> {
+                start.await();
+                List<Claim> mine = new ArrayList<>();
+                for (List<Claim> batch; !(batch = claims.claimDueRetries(20, MAX_ATTEMPTS)).isEmpty(); ) {
+                    assertThat(batch.size()).isLessThanOrEqualTo(20);
+                    mine.addAll(batch);
+                }
+                return mine;
+            }));
+        }
+        start.countDown();
+
+        List<Claim> all = new ArrayList<>();
+        for (Future<List<Claim>> f : results) all.addAll(f.get(60, TimeUnit.SECONDS));
+
+        all.removeIf(c -> c.postId() != postId);
+        assertThat(all).hasSize(targets).doesNotHaveDuplicates().allMatch(c -> c.attemptNo() == 2);
+        assertThat(jdbc.queryForObject("SELECT count(*) FROM post_delivery WHERE post_id = ?", Integer.class, postId))
+                .isEqualTo(targets * 2);
+    }
+
+    /* ===================== helpers ===================== */
+
+    /** Захоплення лише серед постів цього тесту (спільна тестова БД може мати інші due-спроби). */
+    private List<Claim> claimOwn() {
+        List<Long> own = jdbc.queryForList("SELECT id FROM posts WHERE event_id = ?", Long.class, eventId);
+        return claims.claimDueRetries(100, MAX_ATTEMPTS).stream().filter(c -> own.contains(c.postId())).toList();
+    }
+
+    private long post(String status) {
+        return jdbc.queryForObject("""
+                INSERT INTO posts (event_id, title, body, publish_at, status, audience, channel)
+                VALUES (?, 'retry-claim-test', 'body', NOW(), ?, 'SUBSCRIBERS', 'TELEGRAM') RETURNING id
+                """, Long.class, eventId, status);
+    }
+
+    private void attempt(long post, String target, int attemptNo, String status, int minutesAgo) {
+        jdbc.update("""
+                INSERT INTO post_delivery (post_id, target, attempt_no, status, error, created_at)
+                VALUES (?, ?, ?, ?, NULL, NOW() - interval '1 minute' * ?)
+                """, post, target, attemptNo, status, minutesAgo);
+    }
+
+    private static String envOr(String name, String def) {
+        String v = System.getenv(name);
+        return v != null ? v : def;
+    }
+}
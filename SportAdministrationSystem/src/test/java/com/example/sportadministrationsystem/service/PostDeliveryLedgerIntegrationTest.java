@@ -0,0 +1,140 @@
+package com.example.sportadministrationsystem.service;
+
+import com.example.sportadministrationsystem.dto.DeliveryTotals;
+import com.example.sportadministrationsystem.dto.TargetAttempt;
+import com.example.sportadministrationsystem.service.PostDeliveryLedger.Outcome;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Журнал доставки і контрольна точка розсилки на справжній схемі.
+ *
+ * Запити — нативний SQL PostgreSQL (ON CONFLICT, BOOL_OR, FILTER), тому тест вмикається
+ * змінною PG_TEST_URL (див. SubscriptionToggleConcurrencyTest). Транзакція тесту вимкнена:
+ * recordChunk() комітить кожен чанк окремо (REQUIRES_NEW), як і в розсилці.
+ */
+@DataJpaTest
+@Import(PostDeliveryLedger.class)
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIfEnvironmentVariable(named = "PG_TEST_URL", matches = ".+")
+class PostDeliveryLedgerIntegrationTest {
+
+    @DynamicPropertySource
+    static void postgres(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> System.getenv("PG_TEST_URL"));
+        registry.add("spring.datasource.username", () -> envOr("PG_TEST_USER", "postgres"));
+        registry.add("spring.datasource.password", () -> envOr("PG_TEST_PASSWORD", ""));
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+    }
+
+    @Autowired PostDeliveryLedger ledger;
+    @Autowired JdbcTemplate jdbc;
+
+    private long eventId;
+    private long postId;
+
+    @BeforeEach
+    void setUp() {
+        eventId = jdbc.queryForObject(
+                "INSERT INTO events (name, location) VALUES ('ledger-test', 'test') RETURNING id", Long.class);
+        postId = jdbc.queryForObject("""
+                INSERT INTO posts (event_id, title, body, publish_at, status, audience, channel)
+                VALUES (?, 'ledger-test', 'body', NOW(), 'DISPATCHING', 'SUBSCRIBERS', 'TELEGRAM') RETURNING id
+                """, Long.class, eventId);
+    }
+
+    @AfterEach
+    void tearDown() {
+        // post_delivery і post_dispatch_checkpoint видаляються каскадом
+        jdbc.update("DELETE FROM posts WHERE id = ?", postId);
+        jdbc.update("DELETE FROM events WHERE id = ?", eventId);
+        jdbc.update("DELETE FROM event_subscriber_counts WHERE event_id = ?", eventId);
+    }
+
+    @Test
+    void chunksAdvanceCheckpointAndResumeFromIt() {
+        assertThat(ledger.checkpoint(postId)).isZero();
+
+        ledger.recordChunk(postId, List.of(Outcome.sent("101", 1), Outcome.failed("102", 1, "blocked")), 20L);
+        assertThat(ledger.checkpoint(postId)).isEqualTo(20L);
+
+        // "новий вузол" після падіння: бачить точку і вже відправлене
+        Map<String, TargetAttempt> seen = ledger.attempts(postId, List.of("101", "102", "103"));
+        assertThat(seen).containsOnlyKeys("101", "102");
+        assertThat(seen.get("101").getSent()).isTrue();
+        assertThat(seen.get("102").getSent()).isFalse();
+        assertThat(seen.get("102").getAttemptNo()).isEqualTo(1);
+
+        // продовження: друга спроба 102 і наступний чанк
+        ledger.recordChunk(postId, List.of(Outcome.sent("102", 2), Outcome.sent("103", 1)), 40L);
+        assertThat(ledger.checkpoint(postId)).isEqualTo(40L);
+        assertThat(ledger.attempts(postId, List.of("102")).get("102").getAttemptNo()).isEqualTo(2);
+
+        DeliveryTotals totals = ledger.totals(postId);
+        assertThat(totals.getSent()).isEqualTo(3L);
+        assertThat(totals.getFailed()).isZero();
+
+        ledger.complete(postId);
+        assertThat(ledger.checkpoint(postId)).isZero();
+    }
+
+    @Test
+    void checkpointNeverMovesBackAndZeroKeepsIt() {
+        ledger.recordChunk(postId, List.of(Outcome.sent("201", 1)), 50L);
+        // запізнілий запис старішого чанку не відкочує точку
+        ledger.recordChunk(postId, List.of(Outcome.sent("202", 1)), 30L);
+        // чанк без точки (відкладені невдалі таргети) лише пише результати
+        ledger.recordChunk(postId, List.of(Outcome.failed("203", 1, "timeout")), 0L);
+
+        assertThat(ledger.checkpoint(postId)).isEqualTo(50L);
+        assertThat(ledger.totals(postId).getFailed()).isEqualTo(1L);
+    }
+
+    @Test
+    void repeatedChunkIsIdempotent() {
+        ledger.recordChunk(postId, List.of(Outcome.failed("301", 1, "timeout")), 10L);
+        // повтор того самого чанку після збою коміту: той самий (target, attempt) оновлюється, а не дублюється
+        ledger.recordChunk(postId, List.of(Outcome.sent("301", 1)), 10L);
+
+        assertThat(jdbc.queryForObject("SELECT count(*) FROM post_delivery WHERE post_id = ?", Integer.class, postId))
+                .isEqualTo(1);
+        assertThat(ledger.totals(postId).getSent()).isEqualTo(1L);
+    }
+
+    @Test
+    void failedChunkRollsBackTogetherWithCheckpoint() {
+        ledger.recordChunk(postId, List.of(Outcome.sent("401", 1)), 10L);
+
+        // другий таргет порушує NOT NULL — чанк і точка відкочуються разом
+        assertThatThrownBy(() -> ledger.recordChunk(postId,
+                List.of(Outcome.sent("402", 1), Outcome.sent(null, 1)), 20L))
+                .isInstanceOf(RuntimeException.class);
+
+        assertThat(ledger.checkpoint(postId)).isEqualTo(10L);
+        assertThat(ledger.attempts(postId, List.of("402"))).isEmpty();
+    }
+
+    private static String envOr(String name, String def) {
+        String v = System.getenv(name);
+        return v != null ? v : def;
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.sportadministrationsystem.service;
+
+import com.example.sportadministrationsystem.dto.ScheduledPostRef;
+import com.example.sportadministrationsystem.model.PostStatus;
+import com.example.sportadministrationsystem.repository.PostRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PostDueTimerTest {
+
+    @Mock PostRepository postRepository;
+    @Mock PostService postService;
+
+    @InjectMocks PostDueTimer timer;
+
+    @BeforeEach
+    void init() {
+        ReflectionTestUtils.setField(timer, "enabled", true);
+        ReflectionTestUtils.setField(timer, "horizonMs", 180_000L);
+        ReflectionTestUtils.setField(timer, "maxEntries", 100);
+        ReflectionTestUtils.setField(timer, "skewMs", 0L);
+        ReflectionTestUtils.setField(timer, "retryMs", 100L);
+        ReflectionTestUtils.setField(timer, "maxRetryMs", 400L);
+        timer.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        timer.stop();
+    }
+
+    @Test
+    @DisplayName("спрацьовує в publishAt, а не раніше")
+    void firesAtPublishTime() {
+        when(postService.dispatchDuePosts()).thenReturn(List.of(1L));
+
+        timer.onScheduleChanged(new PostScheduleChangedEvent(1L, PostStatus.SCHEDULED, LocalDateTime.now().plusNanos(400_000_000)));
+
+        verify(postService, after(200).never()).dispatchDuePosts();
+        verify(postService, timeout(2000)).dispatchDuePosts();
+    }
+
+    @Test
+    @DisplayName("пост спрацював, але не захоплений — таймер повторює його через retry-ms, поки не запуститься")
+    void unclaimedPostIsRearmed() {
+        when(postService.dispatchDuePosts()).thenReturn(List.of(), List.of(2L));
+        when(postRepository.findScheduledIds(anyCollection())).thenReturn(List.of(2L));
+
+        timer.onScheduleChanged(new PostScheduleChangedEvent(2L, PostStatus.SCHEDULED, LocalDateTime.now().minusSeconds(1)));
+
+        verify(postService, timeout(2000).times(2)).dispatchDuePosts();
+        // запущений пост більше не спрацьовує
+        verify(postService, after(400).times(2)).dispatchDuePosts();
+        verify(postRepository, times(1)).findScheduledIds(anyCollection());
+    }
+
+    @Test
+    @DisplayName("не захоплений пост, що вже не SCHEDULED, з таймера прибирається")
+    void noLongerScheduledPostIsForgotten() {
+        when(postService.dispatchDuePosts()).thenReturn(List.of());
+        when(postRepository.findScheduledIds(anyCollection())).thenReturn(List.of());
+
+        timer.onScheduleChanged(new PostScheduleChangedEvent(3L, PostStatus.SCHEDULED, LocalDateTime.now().minusSeconds(1)));
+
+        verify(postService, timeout(2000)).dispatchDuePosts();
+        verify(postService, after(400).times(1)).dispatchDuePosts();
+    }
+
+    @Test
+    @DisplayName("скасований пост (зміна статусу) не спрацьовує")
+    void cancelledPostDoesNotFire() {
+        timer.onScheduleChanged(new PostScheduleChangedEvent(4L, PostStatus.SCHEDULED, LocalDateTime.now().plusNanos(200_000_000)));
+        timer.onScheduleChanged(new PostScheduleChangedEvent(4L, PostStatus.DRAFT, null));
+
+        verify(postService, after(500).never()).dispatchDuePosts();
+    }
+
+    @Test
+    @DisplayName("повтор подвоюється з кожним промахом до стелі dispatcher.interval-ms")
+    void retryDelayBacksOff() {
+        assertThat(timer.retryDelay(1)).isEqualTo(100);
+        assertThat(timer.retryDelay(2)).isEqualTo(200);
+        assertThat(timer.retryDelay(3)).isEqualTo(400);
+        assertThat(timer.retryDelay(4)).isEqualTo(400);
+        assertThat(timer.retryDelay(100)).isEqualTo(400);
+    }
+
+    @Test
+    @DisplayName("пост, заблокований довгою розсилкою, не опитується з частотою retry-ms")
+    void blockedPostIsPolledWithBackoff() {
+        when(postService.dispatchDuePosts()).thenReturn(List.of());
+        when(postRepository.findScheduledIds(anyCollection())).thenReturn(List.of(6L));
+
+        timer.onScheduleChanged(new PostScheduleChangedEvent(6L, PostStatus.SCHEDULED, LocalDateTime.now().minusSeconds(1)));
+
+        // спрацювання в 0, 100, 300, 700, 1100 мс — а без backoff було б ~12
+        verify(postService, after(1250).atMost(6)).dispatchDuePosts();
+        verify(postService, atLeast(4)).dispatchDuePosts();
+    }
+
+    @Test
+    @DisplayName("завершення розсилки будить таймер — пост, що чекав повтору, запускається одразу і з таймера прибирається")
+    void dispatchFinishedWakesWaitingPost() {
+        ReflectionTestUtils.setField(timer, "retryMs", 60_000L);
+        ReflectionTestUtils.setField(timer, "maxRetryMs", 60_000L);
+        when(postService.dispatchDuePosts()).thenReturn(List.of(), List.of(7L));
+        when(postRepository.findScheduledIds(anyCollection())).thenReturn(List.of(7L));
+
+        timer.onScheduleChanged(new PostScheduleChangedEvent(7L, PostStatus.SCHEDULED, LocalDateTime.now().minusSeconds(1)));
+        verify(postService, timeout(2000)).dispatchDuePosts();
+        verify(postRepository, timeout(2000)).findScheduledIds(anyCollection());
+
+        timer.onDispatchFinished(new PostDispatchFinishedEvent(1L, 1L));
+
+        verify(postService, timeout(2000).times(2)).dispatchDuePosts();
+        assertThat((Map<?, ?>) ReflectionTestUtils.getField(timer, "byPost")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("refill() не скидає повтор простроченого поста на негайне спрацювання")
+    void refillKeepsBackoff() {
+        ReflectionTestUtils.setField(timer, "retryMs", 60_000L);
+        ReflectionTestUtils.setField(timer, "maxRetryMs", 60_000L);
+        LocalDateTime publishAt = LocalDateTime.now().minusSeconds(1);
+        when(postService.dispatchDuePosts()).thenReturn(List.of());
+        when(postRepository.findScheduledIds(anyCollection())).thenReturn(List.of(8L));
+        when(postRepository.findScheduledUntil(any(), anyInt())).thenReturn(List.of(ref(8L, publishAt)));
+
+        timer.onScheduleChanged(new PostScheduleChangedEvent(8L, PostStatus.SCHEDULED, publishAt));
+        verify(postRepository, timeout(2000)).findScheduledIds(anyCollection());
+
+        timer.refill();
+
+        verify(postService, after(300).times(1)).dispatchDuePosts();
+    }
+
+    private static ScheduledPostRef ref(Long id, LocalDateTime publishAt) {
+        return new ScheduledPostRef() {
+            @Override public Long getId() { return id; }
+            @Override public LocalDateTime getPublishAt() { return publishAt; }
+        };
+    }
+}
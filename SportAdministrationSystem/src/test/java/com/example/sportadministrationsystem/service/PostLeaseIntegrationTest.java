@@ -0,0 +1,201 @@
+package com.example.sportadministrationsystem.service;
+
+import com.example.sportadministrationsystem.model.Channel;
+import com.example.sportadministrationsystem.repository.PostLeaseRepository;
+import com.example.sportadministrationsystem.repository.PostLeaseRepository.Claimed;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Оренда постів на справжній схемі: claimDue / claim / renew / release / settle / reapExpired.
+ *
+ * Потрібен справжній PostgreSQL зі схемою Flyway, тому тест вмикається змінною PG_TEST_URL
+ * (як SubscriptionToggleConcurrencyTest). Івенти тесту мають явні id, що дають одну партицію
+ * (PARTITION з PARTITIONS), у яку не потрапляє жоден звичайний івент.
+ */
+@EnabledIfEnvironmentVariable(named = "PG_TEST_URL", matches = ".+")
+class PostLeaseIntegrationTest {
+
+    private static final int NODES = 8;
+    private static final int PARTITIONS = 1_000_000_000;
+    private static final int PARTITION = 999_999_999;
+    private static final long LEASE_MS = 60_000;
+
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbc;
+    private PostLeaseRepository leases;
+    private ExecutorService pool;
+    private final List<Long> events = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(System.getenv("PG_TEST_URL"));
+        dataSource.setUsername(envOr("PG_TEST_USER", "postgres"));
+        dataSource.setPassword(envOr("PG_TEST_PASSWORD", ""));
+        dataSource.setMaximumPoolSize(NODES);
+        jdbc = new JdbcTemplate(dataSource);
+        leases = new PostLeaseRepository(jdbc);
+        pool = Executors.newFixedThreadPool(NODES);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+        for (Long e : events) {
+            jdbc.update("DELETE FROM posts WHERE event_id = ?", e);
+            jdbc.update("DELETE FROM events WHERE id = ?", e);
+            jdbc.update("DELETE FROM event_subscriber_counts WHERE event_id = ?", e);
+        }
+        dataSource.close();
+    }
+
+    @Test
+    @DisplayName("claimDue(): найраніший due пост івенту, івенти з активною розсилкою пропускаються, ліміт на канал")
+    void claimDueRespectsEventOrderAndChannelLimits() {
+        long e1 = event();
+        long first = post(e1, "SCHEDULED", "TELEGRAM", -10);
+        long second = post(e1, "SCHEDULED", "TELEGRAM", -5);
+        post(e1, "SCHEDULED", "TELEGRAM", 60);
+
+        long e2 = event();
+        dispatching(e2, "node-x", 60);
+        post(e2, "SCHEDULED", "TELEGRAM", -20);
+
+        post(event(), "SCHEDULED", "WHATSAPP", -30);       // пул WhatsApp заповнений (ліміт 0)
+        long early = post(event(), "SCHEDULED", "TELEGRAM", -7);
+        post(event(), "SCHEDULED", "TELEGRAM", -1);         // понад ліміт Telegram (2)
+
+        List<Claimed> claimed = leases.claimDue("node-a", LEASE_MS, PARTITIONS, PARTITION, 2, 0, 10);
+
+        assertThat(claimed).containsExactlyInAnyOrder(
+                new Claimed(first, Channel.TELEGRAM), new Claimed(early, Channel.TELEGRAM));
+        assertThat(owner(first)).isEqualTo("node-a");
+        assertThat(status(second)).isEqualTo("SCHEDULED");
+
+        // поки first у розсилці, другий пост івенту чекає; після завершення — його черга
+        assertThat(leases.claimDue("node-a", LEASE_MS, PARTITIONS, PARTITION, 10, 0, 10))
+                .extracting(Claimed::postId).doesNotContain(second);
+        assertThat(leases.release(first, "node-a", "PUBLISHED", null)).isTrue();
+        assertThat(leases.claimDue("node-a", LEASE_MS, PARTITIONS, PARTITION, 10, 0, 10))
+                .extracting(Claimed::postId).contains(second);
+    }
+
+    @Test
+    @DisplayName("claim(): активну оренду не перехопити, прострочену — можна; одночасно виграє один вузол")
+    void claimIsExclusive() throws Exception {
+        long e = event();
+        long active = dispatching(e, "node-x", 60);
+        assertThat(leases.claim(active, "node-a", LEASE_MS)).isFalse();
+
+        jdbc.update("UPDATE posts SET lease_until = NOW() - interval '1 second' WHERE id = ?", active);
+        assertThat(leases.claim(active, "node-a", LEASE_MS)).isTrue();
+        assertThat(owner(active)).isEqualTo("node-a");
+
+        long draft = post(event(), "DRAFT", "TELEGRAM", 60);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < NODES; i++) {
+            String node = "node-" + i;
+            results.add(pool.submit(() -> {
+                start.await();
+                return leases.claim(draft, node, LEASE_MS);
+            }));
+        }
+        start.countDown();
+        int won = 0;
+        for (Future<Boolean> f : results) if (f.get(30, TimeUnit.SECONDS)) won++;
+        assertThat(won).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("renew()/release() працюють лише для власника оренди")
+    void renewAndReleaseCheckOwner() {
+        long p = dispatching(event(), "node-a", 1);
+
+        assertThat(leases.renew(p, "node-b", LEASE_MS)).isFalse();
+        assertThat(leases.renew(p, "node-a", LEASE_MS)).isTrue();
+        assertThat(jdbc.queryForObject("SELECT lease_until > NOW() + interval '30 seconds' FROM posts WHERE id = ?",
+                Boolean.class, p)).isTrue();
+
+        assertThat(leases.release(p, "node-b", "PUBLISHED", null)).isFalse();
+        assertThat(leases.release(p, "node-a", "FAILED", "Sent 0, failed 3")).isTrue();
+        assertThat(status(p)).isEqualTo("FAILED");
+        assertThat(owner(p)).isNull();
+        // оренду вже звільнено — повторні виклики нічого не змінюють
+        assertThat(leases.renew(p, "node-a", LEASE_MS)).isFalse();
+        assertThat(leases.release(p, "node-a", "PUBLISHED", null)).isFalse();
+    }
+
+    @Test
+    @DisplayName("settle() оновлює лише завершені пости, не чіпаючи нову розсилку")
+    void settleOnlyFinishedPosts() {
+        long finished = post(event(), "FAILED", "TELEGRAM", -10);
+        long running = dispatching(event(), "node-a", 60);
+
+        assertThat(leases.settle(finished, "PUBLISHED", null)).isTrue();
+        assertThat(status(finished)).isEqualTo("PUBLISHED");
+        assertThat(leases.settle(running, "PUBLISHED", null)).isFalse();
+        assertThat(status(running)).isEqualTo("DISPATCHING");
+    }
+
+    @Test
+    @DisplayName("reapExpired() повертає в чергу лише прострочені оренди")
+    void reapReturnsOnlyExpiredLeases() {
+        long expired = dispatching(event(), "node-dead", -5);
+        long alive = dispatching(event(), "node-a", 60);
+
+        assertThat(leases.reapExpired()).contains(expired).doesNotContain(alive);
+        assertThat(status(expired)).isEqualTo("SCHEDULED");
+        assertThat(owner(expired)).isNull();
+        assertThat(status(alive)).isEqualTo("DISPATCHING");
+        // ріпер нічого не забирає повторно, а власник простроченої оренди її вже не продовжить
+        assertThat(leases.reapExpired()).doesNotContain(expired);
+        assertThat(leases.renew(expired, "node-dead", LEASE_MS)).isFalse();
+    }
+
+    /* ===================== helpers ===================== */
+
+    /** Івент з id у тестовій партиції. */
+    private long event() {
+        long id = PARTITION + (long) PARTITIONS * (events.size() + 1);
+        jdbc.update("INSERT INTO events (id, name, location) VALUES (?, 'lease-test', 'test')", id);
+        events.add(id);
+        return id;
+    }
+
+    private long post(long eventId, String status, String channel, int publishInMinutes) {
+        return jdbc.queryForObject("""
+                INSERT INTO posts (event_id, title, body, publish_at, status, audience, channel)
+                VALUES (?, 'lease-test', 'body', NOW() + interval '1 minute' * ?, ?, 'SUBSCRIBERS', ?) RETURNING id
+                """, Long.class, eventId, publishInMinutes, status, channel);
+    }
+
+    private long dispatching(long eventId, String owner, int leaseSeconds) {
+        long id = post(eventId, "DISPATCHING", "TELEGRAM", -1);
+        jdbc.update("UPDATE posts SET lease_owner = ?, lease_until = NOW() + interval '1 second' * ? WHERE id = ?",
+                owner, leaseSeconds, id);
+        return id;
+    }
+
+    private String status(long postId) {
+        return jdbc.queryForObject("SELECT status FROM posts WHERE id = ?", String.class, postId);
+    }
+
+    private String owner(long postId) {
+        return jdbc.queryForObject("SELECT lease_owner FROM posts WHERE id = ?", String.class, postId);
+    }
+
+    private static String envOr(String name, String def) {
+        String v = System.getenv(name);
+        return v != null ? v : def;
+    }
+}
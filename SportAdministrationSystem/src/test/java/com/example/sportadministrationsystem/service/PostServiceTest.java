@@ -5,6 +5,7 @@ import com.example.sportadministrationsystem.dto.PostPayload;
 import com.example.sportadministrationsystem.exception.NotFoundException;
 import com.example.sportadministrationsystem.model.*;
 import com.example.sportadministrationsystem.repository.EventRepository;
+import com.example.sportadministrationsystem.repository.PostLeaseRepository.Claimed;
 import com.example.sportadministrationsystem.repository.PostRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -13,10 +14,12 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.*;
@@ -30,6 +33,9 @@ class PostServiceTest {
     PostRepository postRepository;
     @Mock EventRepository eventRepository;
     @Mock PostDispatchService postDispatchService;
+    @Mock PostLeaseService postLeaseService;
+    @Mock DispatchPartitionService dispatchPartitionService;
+    @Mock ApplicationEventPublisher eventPublisher;
 
     @InjectMocks PostService postService;
 
@@ -159,6 +165,8 @@ class PostServiceTest {
         assertThat(dto.body()).isEqualTo("NewB");
         assertThat(dto.status()).isEqualTo(PostStatus.SCHEDULED.name());
         assertThat(dto.audience()).isEqualTo(Audience.SUBSCRIBERS.name());
+        // таймер due-постів має дізнатися про новий publishAt/статус
+        verify(eventPublisher).publishEvent(new PostScheduleChangedEvent(5L, PostStatus.SCHEDULED, existing.getPublishAt()));
     }
 
     @Test
@@ -252,33 +260,88 @@ class PostServiceTest {
     void publishNow_callsDispatch() {
         Post existing = newPostEntity(50L);
         when(postRepository.findById(50L)).thenReturn(Optional.of(existing));
-        when(postRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+        when(postDispatchService.freeSlots(Channel.TELEGRAM)).thenReturn(1);
+        when(postLeaseService.claim(50L)).thenReturn(true);
+        when(postDispatchService.dispatch(50L, Channel.TELEGRAM)).thenReturn(true);
 
         PostDto dto = postService.publishNow(100L, 50L);
 
-        verify(postDispatchService).dispatch(existing);
+        verify(postDispatchService).dispatch(50L, Channel.TELEGRAM);
         assertThat(dto.id()).isEqualTo(50L);
+        assertThat(dto.status()).isEqualTo(PostStatus.DISPATCHING.name());
     }
 
-    /* ===================== DISPATCH DUE ===================== */
+    @Test
+    @DisplayName("publishNow(): пост уже в розсилці (оренду не отримано) — dispatch не викликається")
+    void publishNow_alreadyDispatching_throws() {
+        Post existing = newPostEntity(51L);
+        when(postRepository.findById(51L)).thenReturn(Optional.of(existing));
+        when(postDispatchService.freeSlots(Channel.TELEGRAM)).thenReturn(1);
+        when(postLeaseService.claim(51L)).thenReturn(false);
+
+        assertThatThrownBy(() -> postService.publishNow(100L, 51L))
+                .isInstanceOf(IllegalArgumentException.class);
+        verify(postDispatchService, never()).dispatch(anyLong(), any());
+    }
 
     @Test
-    @DisplayName("dispatchDue(): бере SCHEDULED з publishAt<=now, намагається всіх відправити, зберігає, повертає processed count")
-    void dispatchDue_processesAll() {
-        Post p1 = newPostEntity(1L); p1.setStatus(PostStatus.SCHEDULED);
-        Post p2 = newPostEntity(2L); p2.setStatus(PostStatus.SCHEDULED);
+    @DisplayName("publishNow(): пул розсилки каналу заповнений — 409 без оренди поста")
+    void publishNow_channelQueueFull_throws() {
+        Post existing = newPostEntity(52L);
+        when(postRepository.findById(52L)).thenReturn(Optional.of(existing));
+        when(postDispatchService.freeSlots(Channel.TELEGRAM)).thenReturn(0);
+
+        assertThatThrownBy(() -> postService.publishNow(100L, 52L))
+                .isInstanceOf(IllegalArgumentException.class);
+        verify(postLeaseService, never()).claim(anyLong());
+        verify(postDispatchService, never()).dispatch(anyLong(), any());
+    }
+
+    @Test
+    @DisplayName("publishNow(): пул відхилив пост після оренди — статус і попередня помилка поста повертаються, 409")
+    void publishNow_rejectedAfterClaim_restoresStatus() {
+        Post existing = newPostEntity(53L);
+        existing.setError("Telegram: 429 Too Many Requests");
+        when(postRepository.findById(53L)).thenReturn(Optional.of(existing));
+        when(postDispatchService.freeSlots(Channel.TELEGRAM)).thenReturn(1);
+        when(postLeaseService.claim(53L)).thenReturn(true);
+        when(postDispatchService.dispatch(53L, Channel.TELEGRAM)).thenReturn(false);
+
+        assertThatThrownBy(() -> postService.publishNow(100L, 53L))
+                .isInstanceOf(IllegalArgumentException.class);
+        // помилка попередньої спроби не стирається відхиленим запуском
+        verify(postLeaseService).release(any(), eq(PostStatus.DRAFT), eq("Telegram: 429 Too Many Requests"));
+        verify(postLeaseService, never()).requeue(anyLong());
+    }
 
-        // Мокуємо lockNextDueWithEvent з FETCH JOIN
-        when(postRepository.lockNextDueWithEvent(any(LocalDateTime.class), eq(50)))
-                .thenReturn(List.of(p1, p2));
+    /* ===================== DISPATCH DUE ===================== */
 
-        // перший ок, другий впаде — сервіс має проковтнути (PostDispatchService сам виставить FAILED)
-        doNothing().when(postDispatchService).dispatch(p1);
-        doThrow(new RuntimeException("boom")).when(postDispatchService).dispatch(p2);
+    @Test
+    @DisplayName("dispatchDue(): забирає due-пости своїх партицій в оренду, намагається всіх відправити, повертає processed count")
+    void dispatchDue_processesAll() {
+        when(dispatchPartitionService.partitionCount()).thenReturn(16);
+        when(dispatchPartitionService.ownedPartitions()).thenReturn(List.of(3, 7));
+        // WhatsApp-пул заповнений (Graph API гальмує) — WhatsApp-постів не беремо, Telegram іде як завжди
+        when(postDispatchService.freeSlots(Channel.TELEGRAM)).thenReturn(100);
+        when(postDispatchService.freeSlots(Channel.WHATSAPP)).thenReturn(0);
+        when(postDispatchService.freeSlots(Channel.INTERNAL)).thenReturn(Integer.MAX_VALUE);
+        when(postLeaseService.claimDue(3, 16, Map.of(Channel.TELEGRAM, 50, Channel.WHATSAPP, 0, Channel.INTERNAL, 50)))
+                .thenReturn(List.of(new Claimed(1L, Channel.TELEGRAM)));
+        when(postLeaseService.claimDue(7, 16, Map.of(Channel.TELEGRAM, 49, Channel.WHATSAPP, 0, Channel.INTERNAL, 50)))
+                .thenReturn(List.of(new Claimed(2L, Channel.TELEGRAM), new Claimed(3L, Channel.TELEGRAM)));
+
+        // перший ок; другий не запустився — оренда прострочиться і ріпер поверне пост у чергу;
+        // третій відхилено пулом — одразу повертається в чергу
+        when(postDispatchService.dispatch(1L, Channel.TELEGRAM)).thenReturn(true);
+        when(postDispatchService.dispatch(2L, Channel.TELEGRAM)).thenThrow(new RuntimeException("boom"));
+        when(postDispatchService.dispatch(3L, Channel.TELEGRAM)).thenReturn(false);
 
         int processed = postService.dispatchDue();
 
         assertThat(processed).isEqualTo(1);
-        verify(postRepository).saveAll(List.of(p1, p2));
+        verify(postDispatchService).dispatch(1L, Channel.TELEGRAM);
+        verify(postDispatchService).dispatch(2L, Channel.TELEGRAM);
+        verify(postLeaseService).requeue(3L);
+        verify(postLeaseService, never()).requeue(2L);
     }
 }
@@ -0,0 +1,112 @@
+package com.example.sportadministrationsystem.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+
+class StripedExecutorTest {
+
+    private StripedExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        if (executor != null) executor.shutdown();
+    }
+
+    @Test
+    @DisplayName("задачі одного ключа виконуються строго в порядку подання")
+    void sameKeyRunsInSubmissionOrder() throws Exception {
+        executor = new StripedExecutor("test", 4, 10_000);
+        int keys = 8;
+        int perKey = 500;
+        List<List<Integer>> seen = new ArrayList<>();
+        for (int k = 0; k < keys; k++) seen.add(Collections.synchronizedList(new ArrayList<>()));
+
+        List<CompletableFuture<Void>> all = new ArrayList<>();
+        for (int i = 0; i < perKey; i++) {
+            for (int k = 0; k < keys; k++) {
+                int key = k;
+                int seq = i;
+                // 8 ключів на 4 смуги: ключі ділять смугу, але кожен зберігає свій порядок
+                all.add(executor.submit("chat-" + key, () -> seen.get(key).add(seq)));
+            }
+        }
+        CompletableFuture.allOf(all.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+
+        for (List<Integer> s : seen) {
+            assertThat(s).hasSize(perKey).isSorted();
+        }
+    }
+
+    @Test
+    @DisplayName("повільний ключ не затримує ключі інших смуг")
+    void otherKeysProceedWhileOneIsBlocked() throws Exception {
+        executor = new StripedExecutor("test", 2, 100);
+        Object slow = stripeKey(0);
+        Object fast = stripeKey(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Void> blocked = executor.submit(slow, () -> await(release));
+        CompletableFuture<Void> queuedBehind = executor.submit(slow, () -> { });
+        CompletableFuture<Void> other = executor.submit(fast, () -> { });
+
+        other.get(5, TimeUnit.SECONDS);
+        assertThat(queuedBehind).isNotDone();
+
+        release.countDown();
+        blocked.get(5, TimeUnit.SECONDS);
+        queuedBehind.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    @DisplayName("переповнена черга смуги відхиляє задачу, а не росте без меж")
+    void fullStripeRejects() throws Exception {
+        executor = new StripedExecutor("test", 1, 2);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Void> running = executor.submit("k", () -> {
+            started.countDown();
+            await(release);
+        });
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        // потік смуги зайнятий, у черзі місце на 2 задачі
+        CompletableFuture<Void> q1 = executor.submit("k", () -> { });
+        CompletableFuture<Void> q2 = executor.submit("k", () -> { });
+
+        assertThatThrownBy(() -> executor.submit("k", () -> { }))
+                .isInstanceOf(RejectedExecutionException.class);
+
+        release.countDown();
+        CompletableFuture.allOf(running, q1, q2).get(5, TimeUnit.SECONDS);
+        executor.submit("k", () -> { }).get(5, TimeUnit.SECONDS);
+    }
+
+    /** Ключ, що потрапляє в задану смугу (розподіл — hashCode з перемішуванням старших бітів). */
+    private Object stripeKey(int stripe) {
+        for (int i = 0; ; i++) {
+            String key = "key-" + i;
+            int h = key.hashCode();
+            h ^= (h >>> 16);
+            if (Math.floorMod(h, executor.stripeCount()) == stripe) return key;
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.sportadministrationsystem.service;
+
+import com.example.sportadministrationsystem.dto.AudienceBatch;
+import com.example.sportadministrationsystem.repository.SubscriberAudienceRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Keyset-сторінки аудиторії розсилки в один перевикористовуваний AudienceBatch.
+ *
+ * Потрібен справжній PostgreSQL зі схемою Flyway (адреси на підписках синхронізують тригери V38),
+ * тому тест вмикається змінною PG_TEST_URL (як SubscriptionToggleConcurrencyTest).
+ */
+@EnabledIfEnvironmentVariable(named = "PG_TEST_URL", matches = ".+")
+class SubscriberAudienceIntegrationTest {
+
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbc;
+    private SubscriberAudienceRepository audience;
+
+    private long eventId;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(System.getenv("PG_TEST_URL"));
+        dataSource.setUsername(envOr("PG_TEST_USER", "postgres"));
+        dataSource.setPassword(envOr("PG_TEST_PASSWORD", ""));
+        jdbc = new JdbcTemplate(dataSource);
+        audience = new SubscriberAudienceRepository(jdbc);
+
+        eventId = jdbc.queryForObject(
+                "INSERT INTO events (name, location) VALUES ('audience-test', 'test') RETURNING id", Long.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.update("DELETE FROM events WHERE id = ?", eventId);
+        jdbc.update("DELETE FROM event_subscriber_counts WHERE event_id = ?", eventId);
+        jdbc.update("DELETE FROM user_telegram WHERE tg_user_id <= -5000000 AND tg_user_id > -6000000");
+        jdbc.update("DELETE FROM user_whatsapp WHERE wa_id LIKE 'audience-test-%'");
+        dataSource.close();
+    }
+
+    @Test
+    @DisplayName("Telegram: усі активні підписки по порядку id, сторінками не більше ємності батча")
+    void telegramPagesCoverActiveAudienceOnce() {
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            long chatId = -5_000_000L - i;
+            boolean active = i % 4 != 3;
+            subscribeTelegram(chatId, active);
+            if (active) expected.add(Long.toString(chatId));
+        }
+
+        List<Integer> sizes = new ArrayList<>();
+        List<String> seen = readTelegram(AudienceBatch.telegram(7), sizes);
+
+        assertThat(seen).containsExactlyElementsOf(expected);
+        assertThat(sizes).allMatch(n -> n <= 7);
+        assertThat(sizes).hasSize((expected.size() + 6) / 7);
+    }
+
+    @Test
+    @DisplayName("WhatsApp: остання неповна сторінка не тягне адрес попередньої")
+    void whatsappShortLastPage() {
+        for (int i = 0; i < 12; i++) subscribeWhatsapp("audience-test-" + i, true);
+
+        AudienceBatch batch = AudienceBatch.whatsapp(5);
+        audience.whatsappPage(eventId, 0, batch);
+        audience.whatsappPage(eventId, batch.lastSubscriptionId(), batch);
+        audience.whatsappPage(eventId, batch.lastSubscriptionId(), batch);
+
+        assertThat(batch.size()).isEqualTo(2);
+        assertThat(batch.isFull()).isFalse();
+        assertThat(batch.targets()).containsExactly("audience-test-10", "audience-test-11");
+        assertThatThrownBy(() -> batch.target(2)).isInstanceOf(IndexOutOfBoundsException.class);
+
+        audience.whatsappPage(eventId, batch.lastSubscriptionId(), batch);
+        assertThat(batch.isEmpty()).isTrue();
+    }
+
+    @Test
+    @DisplayName("зміни між сторінками: ні пропусків, ні повторів уже прочитаного; нові підписки — в кінці")
+    void keysetIsStableUnderConcurrentChanges() {
+        List<Long> subs = new ArrayList<>();
+        for (int i = 0; i < 10; i++) subs.add(subscribeTelegram(-5_100_000L - i, true));
+
+        AudienceBatch batch = AudienceBatch.telegram(4);
+        audience.telegramPage(eventId, 0, batch);
+        List<String> seen = new ArrayList<>(batch.targets());
+        long cursor = batch.lastSubscriptionId();
+
+        // поки йде розсилка: двоє вже прочитаних відписались, один ще не прочитаний теж, прийшов новий
+        jdbc.update("UPDATE event_subscriptions SET active = FALSE WHERE id IN (?, ?, ?)", subs.get(0), subs.get(1), subs.get(6));
+        subscribeTelegram(-5_199_999L, true);
+
+        for (audience.telegramPage(eventId, cursor, batch); !batch.isEmpty();
+             audience.telegramPage(eventId, batch.lastSubscriptionId(), batch)) {
+            seen.addAll(batch.targets());
+        }
+
+        assertThat(seen).doesNotHaveDuplicates()
+                .containsExactly("-5100000", "-5100001", "-5100002", "-5100003",
+                        "-5100004", "-5100005", "-5100007", "-5100008", "-5100009", "-5199999");
+    }
+
+    @Test
+    @DisplayName("адреса береться з підписки й оновлюється тригером при зміні чату акаунта")
+    void addressFollowsAccount() {
+        subscribeTelegram(-5_200_000L, true);
+        jdbc.update("UPDATE user_telegram SET tg_chat_id = ? WHERE tg_user_id = ?", -5_200_001L, -5_200_000L);
+
+        AudienceBatch batch = AudienceBatch.telegram(10);
+        audience.telegramPage(eventId, 0, batch);
+
+        assertThat(batch.targets()).containsExactly("-5200001");
+    }
+
+    /* ===================== helpers ===================== */
+
+    private List<String> readTelegram(AudienceBatch batch, List<Integer> sizes) {
+        List<String> out = new ArrayList<>();
+        long cursor = 0;
+        while (true) {
+            audience.telegramPage(eventId, cursor, batch);
+            if (batch.isEmpty()) return out;
+            sizes.add(batch.size());
+            out.addAll(batch.targets());
+            cursor = batch.lastSubscriptionId();
+        }
+    }
+
+    /** Акаунт з tg_user_id = tg_chat_id = chatId і його підписка на івент; повертає id підписки. */
+    private long subscribeTelegram(long chatId, boolean active) {
+        Long userId = jdbc.queryForObject(
+                "INSERT INTO user_telegram (tg_user_id, tg_chat_id) VALUES (?, ?) RETURNING id", Long.class, chatId, chatId);
+        return jdbc.queryForObject(
+                "INSERT INTO event_subscriptions (event_id, user_telegram_id, active) VALUES (?, ?, ?) RETURNING id",
+                Long.class, eventId, userId, active);
+    }
+
+    private long subscribeWhatsapp(String waId, boolean active) {
+        Long userId = jdbc.queryForObject(
+                "INSERT INTO user_whatsapp (wa_id) VALUES (?) RETURNING id", Long.class, waId);
+        return jdbc.queryForObject(
+                "INSERT INTO event_subscriptions_whatsapp (event_id, user_whatsapp_id, active) VALUES (?, ?, ?) RETURNING id",
+                Long.class, eventId, userId, active);
+    }
+
+    private static String envOr(String name, String def) {
+        String v = System.getenv(name);
+        return v != null ? v : def;
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.sportadministrationsystem.service;
+
+import com.example.sportadministrationsystem.dto.EventSubscriberCounts;
+import com.example.sportadministrationsystem.repository.SubscriberCountRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Лічильники підписників з тригерів V39 (смуги event_subscriber_counts) і їх звірка.
+ *
+ * Потрібен справжній PostgreSQL зі схемою Flyway (тригери PL/pgSQL), тому тест вмикається
+ * змінною PG_TEST_URL (як SubscriptionToggleConcurrencyTest).
+ */
+@EnabledIfEnvironmentVariable(named = "PG_TEST_URL", matches = ".+")
+class SubscriberCountTriggersIntegrationTest {
+
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbc;
+    private SubscriberCountRepository counts;
+    private final List<Long> events = new ArrayList<>();
+
+    private long eventId;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(System.getenv("PG_TEST_URL"));
+        dataSource.setUsername(envOr("PG_TEST_USER", "postgres"));
+        dataSource.setPassword(envOr("PG_TEST_PASSWORD", ""));
+        jdbc = new JdbcTemplate(dataSource);
+        counts = new SubscriberCountRepository(jdbc);
+        eventId = event();
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (Long e : events) {
+            jdbc.update("DELETE FROM events WHERE id = ?", e);
+            jdbc.update("DELETE FROM event_subscriber_counts WHERE event_id = ?", e);
+        }
+        jdbc.update("DELETE FROM user_telegram WHERE tg_user_id <= -6000000 AND tg_user_id > -7000000");
+        jdbc.update("DELETE FROM user_whatsapp WHERE wa_id LIKE 'counts-test-%'");
+        dataSource.close();
+    }
+
+    @Test
+    @DisplayName("вставка, (від)підписка, зміна адреси й видалення змінюють лічильник лише при зміні врахованості")
+    void triggersFollowCountedState() {
+        long a = subscribeTelegram(-6_000_001L, true);
+        long b = subscribeTelegram(-6_000_002L, false);
+        long w = subscribeWhatsapp("counts-test-1", true);
+        assertCounts(eventId, 1, 1);
+
+        jdbc.update("UPDATE event_subscriptions SET active = TRUE WHERE id = ?", b);
+        assertCounts(eventId, 2, 1);
+        // повторне active = TRUE — без змін
+        jdbc.update("UPDATE event_subscriptions SET active = TRUE WHERE id = ?", b);
+        assertCounts(eventId, 2, 1);
+
+        jdbc.update("UPDATE event_subscriptions SET active = FALSE WHERE id = ?", a);
+        assertCounts(eventId, 1, 1);
+
+        // без адреси доставки підписка не рахується
+        jdbc.update("UPDATE event_subscriptions_whatsapp SET wa_id = NULL WHERE id = ?", w);
+        assertCounts(eventId, 1, 0);
+        jdbc.update("UPDATE event_subscriptions_whatsapp SET wa_id = 'counts-test-1' WHERE id = ?", w);
+        assertCounts(eventId, 1, 1);
+
+        jdbc.update("DELETE FROM event_subscriptions WHERE id = ?", b);
+        jdbc.update("DELETE FROM event_subscriptions WHERE id = ?", a);
+        assertCounts(eventId, 0, 1);
+    }
+
+    @Test
+    @DisplayName("перенесення підписки на інший івент переносить і лічильник")
+    void movingSubscriptionMovesCount() {
+        long other = event();
+        long s = subscribeTelegram(-6_100_000L, true);
+
+        jdbc.update("UPDATE event_subscriptions SET event_id = ? WHERE id = ?", other, s);
+
+        assertCounts(eventId, 0, 0);
+        assertCounts(other, 1, 0);
+    }
+
+    @Test
+    @DisplayName("підписки розкладаються по смугах; значення — сума смуг")
+    void countsAreStriped() {
+        for (int i = 0; i < 40; i++) subscribeTelegram(-6_200_000L - i, true);
+
+        Integer stripes = jdbc.queryForObject(
+                "SELECT count(*) FROM event_subscriber_counts WHERE event_id = ? AND channel = 'TELEGRAM'",
+                Integer.class, eventId);
+        assertThat(stripes).isEqualTo(8);
+        assertCounts(eventId, 40, 0);
+    }
+
+    @Test
+    @DisplayName("видалення івенту обнуляє лічильники каскадом; звірка прибирає сиріт і виправляє дрейф")
+    void reconcileFixesDriftAndOrphans() {
+        long gone = event();
+        jdbc.update("INSERT INTO event_subscriptions (event_id, user_telegram_id, active) VALUES (?, ?, TRUE)",
+                gone, telegramAccount(-6_300_000L));
+        jdbc.update("DELETE FROM events WHERE id = ?", gone);
+        assertThat(jdbc.queryForObject(
+                "SELECT COALESCE(SUM(active_count), 0) FROM event_subscriber_counts WHERE event_id = ?", Long.class, gone))
+                .isZero();
+
+        subscribeTelegram(-6_300_001L, true);
+        subscribeWhatsapp("counts-test-2", true);
+        // ручна правка БД в обхід тригерів
+        jdbc.update("UPDATE event_subscriber_counts SET active_count = active_count + 5 "
+                + "WHERE event_id = ? AND channel = 'TELEGRAM'", eventId);
+        jdbc.update("DELETE FROM event_subscriber_counts WHERE event_id = ? AND channel = 'WHATSAPP'", eventId);
+        assertCounts(eventId, 6, 0);
+
+        assertThat(counts.fixDrift()).isGreaterThanOrEqualTo(2);
+        counts.purgeOrphans();
+
+        assertCounts(eventId, 1, 1);
+        assertThat(jdbc.queryForObject(
+                "SELECT count(*) FROM event_subscriber_counts WHERE event_id = ?", Integer.class, gone)).isZero();
+        // повторна звірка нічого не змінює для цього івенту
+        counts.fixDrift();
+        assertCounts(eventId, 1, 1);
+    }
+
+    @Test
+    @DisplayName("find(): неіснуючі івенти пропускаються, івент без підписок — нулі")
+    void findSkipsUnknownEvents() {
+        long empty = event();
+        subscribeTelegram(-6_400_000L, true);
+
+        assertThat(counts.find(List.of(eventId, empty, Long.MAX_VALUE))).containsExactly(
+                new EventSubscriberCounts(eventId, 1, 0), new EventSubscriberCounts(empty, 0, 0));
+    }
+
+    /* ===================== helpers ===================== */
+
+    private long event() {
+        long id = jdbc.queryForObject(
+                "INSERT INTO events (name, location) VALUES ('counts-test', 'test') RETURNING id", Long.class);
+        events.add(id);
+        return id;
+    }
+
+    private long telegramAccount(long tgUserId) {
+        return jdbc.queryForObject(
+                "INSERT INTO user_telegram (tg_user_id, tg_chat_id) VALUES (?, ?) RETURNING id", Long.class, tgUserId, tgUserId);
+    }
+
+    private long subscribeTelegram(long tgUserId, boolean active) {
+        return jdbc.queryForObject(
+                "INSERT INTO event_subscriptions (event_id, user_telegram_id, active) VALUES (?, ?, ?) RETURNING id",
+                Long.class, eventId, telegramAccount(tgUserId), active);
+    }
+
+    private long subscribeWhatsapp(String waId, boolean active) {
+        Long userId = jdbc.queryForObject("INSERT INTO user_whatsapp (wa_id) VALUES (?) RETURNING id", Long.class, waId);
+        return jdbc.queryForObject(
+                "INSERT INTO event_subscriptions_whatsapp (event_id, user_whatsapp_id, active) VALUES (?, ?, ?) RETURNING id",
+                Long.class, eventId, userId, active);
+    }
+
+    private void assertCounts(long event, long telegram, long whatsapp) {
+        assertThat(counts.find(List.of(event))).containsExactly(new EventSubscriberCounts(event, telegram, whatsapp));
+    }
+
+    private static String envOr(String name, String def) {
+        String v = System.getenv(name);
+        return v != null ? v : def;
+    }
+}
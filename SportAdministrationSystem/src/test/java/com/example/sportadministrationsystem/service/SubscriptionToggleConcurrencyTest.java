@@ -0,0 +1,169 @@
+package com.example.sportadministrationsystem.service;
+
+import com.example.sportadministrationsystem.model.UserTelegram;
+import com.example.sportadministrationsystem.model.UserWhatsapp;
+import com.example.sportadministrationsystem.repository.SubscriptionToggleRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Одночасні перемикання підписок на один івент з багатьох потоків.
+ *
+ * Потрібен справжній PostgreSQL зі схемою Flyway (INSERT ... ON CONFLICT DO UPDATE ... RETURNING
+ * H2 не підтримує), тому тест вмикається змінною PG_TEST_URL
+ * (напр. jdbc:postgresql://localhost:5432/sport_admin; PG_TEST_USER / PG_TEST_PASSWORD).
+ */
+@EnabledIfEnvironmentVariable(named = "PG_TEST_URL", matches = ".+")
+class SubscriptionToggleConcurrencyTest {
+
+    private static final int THREADS = 32;
+
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbc;
+    private EventSubscriptionService telegramService;
+    private EventSubscriptionWhatsAppService whatsAppService;
+    private final AtomicInteger netToggles = new AtomicInteger();
+    private ExecutorService pool;
+
+    private long eventId;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(System.getenv("PG_TEST_URL"));
+        dataSource.setUsername(envOr("PG_TEST_USER", "postgres"));
+        dataSource.setPassword(envOr("PG_TEST_PASSWORD", ""));
+        dataSource.setMaximumPoolSize(THREADS);
+        jdbc = new JdbcTemplate(dataSource);
+        SubscriptionToggleRepository toggles = new SubscriptionToggleRepository(jdbc);
+        // Подія публікується лише при реальній зміні: +1 увімкнення, -1 вимкнення
+        telegramService = new EventSubscriptionService(toggles,
+                e -> netToggles.addAndGet(((SubscriptionToggledEvent) e).active() ? 1 : -1));
+        whatsAppService = new EventSubscriptionWhatsAppService(toggles,
+                e -> netToggles.addAndGet(((SubscriptionToggledEvent) e).active() ? 1 : -1));
+        pool = Executors.newFixedThreadPool(THREADS);
+
+        eventId = jdbc.queryForObject(
+                "INSERT INTO events (name, location) VALUES ('toggle-concurrency', 'test') RETURNING id", Long.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+        jdbc.update("DELETE FROM events WHERE id = ?", eventId);
+        jdbc.update("DELETE FROM event_subscriber_counts WHERE event_id = ?", eventId);
+        jdbc.update("DELETE FROM user_telegram WHERE tg_user_id < 0");
+        jdbc.update("DELETE FROM user_whatsapp WHERE wa_id LIKE 'toggle-test-%'");
+        dataSource.close();
+    }
+
+    @Test
+    void manyUsersSubscribeToOneEventAtOnce() throws Exception {
+        int users = 500;
+        List<UserTelegram> accounts = new ArrayList<>();
+        for (int i = 0; i < users; i++) accounts.add(telegramUser(-1_000_000L - i));
+
+        runConcurrently(users * 2, i -> telegramService.toggleSubscription(eventId, accounts.get(i % users), true));
+
+        assertThat(activeTelegram()).isEqualTo(users);
+        assertThat(rowsTelegram()).isEqualTo(users);
+        assertThat(netToggles.get()).isEqualTo(users);
+        assertThat(counted("TELEGRAM")).isEqualTo(users);
+    }
+
+    @Test
+    void sameUserTappingSubscribeAndUnsubscribeStaysConsistent() throws Exception {
+        UserTelegram tg = telegramUser(-2_000_000L);
+        UserWhatsapp wa = whatsAppUser("toggle-test-1");
+
+        runConcurrently(2000, i -> {
+            boolean desired = ThreadLocalRandom.current().nextBoolean();
+            if (i % 2 == 0) assertThat(telegramService.toggleSubscription(eventId, tg, desired)).isEqualTo(desired);
+            else assertThat(whatsAppService.toggleSubscription(eventId, wa, desired)).isEqualTo(desired);
+        });
+
+        // один рядок на (event, user); сума опублікованих змін = кінцевий стан обох підписок
+        assertThat(rowsTelegram()).isEqualTo(1);
+        assertThat(jdbc.queryForObject(
+                "SELECT count(*) FROM event_subscriptions_whatsapp WHERE event_id = ?", Integer.class, eventId)).isEqualTo(1);
+        int activeWa = jdbc.queryForObject(
+                "SELECT count(*) FROM event_subscriptions_whatsapp WHERE event_id = ? AND active", Integer.class, eventId);
+        assertThat(netToggles.get()).isEqualTo(activeTelegram() + activeWa);
+        // лічильники з тригерів (V39) збігаються з фактичним станом
+        assertThat(counted("TELEGRAM")).isEqualTo(activeTelegram());
+        assertThat(counted("WHATSAPP")).isEqualTo(activeWa);
+    }
+
+    @Test
+    void unknownEventIsRejected() {
+        UserTelegram tg = telegramUser(-3_000_000L);
+        assertThatThrownBy(() -> telegramService.toggleSubscription(Long.MAX_VALUE, tg, true))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /* ===================== helpers ===================== */
+
+    private interface Task {
+        void run(int i) throws Exception;
+    }
+
+    private void runConcurrently(int tasks, Task task) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < tasks; i++) {
+            int n = i;
+            futures.add(pool.submit(() -> {
+                start.await();
+                task.run(n);
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> f : futures) f.get(60, TimeUnit.SECONDS);
+    }
+
+    private UserTelegram telegramUser(long tgUserId) {
+        Long id = jdbc.queryForObject(
+                "INSERT INTO user_telegram (tg_user_id, tg_chat_id) VALUES (?, ?) RETURNING id", Long.class, tgUserId, tgUserId);
+        UserTelegram u = new UserTelegram();
+        u.setId(id);
+        return u;
+    }
+
+    private UserWhatsapp whatsAppUser(String waId) {
+        Long id = jdbc.queryForObject(
+                "INSERT INTO user_whatsapp (wa_id) VALUES (?) RETURNING id", Long.class, waId);
+        UserWhatsapp u = new UserWhatsapp();
+        u.setId(id);
+        return u;
+    }
+
+    private int activeTelegram() {
+        return jdbc.queryForObject(
+                "SELECT count(*) FROM event_subscriptions WHERE event_id = ? AND active", Integer.class, eventId);
+    }
+
+    private int rowsTelegram() {
+        return jdbc.queryForObject("SELECT count(*) FROM event_subscriptions WHERE event_id = ?", Integer.class, eventId);
+    }
+
+    private int counted(String channel) {
+        return jdbc.queryForObject(
+                "SELECT COALESCE(SUM(active_count), 0) FROM event_subscriber_counts WHERE event_id = ? AND channel = ?",
+                Integer.class, eventId, channel);
+    }
+
+    private static String envOr(String name, String def) {
+        String v = System.getenv(name);
+        return v != null ? v : def;
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.sportadministrationsystem.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+class TelegramRateLimiterTest {
+
+    // 1000 msg/s для бота й чату, чекати не довше 200 мс — пауза на 5 с гарантовано відхиляє
+    private final TelegramRateLimiter limiter = new TelegramRateLimiter(1000, 10, 1000, 60_000, 200, 1_000);
+
+    @Test
+    @DisplayName("429 в одному чаті ставить на паузу лише цей чат")
+    void chatFloodPausesOnlyThatChat() throws Exception {
+        limiter.retryAfter("1001", 5);
+
+        assertThatThrownBy(() -> limiter.acquire("1001"))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatCode(() -> limiter.acquire("1002")).doesNotThrowAnyException();
+        assertThatCode(() -> limiter.acquire(null)).doesNotThrowAnyException();
+    }
+
+    @Test
+    @DisplayName("429 без чату ставить на паузу весь бот")
+    void unscopedFloodPausesBot() {
+        limiter.retryAfter(null, 5);
+
+        assertThatThrownBy(() -> limiter.acquire("1002"))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> limiter.acquire(null))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    @DisplayName("429 із двох різних чатів поспіль — це ліміт бота, пауза для всіх")
+    void floodFromSeveralChatsPausesBot() {
+        limiter.retryAfter("1001", 5);
+        limiter.retryAfter("1002", 5);
+
+        assertThatThrownBy(() -> limiter.acquire("1003"))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    @DisplayName("повторні 429 з того самого чату бот не зупиняють")
+    void repeatedFloodFromOneChatStaysScoped() {
+        limiter.retryAfter("1001", 5);
+        limiter.retryAfter("1001", 5);
+
+        assertThatCode(() -> limiter.acquire("1002")).doesNotThrowAnyException();
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.sportadministrationsystem.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TelegramUpdateDispatcherTest {
+
+    @Mock TelegramService telegramService;
+
+    private final StripedExecutor executor = new StripedExecutor("tg-test", 2, 100);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    @DisplayName("дублікат відсікається одразу, не чекаючи дозволу")
+    void duplicateDoesNotWaitForPermit() throws Exception {
+        TelegramUpdateDispatcher dispatcher = dispatcher(executor, 1, 5_000);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(inv -> release.await(5, TimeUnit.SECONDS)).when(telegramService).handleUpdate(any());
+
+        assertThat(dispatcher.dispatch(update(1))).isEqualTo(TelegramUpdateDispatcher.Result.ACCEPTED);
+
+        long started = System.nanoTime();
+        assertThat(dispatcher.dispatch(update(1))).isEqualTo(TelegramUpdateDispatcher.Result.DUPLICATE);
+        assertThat(System.nanoTime() - started).isLessThan(TimeUnit.SECONDS.toNanos(1));
+        release.countDown();
+    }
+
+    @Test
+    @DisplayName("відхилене оновлення повертає дозвіл і забувається — повтор доставки не вважається дублікатом")
+    void rejectedUpdateIsForgotten() {
+        StripedExecutor stopped = new StripedExecutor("tg-stopped", 1, 100);
+        stopped.shutdown();
+        TelegramUpdateDispatcher dispatcher = dispatcher(stopped, 1, 100);
+
+        Semaphore inFlight = (Semaphore) ReflectionTestUtils.getField(dispatcher, "inFlight");
+        assertThat(dispatcher.dispatch(update(7))).isEqualTo(TelegramUpdateDispatcher.Result.REJECTED);
+        assertThat(inFlight.availablePermits()).isEqualTo(1);
+        // id не лишився в кеші: повтор — знову спроба, а не DUPLICATE
+        assertThat(dispatcher.dispatch(update(7))).isEqualTo(TelegramUpdateDispatcher.Result.REJECTED);
+        assertThat(inFlight.availablePermits()).isEqualTo(1);
+        verifyNoInteractions(telegramService);
+    }
+
+    private TelegramUpdateDispatcher dispatcher(StripedExecutor stripes, int maxInFlight, long maxWaitMs) {
+        TelegramUpdateDispatcher d = new TelegramUpdateDispatcher(telegramService, stripes, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(d, "dedupSize", 100);
+        ReflectionTestUtils.setField(d, "maxInFlight", maxInFlight);
+        ReflectionTestUtils.setField(d, "maxWaitMs", maxWaitMs);
+        d.init();
+        return d;
+    }
+
+    private static Update update(int id) {
+        Update u = new Update();
+        u.setUpdateId(id);
+        return u;
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.sportadministrationsystem.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+
+class TokenBucketTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    @DisplayName("reserve(): burst токенів одразу, далі — по одному на інтервал")
+    void burstThenSteadyRate() {
+        TokenBucket bucket = new TokenBucket(10, 3); // інтервал 100 мс
+        long now = System.nanoTime();
+
+        assertThat(bucket.reserve(now)).isEqualTo(now);
+        assertThat(bucket.reserve(now)).isEqualTo(now);
+        assertThat(bucket.reserve(now)).isEqualTo(now);
+        assertThat(bucket.reserve(now)).isEqualTo(now + 100 * MS);
+        assertThat(bucket.reserve(now)).isEqualTo(now + 200 * MS);
+    }
+
+    @Test
+    @DisplayName("reserve(): не раніше за at, навіть якщо бакет вільний")
+    void neverBeforeRequestedMoment() {
+        TokenBucket bucket = new TokenBucket(1, 1);
+        long at = System.nanoTime() + 500 * MS;
+
+        assertThat(bucket.reserve(at)).isEqualTo(at);
+        assertThat(bucket.reserve(at)).isEqualTo(at + 1000 * MS);
+    }
+
+    @Test
+    @DisplayName("pauseUntil(): токени не видаються до кінця паузи; коротша пауза не скорочує довшу")
+    void pauseDelaysTokens() {
+        TokenBucket bucket = new TokenBucket(30, 5);
+        long now = System.nanoTime();
+
+        bucket.pauseUntil(now + 5000 * MS);
+        bucket.pauseUntil(now + 1000 * MS);
+
+        assertThat(bucket.peek(now)).isEqualTo(now + 5000 * MS);
+        assertThat(bucket.reserve(now)).isEqualTo(now + 5000 * MS);
+        assertThat(bucket.tryReserve(now, now + 4000 * MS)).isEqualTo(TokenBucket.REJECTED);
+    }
+
+    @Test
+    @DisplayName("tryReserve(): відмова після дедлайну не зсуває бакет")
+    void rejectionDoesNotConsumeCapacity() {
+        TokenBucket bucket = new TokenBucket(1, 1); // інтервал 1 с
+        long now = System.nanoTime();
+
+        assertThat(bucket.tryReserve(now, now)).isEqualTo(now);
+        for (int i = 0; i < 10; i++) {
+            assertThat(bucket.tryReserve(now, now + 500 * MS)).isEqualTo(TokenBucket.REJECTED);
+        }
+
+        // десять відмов не відсунули наступний слот — він досі через 1 с
+        assertThat(bucket.peek(now)).isEqualTo(now + 1000 * MS);
+        assertThat(bucket.tryReserve(now, now + 1000 * MS)).isEqualTo(now + 1000 * MS);
+        assertThat(bucket.peek(now)).isEqualTo(now + 2000 * MS);
+    }
+
+    @Test
+    @DisplayName("peek(): лише показує момент, нічого не резервує")
+    void peekIsReadOnly() {
+        TokenBucket bucket = new TokenBucket(1, 1);
+        long now = System.nanoTime();
+
+        assertThat(bucket.peek(now)).isEqualTo(now);
+        assertThat(bucket.peek(now)).isEqualTo(now);
+        assertThat(bucket.reserve(now)).isEqualTo(now);
+        assertThat(bucket.peek(now)).isEqualTo(now + 1000 * MS);
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.sportadministrationsystem.service;
+
+import com.example.sportadministrationsystem.dto.WhatsAppStatusUpdate;
+import com.example.sportadministrationsystem.model.DeliveryStatus;
+import com.example.sportadministrationsystem.model.NotificationType;
+import com.example.sportadministrationsystem.model.WhatsAppDeliveryTracking;
+import com.example.sportadministrationsystem.repository.WhatsAppDeliveryTrackingBatchRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Фоновий запис whatsapp_delivery_tracking у справжню БД: пачки, переповнення черги, дописування при зупинці.
+ *
+ * Потрібен справжній PostgreSQL зі схемою Flyway (ON CONFLICT по частковому унікальному індексу),
+ * тому тест вмикається змінною PG_TEST_URL (як SubscriptionToggleConcurrencyTest).
+ */
+@EnabledIfEnvironmentVariable(named = "PG_TEST_URL", matches = ".+")
+class WhatsAppDeliveryTrackingWriterIntegrationTest {
+
+    private static final String RECIPIENT = "tracking-test";
+    private static final String PREFIX = "wamid.tracking-test-";
+
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbc;
+    private RecordingRepository repository;
+    private SimpleMeterRegistry registry;
+    private WhatsAppDeliveryTrackingWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(System.getenv("PG_TEST_URL"));
+        dataSource.setUsername(envOr("PG_TEST_USER", "postgres"));
+        dataSource.setPassword(envOr("PG_TEST_PASSWORD", ""));
+        jdbc = new JdbcTemplate(dataSource);
+        repository = new RecordingRepository(jdbc);
+        registry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (writer != null) writer.stop();
+        repository.open();
+        jdbc.update("DELETE FROM whatsapp_delivery_tracking WHERE recipient = ?", RECIPIENT);
+        dataSource.close();
+    }
+
+    @Test
+    @DisplayName("рядки пишуться пачками не більше batch-size")
+    void writesInBatches() throws Exception {
+        writer = writer(10_000, 100, 50);
+
+        for (int i = 0; i < 750; i++) writer.record(row(i));
+
+        awaitRows(750);
+        assertThat(repository.sizes).allMatch(n -> n <= 100);
+        assertThat(repository.sizes.size()).isLessThan(750 / 10);
+        assertThat(registry.get("whatsapp.tracking.written").counter().count()).isEqualTo(750.0);
+        assertThat(registry.get("whatsapp.tracking.dropped").counter().count()).isZero();
+    }
+
+    @Test
+    @DisplayName("переповнена черга відкидає рядки, не блокуючи відправку; решта дописується")
+    void overflowDropsWithoutBlocking() throws Exception {
+        writer = writer(10, 100, 20);
+        repository.close();
+
+        writer.record(row(0));
+        repository.awaitBlocked();
+
+        // потік запису стоїть на першій пачці — у черзі місце лише на 10
+        long started = System.nanoTime();
+        for (int i = 1; i <= 15; i++) writer.record(row(i));
+        assertThat(System.nanoTime() - started).isLessThan(TimeUnit.SECONDS.toNanos(1));
+        assertThat(registry.get("whatsapp.tracking.dropped").counter().count()).isEqualTo(5.0);
+
+        repository.open();
+        awaitRows(11);
+    }
+
+    @Test
+    @DisplayName("stop() дописує все, що лишилось у черзі")
+    void stopFlushesQueue() throws Exception {
+        writer = writer(1_000, 50, 20);
+        repository.close();
+        writer.record(row(0));
+        repository.awaitBlocked();
+        for (int i = 1; i < 120; i++) writer.record(row(i));
+
+        // зупинка перериває потік запису посеред пачки; черга дописується в потоці, що зупиняє
+        writer.stop();
+        writer = null;
+
+        assertThat(rows()).isEqualTo(120);
+        assertThat(repository.sizes).allMatch(n -> n <= 50);
+    }
+
+    @Test
+    @DisplayName("результат відправки після статус-вебхука доповнює рядок, а не дублює і не відкочує статус")
+    void sendResultAfterStatusWebhook() throws Exception {
+        writer = writer(100, 10, 20);
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        repository.upsertStatuses(List.of(
+                new WhatsAppStatusUpdate(PREFIX + "race", RECIPIENT, DeliveryStatus.DELIVERED, now, now, null, null)));
+
+        writer.record(row("race", now.minusSeconds(2)));
+        // рядок статусу вже є — чекаємо саме запису результату відправки
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (registry.get("whatsapp.tracking.written").counter().count() < 1 && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(rows()).isEqualTo(1);
+
+        Map<String, Object> r = jdbc.queryForMap(
+                "SELECT status, template_name, sent_at FROM whatsapp_delivery_tracking WHERE message_id = ?", PREFIX + "race");
+        assertThat(r.get("status")).isEqualTo("DELIVERED");
+        assertThat(r.get("template_name")).isEqualTo("event_reminder");
+        assertThat(((Timestamp) r.get("sent_at")).toLocalDateTime()).isEqualTo(now.minusSeconds(2));
+    }
+
+    /* ===================== helpers ===================== */
+
+    private WhatsAppDeliveryTrackingWriter writer(int queueCapacity, int batchSize, long flushIntervalMs) {
+        WhatsAppDeliveryTrackingWriter w = new WhatsAppDeliveryTrackingWriter(repository, registry);
+        ReflectionTestUtils.setField(w, "enabled", true);
+        ReflectionTestUtils.setField(w, "queueCapacity", queueCapacity);
+        ReflectionTestUtils.setField(w, "batchSize", batchSize);
+        ReflectionTestUtils.setField(w, "flushIntervalMs", flushIntervalMs);
+        w.start();
+        return w;
+    }
+
+    private static WhatsAppDeliveryTracking row(int i) {
+        return row(String.valueOf(i), LocalDateTime.now());
+    }
+
+    private static WhatsAppDeliveryTracking row(String id, LocalDateTime sentAt) {
+        return WhatsAppDeliveryTracking.builder()
+                .messageId(PREFIX + id)
+                .recipient(RECIPIENT)
+                .templateName("event_reminder")
+                .notificationType(NotificationType.REMINDER_72H)
+                .status(DeliveryStatus.SENT)
+                .sentAt(sentAt)
+                .build();
+    }
+
+    private int rows() {
+        return jdbc.queryForObject(
+                "SELECT count(*) FROM whatsapp_delivery_tracking WHERE recipient = ?", Integer.class, RECIPIENT);
+    }
+
+    private void awaitRows(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (rows() < expected && System.nanoTime() < deadline) Thread.sleep(20);
+        assertThat(rows()).isEqualTo(expected);
+    }
+
+    private static String envOr(String name, String def) {
+        String v = System.getenv(name);
+        return v != null ? v : def;
+    }
+
+    /** Справжній запис у БД + розміри пачок і "засувка", що тримає фоновий потік запису на вході. */
+    private static final class RecordingRepository extends WhatsAppDeliveryTrackingBatchRepository {
+
+        final List<Integer> sizes = Collections.synchronizedList(new ArrayList<>());
+        private volatile CountDownLatch gate;
+        private final CountDownLatch blocked = new CountDownLatch(1);
+
+        RecordingRepository(JdbcTemplate jdbcTemplate) {
+            super(jdbcTemplate);
+        }
+
+        void close() {
+            gate = new CountDownLatch(1);
+        }
+
+        void open() {
+            CountDownLatch g = gate;
+            if (g != null) g.countDown();
+        }
+
+        void awaitBlocked() throws InterruptedException {
+            assertThat(blocked.await(5, TimeUnit.SECONDS)).isTrue();
+        }
+
+        @Override
+        public void insertBatch(List<WhatsAppDeliveryTracking> rows) {
+            CountDownLatch g = gate;
+            boolean interrupted = false;
+            if (g != null && Thread.currentThread().getName().equals("wa-tracking-writer")) {
+                blocked.countDown();
+                try {
+                    g.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            sizes.add(rows.size());
+            super.insertBatch(rows);
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+}
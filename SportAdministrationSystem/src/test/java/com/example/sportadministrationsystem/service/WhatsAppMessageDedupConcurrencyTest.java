@@ -0,0 +1,138 @@
+package com.example.sportadministrationsystem.service;
+
+import com.example.sportadministrationsystem.repository.ProcessedWhatsAppMessageBatchRepository;
+import com.example.sportadministrationsystem.repository.ProcessedWhatsAppMessageBatchRepository.Incoming;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Атомарне захоплення вхідних повідомлень WhatsApp кількома "вузлами" одночасно
+ * (окремі WhatsAppMessageDedup зі своїм кешем над однією БД).
+ *
+ * Потрібен справжній PostgreSQL зі схемою Flyway, тому тест вмикається змінною PG_TEST_URL
+ * (як SubscriptionToggleConcurrencyTest).
+ */
+@EnabledIfEnvironmentVariable(named = "PG_TEST_URL", matches = ".+")
+class WhatsAppMessageDedupConcurrencyTest {
+
+    private static final int NODES = 8;
+    private static final String PREFIX = "wamid.dedup-test-";
+
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbc;
+    private ProcessedWhatsAppMessageBatchRepository repository;
+    private ExecutorService pool;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(System.getenv("PG_TEST_URL"));
+        dataSource.setUsername(envOr("PG_TEST_USER", "postgres"));
+        dataSource.setPassword(envOr("PG_TEST_PASSWORD", ""));
+        dataSource.setMaximumPoolSize(NODES);
+        jdbc = new JdbcTemplate(dataSource);
+        repository = new ProcessedWhatsAppMessageBatchRepository(jdbc);
+        pool = Executors.newFixedThreadPool(NODES);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+        jdbc.update("DELETE FROM processed_whatsapp_messages WHERE message_id LIKE ?", PREFIX + "%");
+        dataSource.close();
+    }
+
+    @Test
+    @DisplayName("одне тіло на багатьох вузлах одночасно — кожне повідомлення захоплює рівно один")
+    void eachMessageClaimedByExactlyOneNode() throws Exception {
+        List<Incoming> body = messages(0, 50);
+        List<WhatsAppMessageDedup> nodes = new ArrayList<>();
+        for (int i = 0; i < NODES; i++) nodes.add(node(300_000));
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Set<String>>> results = new ArrayList<>();
+        for (WhatsAppMessageDedup node : nodes) {
+            results.add(pool.submit(() -> {
+                start.await();
+                return node.begin(body);
+            }));
+        }
+        start.countDown();
+
+        List<String> claimed = new ArrayList<>();
+        for (Future<Set<String>> f : results) claimed.addAll(f.get(30, TimeUnit.SECONDS));
+
+        assertThat(claimed).hasSize(body.size()).doesNotHaveDuplicates();
+        assertThat(state("PROCESSING")).isEqualTo(body.size());
+    }
+
+    @Test
+    @DisplayName("release() віддає повідомлення на повтор, markProcessed() — більше ніколи")
+    void releaseAllowsRetryDoneDoesNot() {
+        WhatsAppMessageDedup a = node(300_000);
+        WhatsAppMessageDedup b = node(300_000);
+        List<Incoming> body = messages(100, 2);
+        String ok = body.get(0).messageId();
+        String failed = body.get(1).messageId();
+
+        assertThat(a.begin(body)).containsExactlyInAnyOrder(ok, failed);
+        assertThat(b.begin(body)).isEmpty();
+
+        a.markProcessed(List.of(ok));
+        a.release(List.of(failed));
+
+        assertThat(b.begin(body)).containsExactly(failed);
+        assertThat(state("DONE")).isEqualTo(1);
+        // на вузлі, що обробив, повтор відсікається кешем
+        assertThat(a.allSeenRecently(List.of(ok))).isTrue();
+    }
+
+    @Test
+    @DisplayName("прострочене захоплення (вузол упав) перехоплює інший вузол")
+    void expiredClaimIsTakenOver() throws Exception {
+        List<Incoming> body = messages(200, 1);
+
+        assertThat(node(50).begin(body)).hasSize(1);
+        assertThat(node(300_000).begin(body)).isEmpty();
+
+        Thread.sleep(200);
+        assertThat(node(300_000).begin(body)).hasSize(1);
+    }
+
+    /* ===================== helpers ===================== */
+
+    private WhatsAppMessageDedup node(long leaseMs) {
+        WhatsAppMessageDedup dedup = new WhatsAppMessageDedup(repository, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(dedup, "cacheSize", 1000);
+        ReflectionTestUtils.setField(dedup, "claimLeaseMs", leaseMs);
+        dedup.initMetrics();
+        return dedup;
+    }
+
+    private static List<Incoming> messages(int from, int n) {
+        List<Incoming> list = new ArrayList<>();
+        for (int i = from; i < from + n; i++) list.add(new Incoming(PREFIX + i, "380500000000", "text"));
+        return list;
+    }
+
+    private int state(String state) {
+        return jdbc.queryForObject("SELECT count(*) FROM processed_whatsapp_messages WHERE message_id LIKE ? AND state = ?",
+                Integer.class, PREFIX + "%", state);
+    }
+
+    private static String envOr(String name, String def) {
+        String v = System.getenv(name);
+        return v != null ? v : def;
+    }
+}
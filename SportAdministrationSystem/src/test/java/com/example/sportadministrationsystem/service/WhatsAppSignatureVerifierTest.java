@@ -0,0 +1,83 @@
+package com.example.sportadministrationsystem.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.*;
+
+class WhatsAppSignatureVerifierTest {
+
+    private static final String SECRET = "app-secret";
+    private static final byte[] BODY = "{\"object\":\"whatsapp_business_account\",\"entry\":[]}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    private final WhatsAppSignatureVerifier verifier = new WhatsAppSignatureVerifier();
+
+    @Test
+    @DisplayName("валідний підпис у нижньому й верхньому регістрі hex приймається")
+    void validSignatureAnyHexCase() {
+        String hex = hmacHex(BODY, SECRET);
+
+        assertThat(verifier.isValid(BODY, "sha256=" + hex, SECRET)).isTrue();
+        assertThat(verifier.isValid(BODY, "sha256=" + hex.toUpperCase(Locale.ROOT), SECRET)).isTrue();
+        assertThat(verifier.isValid(BODY, "SHA256=" + hex, SECRET)).isTrue();
+    }
+
+    @Test
+    @DisplayName("чужий дайджест відхиляється, а наступна перевірка того ж потоку не ламається")
+    void wrongDigestRejected() {
+        String other = hmacHex("інше тіло".getBytes(StandardCharsets.UTF_8), SECRET);
+
+        assertThat(verifier.isValid(BODY, "sha256=" + other, SECRET)).isFalse();
+        assertThat(verifier.isValid(BODY, "sha256=" + hmacHex(BODY, SECRET), SECRET)).isTrue();
+    }
+
+    @Test
+    @DisplayName("неправильна довжина, префікс чи не-hex символи відхиляються")
+    void malformedHeaderRejected() {
+        String hex = hmacHex(BODY, SECRET);
+
+        assertThat(verifier.isValid(BODY, "sha256=" + hex.substring(2), SECRET)).isFalse();
+        assertThat(verifier.isValid(BODY, "sha256=" + hex + "00", SECRET)).isFalse();
+        assertThat(verifier.isValid(BODY, "sha1=00" + hex, SECRET)).isFalse();
+        assertThat(verifier.isValid(BODY, "md5xyz=" + hex, SECRET)).isFalse();
+        assertThat(verifier.isValid(BODY, "sha256=" + "zz" + hex.substring(2), SECRET)).isFalse();
+        assertThat(verifier.isValid(BODY, null, SECRET)).isFalse();
+        assertThat(verifier.isValid(null, "sha256=" + hex, SECRET)).isFalse();
+    }
+
+    @Test
+    @DisplayName("зміна секрета між викликами переініціалізує ключ потоку")
+    void secretChangeReinitialisesKey() {
+        String oldSig = "sha256=" + hmacHex(BODY, SECRET);
+        String newSig = "sha256=" + hmacHex(BODY, "rotated-secret");
+
+        assertThat(verifier.isValid(BODY, oldSig, SECRET)).isTrue();
+        assertThat(verifier.isValid(BODY, oldSig, "rotated-secret")).isFalse();
+        assertThat(verifier.isValid(BODY, newSig, "rotated-secret")).isTrue();
+        assertThat(verifier.isValid(BODY, oldSig, SECRET)).isTrue();
+    }
+
+    @Test
+    @DisplayName("без секрета перевірка вимкнена")
+    void blankSecretSkipsCheck() {
+        assertThat(verifier.isValid(BODY, null, "")).isTrue();
+        assertThat(verifier.isValid(BODY, "garbage", null)).isTrue();
+    }
+
+    private static String hmacHex(byte[] body, String secret) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return HexFormat.of().formatHex(mac.doFinal(body));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
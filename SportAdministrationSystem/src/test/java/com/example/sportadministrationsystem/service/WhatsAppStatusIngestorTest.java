@@ -0,0 +1,128 @@
+package com.example.sportadministrationsystem.service;
+
+import com.example.sportadministrationsystem.dto.WhatsAppStatusUpdate;
+import com.example.sportadministrationsystem.model.DeliveryStatus;
+import com.example.sportadministrationsystem.repository.WhatsAppDeliveryTrackingBatchRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WhatsAppStatusIngestorTest {
+
+    private static final long T0 = 1_700_000_000L;
+
+    @Mock WhatsAppDeliveryTrackingBatchRepository batchRepository;
+
+    private WhatsAppStatusIngestor ingestor;
+
+    @BeforeEach
+    void init() {
+        ingestor = new WhatsAppStatusIngestor(batchRepository, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(ingestor, "batchSize", 2);
+        ReflectionTestUtils.setField(ingestor, "maxPending", 100);
+        ingestor.initMetrics();
+    }
+
+    @Test
+    @DisplayName("статуси не по порядку (read → sent → delivered) зливаються в READ з найранішими часами")
+    void outOfOrderStatusesMoveForwardOnly() {
+        ingestor.accept("wamid.1", "read", T0 + 30, "380500000001", null);
+        ingestor.accept("wamid.1", "sent", T0, null, null);
+        ingestor.accept("wamid.1", "delivered", T0 + 10, null, null);
+
+        WhatsAppStatusUpdate u = flushSingle();
+        assertThat(u.status()).isEqualTo(DeliveryStatus.READ);
+        assertThat(u.recipient()).isEqualTo("380500000001");
+        assertThat(u.firstSeenAt()).isEqualTo(at(T0));
+        assertThat(u.deliveredAt()).isEqualTo(at(T0 + 10));
+        assertThat(u.readAt()).isEqualTo(at(T0 + 30));
+        assertThat(u.error()).isNull();
+    }
+
+    @Test
+    @DisplayName("failed після delivered — FAILED з помилкою, час доставки зберігається")
+    void failedAfterDelivered() {
+        ingestor.accept("wamid.2", "delivered", T0 + 5, "380500000002", null);
+        ingestor.accept("wamid.2", "failed", T0 + 9, "380500000002", "code 131047: Re-engagement message");
+
+        WhatsAppStatusUpdate u = flushSingle();
+        assertThat(u.status()).isEqualTo(DeliveryStatus.FAILED);
+        assertThat(u.error()).isEqualTo("code 131047: Re-engagement message");
+        assertThat(u.deliveredAt()).isEqualTo(at(T0 + 5));
+    }
+
+    @Test
+    @DisplayName("delivered після failed не повертає статус назад і не стирає помилку")
+    void deliveredAfterFailedKeepsFailure() {
+        ingestor.accept("wamid.3", "failed", T0, "380500000003", "code 1: boom");
+        ingestor.accept("wamid.3", "delivered", T0 + 1, "380500000003", null);
+
+        WhatsAppStatusUpdate u = flushSingle();
+        assertThat(u.status()).isEqualTo(DeliveryStatus.FAILED);
+        assertThat(u.error()).isEqualTo("code 1: boom");
+    }
+
+    @Test
+    @DisplayName("невідомі статуси й порожні id ігноруються")
+    void unknownIgnored() {
+        ingestor.accept("wamid.4", "deleted", T0, null, null);
+        ingestor.accept(" ", "sent", T0, null, null);
+        ingestor.accept("wamid.5", null, T0, null, null);
+
+        assertThat(ingestor.flush()).isZero();
+        verifyNoInteractions(batchRepository);
+    }
+
+    @Test
+    @DisplayName("кілька колбеків одного повідомлення не рахуються в max-pending; понад ліміт — запис одразу")
+    void inlineFlushPastMaxPending() {
+        ReflectionTestUtils.setField(ingestor, "maxPending", 3);
+
+        for (int i = 0; i < 5; i++) ingestor.accept("wamid.a", "sent", T0 + i, null, null);
+        ingestor.accept("wamid.b", "sent", T0, null, null);
+        verifyNoInteractions(batchRepository);
+
+        ingestor.accept("wamid.c", "sent", T0, null, null);
+
+        // 3 повідомлення при batch-size 2 — дві пачки, записані в потоці виклику
+        verify(batchRepository, times(2)).upsertStatuses(anyList());
+        assertThat(ingestor.flush()).isZero();
+    }
+
+    @Test
+    @DisplayName("flush() ділить накопичене на пачки по batch-size")
+    void flushSplitsIntoBatches() {
+        for (int i = 0; i < 5; i++) ingestor.accept("wamid.b" + i, "sent", T0, null, null);
+
+        assertThat(ingestor.flush()).isEqualTo(5);
+        verify(batchRepository, times(3)).upsertStatuses(anyList());
+    }
+
+    private WhatsAppStatusUpdate flushSingle() {
+        List<WhatsAppStatusUpdate> written = new ArrayList<>();
+        doAnswer(inv -> written.addAll(inv.getArgument(0))).when(batchRepository).upsertStatuses(anyList());
+        assertThat(ingestor.flush()).isEqualTo(1);
+        assertThat(written).hasSize(1);
+        return written.get(0);
+    }
+
+    private static LocalDateTime at(long epochSecond) {
+        return LocalDateTime.ofInstant(Instant.ofEpochSecond(epochSecond), ZoneId.systemDefault());
+    }
+}
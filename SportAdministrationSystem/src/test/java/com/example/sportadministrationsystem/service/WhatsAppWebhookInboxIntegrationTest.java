@@ -0,0 +1,253 @@
+package com.example.sportadministrationsystem.service;
+
+import com.example.sportadministrationsystem.repository.WhatsAppWebhookInboxRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Вхідна черга вебхуків WhatsApp на справжній БД: group commit прийому і подавач
+ * (порядок, ліміт у польоті, повтори з паузою, підхоплення рядків упалого вузла).
+ *
+ * Потрібен справжній PostgreSQL зі схемою Flyway (SKIP LOCKED, UPDATE ... RETURNING),
+ * тому тест вмикається змінною PG_TEST_URL (як SubscriptionToggleConcurrencyTest).
+ * WhatsAppService замокано — тест перевіряє саму чергу, а не обробку повідомлень.
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@EnabledIfEnvironmentVariable(named = "PG_TEST_URL", matches = ".+")
+class WhatsAppWebhookInboxIntegrationTest {
+
+    private static final String MARKER = "inbox-test-";
+
+    @Mock WhatsAppService whatsAppService;
+
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbc;
+    private CountingRepository repository;
+    private WhatsAppWebhookInbox inbox;
+    private final List<String> handled = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(System.getenv("PG_TEST_URL"));
+        dataSource.setUsername(envOr("PG_TEST_USER", "postgres"));
+        dataSource.setPassword(envOr("PG_TEST_PASSWORD", ""));
+        jdbc = new JdbcTemplate(dataSource);
+        repository = new CountingRepository(jdbc);
+        when(whatsAppService.handleWebhook(anyString())).thenAnswer(inv -> {
+            handled.add(inv.getArgument(0));
+            return CompletableFuture.completedFuture(null);
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (inbox != null) inbox.stop();
+        jdbc.update("DELETE FROM whatsapp_webhook_inbox WHERE body LIKE ?", "%" + MARKER + "%");
+        dataSource.close();
+    }
+
+    @Test
+    @DisplayName("одночасні вебхуки пишуться кількома багаторядковими INSERT; future — після коміту")
+    void concurrentAppendsAreGroupCommitted() throws Exception {
+        inbox = inbox(10, 1, 10_000);
+        int webhooks = 400;
+        ExecutorService senders = Executors.newFixedThreadPool(16);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> acks = new ArrayList<>();
+            for (int i = 0; i < webhooks; i++) {
+                String body = body(i);
+                acks.add(senders.submit(() -> {
+                    start.await();
+                    inbox.append(body).get(10, TimeUnit.SECONDS);
+                    // підтверджено — отже рядок уже в БД
+                    assertThat(stored(body)).isEqualTo(1);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> f : acks) f.get(30, TimeUnit.SECONDS);
+        } finally {
+            senders.shutdownNow();
+        }
+
+        assertThat(rows("NEW")).isEqualTo(webhooks);
+        assertThat(repository.inserts.get()).isLessThan(webhooks);
+    }
+
+    @Test
+    @DisplayName("подавач обробляє рядки в порядку надходження і позначає їх DONE")
+    void feederProcessesInOrder() throws Exception {
+        inbox = inbox(10, 3, 10_000);
+        List<String> bodies = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            bodies.add(body(i));
+            inbox.append(body(i)).get(5, TimeUnit.SECONDS);
+        }
+
+        inbox.startFeeder();
+
+        await(() -> rows("DONE") == bodies.size());
+        assertThat(own(handled)).containsExactlyElementsOf(bodies);
+    }
+
+    @Test
+    @DisplayName("у польоті не більше max-in-flight рядків; решта чекає в БД")
+    void maxInFlightBoundsClaims() throws Exception {
+        inbox = inbox(2, 2, 10_000);
+        List<CompletableFuture<Void>> pending = new CopyOnWriteArrayList<>();
+        when(whatsAppService.handleWebhook(anyString())).thenAnswer(inv -> {
+            CompletableFuture<Void> f = new CompletableFuture<>();
+            pending.add(f);
+            return f;
+        });
+        for (int i = 0; i < 6; i++) inbox.append(body(i)).get(5, TimeUnit.SECONDS);
+
+        inbox.startFeeder();
+        await(() -> rows("PROCESSING") == 2);
+        Thread.sleep(300);
+        assertThat(rows("PROCESSING")).isEqualTo(2);
+        assertThat(rows("NEW")).isEqualTo(4);
+
+        // кожен звільнений слот одразу забирає наступний рядок
+        while (rows("DONE") < 6) {
+            pending.forEach(f -> f.complete(null));
+            Thread.sleep(50);
+        }
+        assertThat(rows("DONE")).isEqualTo(6);
+    }
+
+    @Test
+    @DisplayName("невдалий рядок повторюється з паузою attempts * retry-backoff, після max-attempts — FAILED")
+    void failedRowIsRetriedWithBackoff() throws Exception {
+        inbox = inbox(10, 10, 10_000);
+        ReflectionTestUtils.setField(inbox, "maxAttempts", 3);
+        ReflectionTestUtils.setField(inbox, "retryBackoffMs", 300L);
+        ReflectionTestUtils.setField(inbox, "pollIntervalMs", 50L);
+        List<Long> attemptsAt = new CopyOnWriteArrayList<>();
+        when(whatsAppService.handleWebhook(anyString())).thenAnswer(inv -> {
+            attemptsAt.add(System.nanoTime());
+            return CompletableFuture.failedFuture(new IllegalStateException("poison"));
+        });
+        inbox.append(body(0)).get(5, TimeUnit.SECONDS);
+
+        inbox.startFeeder();
+
+        await(() -> rows("FAILED") == 1);
+        assertThat(attemptsAt).hasSize(3);
+        // пауза перед 2-ю спробою ~300 мс, перед 3-ю ~600 мс
+        assertThat(TimeUnit.NANOSECONDS.toMillis(attemptsAt.get(1) - attemptsAt.get(0))).isGreaterThanOrEqualTo(250);
+        assertThat(TimeUnit.NANOSECONDS.toMillis(attemptsAt.get(2) - attemptsAt.get(1))).isGreaterThanOrEqualTo(550);
+        assertThat(jdbc.queryForObject("SELECT error FROM whatsapp_webhook_inbox WHERE body = ?", String.class, body(0)))
+                .contains("poison");
+    }
+
+    @Test
+    @DisplayName("рядок впалого вузла (прострочена оренда) підхоплюється знову, живу оренду не чіпають")
+    void expiredLeaseIsReclaimed() throws Exception {
+        jdbc.update("""
+                INSERT INTO whatsapp_webhook_inbox (body, received_at, status, attempts, locked_until)
+                VALUES (?, NOW(), 'PROCESSING', 1, NOW() - interval '1 second'),
+                       (?, NOW(), 'PROCESSING', 1, NOW() + interval '1 hour')
+                """, body(0), body(1));
+        inbox = inbox(10, 10, 10_000);
+
+        inbox.startFeeder();
+
+        await(() -> rows("DONE") == 1);
+        assertThat(own(handled)).containsExactly(body(0));
+        assertThat(jdbc.queryForObject("SELECT attempts FROM whatsapp_webhook_inbox WHERE body = ?", Integer.class, body(0)))
+                .isEqualTo(2);
+        assertThat(rows("PROCESSING")).isEqualTo(1);
+    }
+
+    /* ===================== helpers ===================== */
+
+    private WhatsAppWebhookInbox inbox(int maxInFlight, int claimBatchSize, long leaseMs) {
+        WhatsAppWebhookInbox i = new WhatsAppWebhookInbox(repository, whatsAppService, new SimpleMeterRegistry(), dataSource);
+        ReflectionTestUtils.setField(i, "enabled", true);
+        ReflectionTestUtils.setField(i, "queueCapacity", 1_000);
+        ReflectionTestUtils.setField(i, "insertBatchSize", 200);
+        ReflectionTestUtils.setField(i, "maxInFlight", maxInFlight);
+        ReflectionTestUtils.setField(i, "claimBatchSize", claimBatchSize);
+        ReflectionTestUtils.setField(i, "leaseMs", leaseMs);
+        ReflectionTestUtils.setField(i, "maxAttempts", 5);
+        ReflectionTestUtils.setField(i, "retryBackoffMs", 30_000L);
+        ReflectionTestUtils.setField(i, "pollIntervalMs", 100L);
+        ReflectionTestUtils.setField(i, "retentionDays", 7);
+        i.init();
+        return i;
+    }
+
+    private static String body(int n) {
+        return "{\"object\":\"whatsapp_business_account\",\"test\":\"" + MARKER + n + "\"}";
+    }
+
+    /** Лише тіла цього тесту (спільна тестова БД може мати інші рядки черги). */
+    private static List<String> own(List<String> bodies) {
+        synchronized (bodies) {
+            return bodies.stream().filter(b -> b.contains(MARKER)).toList();
+        }
+    }
+
+    private int rows(String status) {
+        return jdbc.queryForObject("SELECT count(*) FROM whatsapp_webhook_inbox WHERE status = ? AND body LIKE ?",
+                Integer.class, status, "%" + MARKER + "%");
+    }
+
+    private int stored(String body) {
+        return jdbc.queryForObject("SELECT count(*) FROM whatsapp_webhook_inbox WHERE body = ?", Integer.class, body);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) fail("condition not reached in 10 s");
+            Thread.sleep(20);
+        }
+    }
+
+    private static String envOr(String name, String def) {
+        String v = System.getenv(name);
+        return v != null ? v : def;
+    }
+
+    /** Справжній запис у БД + лічильник INSERT-ів (пачок group commit). */
+    private static final class CountingRepository extends WhatsAppWebhookInboxRepository {
+
+        final AtomicInteger inserts = new AtomicInteger();
+
+        CountingRepository(JdbcTemplate jdbcTemplate) {
+            super(jdbcTemplate);
+        }
+
+        @Override
+        public int insertBatch(List<String> bodies, LocalDateTime receivedAt) {
+            inserts.incrementAndGet();
+            return super.insertBatch(bodies, receivedAt);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.sportadministrationsystem.service;
+
+import com.example.sportadministrationsystem.benchmark.WhatsAppWebhookParseBenchmark;
+import com.example.sportadministrationsystem.dto.WhatsAppWebhookPayload;
+import com.example.sportadministrationsystem.dto.WhatsAppWebhookPayload.Message;
+import com.example.sportadministrationsystem.dto.WhatsAppWebhookPayload.Status;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.*;
+
+class WhatsAppWebhookParserTest {
+
+    private final WhatsAppWebhookParser parser = new WhatsAppWebhookParser(new ObjectMapper());
+
+    @Test
+    @DisplayName("contacts після messages — ім'я профілю все одно проставляється")
+    void contactsAfterMessages() throws IOException {
+        WhatsAppWebhookPayload payload = parser.parse(value("""
+                "messages":[{"from":"380500000001","id":"wamid.1","type":"text","text":{"body":"HELP"}}],
+                "contacts":[{"profile":{"name":"Олена"},"wa_id":"380500000001"}]
+                """));
+
+        assertThat(payload.messages()).containsExactly(
+                new Message("wamid.1", "380500000001", "Олена", "text", "HELP", null, null));
+    }
+
+    @Test
+    @DisplayName("button_reply, list_reply і button.payload потрапляють в actionId")
+    void actionIdFromInteractiveAndButton() throws IOException {
+        WhatsAppWebhookPayload payload = parser.parse(value("""
+                "messages":[
+                  {"from":"1","id":"a","type":"interactive","interactive":{"type":"button_reply","button_reply":{"id":"EVT_SUB:12","title":"Так"}}},
+                  {"from":"1","id":"b","type":"interactive","interactive":{"list_reply":{"id":"EVT_UNSUB:7","title":"Ні"},"type":"list_reply"}},
+                  {"from":"1","id":"c","type":"button","button":{"payload":"EVT_UNSUB:12","text":"Відписатися"}},
+                  {"from":"1","id":"d","type":"interactive","interactive":{"type":"nfm_reply","button_reply":{"id":"X"}}},
+                  {"from":"1","id":"e","type":"text","text":{"body":"hi"},"button":{"payload":"IGNORED"}}
+                ]
+                """));
+
+        assertThat(payload.messages()).extracting(Message::id, Message::actionId).containsExactly(
+                tuple("a", "EVT_SUB:12"),
+                tuple("b", "EVT_UNSUB:7"),
+                tuple("c", "EVT_UNSUB:12"),
+                tuple("d", null),
+                tuple("e", null));
+    }
+
+    @Test
+    @DisplayName("timestamp статусу рядком і числом; з errors[] береться лише перший")
+    void statusTimestampAndFirstError() throws IOException {
+        WhatsAppWebhookPayload payload = parser.parse(value("""
+                "statuses":[
+                  {"id":"wamid.s1","status":"failed","timestamp":"1700000123","recipient_id":"380500000001",
+                   "errors":[{"code":131047,"title":"Re-engagement message"},{"code":1,"title":"other"}]},
+                  {"id":"wamid.s2","status":"delivered","timestamp":1700000456,"recipient_id":"380500000002"}
+                ]
+                """));
+
+        assertThat(payload.statuses()).containsExactly(
+                new Status("wamid.s1", "failed", 1700000123L, "380500000001", "code 131047: Re-engagement message"),
+                new Status("wamid.s2", "delivered", 1700000456L, "380500000002", null));
+    }
+
+    @Test
+    @DisplayName("не-об'єктні елементи й поля неочікуваного типу пропускаються")
+    void nonObjectElementsSkipped() throws IOException {
+        WhatsAppWebhookPayload payload = parser.parse("""
+                {"object":"whatsapp_business_account","entry":[
+                  "junk", 42, null,
+                  {"changes":[[1,2], {"value":"oops"}, {"value":{
+                    "contacts":["x", {"profile":"no-object"}, {"profile":{"name":["a"]}}],
+                    "messages":[7, {"from":"1","id":"m1","type":"text","text":"plain","extra":{"deep":[{"a":1}]}}],
+                    "statuses":"none"
+                  }}]}
+                ]}
+                """);
+
+        assertThat(payload.messages()).containsExactly(new Message("m1", "1", null, "text", null, null, null));
+        assertThat(payload.statuses()).isEmpty();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 50})
+    @DisplayName("тіла з бенчмарку розбираються так само, як обхід JsonNode-дерева")
+    void benchmarkPayloads(int n) throws IOException {
+        byte[] body = WhatsAppWebhookParseBenchmark.payload(n).getBytes(StandardCharsets.UTF_8);
+
+        WhatsAppWebhookPayload payload = parser.parse(body);
+
+        assertThat(payload.messages()).hasSize(n);
+        assertThat(payload.messageIds()).hasSize(n).doesNotHaveDuplicates();
+        for (int i = 0; i < n; i++) {
+            Message m = payload.messages().get(i);
+            assertThat(m.id()).isEqualTo("wamid.HBgMMzgwNTAwMDAwMDAwFQIAEhgg" + i);
+            assertThat(m.from()).isEqualTo("38050000" + i / 5);
+            assertThat(m.profileName()).isEqualTo("Користувач " + i / 5);
+            switch (i % 4) {
+                case 0 -> assertThat(m).extracting(Message::type, Message::text, Message::actionId)
+                        .containsExactly("text", "START 12", null);
+                case 1 -> assertThat(m).extracting(Message::type, Message::actionId)
+                        .containsExactly("interactive", "EVT_SUB:12");
+                case 2 -> assertThat(m).extracting(Message::type, Message::actionId)
+                        .containsExactly("button", "EVT_UNSUB:12");
+                default -> assertThat(m).extracting(Message::type, Message::text, Message::actionId)
+                        .containsExactly("image", null, null);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("messageIds(): порожньо, якщо є статуси або повідомлення без id")
+    void messageIdsEmptyRule() throws IOException {
+        WhatsAppWebhookPayload withStatus = parser.parse(value("""
+                "messages":[{"from":"1","id":"m1","type":"text"}],
+                "statuses":[{"id":"s1","status":"sent","timestamp":"1"}]
+                """));
+        WhatsAppWebhookPayload missingId = parser.parse(value("""
+                "messages":[{"from":"1","id":"m1","type":"text"},{"from":"1","type":"text"},{"from":"1","id":" ","type":"text"}]
+                """));
+        WhatsAppWebhookPayload ok = parser.parse(value("""
+                "messages":[{"from":"1","id":"m1","type":"text"},{"from":"2","id":"m2","type":"text"}]
+                """));
+
+        assertThat(withStatus.messages()).hasSize(1);
+        assertThat(withStatus.messageIds()).isEmpty();
+        assertThat(missingId.messages()).hasSize(3);
+        assertThat(missingId.messageIds()).isEmpty();
+        assertThat(ok.messageIds()).containsExactly("m1", "m2");
+    }
+
+    @Test
+    @DisplayName("нерозбірний JSON — IOException")
+    void malformedJsonThrows() {
+        assertThatThrownBy(() -> parser.parse("{\"entry\":[{")).isInstanceOf(IOException.class);
+    }
+
+    /** Тіло з одним entry/change і заданим вмістом value. */
+    private static String value(String fields) {
+        return "{\"object\":\"whatsapp_business_account\",\"entry\":[{\"id\":\"1\",\"changes\":[{\"field\":\"messages\",\"value\":{"
+                + fields + "}}]}]}";
+    }
+}
@@ -62,6 +62,12 @@ export const getWhatsAppSubscriptionCount = (eventId) => {
     return http.get(`${base}/${encodeURIComponent(eventId)}/subscription/whatsapp/count`);
 };
 
+/** Кількість підписників (telegram/whatsapp) для кількох подій одним запитом (для списків) */
+export const getSubscriberCounts = (eventIds = []) => {
+    const qs = new URLSearchParams({ ids: eventIds.join(",") });
+    return http.get(`${base}/subscriber-counts?${qs.toString()}`);
+};
+
 /** Посилання для зв'язку з Telegram-ботом (для користувача) */
 export const getTelegramLinkUrl = () =>
     http.get(`/telegram/link-url`);
@@ -4,7 +4,8 @@ import { http } from "@/utils/fetchWrapper.jsx";
 /** Статуси поста */
 export const PostStatus = {
     DRAFT: "DRAFT",
-    SCHEDULED: "SCHEDULED",
+    SCHEDULED: "SCHEDULED",
+    DISPATCHING: "DISPATCHING",
     PUBLISHED: "PUBLISHED",
     FAILED: "FAILED",
     CANCELLED: "CANCELLED",